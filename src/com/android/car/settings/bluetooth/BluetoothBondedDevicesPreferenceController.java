@@ -69,7 +69,7 @@ public class BluetoothBondedDevicesPreferenceController extends
 
     @Override
     public void onDeviceBondStateChanged(CachedBluetoothDevice cachedDevice, int bondState) {
-        refreshUi();
+        scheduleRefreshUi();
     }
 
     @Override
@@ -16,9 +16,11 @@
 
 package com.android.car.settings.bluetooth;
 
+import android.bluetooth.BluetoothDevice;
 import android.content.Context;
 import android.graphics.drawable.Drawable;
 import android.os.SystemProperties;
+import android.text.TextUtils;
 import android.util.Pair;
 
 import androidx.annotation.NonNull;
@@ -29,22 +31,42 @@ import com.android.car.settings.R;
 import com.android.car.ui.preference.CarUiTwoActionIconPreference;
 import com.android.settingslib.bluetooth.CachedBluetoothDevice;
 
+import java.util.Comparator;
+
 /**
  * Preference which represents a specific {@link CachedBluetoothDevice}. The title, icon, and
  * summary are kept in sync with the device when the preference is shown. When the device is busy,
- * the preference is disabled. The equality and sort order of this preference is determined by the
- * underlying cached device {@link CachedBluetoothDevice#equals(Object)} and {@link
- * CachedBluetoothDevice#compareTo(CachedBluetoothDevice)}. If two devices are considered equal, the
- * default preference sort ordering is used (see {@link #compareTo(Preference)}.
+ * the preference is disabled. The equality of this preference is determined by the underlying
+ * cached device {@link CachedBluetoothDevice#equals(Object)}.
+ *
+ * <p>Devices are sorted connected first, then bonded, then by name and address. Unlike {@link
+ * CachedBluetoothDevice#compareTo(CachedBluetoothDevice)}, the signal strength is not part of the
+ * order, so the list stays stable while scanning. Since every hierarchy change re-sorts the whole
+ * group, the group is only notified when one of these attributes changes.
  */
 public class BluetoothDevicePreference extends CarUiTwoActionIconPreference {
     private static final String BLUETOOTH_SHOW_DEVICES_WITHOUT_NAMES_PROPERTY =
             "persist.bluetooth.showdeviceswithoutnames";
+    private static final Comparator<String> NULLS_LAST_COMPARATOR =
+            Comparator.nullsLast(Comparator.naturalOrder());
+    private static final Comparator<BluetoothDevicePreference> SORT_KEY_COMPARATOR =
+            Comparator.<BluetoothDevicePreference, Boolean>comparing(
+                    preference -> !preference.mSortKeyConnected)
+                    .thenComparing(preference ->
+                            preference.mSortKeyBondState != BluetoothDevice.BOND_BONDED)
+                    .thenComparing(preference -> preference.mSortKeyName, NULLS_LAST_COMPARATOR)
+                    .thenComparing(preference -> preference.mCachedDevice.getAddress(),
+                            NULLS_LAST_COMPARATOR);
 
     private final CachedBluetoothDevice mCachedDevice;
     private final boolean mShowDevicesWithoutNames;
     private final CachedBluetoothDevice.Callback mDeviceCallback = this::refreshUi;
 
+    private boolean mHasSortKey;
+    private boolean mSortKeyConnected;
+    private int mSortKeyBondState;
+    private String mSortKeyName;
+
     public BluetoothDevicePreference(Context context, CachedBluetoothDevice cachedDevice) {
         super(context);
         mCachedDevice = cachedDevice;
@@ -88,8 +110,30 @@ public class BluetoothDevicePreference extends CarUiTwoActionIconPreference {
         setEnabled(!mCachedDevice.isBusy());
         setVisible(mShowDevicesWithoutNames || mCachedDevice.hasHumanReadableName());
 
-        // Notify since the ordering may have changed.
-        notifyHierarchyChanged();
+        if (updateSortKey()) {
+            // Notify since the ordering may have changed.
+            notifyHierarchyChanged();
+        }
+    }
+
+    /**
+     * Captures the device attributes which affect the ordering and returns whether any of them
+     * changed since the last call. The first capture is not reported as a change.
+     */
+    private boolean updateSortKey() {
+        boolean connected = mCachedDevice.isConnected();
+        int bondState = mCachedDevice.getBondState();
+        String name = mCachedDevice.getName();
+        if (mHasSortKey && mSortKeyConnected == connected && mSortKeyBondState == bondState
+                && TextUtils.equals(mSortKeyName, name)) {
+            return false;
+        }
+        boolean changed = mHasSortKey;
+        mHasSortKey = true;
+        mSortKeyConnected = connected;
+        mSortKeyBondState = bondState;
+        mSortKeyName = name;
+        return changed;
     }
 
     @Override
@@ -112,7 +156,14 @@ public class BluetoothDevicePreference extends CarUiTwoActionIconPreference {
             return super.compareTo(another);
         }
 
-        return mCachedDevice
-                .compareTo(((BluetoothDevicePreference) another).mCachedDevice);
+        BluetoothDevicePreference other = (BluetoothDevicePreference) another;
+        // The preference is sorted when added to its group, before the first refresh.
+        if (!mHasSortKey) {
+            updateSortKey();
+        }
+        if (!other.mHasSortKey) {
+            other.updateSortKey();
+        }
+        return SORT_KEY_COMPARATOR.compare(this, other);
     }
 }
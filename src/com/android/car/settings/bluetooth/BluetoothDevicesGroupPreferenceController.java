@@ -29,9 +29,12 @@ import com.android.settingslib.bluetooth.BluetoothCallback;
 import com.android.settingslib.bluetooth.BluetoothDeviceFilter;
 import com.android.settingslib.bluetooth.CachedBluetoothDevice;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -40,8 +43,9 @@ import java.util.Set;
  * defined filter and removing preferences for devices that no longer pass. Subclasses are
  * dispatched click events on individual preferences to customize the behavior.
  *
- * <p>Note: {@link #refreshUi()} is called whenever a device is added or removed with {@link
- * #onDeviceAdded(CachedBluetoothDevice)} or {@link #onDeviceDeleted(CachedBluetoothDevice)}.
+ * <p>Note: {@link #refreshUi()} is scheduled whenever a device is added or removed with {@link
+ * #onDeviceAdded(CachedBluetoothDevice)} or {@link #onDeviceDeleted(CachedBluetoothDevice)}, so
+ * all devices found within a frame are applied to the group in a single pass.
  * Subclasses should listen to state changes (and possibly override additional {@link
  * BluetoothCallback} methods) and call {@link #refreshUi()} for changes which affect their
  * implementation of {@link #getDeviceFilter()}.
@@ -51,6 +55,9 @@ public abstract class BluetoothDevicesGroupPreferenceController extends
 
     private final Map<CachedBluetoothDevice, BluetoothDevicePreference> mPreferenceMap =
             new HashMap<>();
+    // Reused across refreshes to avoid allocating while devices are being discovered.
+    private final List<CachedBluetoothDevice> mMatchingDevices = new ArrayList<>();
+    private final Set<CachedBluetoothDevice> mShownDevices = new HashSet<>();
     private final Preference.OnPreferenceClickListener mDevicePreferenceClickListener =
             preference -> {
                 onDeviceClicked(((BluetoothDevicePreference) preference).getCachedDevice());
@@ -74,6 +81,14 @@ public abstract class BluetoothDevicesGroupPreferenceController extends
      */
     protected abstract BluetoothDeviceFilter.Filter getDeviceFilter();
 
+    /**
+     * Called with the devices which pass {@link #getDeviceFilter()} before they are shown.
+     * Subclasses may remove devices from the list to hide them, e.g. to limit the size of the
+     * group.
+     */
+    protected void selectDevices(List<CachedBluetoothDevice> matchingDevices) {
+    }
+
     /**
      * Returns a newly created {@link BluetoothDevicePreference} for the given {@link
      * CachedBluetoothDevice}. Subclasses may override this method to customize how devices are
@@ -104,19 +119,31 @@ public abstract class BluetoothDevicesGroupPreferenceController extends
         Collection<CachedBluetoothDevice> cachedDevices =
                 getBluetoothManager().getCachedDeviceManager().getCachedDevicesCopy();
 
-        Set<CachedBluetoothDevice> devicesToRemove = new HashSet<>(mPreferenceMap.keySet());
-        devicesToRemove.removeAll(cachedDevices);
-        for (CachedBluetoothDevice deviceToRemove : devicesToRemove) {
-            removePreference(deviceToRemove);
-        }
-
+        BluetoothDeviceFilter.Filter filter = getDeviceFilter();
         for (CachedBluetoothDevice cachedDevice : cachedDevices) {
-            if (getDeviceFilter().matches(cachedDevice.getDevice())) {
-                addPreference(cachedDevice);
-            } else {
-                removePreference(cachedDevice);
+            if (filter.matches(cachedDevice.getDevice())) {
+                mMatchingDevices.add(cachedDevice);
             }
         }
+        selectDevices(mMatchingDevices);
+        for (int i = 0, size = mMatchingDevices.size(); i < size; i++) {
+            CachedBluetoothDevice cachedDevice = mMatchingDevices.get(i);
+            mShownDevices.add(cachedDevice);
+            addPreference(cachedDevice);
+        }
+        mMatchingDevices.clear();
+
+        // Remove devices which are gone, no longer pass the filter or were not selected.
+        Iterator<Map.Entry<CachedBluetoothDevice, BluetoothDevicePreference>> iterator =
+                mPreferenceMap.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<CachedBluetoothDevice, BluetoothDevicePreference> entry = iterator.next();
+            if (!mShownDevices.contains(entry.getKey())) {
+                preferenceGroup.removePreference(entry.getValue());
+                iterator.remove();
+            }
+        }
+        mShownDevices.clear();
 
         preferenceGroup.setVisible(preferenceGroup.getPreferenceCount() > 0);
     }
@@ -134,12 +161,12 @@ public abstract class BluetoothDevicesGroupPreferenceController extends
 
     @Override
     public final void onDeviceAdded(CachedBluetoothDevice cachedDevice) {
-        refreshUi();
+        scheduleRefreshUi();
     }
 
     @Override
     public final void onDeviceDeleted(CachedBluetoothDevice cachedDevice) {
-        refreshUi();
+        scheduleRefreshUi();
     }
 
     private void addPreference(CachedBluetoothDevice cachedDevice) {
@@ -150,11 +177,4 @@ public abstract class BluetoothDevicesGroupPreferenceController extends
             getPreference().addPreference(devicePreference);
         }
     }
-
-    private void removePreference(CachedBluetoothDevice cachedDevice) {
-        if (mPreferenceMap.containsKey(cachedDevice)) {
-            getPreference().removePreference(mPreferenceMap.get(cachedDevice));
-            mPreferenceMap.remove(cachedDevice);
-        }
-    }
 }
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.bluetooth;
+
+import android.bluetooth.BluetoothDevice;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.SystemClock;
+
+import androidx.annotation.UiThread;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.car.settings.R;
+import com.android.car.settings.common.Logger;
+import com.android.settingslib.bluetooth.CachedBluetoothDevice;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounds the Bluetooth discovery of {@link BluetoothScanningDevicesGroupPreferenceController} and
+ * the number of unbonded devices it shows.
+ *
+ * <p>A session lasts for {@code config_bluetooth_discovery_session_duration_ms} after {@link
+ * #start()}. While it is running, the signal strength and time of each device found is recorded.
+ * {@link #selectDevices(List)} uses them to drop unbonded devices which have not been found for
+ * {@code config_bluetooth_scanning_device_max_age_ms}, and to keep only the {@code
+ * config_bluetooth_max_scanning_devices} unbonded devices with the strongest signal. Bonded and
+ * bonding devices are always kept.
+ */
+public class BluetoothDiscoverySession {
+    private static final Logger LOG = new Logger(BluetoothDiscoverySession.class);
+
+    private final Context mContext;
+    private final long mDurationMs;
+    private final int mMaxDevices;
+    private final long mMaxAgeMs;
+    private final Map<BluetoothDevice, Sighting> mSightings = new HashMap<>();
+    private final List<CachedBluetoothDevice> mCandidates = new ArrayList<>();
+    private final Comparator<CachedBluetoothDevice> mSignalComparator =
+            (device1, device2) -> Integer.compare(getRssi(device2), getRssi(device1));
+    private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            BluetoothDevice device = intent.getParcelableExtra(BluetoothDevice.EXTRA_DEVICE);
+            if (device != null) {
+                onDeviceFound(device,
+                        intent.getShortExtra(BluetoothDevice.EXTRA_RSSI, Short.MIN_VALUE));
+            }
+        }
+    };
+
+    private boolean mStarted;
+    private long mStartTimeMs;
+    // Time at which the session ends, or ended if it was stopped early.
+    private long mEndTimeMs;
+
+    private int mCycles;
+    private int mDevicesFound;
+    private int mDevicesAged;
+    private int mDevicesCapped;
+
+    public BluetoothDiscoverySession(Context context) {
+        this(context,
+                context.getResources().getInteger(
+                        R.integer.config_bluetooth_discovery_session_duration_ms),
+                context.getResources().getInteger(R.integer.config_bluetooth_max_scanning_devices),
+                context.getResources().getInteger(
+                        R.integer.config_bluetooth_scanning_device_max_age_ms));
+    }
+
+    @VisibleForTesting
+    BluetoothDiscoverySession(Context context, long durationMs, int maxDevices, long maxAgeMs) {
+        mContext = context;
+        mDurationMs = durationMs;
+        mMaxDevices = maxDevices;
+        mMaxAgeMs = maxAgeMs;
+    }
+
+    /** Starts a new session. No-op if a session is started already, even if it has expired. */
+    @UiThread
+    public void start() {
+        if (mStarted) {
+            return;
+        }
+        mStarted = true;
+        mStartTimeMs = SystemClock.elapsedRealtime();
+        mEndTimeMs = mStartTimeMs + mDurationMs;
+        mSightings.clear();
+        mCycles = 0;
+        mDevicesFound = 0;
+        mDevicesAged = 0;
+        mDevicesCapped = 0;
+        mContext.registerReceiver(mReceiver, new IntentFilter(BluetoothDevice.ACTION_FOUND));
+    }
+
+    /** Ends the session and logs its metrics. */
+    @UiThread
+    public void stop() {
+        if (!mStarted) {
+            return;
+        }
+        mStarted = false;
+        mEndTimeMs = Math.min(mEndTimeMs, SystemClock.elapsedRealtime());
+        mContext.unregisterReceiver(mReceiver);
+        LOG.d("discovery cycles: " + mCycles + ", devices found: " + mSightings.size()
+                + ", found events: " + mDevicesFound + ", devices aged: " + mDevicesAged
+                + ", devices capped: " + mDevicesCapped + ", duration ms: "
+                + (SystemClock.elapsedRealtime() - mStartTimeMs));
+    }
+
+    /** Returns whether discovery should be restarted, i.e. the session has not expired yet. */
+    public boolean isActive() {
+        return mStarted && SystemClock.elapsedRealtime() - mStartTimeMs < mDurationMs;
+    }
+
+    /** Notifies that a discovery cycle finished. */
+    public void onCycleFinished() {
+        mCycles++;
+    }
+
+    /**
+     * Removes the unbonded devices which should not be shown from the list, see the class
+     * documentation. The order of the remaining devices is unspecified.
+     */
+    @UiThread
+    public void selectDevices(List<CachedBluetoothDevice> devices) {
+        // Devices age relative to the end of the session, so they stay once discovery has stopped.
+        long referenceTimeMs = Math.min(SystemClock.elapsedRealtime(), mEndTimeMs);
+        mCandidates.clear();
+        int kept = 0;
+        for (int i = 0, size = devices.size(); i < size; i++) {
+            CachedBluetoothDevice device = devices.get(i);
+            if (device.getBondState() != BluetoothDevice.BOND_NONE) {
+                devices.set(kept++, device);
+                continue;
+            }
+            Sighting sighting = mSightings.get(device.getDevice());
+            if (sighting != null && referenceTimeMs - sighting.mLastSeenMs > mMaxAgeMs) {
+                mDevicesAged++;
+                continue;
+            }
+            mCandidates.add(device);
+        }
+        if (mCandidates.size() > mMaxDevices) {
+            mCandidates.sort(mSignalComparator);
+            mDevicesCapped += mCandidates.size() - mMaxDevices;
+        }
+        for (int i = 0, size = Math.min(mCandidates.size(), mMaxDevices); i < size; i++) {
+            devices.set(kept++, mCandidates.get(i));
+        }
+        devices.subList(kept, devices.size()).clear();
+        mCandidates.clear();
+    }
+
+    /** Returns the number of discovery cycles finished during the session. */
+    public int getCycles() {
+        return mCycles;
+    }
+
+    /** Returns the number of distinct devices found during the session. */
+    public int getDevicesSeen() {
+        return mSightings.size();
+    }
+
+    /** Returns the number of times a device was not shown because it aged out. */
+    public int getDevicesAged() {
+        return mDevicesAged;
+    }
+
+    /** Returns the number of times a device was not shown because the list was full. */
+    public int getDevicesCapped() {
+        return mDevicesCapped;
+    }
+
+    @VisibleForTesting
+    void onDeviceFound(BluetoothDevice device, short rssi) {
+        mDevicesFound++;
+        Sighting sighting = mSightings.get(device);
+        if (sighting == null) {
+            sighting = new Sighting();
+            mSightings.put(device, sighting);
+        }
+        sighting.mRssi = rssi;
+        sighting.mLastSeenMs = SystemClock.elapsedRealtime();
+    }
+
+    /** Devices which have not been found during the session rank last. */
+    private int getRssi(CachedBluetoothDevice device) {
+        Sighting sighting = mSightings.get(device.getDevice());
+        return sighting != null ? sighting.mRssi : Short.MIN_VALUE;
+    }
+
+    private static final class Sighting {
+        short mRssi;
+        long mLastSeenMs;
+    }
+}
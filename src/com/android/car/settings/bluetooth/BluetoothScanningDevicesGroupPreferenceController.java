@@ -26,16 +26,20 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 
+import androidx.annotation.VisibleForTesting;
 import androidx.preference.PreferenceGroup;
 
 import com.android.car.settings.common.FragmentController;
 import com.android.car.settings.common.Logger;
 import com.android.settingslib.bluetooth.CachedBluetoothDevice;
 
+import java.util.List;
+
 /**
  * Controller which sets the Bluetooth adapter to discovery mode and begins scanning for
- * discoverable devices for as long as the preference group is shown. Discovery
- * and scanning are halted while any device is pairing. Users with the {@link
+ * discoverable devices while the preference group is shown, for at most one {@link
+ * BluetoothDiscoverySession}. Discovery and scanning are halted while any device is pairing. The
+ * number of unbonded devices shown is limited by the session. Users with the {@link
  * DISALLOW_CONFIG_BLUETOOTH} restriction cannot scan for devices, so only cached devices will be
  * shown.
  */
@@ -47,12 +51,14 @@ public abstract class BluetoothScanningDevicesGroupPreferenceController extends
 
     private final BluetoothAdapter mBluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
     private final AlwaysDiscoverable mAlwaysDiscoverable;
+    private final BluetoothDiscoverySession mDiscoverySession;
     private boolean mIsScanningEnabled;
 
     public BluetoothScanningDevicesGroupPreferenceController(Context context, String preferenceKey,
             FragmentController fragmentController, CarUxRestrictions uxRestrictions) {
         super(context, preferenceKey, fragmentController, uxRestrictions);
         mAlwaysDiscoverable = new AlwaysDiscoverable(context, mBluetoothAdapter);
+        mDiscoverySession = new BluetoothDiscoverySession(context);
     }
 
     @Override
@@ -78,6 +84,11 @@ public abstract class BluetoothScanningDevicesGroupPreferenceController extends
         getPreference().removeAll();
     }
 
+    @Override
+    protected void selectDevices(List<CachedBluetoothDevice> matchingDevices) {
+        mDiscoverySession.selectDevices(matchingDevices);
+    }
+
     @Override
     protected void updateState(PreferenceGroup preferenceGroup) {
         super.updateState(preferenceGroup);
@@ -100,11 +111,12 @@ public abstract class BluetoothScanningDevicesGroupPreferenceController extends
 
     /**
      * Starts scanning for devices which will be displayed in the group for a user to select.
-     * Calls are idempotent.
+     * Discovery is not restarted once the session has expired. Calls are idempotent.
      */
     private void enableScanning() {
         mIsScanningEnabled = true;
-        if (!mBluetoothAdapter.isDiscovering()) {
+        mDiscoverySession.start();
+        if (mDiscoverySession.isActive() && !mBluetoothAdapter.isDiscovering()) {
             mBluetoothAdapter.startDiscovery();
         }
         mAlwaysDiscoverable.start();
@@ -119,6 +131,7 @@ public abstract class BluetoothScanningDevicesGroupPreferenceController extends
         if (mBluetoothAdapter.isDiscovering()) {
             mBluetoothAdapter.cancelDiscovery();
         }
+        mDiscoverySession.stop();
     }
 
     @Override
@@ -126,14 +139,22 @@ public abstract class BluetoothScanningDevicesGroupPreferenceController extends
         LOG.d("onScanningStateChanged started: " + started + " mIsScanningEnabled: "
                 + mIsScanningEnabled);
         if (!started && mIsScanningEnabled) {
+            mDiscoverySession.onCycleFinished();
             enableScanning();
+            // Rank and age the devices by what was found during the cycle.
+            scheduleRefreshUi();
         }
     }
 
+    @VisibleForTesting
+    BluetoothDiscoverySession getDiscoverySession() {
+        return mDiscoverySession;
+    }
+
     @Override
     public void onDeviceBondStateChanged(CachedBluetoothDevice cachedDevice, int bondState) {
         LOG.d("onDeviceBondStateChanged device: " + cachedDevice + " state: " + bondState);
-        refreshUi();
+        scheduleRefreshUi();
     }
 
     /**
@@ -32,6 +32,7 @@ import androidx.annotation.XmlRes;
 import com.android.car.settings.R;
 import com.android.car.settings.common.SettingsFragment;
 import com.android.car.settings.search.CarBaseSearchIndexProvider;
+import com.android.car.settings.search.NonIndexableKeysCache;
 import com.android.car.ui.toolbar.MenuItem;
 import com.android.settingslib.bluetooth.LocalBluetoothManager;
 import com.android.settingslib.search.SearchIndexable;
@@ -146,5 +147,12 @@ public class BluetoothSettingsFragment extends SettingsFragment {
 
     public static final CarBaseSearchIndexProvider SEARCH_INDEX_DATA_PROVIDER =
             new CarBaseSearchIndexProvider(R.xml.bluetooth_settings_fragment,
-                    Settings.ACTION_BLUETOOTH_SETTINGS);
+                    Settings.ACTION_BLUETOOTH_SETTINGS) {
+                @Override
+                protected int getInvalidationTriggers() {
+                    // Depends on the Bluetooth state and the user restrictions.
+                    return NonIndexableKeysCache.INVALIDATE_ON_FEATURE_CHANGE
+                            | NonIndexableKeysCache.INVALIDATE_ON_USER_CHANGE;
+                }
+            };
 }
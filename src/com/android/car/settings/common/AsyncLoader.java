@@ -18,13 +18,38 @@ package com.android.car.settings.common;
 
 import android.annotation.Nullable;
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.ArrayMap;
 
+import androidx.annotation.GuardedBy;
+import androidx.annotation.WorkerThread;
+import androidx.core.os.CancellationSignal;
+import androidx.core.os.OperationCanceledException;
 import androidx.loader.content.AsyncTaskLoader;
 
+import com.android.car.settings.R;
+
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 /**
  * This class fills in some boilerplate for AsyncTaskLoader to actually load things.
- * Classes that extend {@link AsyncLoader} need to properly implement required methods expressed in
- * {@link AsyncTaskLoader}
+ * Classes that extend {@link AsyncLoader} implement {@link #loadInBackground(CancellationSignal)}
+ * and need to properly implement required methods expressed in {@link AsyncTaskLoader}
+ *
+ * <p>Loads run on an executor shared by all loaders, bounded by
+ * {@code config_async_loader_thread_count}. A load is canceled through its
+ * {@link CancellationSignal} when the loader stops, which long loads should check between
+ * expensive calls. Loads may deliver partial results with {@link #deliverPartialResult}, and
+ * concurrent loads with the same {@link #getLoadKey() key} share a single load. The duration of
+ * each load is logged and reported to the {@link LoadTimeListener}, if one is set.
  *
  * <p>Taken from {@link com.android.settingslib.utils.AsyncLoader}. Only change to extend from
  * support library {@link AsyncTaskLoader}
@@ -32,20 +57,146 @@ import androidx.loader.content.AsyncTaskLoader;
  * @param <T> the data type to be loaded.
  */
 public abstract class AsyncLoader<T> extends AsyncTaskLoader<T> {
+    private static final Logger LOG = new Logger(AsyncLoader.class);
+
+    private static final long EXECUTOR_KEEP_ALIVE_SECONDS = 30;
+
+    private static Executor sExecutor;
+    @Nullable
+    private static volatile LoadTimeListener sLoadTimeListener;
+    /** Loads in progress which may be shared, by {@link #getLoadKey() key}. */
+    @GuardedBy("sSharedLoads")
+    private static final Map<Object, FutureTask<?>> sSharedLoads = new ArrayMap<>();
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
     @Nullable
     private T mResult;
+    /** Whether {@link #mResult} is a partial result, which must be loaded again when started. */
+    private boolean mResultPartial;
+    @GuardedBy("this")
+    @Nullable
+    private CancellationSignal mCancellationSignal;
+    /** Incremented by each load, so that partial results of superseded loads are dropped. */
+    @GuardedBy("this")
+    private int mLoadGeneration;
 
     public AsyncLoader(Context context) {
         super(context);
     }
 
+    /**
+     * Receives the duration of the loads run by all {@link AsyncLoader}s, e.g. to report them.
+     */
+    public interface LoadTimeListener {
+        /**
+         * Called on the loading thread once a load completes or is canceled.
+         *
+         * @param loaderClass the class of the loader which ran the load
+         * @param durationMs the time spent in the load, including waiting for a shared load
+         * @param canceled whether the load was canceled instead of returning a result
+         */
+        void onLoadFinished(Class<?> loaderClass, long durationMs, boolean canceled);
+    }
+
+    /**
+     * Sets the listener notified of the duration of all loads, or removes it if {@code null}.
+     */
+    public static void setLoadTimeListener(@Nullable LoadTimeListener listener) {
+        sLoadTimeListener = listener;
+    }
+
+    /**
+     * Loads the data. Implementations should call {@link CancellationSignal#throwIfCanceled()}
+     * between expensive calls, so that loads which are no longer needed stop early.
+     */
+    @WorkerThread
+    protected abstract T loadInBackground(CancellationSignal cancellationSignal);
+
+    /**
+     * Returns a key identifying the data loaded, or {@code null} if loads are never shared. A
+     * load started while another loader with an equal key is loading waits for and returns the
+     * result of that load instead. Partial results are only delivered by the loader which runs
+     * the shared load.
+     */
+    @Nullable
+    protected Object getLoadKey() {
+        return null;
+    }
+
+    @Override
+    public final T loadInBackground() {
+        CancellationSignal cancellationSignal;
+        synchronized (this) {
+            if (isLoadInBackgroundCanceled()) {
+                throw new OperationCanceledException();
+            }
+            cancellationSignal = new CancellationSignal();
+            mCancellationSignal = cancellationSignal;
+            mLoadGeneration++;
+        }
+        long startTimeMs = SystemClock.elapsedRealtime();
+        try {
+            Object key = getLoadKey();
+            T result = key == null
+                    ? loadInBackground(cancellationSignal)
+                    : loadShared(key, cancellationSignal);
+            onLoadFinished(SystemClock.elapsedRealtime() - startTimeMs, /* canceled= */ false);
+            return result;
+        } catch (OperationCanceledException e) {
+            onLoadFinished(SystemClock.elapsedRealtime() - startTimeMs, /* canceled= */ true);
+            throw e;
+        } finally {
+            synchronized (this) {
+                mCancellationSignal = null;
+            }
+        }
+    }
+
+    @Override
+    public void cancelLoadInBackground() {
+        super.cancelLoadInBackground();
+        synchronized (this) {
+            if (mCancellationSignal != null) {
+                mCancellationSignal.cancel();
+            }
+        }
+    }
+
+    @Override
+    protected Executor getExecutor() {
+        return getSharedExecutor(getContext());
+    }
+
+    /**
+     * Delivers a partial result ahead of the final result of the current load, e.g. so that a
+     * screen can show the data loaded so far. The partial result is dropped if the load is
+     * canceled or another load started before it reaches the main thread.
+     */
+    @WorkerThread
+    protected void deliverPartialResult(T partialResult) {
+        int loadGeneration;
+        CancellationSignal cancellationSignal;
+        synchronized (this) {
+            loadGeneration = mLoadGeneration;
+            cancellationSignal = mCancellationSignal;
+        }
+        // Posted ahead of the final result, which is delivered on the same looper.
+        mMainHandler.post(() -> {
+            if (isLoadCurrent(loadGeneration, cancellationSignal) && isStarted()
+                    && !isAbandoned()) {
+                deliverResult(partialResult);
+                mResultPartial = true;
+            }
+        });
+    }
+
     @Override
     protected void onStartLoading() {
         if (mResult != null) {
             deliverResult(mResult);
         }
 
-        if (takeContentChanged() || mResult == null) {
+        if (takeContentChanged() || mResult == null || mResultPartial) {
             forceLoad();
         }
     }
@@ -61,6 +212,7 @@ public abstract class AsyncLoader<T> extends AsyncTaskLoader<T> {
             return;
         }
         mResult = data;
+        mResultPartial = false;
         if (isStarted()) {
             super.deliverResult(data);
         }
@@ -71,5 +223,95 @@ public abstract class AsyncLoader<T> extends AsyncTaskLoader<T> {
         super.onReset();
         onStopLoading();
         mResult = null;
+        mResultPartial = false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T loadShared(Object key, CancellationSignal cancellationSignal) {
+        FutureTask<T> load;
+        boolean owner = false;
+        synchronized (sSharedLoads) {
+            load = (FutureTask<T>) sSharedLoads.get(key);
+            if (load == null) {
+                load = new FutureTask<>(() -> loadInBackground(cancellationSignal));
+                sSharedLoads.put(key, load);
+                owner = true;
+            }
+        }
+        if (owner) {
+            try {
+                load.run();
+            } finally {
+                synchronized (sSharedLoads) {
+                    sSharedLoads.remove(key);
+                }
+            }
+        } else {
+            LOG.d(getClass().getSimpleName() + " joined a load in progress");
+        }
+
+        try {
+            return owner ? load.get() : awaitSharedLoad(load, cancellationSignal);
+        } catch (InterruptedException e) {
+            throw new OperationCanceledException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (!owner && cause instanceof OperationCanceledException) {
+                // The loader which ran the shared load was canceled, but this one was not.
+                cancellationSignal.throwIfCanceled();
+                return loadInBackground(cancellationSignal);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private synchronized boolean isLoadCurrent(int loadGeneration,
+            @Nullable CancellationSignal cancellationSignal) {
+        return loadGeneration == mLoadGeneration
+                && (cancellationSignal == null || !cancellationSignal.isCanceled());
+    }
+
+    private void onLoadFinished(long durationMs, boolean canceled) {
+        LOG.i(getClass().getName() + (canceled ? " canceled after " : " loaded in ")
+                + durationMs + " ms");
+        LoadTimeListener listener = sLoadTimeListener;
+        if (listener != null) {
+            listener.onLoadFinished(getClass(), durationMs, canceled);
+        }
+    }
+
+    /**
+     * Waits for a load run by another loader. Canceling this loader only stops the wait, as the
+     * other loader still needs the result.
+     */
+    private static <T> T awaitSharedLoad(FutureTask<T> load, CancellationSignal cancellationSignal)
+            throws InterruptedException, ExecutionException {
+        Thread thread = Thread.currentThread();
+        cancellationSignal.setOnCancelListener(thread::interrupt);
+        try {
+            return load.get();
+        } finally {
+            cancellationSignal.setOnCancelListener(null);
+            // Clears an interrupt raised after the load completed.
+            Thread.interrupted();
+        }
+    }
+
+    private static synchronized Executor getSharedExecutor(Context context) {
+        if (sExecutor == null) {
+            int threadCount = context.getResources().getInteger(
+                    R.integer.config_async_loader_thread_count);
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount,
+                    EXECUTOR_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+            executor.allowCoreThreadTimeOut(true);
+            sExecutor = executor;
+        }
+        return sExecutor;
     }
 }
@@ -38,6 +38,7 @@ import androidx.preference.PreferenceFragmentCompat;
 
 import com.android.car.apps.common.util.Themes;
 import com.android.car.settings.R;
+import com.android.car.settings.search.NonIndexableKeysCache;
 
 /**
  * Base activity class for car settings, provides a action bar with a back button that goes to
@@ -128,6 +129,7 @@ public abstract class BaseCarSettingsActivity extends FragmentActivity implement
     @Override
     public void onUxRestrictionsChanged(CarUxRestrictions restrictionInfo) {
         mCarUxRestrictions = restrictionInfo;
+        NonIndexableKeysCache.getInstance(this).onUxRestrictionsChanged(restrictionInfo);
         Fragment currentFragment = getCurrentFragment();
         if (currentFragment instanceof OnUxRestrictionsChangedListener) {
             ((OnUxRestrictionsChangedListener) currentFragment)
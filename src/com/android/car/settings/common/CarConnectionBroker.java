@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import android.car.Car;
+import android.car.drivingstate.CarUxRestrictions;
+import android.car.drivingstate.CarUxRestrictionsManager;
+import android.content.Context;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide connection to the car service, shared by all Car Settings components.
+ *
+ * <p>The connection is made on first use and kept for the lifetime of the process, so that
+ * screens do not bind and unbind the car service on each transition. Components either get a
+ * manager directly with {@link #getManager(String)}, or register a {@link ManagerListener} to be
+ * told when the manager is ready and when it is lost because the car service restarted.
+ */
+public class CarConnectionBroker {
+    private static final Logger LOG = new Logger(CarConnectionBroker.class);
+
+    /** Receives a car service manager once the car service is ready. */
+    public interface ManagerListener<T> {
+        /**
+         * Called on the main thread when the manager is ready. This is called again with a new
+         * manager if the car service restarts.
+         */
+        void onManagerReady(T manager);
+
+        /**
+         * Called on the main thread when the car service disconnects. The manager passed to
+         * {@link #onManagerReady(Object)} must no longer be used.
+         */
+        void onManagerLost();
+    }
+
+    private static CarConnectionBroker sInstance;
+
+    private final Context mContext;
+    private final Object mLock = new Object();
+    @GuardedBy("mLock")
+    private Car mCar;
+    private boolean mReady;
+    /** Maps each registered listener to the name of the service it listens to. */
+    private final Map<ManagerListener<?>, String> mManagerListeners = new ArrayMap<>();
+
+    /**
+     * {@link CarUxRestrictionsManager} only supports a single listener, so the listeners of all
+     * components are notified by this broker instead.
+     */
+    private final ArraySet<CarUxRestrictionsManager.OnUxRestrictionsChangedListener>
+            mUxRestrictionsListeners = new ArraySet<>();
+    @Nullable
+    private CarUxRestrictionsManager mCarUxRestrictionsManager;
+
+    private final CarUxRestrictionsManager.OnUxRestrictionsChangedListener
+            mUxRestrictionsDispatcher = restrictionInfo -> {
+                for (CarUxRestrictionsManager.OnUxRestrictionsChangedListener listener :
+                        new ArrayList<>(mUxRestrictionsListeners)) {
+                    listener.onUxRestrictionsChanged(restrictionInfo);
+                }
+            };
+
+    private final ManagerListener<CarUxRestrictionsManager> mUxRestrictionsManagerListener =
+            new ManagerListener<CarUxRestrictionsManager>() {
+                @Override
+                public void onManagerReady(CarUxRestrictionsManager manager) {
+                    if (manager == null) {
+                        return;
+                    }
+                    mCarUxRestrictionsManager = manager;
+                    mCarUxRestrictionsManager.registerListener(mUxRestrictionsDispatcher);
+                    mUxRestrictionsDispatcher.onUxRestrictionsChanged(
+                            mCarUxRestrictionsManager.getCurrentCarUxRestrictions());
+                }
+
+                @Override
+                public void onManagerLost() {
+                    mCarUxRestrictionsManager = null;
+                }
+            };
+
+    /**
+     * Returns the process-wide instance of the broker.
+     */
+    public static synchronized CarConnectionBroker getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new CarConnectionBroker(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /** Replaces the process-wide instance, e.g. to drop the connection of a previous test. */
+    @VisibleForTesting
+    public static synchronized void setInstance(CarConnectionBroker instance) {
+        sInstance = instance;
+    }
+
+    @VisibleForTesting
+    CarConnectionBroker(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * Returns the manager of the given car service, e.g. {@link Car#CAR_USER_SERVICE}, or {@code
+     * null} if the car service is not connected. This may be called from any thread.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> T getManager(String serviceName) {
+        return (T) getCar().getCarManager(serviceName);
+    }
+
+    /**
+     * Registers a listener for the manager of the given car service. If the car service is
+     * already connected, the listener is called immediately.
+     */
+    @UiThread
+    public <T> void registerManagerListener(String serviceName, ManagerListener<T> listener) {
+        // Connect first, as the connection may notify the registered listeners synchronously.
+        Car car = getCar();
+        mManagerListeners.put(listener, serviceName);
+        if (mReady) {
+            notifyManagerReady(listener, car.getCarManager(serviceName));
+        }
+    }
+
+    /** Unregisters a listener added with {@link #registerManagerListener}. */
+    @UiThread
+    public void unregisterManagerListener(ManagerListener<?> listener) {
+        mManagerListeners.remove(listener);
+    }
+
+    /**
+     * Registers a listener for changes of the {@link CarUxRestrictions}. If the car service is
+     * already connected, the listener is immediately called with the current restrictions.
+     */
+    @UiThread
+    public void registerUxRestrictionsListener(
+            CarUxRestrictionsManager.OnUxRestrictionsChangedListener listener) {
+        if (!mUxRestrictionsListeners.add(listener)) {
+            return;
+        }
+        if (mUxRestrictionsListeners.size() == 1) {
+            registerManagerListener(Car.CAR_UX_RESTRICTION_SERVICE,
+                    mUxRestrictionsManagerListener);
+        } else if (mCarUxRestrictionsManager != null) {
+            listener.onUxRestrictionsChanged(
+                    mCarUxRestrictionsManager.getCurrentCarUxRestrictions());
+        }
+    }
+
+    /** Unregisters a listener added with {@link #registerUxRestrictionsListener}. */
+    @UiThread
+    public void unregisterUxRestrictionsListener(
+            CarUxRestrictionsManager.OnUxRestrictionsChangedListener listener) {
+        if (!mUxRestrictionsListeners.remove(listener) || !mUxRestrictionsListeners.isEmpty()) {
+            return;
+        }
+        unregisterManagerListener(mUxRestrictionsManagerListener);
+        if (mCarUxRestrictionsManager != null) {
+            mCarUxRestrictionsManager.unregisterListener();
+            mCarUxRestrictionsManager = null;
+        }
+    }
+
+    private Car getCar() {
+        synchronized (mLock) {
+            if (mCar == null) {
+                // The listener may be called before createCar returns, which then sets mCar.
+                Car car = Car.createCar(mContext, /* handler= */ null,
+                        Car.CAR_WAIT_TIMEOUT_DO_NOT_WAIT, this::onLifecycleChanged);
+                if (mCar == null) {
+                    mCar = car;
+                }
+            }
+            return mCar;
+        }
+    }
+
+    /** Called on the main thread when the car service connects or disconnects. */
+    private void onLifecycleChanged(Car car, boolean ready) {
+        synchronized (mLock) {
+            mCar = car;
+        }
+        if (mReady == ready) {
+            return;
+        }
+        mReady = ready;
+        LOG.d("Car service " + (ready ? "ready" : "lost"));
+        List<ManagerListener<?>> listeners = new ArrayList<>(mManagerListeners.keySet());
+        for (ManagerListener<?> listener : listeners) {
+            if (!mManagerListeners.containsKey(listener)) {
+                // Unregistered by a previous listener.
+                continue;
+            }
+            if (ready) {
+                notifyManagerReady(listener, car.getCarManager(mManagerListeners.get(listener)));
+            } else {
+                listener.onManagerLost();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void notifyManagerReady(ManagerListener<T> listener, Object manager) {
+        listener.onManagerReady((T) manager);
+    }
+}
@@ -16,29 +16,17 @@
 package com.android.car.settings.common;
 
 import android.app.Activity;
-import android.car.Car;
-import android.car.CarNotConnectedException;
 import android.car.drivingstate.CarUxRestrictions;
 import android.car.drivingstate.CarUxRestrictionsManager;
-import android.content.ComponentName;
 import android.content.Context;
-import android.content.ServiceConnection;
-import android.os.IBinder;
-
-import androidx.annotation.Nullable;
 
 /**
- * Class that helps registering {@link CarUxRestrictionsManager.OnUxRestrictionsChangedListener} and
- * managing car connection.
+ * Class that helps registering {@link CarUxRestrictionsManager.OnUxRestrictionsChangedListener}
+ * through the shared {@link CarConnectionBroker}.
  */
 public class CarUxRestrictionsHelper {
-    private static final Logger LOG = new Logger(CarUxRestrictionsHelper.class);
-
-    // mCar is created in the constructor, but can be null if connection to the car is not
-    // successful.
-    @Nullable private final Car mCar;
-    @Nullable private CarUxRestrictionsManager mCarUxRestrictionsManager;
 
+    private final CarConnectionBroker mCarConnectionBroker;
     private final CarUxRestrictionsManager.OnUxRestrictionsChangedListener mListener;
 
     public CarUxRestrictionsHelper(Context context,
@@ -47,7 +35,7 @@ public class CarUxRestrictionsHelper {
             throw new IllegalArgumentException("Listener cannot be null.");
         }
         mListener = listener;
-        mCar = Car.createCar(context, mServiceConnection);
+        mCarConnectionBroker = CarConnectionBroker.getInstance(context);
     };
 
     /**
@@ -59,14 +47,7 @@ public class CarUxRestrictionsHelper {
      * <p>This method must be accompanied with a matching {@link #stop()} to avoid leak.
      */
     public void start() {
-        try {
-            if (mCar != null && !mCar.isConnected()) {
-                mCar.connect();
-            }
-        } catch (IllegalStateException e) {
-            // Do nothing.
-            LOG.w("start(); cannot connect to Car");
-        }
+        mCarConnectionBroker.registerUxRestrictionsListener(mListener);
     }
 
     /**
@@ -76,14 +57,7 @@ public class CarUxRestrictionsHelper {
      * time of this adapter being discarded.
      */
     public void stop() {
-        try {
-            if (mCar != null && mCar.isConnected()) {
-                mCar.disconnect();
-            }
-        } catch (IllegalStateException e) {
-            // Do nothing.
-            LOG.w("stop(); cannot disconnect from Car");
-        }
+        mCarConnectionBroker.unregisterUxRestrictionsListener(mListener);
     }
 
     /**
@@ -94,30 +68,4 @@ public class CarUxRestrictionsHelper {
                 & CarUxRestrictions.UX_RESTRICTIONS_NO_SETUP)
                 == CarUxRestrictions.UX_RESTRICTIONS_NO_SETUP;
     }
-
-    private final ServiceConnection mServiceConnection = new ServiceConnection() {
-        @Override
-        public void onServiceConnected(ComponentName name, IBinder service) {
-            try {
-                mCarUxRestrictionsManager = (CarUxRestrictionsManager)
-                        mCar.getCarManager(Car.CAR_UX_RESTRICTION_SERVICE);
-                mCarUxRestrictionsManager.registerListener(mListener);
-
-                mListener.onUxRestrictionsChanged(
-                        mCarUxRestrictionsManager.getCurrentCarUxRestrictions());
-            } catch (CarNotConnectedException e) {
-                e.printStackTrace();
-            }
-        }
-
-        @Override
-        public void onServiceDisconnected(ComponentName name) {
-            try {
-                mCarUxRestrictionsManager.unregisterListener();
-                mCarUxRestrictionsManager = null;
-            } catch (CarNotConnectedException e) {
-                e.printStackTrace();
-            }
-        }
-    };
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import android.content.BroadcastReceiver;
+import android.content.ComponentCallbacks;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ActivityInfo;
+import android.content.res.Configuration;
+import android.util.ArrayMap;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide cache of the settings injected by other system applications, as resolved by
+ * {@link ExtraSettingsLoader}.
+ *
+ * <p>Entries are keyed by the intent used for resolution, including its category extra, by the
+ * user and by the configuration the titles, summaries and icons were resolved for. All entries
+ * are dropped when a package is installed, removed or changed, since any of these may add, remove
+ * or update injected settings, and when the locale, night mode or density changes.
+ */
+class ExtraSettingsCache {
+    private static final Logger LOG = new Logger(ExtraSettingsCache.class);
+
+    /** Configuration changes that affect the resolved titles, summaries and icons. */
+    private static final int CONFIG_CHANGES = ActivityInfo.CONFIG_LOCALE
+            | ActivityInfo.CONFIG_UI_MODE | ActivityInfo.CONFIG_DENSITY;
+
+    private static ExtraSettingsCache sInstance;
+
+    private final Context mContext;
+    private final Object mLock = new Object();
+    @GuardedBy("mLock")
+    private final Map<String, List<ExtraSettingsLoader.ResolvedSetting>> mEntries =
+            new ArrayMap<>();
+    /** Incremented on each invalidation so that settings resolved concurrently are not stored. */
+    @GuardedBy("mLock")
+    private int mGeneration;
+    @GuardedBy("mLock")
+    private boolean mListening;
+    /** Configuration of the cached entries, updated on each invalidation. */
+    private volatile Configuration mConfiguration;
+
+    private final BroadcastReceiver mPackageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (intent.getBooleanExtra(Intent.EXTRA_REPLACING, false)
+                    && !Intent.ACTION_PACKAGE_REPLACED.equals(intent.getAction())) {
+                // Followed by ACTION_PACKAGE_REPLACED for the updated package.
+                return;
+            }
+            invalidate();
+        }
+    };
+
+    private final ComponentCallbacks mConfigurationCallbacks = new ComponentCallbacks() {
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+            if ((newConfig.diff(mConfiguration) & CONFIG_CHANGES) != 0) {
+                invalidate();
+            }
+        }
+
+        @Override
+        public void onLowMemory() {
+        }
+    };
+
+    /**
+     * Returns the process-wide instance of the cache.
+     */
+    static synchronized ExtraSettingsCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ExtraSettingsCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    static synchronized void setInstance(ExtraSettingsCache instance) {
+        sInstance = instance;
+    }
+
+    @VisibleForTesting
+    ExtraSettingsCache(Context context) {
+        mContext = context;
+        mConfiguration = new Configuration(context.getResources().getConfiguration());
+    }
+
+    /**
+     * Returns the current generation, to be passed to {@link #put} once the settings are resolved.
+     */
+    int getGeneration() {
+        synchronized (mLock) {
+            return mGeneration;
+        }
+    }
+
+    /**
+     * Returns the settings resolved for the given intent and user, or {@code null} if they are
+     * not cached.
+     */
+    @Nullable
+    List<ExtraSettingsLoader.ResolvedSetting> get(Intent intent, int userId) {
+        synchronized (mLock) {
+            return mEntries.get(getKey(intent, userId));
+        }
+    }
+
+    /**
+     * Caches the settings resolved for the given intent and user, unless the cache was
+     * invalidated since {@code generation} was read.
+     */
+    void put(Intent intent, int userId, List<ExtraSettingsLoader.ResolvedSetting> settings,
+            int generation) {
+        synchronized (mLock) {
+            startListeningLocked();
+            if (generation == mGeneration) {
+                mEntries.put(getKey(intent, userId), Collections.unmodifiableList(settings));
+            }
+        }
+    }
+
+    /** Drops all cached settings. */
+    void invalidate() {
+        synchronized (mLock) {
+            mGeneration++;
+            mConfiguration = new Configuration(mContext.getResources().getConfiguration());
+            LOG.d("Invalidated " + mEntries.size() + " entries");
+            mEntries.clear();
+        }
+    }
+
+    @GuardedBy("mLock")
+    private void startListeningLocked() {
+        if (mListening) {
+            return;
+        }
+        mListening = true;
+        IntentFilter filter = new IntentFilter(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addDataScheme("package");
+        mContext.registerReceiver(mPackageReceiver, filter);
+        mContext.registerComponentCallbacks(mConfigurationCallbacks);
+    }
+
+    private String getKey(Intent intent, int userId) {
+        // Entries resolved for another configuration are never returned, even if the
+        // configuration callback has not run yet.
+        Configuration config = mContext.getResources().getConfiguration();
+        // The URI includes the action, components and extras, and so the settings category.
+        return userId + "/" + config.getLocales().toLanguageTags()
+                + "/" + (config.uiMode & Configuration.UI_MODE_NIGHT_MASK)
+                + "/" + config.densityDpi
+                + "/" + intent.toUri(Intent.URI_INTENT_SCHEME);
+    }
+}
@@ -36,37 +36,48 @@ import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.text.TextUtils;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
 import androidx.preference.Preference;
 
 import com.android.car.apps.common.util.Themes;
 import com.android.car.settings.R;
 import com.android.car.ui.preference.CarUiPreference;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Loads Activity with TileUtils.EXTRA_SETTINGS_ACTION.
+ *
+ * <p>Resolving the injected activities requires several calls to the package manager, so the
+ * resolved settings are kept in the process-wide {@link ExtraSettingsCache} until a package
+ * changes. Callers on the main thread should check {@link #isResolved(Intent)} and otherwise call
+ * {@link #resolve(Intent)} on a background thread and pass its result to
+ * {@link #loadPreferences(List)}.
  */
 // TODO: investigate using SettingsLib Tiles.
 public class ExtraSettingsLoader {
     private static final Logger LOG = new Logger(ExtraSettingsLoader.class);
     private static final String META_DATA_PREFERENCE_CATEGORY = "com.android.settings.category";
     private final Context mContext;
-    private Map<Preference, Bundle> mPreferenceBundleMap;
     private PackageManager mPm;
+    private ExtraSettingsCache mCache;
 
     public ExtraSettingsLoader(Context context) {
         mContext = context;
         mPm = context.getPackageManager();
-        mPreferenceBundleMap = new HashMap<>();
+        mCache = ExtraSettingsCache.getInstance(context);
     }
 
     @VisibleForTesting
     void setPackageManager(PackageManager pm) {
         mPm = pm;
+        // Settings resolved through another package manager must not be shared.
+        mCache = new ExtraSettingsCache(mContext);
     }
 
     /**
@@ -75,12 +86,73 @@ public class ExtraSettingsLoader {
      * resolving activities and a category with the key "com.android.settings.category" and one of
      * the values in {@link com.android.settingslib.drawer.CategoryKey}.
      *
+     * <p>The settings are resolved first if they are not cached.
+     *
      * @param intent intent specifying the extra settings category to load
      */
     public Map<Preference, Bundle> loadPreferences(Intent intent) {
+        return loadPreferences(resolve(intent));
+    }
+
+    /**
+     * Returns a map of {@link Preference} and {@link Bundle} representing the given settings
+     * returned by {@link #resolve(Intent)} and their metadata. Does not call the package manager.
+     *
+     * @param settings the resolved settings to create preferences for
+     */
+    public Map<Preference, Bundle> loadPreferences(List<ResolvedSetting> settings) {
+        Map<Preference, Bundle> preferenceBundleMap = new HashMap<>();
+        for (ResolvedSetting setting : settings) {
+            CarUiPreference preference = new CarUiPreference(mContext);
+            preference.setTitle(setting.mTitle);
+            preference.setSummary(setting.mSummary);
+            if (setting.mKey != null) {
+                preference.setKey(setting.mKey);
+            }
+            Drawable icon = setting.newIcon(mContext);
+            if (icon != null) {
+                preference.setIcon(icon);
+                if (ExtraSettingsUtil.isIconTintable(setting.mMetaData)) {
+                    preference.getIcon().setTintList(
+                            Themes.getAttrColorStateList(mContext, R.attr.iconColor));
+                }
+            }
+            preference.setIntent(
+                    new Intent().setClassName(setting.mPackageName, setting.mActivityName));
+            preferenceBundleMap.put(preference, setting.mMetaData);
+        }
+        return preferenceBundleMap;
+    }
+
+    /**
+     * Returns whether the settings injected for the given intent are cached, in which case
+     * {@link #loadPreferences(Intent)} does not call the package manager.
+     */
+    public boolean isResolved(Intent intent) {
+        return mCache.get(intent, ActivityManager.getCurrentUser()) != null;
+    }
+
+    /**
+     * Resolves the settings injected for the given intent, unless they are already cached.
+     */
+    @WorkerThread
+    public List<ResolvedSetting> resolve(Intent intent) {
+        int userId = ActivityManager.getCurrentUser();
+        List<ResolvedSetting> settings = mCache.get(intent, userId);
+        if (settings != null) {
+            return settings;
+        }
+        int generation = mCache.getGeneration();
+        settings = resolveUncached(intent, userId);
+        mCache.put(intent, userId, settings, generation);
+        return settings;
+    }
+
+    private List<ResolvedSetting> resolveUncached(Intent intent, int userId) {
         List<ResolveInfo> results = mPm.queryIntentActivitiesAsUser(intent,
-                PackageManager.GET_META_DATA, ActivityManager.getCurrentUser());
+                PackageManager.GET_META_DATA, userId);
 
+        List<ResolvedSetting> settings = new ArrayList<>();
         String extraCategory = intent.getStringExtra(META_DATA_PREFERENCE_CATEGORY);
         for (ResolveInfo resolved : results) {
             if (!resolved.system) {
@@ -118,17 +190,6 @@ public class ExtraSettingsLoader {
             } catch (PackageManager.NameNotFoundException | Resources.NotFoundException e) {
                 LOG.d("Couldn't find info", e);
             }
-            Drawable icon = null;
-            if (metaData.containsKey(META_DATA_PREFERENCE_ICON)) {
-                int iconRes = metaData.getInt(META_DATA_PREFERENCE_ICON);
-                icon = ExtraSettingsUtil.loadDrawableFromPackage(mContext,
-                        activityInfo.packageName, iconRes);
-            } else if (!metaData.containsKey(META_DATA_PREFERENCE_ICON_URI)) {
-                icon = mContext.getDrawable(R.drawable.ic_settings_gear);
-                LOG.d("use default icon.");
-            }
-            Intent extraSettingIntent =
-                    new Intent().setClassName(activityInfo.packageName, activityInfo.name);
             if (category == null) {
                 // If category is not specified or not supported, default to device.
                 category = CATEGORY_DEVICE;
@@ -137,23 +198,20 @@ public class ExtraSettingsLoader {
             if (!TextUtils.equals(extraCategory, category)) {
                 continue;
             }
-            CarUiPreference preference = new CarUiPreference(mContext);
-            preference.setTitle(title);
-            preference.setSummary(summary);
-            if (key != null) {
-                preference.setKey(key);
-            }
-            if (icon != null) {
-                preference.setIcon(icon);
-                if (ExtraSettingsUtil.isIconTintable(metaData)) {
-                    preference.getIcon().setTintList(
-                            Themes.getAttrColorStateList(mContext, R.attr.iconColor));
-                }
+            Drawable icon = null;
+            boolean useDefaultIcon = false;
+            if (metaData.containsKey(META_DATA_PREFERENCE_ICON)) {
+                int iconRes = metaData.getInt(META_DATA_PREFERENCE_ICON);
+                icon = ExtraSettingsUtil.loadDrawableFromPackage(mContext,
+                        activityInfo.packageName, iconRes);
+            } else if (!metaData.containsKey(META_DATA_PREFERENCE_ICON_URI)) {
+                useDefaultIcon = true;
+                LOG.d("use default icon.");
             }
-            preference.setIntent(extraSettingIntent);
-            mPreferenceBundleMap.put(preference, metaData);
+            settings.add(new ResolvedSetting(key, title, summary, icon, useDefaultIcon,
+                    activityInfo.packageName, activityInfo.name, metaData));
         }
-        return mPreferenceBundleMap;
+        return settings;
     }
 
     /**
@@ -169,4 +227,51 @@ public class ExtraSettingsLoader {
         }
         return null;
     }
+
+    /**
+     * A setting injected by a system application, resolved without the {@link Context} of a
+     * screen so that it can be shared by all of them.
+     */
+    public static final class ResolvedSetting {
+        @Nullable
+        final String mKey;
+        @Nullable
+        final String mTitle;
+        @Nullable
+        final String mSummary;
+        @Nullable
+        private final Drawable.ConstantState mIconState;
+        @Nullable
+        private final Drawable mIcon;
+        private final boolean mUseDefaultIcon;
+        final String mPackageName;
+        final String mActivityName;
+        final Bundle mMetaData;
+
+        ResolvedSetting(@Nullable String key, @Nullable String title, @Nullable String summary,
+                @Nullable Drawable icon, boolean useDefaultIcon, String packageName,
+                String activityName, Bundle metaData) {
+            mKey = key;
+            mTitle = title;
+            mSummary = summary;
+            mIconState = icon != null ? icon.getConstantState() : null;
+            mIcon = mIconState == null ? icon : null;
+            mUseDefaultIcon = useDefaultIcon;
+            mPackageName = packageName;
+            mActivityName = activityName;
+            mMetaData = metaData;
+        }
+
+        /** Returns a new icon for a preference, as icons are tinted per preference. */
+        @Nullable
+        Drawable newIcon(Context context) {
+            if (mIconState != null) {
+                return mIconState.newDrawable().mutate();
+            }
+            if (mUseDefaultIcon) {
+                return context.getDrawable(R.drawable.ic_settings_gear);
+            }
+            return mIcon;
+        }
+    }
 }
@@ -39,9 +39,11 @@ import android.os.Handler;
 import android.os.Looper;
 import android.text.TextUtils;
 import android.util.ArrayMap;
+import android.util.ArraySet;
 import android.util.Pair;
 
 import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceGroup;
 
@@ -53,12 +55,13 @@ import com.android.settingslib.utils.ThreadUtils;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Injects preferences from other system applications at a placeholder location. The placeholder
  * should be a {@link PreferenceGroup} which sets the controller attribute to the fully qualified
  * name of this class. The preference should contain an intent which will be passed to
- * {@link ExtraSettingsLoader#loadPreferences(Intent)}.
+ * {@link ExtraSettingsLoader#resolve(Intent)}.
  *
  * <p>For example:
  * <pre>{@code
@@ -82,12 +85,24 @@ public class ExtraSettingsPreferenceController extends PreferenceController<Pref
     @VisibleForTesting
     static final String META_DATA_DISTRACTION_OPTIMIZED = "distractionOptimized";
 
+    /** Delay used to coalesce the refreshes of dynamic data triggered by content changes. */
+    @VisibleForTesting
+    static final long DYNAMIC_DATA_REFRESH_DELAY_MS = 100;
+
     private Context mContext;
     private ContentResolver mContentResolver;
     private ExtraSettingsLoader mExtraSettingsLoader;
     private boolean mSettingsLoaded;
+    private boolean mSettingsLoading;
+    private boolean mStarted;
+    /** Incremented when the controller stops or is destroyed to drop in-flight loads. */
+    private int mLoadGeneration;
     @VisibleForTesting
     List<DynamicDataObserver> mObservers = new ArrayList<>();
+    /** Dynamic data to fetch in the next batch, identified by the observer of each uri. */
+    private final Set<DynamicDataObserver> mPendingRefreshes = new ArraySet<>();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mRefreshPendingDynamicData = this::refreshPendingDynamicData;
 
     public ExtraSettingsPreferenceController(Context context, String preferenceKey,
             FragmentController fragmentController, CarUxRestrictions restrictionInfo) {
@@ -129,17 +144,59 @@ public class ExtraSettingsPreferenceController extends PreferenceController<Pref
 
     @Override
     protected void updateState(PreferenceGroup preference) {
-        Map<Preference, Bundle> preferenceBundleMap = mExtraSettingsLoader.loadPreferences(
-                preference.getIntent());
-        if (!mSettingsLoaded) {
-            addExtraSettings(preferenceBundleMap);
-            mSettingsLoaded = true;
+        if (!mSettingsLoaded && !mSettingsLoading) {
+            loadExtraSettings(preference.getIntent());
         }
         preference.setVisible(preference.getPreferenceCount() > 0);
     }
 
+    /**
+     * Adds the extra settings right away if they are cached. Otherwise they are resolved on a
+     * background thread, and the group stays hidden until at least one setting is found. A
+     * background result is dropped if the controller was stopped or destroyed in the meantime;
+     * the settings are loaded again on the next start.
+     */
+    private void loadExtraSettings(Intent intent) {
+        if (mExtraSettingsLoader.isResolved(intent)) {
+            addLoadedSettings(mExtraSettingsLoader.loadPreferences(intent));
+            return;
+        }
+        mSettingsLoading = true;
+        int generation = mLoadGeneration;
+        executeBackgroundTask(() -> {
+            List<ExtraSettingsLoader.ResolvedSetting> settings =
+                    mExtraSettingsLoader.resolve(intent);
+            executeUiTask(() -> {
+                if (generation != mLoadGeneration) {
+                    return;
+                }
+                mSettingsLoading = false;
+                addLoadedSettings(mExtraSettingsLoader.loadPreferences(settings));
+                refreshUi();
+            });
+        });
+    }
+
+    /**
+     * Adds the loaded settings and registers the observers of their dynamic data if the
+     * controller is already started, since {@link #onStartInternal()} only covers the observers
+     * that existed at that point.
+     */
+    private void addLoadedSettings(Map<Preference, Bundle> preferenceBundleMap) {
+        int observerCount = mObservers.size();
+        addExtraSettings(preferenceBundleMap);
+        if (mStarted) {
+            for (int i = observerCount; i < mObservers.size(); i++) {
+                mObservers.get(i).register(mContentResolver, /* register= */ true);
+            }
+        }
+        refreshPendingDynamicData();
+        mSettingsLoaded = true;
+    }
+
     @Override
     protected void onStartInternal() {
+        mStarted = true;
         mObservers.forEach(observer -> {
             observer.register(mContentResolver, /* register= */ true);
         });
@@ -147,11 +204,27 @@ public class ExtraSettingsPreferenceController extends PreferenceController<Pref
 
     @Override
     protected void onStopInternal() {
+        mStarted = false;
+        cancelLoading();
         mObservers.forEach(observer -> {
             observer.register(mContentResolver, /* register= */ false);
         });
     }
 
+    @Override
+    protected void onDestroyInternal() {
+        cancelLoading();
+        mHandler.removeCallbacks(mRefreshPendingDynamicData);
+        mPendingRefreshes.clear();
+    }
+
+    private void cancelLoading() {
+        if (mSettingsLoading) {
+            mLoadGeneration++;
+            mSettingsLoading = false;
+        }
+    }
+
     /**
      * Adds the extra settings from the system based on the intent that is passed in the preference
      * group. All the preferences that resolve these intents will be added in the preference group.
@@ -176,7 +249,8 @@ public class ExtraSettingsPreferenceController extends PreferenceController<Pref
     }
 
     /**
-     * Retrieve dynamic injected preference data and create observers for updates.
+     * Retrieve dynamic injected preference data and create observers for updates. The data is
+     * fetched in a single batch once all the extra settings are added.
      */
     protected void getDynamicData(Preference preference, Bundle metaData) {
         if (metaData.containsKey(META_DATA_PREFERENCE_TITLE_URI)) {
@@ -185,8 +259,8 @@ public class ExtraSettingsPreferenceController extends PreferenceController<Pref
             preference.setTitle(R.string.empty_placeholder);
             Uri uri = ExtraSettingsUtil.getCompleteUri(metaData, META_DATA_PREFERENCE_TITLE_URI,
                     METHOD_GET_DYNAMIC_TITLE);
-            refreshTitle(uri, preference);
-            mObservers.add(new DynamicDataObserver(METHOD_GET_DYNAMIC_TITLE, uri, preference));
+            addDynamicDataObserver(
+                    new DynamicDataObserver(METHOD_GET_DYNAMIC_TITLE, uri, preference));
         }
         if (metaData.containsKey(META_DATA_PREFERENCE_SUMMARY_URI)) {
             // Set a placeholder summary before starting to fetch real summary to prevent vertical
@@ -194,8 +268,8 @@ public class ExtraSettingsPreferenceController extends PreferenceController<Pref
             preference.setSummary(R.string.empty_placeholder);
             Uri uri = ExtraSettingsUtil.getCompleteUri(metaData, META_DATA_PREFERENCE_SUMMARY_URI,
                     METHOD_GET_DYNAMIC_SUMMARY);
-            refreshSummary(uri, preference);
-            mObservers.add(new DynamicDataObserver(METHOD_GET_DYNAMIC_SUMMARY, uri, preference));
+            addDynamicDataObserver(
+                    new DynamicDataObserver(METHOD_GET_DYNAMIC_SUMMARY, uri, preference));
         }
         if (metaData.containsKey(META_DATA_PREFERENCE_ICON_URI)) {
             // Set a placeholder icon before starting to fetch real icon to prevent horizontal
@@ -203,8 +277,8 @@ public class ExtraSettingsPreferenceController extends PreferenceController<Pref
             preference.setIcon(R.drawable.ic_placeholder);
             Uri uri = ExtraSettingsUtil.getCompleteUri(metaData, META_DATA_PREFERENCE_ICON_URI,
                     METHOD_GET_PROVIDER_ICON);
-            refreshIcon(uri, preference);
-            mObservers.add(new DynamicDataObserver(METHOD_GET_PROVIDER_ICON, uri, preference));
+            addDynamicDataObserver(
+                    new DynamicDataObserver(METHOD_GET_PROVIDER_ICON, uri, preference));
         }
     }
 
@@ -218,65 +292,128 @@ public class ExtraSettingsPreferenceController extends PreferenceController<Pref
         ThreadUtils.postOnMainThread(r);
     }
 
-    private void refreshTitle(Uri uri, Preference preference) {
-        executeBackgroundTask(() -> {
-            Map<String, IContentProvider> providerMap = new ArrayMap<>();
-            String titleFromUri = TileUtils.getTextFromUri(
-                    mContext, uri, providerMap, META_DATA_PREFERENCE_TITLE);
-            if (!TextUtils.equals(titleFromUri, preference.getTitle())) {
-                executeUiTask(() -> preference.setTitle(titleFromUri));
-            }
-        });
+    private void addDynamicDataObserver(DynamicDataObserver observer) {
+        mObservers.add(observer);
+        mPendingRefreshes.add(observer);
+    }
+
+    /** Schedules a refresh of the given dynamic data, coalesced with the other changes. */
+    private void scheduleDynamicDataRefresh(DynamicDataObserver observer) {
+        mPendingRefreshes.add(observer);
+        mHandler.removeCallbacks(mRefreshPendingDynamicData);
+        mHandler.postDelayed(mRefreshPendingDynamicData, DYNAMIC_DATA_REFRESH_DELAY_MS);
     }
 
-    private void refreshSummary(Uri uri, Preference preference) {
+    /**
+     * Fetches all the pending dynamic data on a background thread, and then applies it to the
+     * preferences at once so that they do not update field by field.
+     */
+    @VisibleForTesting
+    void refreshPendingDynamicData() {
+        mHandler.removeCallbacks(mRefreshPendingDynamicData);
+        if (mPendingRefreshes.isEmpty()) {
+            return;
+        }
+        List<DynamicDataObserver> batch = new ArrayList<>(mPendingRefreshes);
+        mPendingRefreshes.clear();
         executeBackgroundTask(() -> {
-            Map<String, IContentProvider> providerMap = new ArrayMap<>();
-            String summaryFromUri = TileUtils.getTextFromUri(
-                    mContext, uri, providerMap, META_DATA_PREFERENCE_SUMMARY);
-            if (!TextUtils.equals(summaryFromUri, preference.getSummary())) {
-                executeUiTask(() -> preference.setSummary(summaryFromUri));
+            List<Runnable> updates = fetchDynamicData(batch);
+            if (!updates.isEmpty()) {
+                executeUiTask(() -> updates.forEach(Runnable::run));
             }
         });
     }
 
-    private void refreshIcon(Uri uri, Preference preference) {
-        executeBackgroundTask(() -> {
-            Intent intent = preference.getIntent();
-            String packageName = null;
-            if (!TextUtils.isEmpty(intent.getPackage())) {
-                packageName = intent.getPackage();
-            } else if (intent.getComponent() != null) {
-                packageName = intent.getComponent().getPackageName();
-            }
+    /**
+     * Fetches the dynamic data of the batch grouped by authority, so that the provider of each
+     * authority is acquired once for all the fields it serves.
+     *
+     * @return the updates to apply to the preferences on the main thread
+     */
+    @WorkerThread
+    private List<Runnable> fetchDynamicData(List<DynamicDataObserver> batch) {
+        Map<String, List<DynamicDataObserver>> authorityToObservers = new ArrayMap<>();
+        for (DynamicDataObserver observer : batch) {
+            authorityToObservers.computeIfAbsent(observer.mUri.getAuthority(),
+                    authority -> new ArrayList<>()).add(observer);
+        }
+        List<Runnable> updates = new ArrayList<>();
+        for (List<DynamicDataObserver> observers : authorityToObservers.values()) {
             Map<String, IContentProvider> providerMap = new ArrayMap<>();
-            Pair<String, Integer> iconInfo = TileUtils.getIconFromUri(
-                    mContext, packageName, uri, providerMap);
-            Drawable icon;
-            if (iconInfo != null) {
-                icon = ExtraSettingsUtil.loadDrawableFromPackage(mContext,
-                        iconInfo.first, iconInfo.second);
-            } else {
-                LOG.w("Failed to get icon from uri " + uri);
-                icon = mContext.getDrawable(R.drawable.ic_settings_gear);
-                LOG.d("use default icon.");
+            for (DynamicDataObserver observer : observers) {
+                Runnable update = fetchDynamicData(observer, providerMap);
+                if (update != null) {
+                    updates.add(update);
+                }
             }
-            if (icon != null) {
-                executeUiTask(() -> {
+        }
+        return updates;
+    }
+
+    @WorkerThread
+    private Runnable fetchDynamicData(DynamicDataObserver observer,
+            Map<String, IContentProvider> providerMap) {
+        Preference preference = observer.mPreference;
+        switch (observer.mMethod) {
+            case METHOD_GET_DYNAMIC_TITLE:
+                String titleFromUri = TileUtils.getTextFromUri(
+                        mContext, observer.mUri, providerMap, META_DATA_PREFERENCE_TITLE);
+                return () -> {
+                    if (!TextUtils.equals(titleFromUri, preference.getTitle())) {
+                        preference.setTitle(titleFromUri);
+                    }
+                };
+            case METHOD_GET_DYNAMIC_SUMMARY:
+                String summaryFromUri = TileUtils.getTextFromUri(
+                        mContext, observer.mUri, providerMap, META_DATA_PREFERENCE_SUMMARY);
+                return () -> {
+                    if (!TextUtils.equals(summaryFromUri, preference.getSummary())) {
+                        preference.setSummary(summaryFromUri);
+                    }
+                };
+            case METHOD_GET_PROVIDER_ICON:
+                Drawable icon = fetchIcon(observer.mUri, preference, providerMap);
+                if (icon == null) {
+                    return null;
+                }
+                return () -> {
                     preference.setIcon(icon);
                     if (preference.getExtras().getBoolean(META_DATA_PREFERENCE_ICON_TINTABLE)) {
                         preference.getIcon().setTintList(
                                 Themes.getAttrColorStateList(mContext, R.attr.iconColor));
                     }
-                });
-            }
-        });
+                };
+            default:
+                return null;
+        }
+    }
+
+    @WorkerThread
+    private Drawable fetchIcon(Uri uri, Preference preference,
+            Map<String, IContentProvider> providerMap) {
+        Intent intent = preference.getIntent();
+        String packageName = null;
+        if (!TextUtils.isEmpty(intent.getPackage())) {
+            packageName = intent.getPackage();
+        } else if (intent.getComponent() != null) {
+            packageName = intent.getComponent().getPackageName();
+        }
+        Pair<String, Integer> iconInfo = TileUtils.getIconFromUri(
+                mContext, packageName, uri, providerMap);
+        if (iconInfo != null) {
+            return ExtraSettingsUtil.loadDrawableFromPackage(mContext,
+                    iconInfo.first, iconInfo.second);
+        }
+        LOG.w("Failed to get icon from uri " + uri);
+        LOG.d("use default icon.");
+        return mContext.getDrawable(R.drawable.ic_settings_gear);
     }
 
     /**
      * Observer for updating injected dynamic data.
      */
-    private class DynamicDataObserver extends ContentObserver {
+    @VisibleForTesting
+    class DynamicDataObserver extends ContentObserver {
         private final String mMethod;
         private final Uri mUri;
         private final Preference mPreference;
@@ -300,17 +437,7 @@ public class ExtraSettingsPreferenceController extends PreferenceController<Pref
 
         @Override
         public void onChange(boolean selfChange) {
-            switch (mMethod) {
-                case METHOD_GET_DYNAMIC_TITLE:
-                    refreshTitle(mUri, mPreference);
-                    break;
-                case METHOD_GET_DYNAMIC_SUMMARY:
-                    refreshSummary(mUri, mPreference);
-                    break;
-                case METHOD_GET_PROVIDER_ICON:
-                    refreshIcon(mUri, mPreference);
-                    break;
-            }
+            scheduleDynamicDataRefresh(this);
         }
     }
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import android.car.drivingstate.CarUxRestrictions;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentSender;
+import android.os.Bundle;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.XmlRes;
+import androidx.fragment.app.DialogFragment;
+import androidx.fragment.app.Fragment;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evaluates the {@link PreferenceController#getAvailabilityStatus()} of the controllers declared in
+ * a preference screen XML without showing the screen, e.g. to leave hidden preferences out of
+ * search results.
+ */
+public final class PreferenceAvailabilityEvaluator {
+    private static final Logger LOG = new Logger(PreferenceAvailabilityEvaluator.class);
+
+    /** Controllers are never attached to a screen here, so navigation requests are dropped. */
+    private static final FragmentController NO_OP_FRAGMENT_CONTROLLER = new FragmentController() {
+        @Override
+        public void launchFragment(Fragment fragment) {
+        }
+
+        @Override
+        public void goBack() {
+        }
+
+        @Override
+        public void showDialog(DialogFragment dialogFragment, @Nullable String tag) {
+        }
+
+        @Override
+        @Nullable
+        public DialogFragment findDialogByTag(String tag) {
+            return null;
+        }
+
+        @Override
+        public void startActivityForResult(Intent intent, int requestCode,
+                ActivityResultCallback callback) {
+        }
+
+        @Override
+        public void startIntentSenderForResult(IntentSender intent, int requestCode,
+                @Nullable Intent fillInIntent, int flagsMask, int flagsValues, Bundle options,
+                ActivityResultCallback callback) {
+        }
+    };
+
+    private PreferenceAvailabilityEvaluator() {
+    }
+
+    /**
+     * Returns the keys of the preferences in the given screen whose controllers report a status
+     * which hides the preference, i.e. neither {@link PreferenceController#AVAILABLE} nor {@link
+     * PreferenceController#AVAILABLE_FOR_VIEWING}.
+     *
+     * <p>Controllers are only constructed, not started, so this may be called from any thread.
+     * Controllers which cannot be created or evaluated outside of a screen are considered
+     * available.
+     */
+    @NonNull
+    public static List<String> getUnavailableKeys(Context context, @XmlRes int xmlResId,
+            CarUxRestrictions uxRestrictions) {
+        List<String> keys = new ArrayList<>();
+        List<PreferenceMetadata> preferenceMetadata;
+        try {
+            preferenceMetadata = PreferenceXmlParser.extractMetadata(context, xmlResId,
+                    PreferenceXmlParser.MetadataFlag.FLAG_NEED_KEY
+                            | PreferenceXmlParser.MetadataFlag.FLAG_NEED_PREF_CONTROLLER);
+        } catch (IOException | XmlPullParserException e) {
+            LOG.w("Error parsing preference XML - " + xmlResId);
+            return keys;
+        }
+
+        for (PreferenceMetadata metadata : preferenceMetadata) {
+            String controllerName = metadata.getController();
+            String key = metadata.getKey();
+            if (TextUtils.isEmpty(controllerName) || TextUtils.isEmpty(key)) {
+                continue;
+            }
+            int availabilityStatus;
+            try {
+                availabilityStatus = PreferenceControllerListHelper.createInstance(controllerName,
+                        context, key, NO_OP_FRAGMENT_CONTROLLER, uxRestrictions)
+                        .getAvailabilityStatus();
+            } catch (RuntimeException e) {
+                LOG.d("Could not evaluate availability of " + key, e);
+                continue;
+            }
+            if (availabilityStatus != PreferenceController.AVAILABLE
+                    && availabilityStatus != PreferenceController.AVAILABLE_FOR_VIEWING) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+}
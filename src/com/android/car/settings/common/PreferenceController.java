@@ -73,6 +73,7 @@ import java.util.Set;
  * <li>{@link #checkInitialized()}
  * <li>{@link #onCreateInternal()}
  * <li>{@link #getAvailabilityStatus()}
+ * <li>{@link #isAvailabilityStatusCacheable()}
  * <li>{@link #onStartInternal()}
  * <li>{@link #onResumeInternal()}
  * <li>{@link #onPauseInternal()}
@@ -148,6 +149,17 @@ public abstract class PreferenceController<V extends Preference> implements
     private CarUxRestrictions mUxRestrictions;
     private V mPreference;
     private boolean mIsCreated;
+    private PreferenceRefreshScheduler mRefreshScheduler;
+
+    /**
+     * Availability status computed for the current refresh epoch when
+     * {@link #isAvailabilityStatusCacheable()} is {@code true}. Only valid while
+     * {@link #mHasCachedAvailabilityStatus} is set.
+     */
+    @AvailabilityStatus
+    private int mCachedAvailabilityStatus;
+    private boolean mHasCachedAvailabilityStatus;
+    private int mAvailabilityStatusEvaluationCount;
 
     /**
      * Controllers should be instantiated from XML. To pass additional arguments see
@@ -225,6 +237,14 @@ public abstract class PreferenceController<V extends Preference> implements
         checkInitialized();
     }
 
+    /**
+     * Called by {@link SettingsFragment} to provide the scheduler used by {@link
+     * #scheduleRefreshUi()}. If never set, scheduled refreshes are performed immediately.
+     */
+    final void setRefreshScheduler(PreferenceRefreshScheduler refreshScheduler) {
+        mRefreshScheduler = refreshScheduler;
+    }
+
     /**
      * Called by {@link SettingsFragment} to notify that the applied ux restrictions have changed.
      * The controller will refresh its UI accordingly unless it is not yet created. In that case,
@@ -236,6 +256,25 @@ public abstract class PreferenceController<V extends Preference> implements
         refreshUi();
     }
 
+    /**
+     * Discards the availability status cached for the current refresh epoch so that the next
+     * check calls {@link #getAvailabilityStatus()} again. Controllers which opt into caching via
+     * {@link #isAvailabilityStatusCacheable()} should call this when state backing their
+     * availability changes outside of a lifecycle event or {@link #refreshUi()} call.
+     */
+    protected final void invalidateAvailabilityStatus() {
+        mHasCachedAvailabilityStatus = false;
+    }
+
+    /**
+     * Returns the number of times {@link #getAvailabilityStatus()} was evaluated by this class
+     * on behalf of the controller. Useful to verify the effect of
+     * {@link #isAvailabilityStatusCacheable()}.
+     */
+    final int getAvailabilityStatusEvaluationCount() {
+        return mAvailabilityStatusEvaluationCount;
+    }
+
     /**
      * Updates the preference presentation based on its {@link #getAvailabilityStatus()} status. If
      * the controller is available, the associated preference is shown and a call to {@link
@@ -243,15 +282,44 @@ public abstract class PreferenceController<V extends Preference> implements
      * dispatched to allow the controller to modify the presentation for the current state. If the
      * controller is not available, the associated preference is hidden from the screen. This is a
      * no-op if the controller is not yet created.
+     *
+     * <p>Each call starts a new refresh epoch, so controllers caching their availability status
+     * re-evaluate it at most once per call.
      */
     public final void refreshUi() {
+        if (mRefreshScheduler != null) {
+            mRefreshScheduler.cancel(this);
+        }
+        invalidateAvailabilityStatus();
+        refreshUiInternal();
+    }
+
+    /**
+     * Requests a {@link #refreshUi()} on the next frame. Requests from all controllers of the
+     * hosting {@link SettingsFragment} are coalesced so that a controller is refreshed at most once
+     * per frame no matter how often this is called. Prefer this over {@link #refreshUi()} in
+     * callbacks which may fire in rapid succession (e.g. scan results). Calling {@link
+     * #refreshUi()} performs the refresh immediately and drops any pending request.
+     *
+     * <p>Must be called on the main thread.
+     */
+    protected final void scheduleRefreshUi() {
+        if (mRefreshScheduler == null) {
+            refreshUi();
+            return;
+        }
+        mRefreshScheduler.schedule(this);
+    }
+
+    private void refreshUiInternal() {
         if (!mIsCreated) {
             return;
         }
 
-        if (isAvailable()) {
+        int availabilityStatus = getAvailabilityStatusForEpoch();
+        if (availabilityStatus == AVAILABLE || availabilityStatus == AVAILABLE_FOR_VIEWING) {
             mPreference.setVisible(true);
-            mPreference.setEnabled(getAvailabilityStatus() != AVAILABLE_FOR_VIEWING);
+            mPreference.setEnabled(availabilityStatus != AVAILABLE_FOR_VIEWING);
             updateState(mPreference);
             onApplyUxRestrictions(mUxRestrictions);
         } else {
@@ -259,9 +327,31 @@ public abstract class PreferenceController<V extends Preference> implements
         }
     }
 
-    private boolean isAvailable() {
+    /**
+     * Returns the availability status for the current refresh epoch. If the controller does not
+     * opt into caching, this always evaluates {@link #getAvailabilityStatus()}.
+     */
+    @AvailabilityStatus
+    private int getAvailabilityStatusForEpoch() {
+        if (mHasCachedAvailabilityStatus) {
+            return mCachedAvailabilityStatus;
+        }
+        mAvailabilityStatusEvaluationCount++;
         int availabilityStatus = getAvailabilityStatus();
-        return availabilityStatus == AVAILABLE || availabilityStatus == AVAILABLE_FOR_VIEWING;
+        if (isAvailabilityStatusCacheable()) {
+            mCachedAvailabilityStatus = availabilityStatus;
+            mHasCachedAvailabilityStatus = true;
+        }
+        return availabilityStatus;
+    }
+
+    /**
+     * Starts a new refresh epoch for a lifecycle event and returns whether the controller is
+     * {@link #UNSUPPORTED_ON_DEVICE}.
+     */
+    private boolean isUnsupportedOnDevice() {
+        invalidateAvailabilityStatus();
+        return getAvailabilityStatusForEpoch() == UNSUPPORTED_ON_DEVICE;
     }
 
     // Controller lifecycle ========================================================================
@@ -273,13 +363,13 @@ public abstract class PreferenceController<V extends Preference> implements
      */
     @Override
     public final void onCreate(@NonNull LifecycleOwner owner) {
-        if (getAvailabilityStatus() == UNSUPPORTED_ON_DEVICE) {
+        if (isUnsupportedOnDevice()) {
             mPreference.setVisible(false);
             return;
         }
         onCreateInternal();
         mIsCreated = true;
-        refreshUi();
+        refreshUiInternal();
     }
 
     /**
@@ -289,11 +379,11 @@ public abstract class PreferenceController<V extends Preference> implements
      */
     @Override
     public final void onStart(@NonNull LifecycleOwner owner) {
-        if (getAvailabilityStatus() == UNSUPPORTED_ON_DEVICE) {
+        if (isUnsupportedOnDevice()) {
             return;
         }
         onStartInternal();
-        refreshUi();
+        refreshUiInternal();
     }
 
     /**
@@ -302,7 +392,7 @@ public abstract class PreferenceController<V extends Preference> implements
      */
     @Override
     public final void onResume(@NonNull LifecycleOwner owner) {
-        if (getAvailabilityStatus() == UNSUPPORTED_ON_DEVICE) {
+        if (isUnsupportedOnDevice()) {
             return;
         }
         onResumeInternal();
@@ -314,7 +404,7 @@ public abstract class PreferenceController<V extends Preference> implements
      */
     @Override
     public final void onPause(@NonNull LifecycleOwner owner) {
-        if (getAvailabilityStatus() == UNSUPPORTED_ON_DEVICE) {
+        if (isUnsupportedOnDevice()) {
             return;
         }
         onPauseInternal();
@@ -326,7 +416,7 @@ public abstract class PreferenceController<V extends Preference> implements
      */
     @Override
     public final void onStop(@NonNull LifecycleOwner owner) {
-        if (getAvailabilityStatus() == UNSUPPORTED_ON_DEVICE) {
+        if (isUnsupportedOnDevice()) {
             return;
         }
         onStopInternal();
@@ -339,7 +429,7 @@ public abstract class PreferenceController<V extends Preference> implements
      */
     @Override
     public final void onDestroy(@NonNull LifecycleOwner owner) {
-        if (getAvailabilityStatus() == UNSUPPORTED_ON_DEVICE) {
+        if (isUnsupportedOnDevice()) {
             return;
         }
         mIsCreated = false;
@@ -372,6 +462,20 @@ public abstract class PreferenceController<V extends Preference> implements
         return AVAILABLE;
     }
 
+    /**
+     * Subclasses may override this method to return {@code true} when {@link
+     * #getAvailabilityStatus()} is expensive and only depends on state which changes between
+     * refresh epochs. A refresh epoch begins with each lifecycle event, each call to {@link
+     * #refreshUi()} and each {@link CarUxRestrictions} change, so the status is evaluated at most
+     * once per epoch instead of up to three times. Controllers must call {@link
+     * #invalidateAvailabilityStatus()} if the status may change within an epoch, e.g. as a side
+     * effect of {@link #onCreateInternal()} or {@link #onStartInternal()}. Defaults to {@code
+     * false}.
+     */
+    protected boolean isAvailabilityStatusCacheable() {
+        return false;
+    }
+
     /**
      * Subclasses may override this method to complete any operations needed at creation time e.g.
      * loading static configuration.
@@ -456,7 +560,7 @@ public abstract class PreferenceController<V extends Preference> implements
         if (!isUxRestrictionsIgnored(mAlwaysIgnoreUxRestrictions,
                 mPreferencesIgnoringUxRestrictions)
                 && CarUxRestrictionsHelper.isNoSetup(uxRestrictions)
-                && getAvailabilityStatus() != AVAILABLE_FOR_VIEWING) {
+                && getAvailabilityStatusForEpoch() != AVAILABLE_FOR_VIEWING) {
             restrict = true;
         }
         restrictPreference(mPreference, restrict);
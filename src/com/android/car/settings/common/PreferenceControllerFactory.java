@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import android.car.drivingstate.CarUxRestrictions;
+import android.content.Context;
+
+/**
+ * Creates a {@link PreferenceController} using the standard controller constructor arguments.
+ * Instances are generated at build time into {@code PreferenceControllerIndex} so that
+ * controllers declared in XML can be created without reflection.
+ */
+@FunctionalInterface
+interface PreferenceControllerFactory {
+
+    /**
+     * Returns a new controller for the preference with the given {@code preferenceKey}.
+     */
+    PreferenceController create(Context context, String preferenceKey,
+            FragmentController fragmentController, CarUxRestrictions uxRestrictions);
+}
@@ -16,14 +16,10 @@
 
 package com.android.car.settings.common;
 
-import static com.android.car.settings.common.PreferenceXmlParser.METADATA_CONTROLLER;
-import static com.android.car.settings.common.PreferenceXmlParser.METADATA_KEY;
-
 import android.annotation.NonNull;
 import android.annotation.XmlRes;
 import android.car.drivingstate.CarUxRestrictions;
 import android.content.Context;
-import android.os.Bundle;
 import android.text.TextUtils;
 
 import org.xmlpull.v1.XmlPullParserException;
@@ -33,15 +29,26 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Helper to load {@link PreferenceController} instances from XML. Based on com.android
  * .settings.core.PreferenceControllerListHelper.
+ *
+ * <p>Controllers are created through the build-time generated {@link PreferenceControllerIndex}
+ * when possible. Controllers which are not part of the index (e.g. declared in overlays or test
+ * resources) are created reflectively.
  */
 class PreferenceControllerListHelper {
     private PreferenceControllerListHelper() {
     }
 
+    /** Lazily initialized holder for the generated controller factories. */
+    private static final class FactoryHolder {
+        static final Map<String, PreferenceControllerFactory> FACTORIES =
+                PreferenceControllerIndex.createFactories();
+    }
+
     /**
      * Creates a list of {@link PreferenceController}.
      *
@@ -60,7 +67,7 @@ class PreferenceControllerListHelper {
             @XmlRes int xmlResId, FragmentController fragmentController,
             CarUxRestrictions uxRestrictions) {
         List<PreferenceController> controllers = new ArrayList<>();
-        List<Bundle> preferenceMetadata;
+        List<PreferenceMetadata> preferenceMetadata;
         try {
             preferenceMetadata = PreferenceXmlParser.extractMetadata(context, xmlResId,
                     PreferenceXmlParser.MetadataFlag.FLAG_NEED_KEY
@@ -70,12 +77,12 @@ class PreferenceControllerListHelper {
                     "Failed to parse preference XML for getting controllers", e);
         }
 
-        for (Bundle metadata : preferenceMetadata) {
-            String controllerName = metadata.getString(METADATA_CONTROLLER);
+        for (PreferenceMetadata metadata : preferenceMetadata) {
+            String controllerName = metadata.getController();
             if (TextUtils.isEmpty(controllerName)) {
                 continue; // Preference does not require a controller.
             }
-            String key = metadata.getString(METADATA_KEY);
+            String key = metadata.getKey();
             if (TextUtils.isEmpty(key)) {
                 throw new IllegalArgumentException("Missing key for controller: " + controllerName);
             }
@@ -86,7 +93,31 @@ class PreferenceControllerListHelper {
         return controllers;
     }
 
-    private static PreferenceController createInstance(String controllerName,
+    /**
+     * Creates a single {@link PreferenceController}, through the generated index when possible.
+     *
+     * @throws IllegalArgumentException if the controller cannot be instantiated.
+     */
+    static PreferenceController createInstance(String controllerName,
+            Context context, String key, FragmentController fragmentController,
+            CarUxRestrictions restrictionInfo) {
+        PreferenceControllerFactory factory = FactoryHolder.FACTORIES.get(controllerName);
+        if (factory != null) {
+            return factory.create(context, key, fragmentController, restrictionInfo);
+        }
+        return createInstanceReflectively(controllerName, context, key, fragmentController,
+                restrictionInfo);
+    }
+
+    /**
+     * Returns {@code true} if the controller with the given fully qualified class name can be
+     * created without reflection.
+     */
+    static boolean isIndexed(String controllerName) {
+        return FactoryHolder.FACTORIES.containsKey(controllerName);
+    }
+
+    private static PreferenceController createInstanceReflectively(String controllerName,
             Context context, String key, FragmentController fragmentController,
             CarUxRestrictions restrictionInfo) {
         try {
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Immutable metadata of a single preference extracted by {@link PreferenceXmlParser}. Values
+ * which were not requested through {@link PreferenceXmlParser.MetadataFlag} are left at their
+ * defaults.
+ */
+public final class PreferenceMetadata {
+
+    @Nullable
+    private final String mKey;
+    @Nullable
+    private final String mController;
+    private final boolean mSearchable;
+
+    PreferenceMetadata(@Nullable String key, @Nullable String controller, boolean searchable) {
+        mKey = key;
+        mController = controller;
+        mSearchable = searchable;
+    }
+
+    /**
+     * Returns the preference key or {@code null} if it is not defined or was not requested.
+     */
+    @Nullable
+    public String getKey() {
+        return mKey;
+    }
+
+    /**
+     * Returns the fully qualified class name of the {@link PreferenceController} or {@code null}
+     * if it is not defined or was not requested.
+     */
+    @Nullable
+    public String getController() {
+        return mController;
+    }
+
+    /**
+     * Returns whether the preference is searchable. Defaults to {@code true}.
+     */
+    public boolean isSearchable() {
+        return mSearchable;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import android.view.Choreographer;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Coalesces {@link PreferenceController#scheduleRefreshUi()} requests of the controllers owned by
+ * a {@link SettingsFragment} and flushes them once per {@link Choreographer} frame. Multiple
+ * requests for the same controller within a frame result in a single {@link
+ * PreferenceController#refreshUi()} call.
+ *
+ * <p>All methods must be called on the main thread.
+ */
+@MainThread
+class PreferenceRefreshScheduler {
+
+    private final Choreographer mChoreographer;
+    private final Set<PreferenceController> mPendingControllers = new LinkedHashSet<>();
+    private final Choreographer.FrameCallback mFrameCallback = frameTimeNanos -> flush();
+
+    private boolean mFrameCallbackPosted;
+
+    PreferenceRefreshScheduler() {
+        this(Choreographer.getInstance());
+    }
+
+    @VisibleForTesting
+    PreferenceRefreshScheduler(Choreographer choreographer) {
+        mChoreographer = choreographer;
+    }
+
+    /**
+     * Requests a refresh of the given controller on the next frame. No-op if a refresh is already
+     * pending for the controller.
+     */
+    void schedule(PreferenceController controller) {
+        if (!mPendingControllers.add(controller) || mFrameCallbackPosted) {
+            return;
+        }
+        mChoreographer.postFrameCallback(mFrameCallback);
+        mFrameCallbackPosted = true;
+    }
+
+    /**
+     * Drops the pending refresh of the given controller, e.g. because it has been refreshed
+     * immediately.
+     */
+    void cancel(PreferenceController controller) {
+        mPendingControllers.remove(controller);
+    }
+
+    /**
+     * Drops all pending refreshes.
+     */
+    void cancelAll() {
+        mPendingControllers.clear();
+        if (mFrameCallbackPosted) {
+            mChoreographer.removeFrameCallback(mFrameCallback);
+            mFrameCallbackPosted = false;
+        }
+    }
+
+    /**
+     * Returns whether a refresh is pending for the given controller.
+     */
+    boolean isPending(PreferenceController controller) {
+        return mPendingControllers.contains(controller);
+    }
+
+    @VisibleForTesting
+    void flush() {
+        mFrameCallbackPosted = false;
+        if (mPendingControllers.isEmpty()) {
+            return;
+        }
+        // Copy as refreshes may schedule further refreshes for the next frame.
+        List<PreferenceController> controllers = new ArrayList<>(mPendingControllers);
+        mPendingControllers.clear();
+        for (PreferenceController controller : controllers) {
+            controller.refreshUi();
+        }
+    }
+}
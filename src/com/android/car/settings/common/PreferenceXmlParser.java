@@ -19,13 +19,17 @@ package com.android.car.settings.common;
 import android.annotation.NonNull;
 import android.annotation.XmlRes;
 import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
 import android.content.res.XmlResourceParser;
-import android.os.Bundle;
 import android.util.AttributeSet;
+import android.util.LongSparseArray;
 import android.util.Xml;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.IntDef;
+import androidx.annotation.VisibleForTesting;
 
 import com.android.car.settings.R;
 
@@ -37,11 +41,16 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Utility class to parse elements of XML preferences. This is a reduced version of {@code com
  * .android.settings.core.PreferenceXmlParserUtils}.
+ *
+ * <p>Parsed metadata is cached per process, keyed by XML resource and requested flags. The cache
+ * is dropped whenever a configuration change which may alter the resolved resources (locale or
+ * ui mode driven theme) is observed.
  */
 public class PreferenceXmlParser {
 
@@ -68,21 +77,75 @@ public class PreferenceXmlParser {
         int FLAG_NEED_SEARCHABLE = 1 << 9;
     }
 
-    public static final String METADATA_KEY = "key";
-    public static final String METADATA_SEARCHABLE = "searchable";
-    static final String METADATA_CONTROLLER = "controller";
+    /** Configuration changes which invalidate the metadata cache. */
+    private static final int INVALIDATING_CONFIG_CHANGES =
+            ActivityInfo.CONFIG_LOCALE | ActivityInfo.CONFIG_UI_MODE;
+
+    private static final Object sCacheLock = new Object();
+    @GuardedBy("sCacheLock")
+    private static final LongSparseArray<List<PreferenceMetadata>> sMetadataCache =
+            new LongSparseArray<>();
+    @GuardedBy("sCacheLock")
+    private static Configuration sCachedConfiguration;
 
     /**
-     * Extracts metadata from each preference XML and puts them into a {@link Bundle}.
+     * Returns the metadata of each preference in the XML. Results are cached so repeated calls
+     * for the same resource and flags do not re-parse the XML.
      *
      * @param xmlResId xml res id of a preference screen
      * @param flags one or more of {@link MetadataFlag}
-     * @return a list of Bundles containing the extracted metadata
+     * @return an unmodifiable list containing the extracted metadata
      */
     @NonNull
-    public static List<Bundle> extractMetadata(Context context, @XmlRes int xmlResId, int flags)
-            throws IOException, XmlPullParserException {
-        final List<Bundle> metadata = new ArrayList<>();
+    public static List<PreferenceMetadata> extractMetadata(Context context, @XmlRes int xmlResId,
+            int flags) throws IOException, XmlPullParserException {
+        long cacheKey = ((long) xmlResId << 32) | (flags & 0xffffffffL);
+        Configuration configuration = context.getResources().getConfiguration();
+        synchronized (sCacheLock) {
+            if (sCachedConfiguration == null
+                    || (sCachedConfiguration.diff(configuration) & INVALIDATING_CONFIG_CHANGES)
+                    != 0) {
+                sMetadataCache.clear();
+                sCachedConfiguration = new Configuration(configuration);
+            }
+            List<PreferenceMetadata> cached = sMetadataCache.get(cacheKey);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        List<PreferenceMetadata> metadata =
+                Collections.unmodifiableList(parseMetadata(context, xmlResId, flags));
+        synchronized (sCacheLock) {
+            if (sCachedConfiguration != null
+                    && (sCachedConfiguration.diff(configuration) & INVALIDATING_CONFIG_CHANGES)
+                    == 0) {
+                sMetadataCache.put(cacheKey, metadata);
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * Drops all cached metadata.
+     */
+    public static void clearCache() {
+        synchronized (sCacheLock) {
+            sMetadataCache.clear();
+            sCachedConfiguration = null;
+        }
+    }
+
+    @VisibleForTesting
+    static int getCacheSize() {
+        synchronized (sCacheLock) {
+            return sMetadataCache.size();
+        }
+    }
+
+    private static List<PreferenceMetadata> parseMetadata(Context context, @XmlRes int xmlResId,
+            int flags) throws IOException, XmlPullParserException {
+        final List<PreferenceMetadata> metadata = new ArrayList<>();
         if (xmlResId <= 0) {
             LOG.d(xmlResId + " is invalid.");
             return metadata;
@@ -105,23 +168,17 @@ public class PreferenceXmlParser {
                     && !nodeName.endsWith(PREF_GROUP_TAG_ENDS_WITH)) {
                 continue;
             }
-            final Bundle preferenceMetadata = new Bundle();
             final AttributeSet attrs = Xml.asAttributeSet(parser);
             final TypedArray preferenceAttributes = context.obtainStyledAttributes(attrs,
                     R.styleable.Preference);
 
-            if (hasFlag(flags, MetadataFlag.FLAG_NEED_KEY)) {
-                preferenceMetadata.putString(METADATA_KEY, getKey(preferenceAttributes));
-            }
-            if (hasFlag(flags, MetadataFlag.FLAG_NEED_PREF_CONTROLLER)) {
-                preferenceMetadata.putString(METADATA_CONTROLLER,
-                        getController(preferenceAttributes));
-            }
-            if (hasFlag(flags, MetadataFlag.FLAG_NEED_SEARCHABLE)) {
-                preferenceMetadata.putBoolean(METADATA_SEARCHABLE,
-                        isSearchable(preferenceAttributes));
-            }
-            metadata.add(preferenceMetadata);
+            metadata.add(new PreferenceMetadata(
+                    hasFlag(flags, MetadataFlag.FLAG_NEED_KEY)
+                            ? getKey(preferenceAttributes) : null,
+                    hasFlag(flags, MetadataFlag.FLAG_NEED_PREF_CONTROLLER)
+                            ? getController(preferenceAttributes) : null,
+                    !hasFlag(flags, MetadataFlag.FLAG_NEED_SEARCHABLE)
+                            || isSearchable(preferenceAttributes)));
 
             preferenceAttributes.recycle();
         } while ((type = parser.next()) != XmlPullParser.END_DOCUMENT
@@ -25,6 +25,8 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentSender;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.ArrayMap;
 import android.util.SparseArray;
 import android.util.TypedValue;
@@ -38,7 +40,12 @@ import androidx.fragment.app.DialogFragment;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.Lifecycle;
 import androidx.preference.Preference;
+import androidx.preference.PreferenceCategory;
+import androidx.preference.PreferenceGroup;
+import androidx.preference.PreferenceGroupAdapter;
 import androidx.preference.PreferenceScreen;
+import androidx.preference.PreferenceViewHolder;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.android.car.settings.R;
 import com.android.car.ui.preference.PreferenceFragment;
@@ -65,6 +72,9 @@ import java.util.Map;
  * {@link FragmentController} or an {@link IllegalStateException} will be thrown during
  * {@link #onAttach(Context)}. Changes to driving state restrictions are propagated to
  * controllers.
+ *
+ * <p>Subclasses with long preference screens may enable {@link #isLazyControllerStartEnabled()}
+ * to defer the lifecycle of controllers until their preference is first bound to a view.
  */
 public abstract class SettingsFragment extends PreferenceFragment implements
         CarUxRestrictionsManager.OnUxRestrictionsChangedListener, FragmentController, Indexable {
@@ -80,8 +90,12 @@ public abstract class SettingsFragment extends PreferenceFragment implements
     private final List<PreferenceController> mPreferenceControllers = new ArrayList<>();
     private final SparseArray<ActivityResultCallback> mActivityResultCallbackMap =
             new SparseArray<>();
+    private final Map<Preference, PreferenceController> mDeferredPreferenceControllers =
+            new ArrayMap<>();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
 
     private CarUxRestrictions mUxRestrictions;
+    private PreferenceRefreshScheduler mRefreshScheduler;
     private int mCurrentRequestIndex = 0;
 
     /**
@@ -101,6 +115,23 @@ public abstract class SettingsFragment extends PreferenceFragment implements
         return null;
     }
 
+    /**
+     * Returns whether controllers of plain preferences should only be created and started once
+     * their preference is first bound by the list, instead of when the fragment is created.
+     * Controllers of preference groups and of preferences which are not visible initially are
+     * always started with the fragment since their preferences may never be bound otherwise.
+     * Controllers which are not {@link PreferenceController#AVAILABLE} when the fragment is
+     * created are also started with it, so that their preferences are hidden or disabled before
+     * they are first shown.
+     *
+     * <p>Until its controller starts, a deferred preference shows its XML defaults. Only enable
+     * this for screens whose controllers do not change the availability of their preferences
+     * after the fragment is created, as rows would otherwise change when scrolled into view.
+     */
+    protected boolean isLazyControllerStartEnabled() {
+        return false;
+    }
+
     /**
      * Returns the controller of the given {@code clazz} for the given {@code
      * preferenceKeyResId}. Subclasses may use this method in {@link #onAttach(Context)} to call
@@ -167,6 +198,9 @@ public abstract class SettingsFragment extends PreferenceFragment implements
         Context styledContext = new ContextThemeWrapper(getActivity(), theme);
 
         mUxRestrictions = ((UxRestrictionsProvider) requireActivity()).getCarUxRestrictions();
+        if (mRefreshScheduler == null) {
+            mRefreshScheduler = new PreferenceRefreshScheduler();
+        }
         mPreferenceControllers.clear();
         mPreferenceControllers.addAll(
                 PreferenceControllerListHelper.getPreferenceControllersFromXml(styledContext,
@@ -174,8 +208,12 @@ public abstract class SettingsFragment extends PreferenceFragment implements
                         mUxRestrictions));
 
         Lifecycle lifecycle = getLifecycle();
+        boolean lazyStart = isLazyControllerStartEnabled();
         mPreferenceControllers.forEach(controller -> {
-            lifecycle.addObserver(controller);
+            controller.setRefreshScheduler(mRefreshScheduler);
+            if (!lazyStart) {
+                lifecycle.addObserver(controller);
+            }
             mPreferenceControllersLookup.computeIfAbsent(controller.getClass(),
                     k -> new ArrayList<>(/* initialCapacity= */ 1)).add(controller);
         });
@@ -200,11 +238,71 @@ public abstract class SettingsFragment extends PreferenceFragment implements
         }
         addPreferencesFromResource(resId);
         PreferenceScreen screen = getPreferenceScreen();
+        boolean lazyStart = isLazyControllerStartEnabled();
+        mDeferredPreferenceControllers.clear();
         for (PreferenceController controller : mPreferenceControllers) {
             Preference pref = screen.findPreference(controller.getPreferenceKey());
 
             controller.setPreference(pref);
+            if (!lazyStart) {
+                continue;
+            }
+            if (canDeferControllerStart(controller, pref)) {
+                mDeferredPreferenceControllers.put(pref, controller);
+            } else {
+                getLifecycle().addObserver(controller);
+            }
+        }
+    }
+
+    @Override
+    protected RecyclerView.Adapter onCreateAdapter(PreferenceScreen preferenceScreen) {
+        if (!isLazyControllerStartEnabled()) {
+            return super.onCreateAdapter(preferenceScreen);
+        }
+        return new PreferenceGroupAdapter(preferenceScreen) {
+            @Override
+            public void onBindViewHolder(PreferenceViewHolder holder, int position) {
+                super.onBindViewHolder(holder, position);
+                onPreferenceBound(getItem(position));
+            }
+        };
+    }
+
+    /**
+     * Starts the deferred controller of the given preference, if any. The controller is
+     * registered on the next loop so that its initial refresh does not modify the adapter while
+     * the list is being laid out.
+     */
+    @VisibleForTesting
+    void onPreferenceBound(Preference preference) {
+        PreferenceController controller = mDeferredPreferenceControllers.remove(preference);
+        if (controller == null) {
+            return;
+        }
+        mHandler.post(() -> {
+            if (isAdded()) {
+                getLifecycle().addObserver(controller);
+            }
+        });
+    }
+
+    /**
+     * Returns whether the given preference will be bound by the list on its own when scrolled into
+     * view, and shows as it would once its controller starts, in which case the controller may be
+     * started lazily.
+     */
+    private static boolean canDeferControllerStart(PreferenceController controller,
+            Preference preference) {
+        if (!preference.isShown() || preference instanceof PreferenceGroup) {
+            return false;
         }
+        if (controller.getAvailabilityStatus() != PreferenceController.AVAILABLE) {
+            // The preference would be hidden or disabled only once bound.
+            return false;
+        }
+        PreferenceGroup parent = preference.getParent();
+        return parent instanceof PreferenceScreen || parent instanceof PreferenceCategory;
     }
 
     @Override
@@ -232,6 +330,11 @@ public abstract class SettingsFragment extends PreferenceFragment implements
         super.onDetach();
         Lifecycle lifecycle = getLifecycle();
         mPreferenceControllers.forEach(lifecycle::removeObserver);
+        mDeferredPreferenceControllers.clear();
+        mHandler.removeCallbacksAndMessages(null);
+        if (mRefreshScheduler != null) {
+            mRefreshScheduler.cancelAll();
+        }
         mActivityResultCallbackMap.clear();
     }
 
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.datausage;
+
+import static android.net.TrafficStats.UID_REMOVED;
+import static android.net.TrafficStats.UID_TETHERING;
+
+import android.content.pm.UserInfo;
+import android.os.Process;
+import android.os.UserHandle;
+import android.util.SparseIntArray;
+
+import com.android.settingslib.AppItem;
+import com.android.settingslib.net.UidDetailProvider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Aggregates per-uid network usage into the items shown by {@link
+ * AppDataUsagePreferenceController}.
+ *
+ * <p>Usage is accumulated into parallel primitive arrays indexed by a slot per collapse key, and
+ * user membership is resolved through a precomputed bitset of user ids, so {@link #add(int, long,
+ * long)} does not allocate once the arrays have grown to fit all items. {@link AppItem} instances
+ * are only created by {@link #toAppItems()}.
+ */
+class AppDataUsageAggregator {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final BitSet mUserIds = new BitSet();
+    private final int mCurrentUserId;
+    private final SparseIntArray mSlotsByKey = new SparseIntArray(INITIAL_CAPACITY);
+
+    private int[] mKeys = new int[INITIAL_CAPACITY];
+    private int[] mCategories = new int[INITIAL_CAPACITY];
+    private long[] mRxBytes = new long[INITIAL_CAPACITY];
+    private long[] mTxBytes = new long[INITIAL_CAPACITY];
+    private boolean[] mRestricted = new boolean[INITIAL_CAPACITY];
+    private int mSlotCount;
+    private long mLargest;
+
+    AppDataUsageAggregator(List<UserInfo> profiles, int currentUserId) {
+        for (int i = 0, size = profiles.size(); i < size; i++) {
+            int userId = profiles.get(i).id;
+            if (userId >= 0) {
+                mUserIds.set(userId);
+            }
+        }
+        mCurrentUserId = currentUserId;
+    }
+
+    /**
+     * Accumulates the usage of a single network stats entry.
+     */
+    void add(int uid, long rxBytes, long txBytes) {
+        int userId = UserHandle.getUserId(uid);
+
+        if (!UserHandle.isApp(uid) && (uid == UID_REMOVED || uid == UID_TETHERING)) {
+            // UID does not belong to a regular app and maybe belongs to a removed application or
+            // application using for tethering traffic.
+            accumulate(uid, AppItem.CATEGORY_APP, rxBytes, txBytes);
+            return;
+        }
+
+        if (!UserHandle.isApp(uid)) {
+            accumulate(Process.SYSTEM_UID, AppItem.CATEGORY_APP, rxBytes, txBytes);
+            return;
+        }
+
+        if (containsUserId(userId)) {
+            if (userId != mCurrentUserId) {
+                // Add to a managed user item.
+                accumulate(UidDetailProvider.buildKeyForUser(userId), AppItem.CATEGORY_USER,
+                        rxBytes, txBytes);
+            }
+            accumulate(uid, AppItem.CATEGORY_APP, rxBytes, txBytes);
+            return;
+        }
+
+        // Users that are no longer present have been removed.
+        accumulate(UID_REMOVED, AppItem.CATEGORY_APP, rxBytes, txBytes);
+    }
+
+    /**
+     * Marks the given uid as restricted, creating an item without usage if needed.
+     */
+    void markRestricted(int uid) {
+        // Only splice in restricted state for current user or managed users.
+        if (!containsUserId(uid)) {
+            return;
+        }
+        int slot = mSlotsByKey.get(uid, -1);
+        if (slot < 0) {
+            slot = addSlot(uid, AppItem.CATEGORY_APP);
+            mRxBytes[slot] = -1;
+        }
+        mRestricted[slot] = true;
+    }
+
+    /**
+     * Returns the largest total usage of any item.
+     */
+    long getLargest() {
+        return mLargest;
+    }
+
+    /**
+     * Returns the number of distinct items.
+     */
+    int size() {
+        return mSlotCount;
+    }
+
+    /**
+     * Materializes the aggregated items in insertion order.
+     */
+    List<AppItem> toAppItems() {
+        List<AppItem> items = new ArrayList<>(mSlotCount);
+        for (int slot = 0; slot < mSlotCount; slot++) {
+            AppItem item = new AppItem(mKeys[slot]);
+            item.category = mCategories[slot];
+            item.total = mRxBytes[slot] + mTxBytes[slot];
+            item.restricted = mRestricted[slot];
+            items.add(item);
+        }
+        return items;
+    }
+
+    private boolean containsUserId(int userId) {
+        return userId >= 0 && mUserIds.get(userId);
+    }
+
+    private void accumulate(int collapseKey, int category, long rxBytes, long txBytes) {
+        int slot = mSlotsByKey.get(collapseKey, -1);
+        if (slot < 0) {
+            slot = addSlot(collapseKey, category);
+        }
+        mRxBytes[slot] += rxBytes;
+        mTxBytes[slot] += txBytes;
+        mLargest = Math.max(mLargest, mRxBytes[slot] + mTxBytes[slot]);
+    }
+
+    private int addSlot(int collapseKey, int category) {
+        if (mSlotCount == mKeys.length) {
+            int capacity = mKeys.length * 2;
+            mKeys = Arrays.copyOf(mKeys, capacity);
+            mCategories = Arrays.copyOf(mCategories, capacity);
+            mRxBytes = Arrays.copyOf(mRxBytes, capacity);
+            mTxBytes = Arrays.copyOf(mTxBytes, capacity);
+            mRestricted = Arrays.copyOf(mRestricted, capacity);
+        }
+        int slot = mSlotCount++;
+        mKeys[slot] = collapseKey;
+        mCategories[slot] = category;
+        mSlotsByKey.put(collapseKey, slot);
+        return slot;
+    }
+}
@@ -16,32 +16,31 @@
 
 package com.android.car.settings.datausage;
 
-import static android.net.TrafficStats.UID_REMOVED;
-import static android.net.TrafficStats.UID_TETHERING;
-
 import android.car.drivingstate.CarUxRestrictions;
 import android.content.Context;
 import android.content.pm.UserInfo;
 import android.net.NetworkStats;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.UserHandle;
-import android.util.SparseArray;
+import android.view.View;
 
+import androidx.annotation.VisibleForTesting;
 import androidx.preference.PreferenceGroup;
+import androidx.preference.PreferenceViewHolder;
 
 import com.android.car.settings.R;
 import com.android.car.settings.common.FragmentController;
 import com.android.car.settings.common.PreferenceController;
 import com.android.car.settings.common.ProgressBarPreference;
 import com.android.car.settings.users.UserHelper;
+import com.android.car.ui.preference.CarUiPreference;
 import com.android.settingslib.AppItem;
 import com.android.settingslib.net.UidDetail;
 import com.android.settingslib.net.UidDetailProvider;
-import com.android.settingslib.utils.ThreadUtils;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
 
 import javax.annotation.Nullable;
 
@@ -49,16 +48,40 @@ import javax.annotation.Nullable;
  * Controller that adds all the applications using the data sorted by the amount of data used. The
  * first application that used most amount of data will be at the top with progress 100 percentage.
  * All other progress are calculated relatively.
+ *
+ * <p>Only the first page of applications is added up front. The next page is added once the
+ * trailing "show more" preference is bound, i.e. when the user scrolls to the end of the list.
+ * Icons and labels are only resolved for rows which are bound, see {@link UidDetailLoader}.
  */
 public class AppDataUsagePreferenceController extends
         PreferenceController<PreferenceGroup> implements AppsNetworkStatsManager.Callback {
 
-    private final UidDetailProvider mUidDetailProvider;
+    @VisibleForTesting
+    static final String SHOW_MORE_KEY = "show_more";
+
+    private final UidDetailLoader mUidDetailLoader;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final int mPageSize;
+
+    private List<AppItem> mItems = Collections.emptyList();
+    private long mLargest;
+    private int mShownCount;
+    private ShowMorePreference mShowMorePreference;
 
     public AppDataUsagePreferenceController(Context context, String preferenceKey,
             FragmentController fragmentController, CarUxRestrictions uxRestrictions) {
+        this(context, preferenceKey, fragmentController, uxRestrictions,
+                new UidDetailLoader(new UidDetailProvider(context)));
+    }
+
+    @VisibleForTesting
+    AppDataUsagePreferenceController(Context context, String preferenceKey,
+            FragmentController fragmentController, CarUxRestrictions uxRestrictions,
+            UidDetailLoader uidDetailLoader) {
         super(context, preferenceKey, fragmentController, uxRestrictions);
-        mUidDetailProvider = new UidDetailProvider(getContext());
+        mUidDetailLoader = uidDetailLoader;
+        mPageSize = Math.max(1,
+                context.getResources().getInteger(R.integer.config_data_usage_app_page_size));
     }
 
     @Override
@@ -67,160 +90,139 @@ public class AppDataUsagePreferenceController extends
     }
 
     @Override
-    public void onDataLoaded(@Nullable NetworkStats stats, @Nullable int[] restrictedUids) {
-        List<AppItem> items = new ArrayList<>();
-        long largest = 0;
+    protected void onStopInternal() {
+        mHandler.removeCallbacksAndMessages(null);
+        mUidDetailLoader.cancelAll();
+    }
+
+    @Override
+    protected void onDestroyInternal() {
+        mUidDetailLoader.release();
+    }
 
+    @Override
+    public void onDataLoaded(@Nullable NetworkStats stats, @Nullable int[] restrictedUids) {
         List<UserInfo> profiles = UserHelper.getInstance(getContext()).getAllUsers();
-        SparseArray<AppItem> knownItems = new SparseArray<>();
+        AppDataUsageAggregator aggregator = new AppDataUsageAggregator(profiles,
+                UserHandle.myUserId());
 
-        NetworkStats.Entry entry = null;
         if (stats != null) {
-            for (int i = 0; i < stats.size(); i++) {
+            NetworkStats.Entry entry = null;
+            for (int i = 0, size = stats.size(); i < size; i++) {
                 entry = stats.getValues(i, entry);
-                long size = aggregateDataUsage(knownItems, items, entry, profiles);
-                largest = Math.max(size, largest);
+                aggregator.add(entry.uid, entry.rxBytes, entry.txBytes);
             }
         }
 
-        updateRestrictedState(restrictedUids, knownItems, items, profiles);
-        sortAndAddPreferences(items, largest);
-    }
-
-    private long aggregateDataUsage(SparseArray<AppItem> knownItems, List<AppItem> items,
-            NetworkStats.Entry entry, List<UserInfo> profiles) {
-        int currentUserId = UserHandle.myUserId();
-
-        // Decide how to collapse items together.
-        int uid = entry.uid;
-
-        int collapseKey;
-        int category;
-        int userId = UserHandle.getUserId(uid);
-
-        if (isUidValid(uid)) {
-            collapseKey = uid;
-            category = AppItem.CATEGORY_APP;
-            return accumulate(collapseKey, knownItems, entry, category, items);
-        }
-
-        if (!UserHandle.isApp(uid)) {
-            collapseKey = android.os.Process.SYSTEM_UID;
-            category = AppItem.CATEGORY_APP;
-            return accumulate(collapseKey, knownItems, entry, category, items);
-        }
-
-        if (profileContainsUserId(profiles, userId) && userId == currentUserId) {
-            // Add to app item.
-            collapseKey = uid;
-            category = AppItem.CATEGORY_APP;
-            return accumulate(collapseKey, knownItems, entry, category, items);
-        }
-
-        if (profileContainsUserId(profiles, userId) && userId != currentUserId) {
-            // Add to a managed user item.
-            int managedKey = UidDetailProvider.buildKeyForUser(userId);
-            long usersLargest = accumulate(managedKey, knownItems, entry, AppItem.CATEGORY_USER,
-                    items);
-            collapseKey = uid;
-            category = AppItem.CATEGORY_APP;
-            long appLargest = accumulate(collapseKey, knownItems, entry, category, items);
-            return Math.max(usersLargest, appLargest);
-        }
-
-        // If it is a removed user add it to the removed users' key.
-        Optional<UserInfo> info = profiles.stream().filter(
-                userInfo -> userInfo.id == userId).findFirst();
-        if (!info.isPresent()) {
-            collapseKey = UID_REMOVED;
-            category = AppItem.CATEGORY_APP;
-        } else {
-            // Add to other user item.
-            collapseKey = UidDetailProvider.buildKeyForUser(userId);
-            category = AppItem.CATEGORY_USER;
+        if (restrictedUids != null) {
+            for (int uid : restrictedUids) {
+                aggregator.markRestricted(uid);
+            }
         }
 
-        return accumulate(collapseKey, knownItems, entry, category, items);
-    }
-
-    /**
-     * UID does not belong to a regular app and maybe belongs to a removed application or
-     * application using for tethering traffic.
-     */
-    private boolean isUidValid(int uid) {
-        return !UserHandle.isApp(uid) && (uid == UID_REMOVED || uid == UID_TETHERING);
+        List<AppItem> items = aggregator.toAppItems();
+        Collections.sort(items);
+        setItems(items, aggregator.getLargest());
     }
 
-    private boolean profileContainsUserId(List<UserInfo> profiles, int userId) {
-        return profiles.stream().anyMatch(userInfo -> userInfo.id == userId);
+    /** Returns the number of applications which have a preference. */
+    @VisibleForTesting
+    int getShownCount() {
+        return mShownCount;
     }
 
-    private void updateRestrictedState(@Nullable int[] restrictedUids,
-            SparseArray<AppItem> knownItems, List<AppItem> items, List<UserInfo> profiles) {
-        if (restrictedUids == null) {
+    /** Adds the preferences of the next page of applications, if any. */
+    @VisibleForTesting
+    void showNextPage() {
+        if (mShownCount >= mItems.size()) {
             return;
         }
-
-        for (int i = 0; i < restrictedUids.length; ++i) {
-            int uid = restrictedUids[i];
-            // Only splice in restricted state for current user or managed users.
-            if (!profileContainsUserId(profiles, uid)) {
-                continue;
-            }
-
-            AppItem item = knownItems.get(uid);
-            if (item == null) {
-                item = new AppItem(uid);
-                item.total = -1;
-                items.add(item);
-                knownItems.put(item.key, item);
-            }
-            item.restricted = true;
+        PreferenceGroup group = getPreference();
+        if (mShowMorePreference != null) {
+            group.removePreference(mShowMorePreference);
+            mShowMorePreference = null;
+        }
+        int end = Math.min(mShownCount + mPageSize, mItems.size());
+        for (int i = mShownCount; i < end; i++) {
+            AppItem item = mItems.get(i);
+            int percentTotal = mLargest != 0 ? (int) (item.total * 100 / mLargest) : 0;
+            group.addPreference(new AppDataUsagePreference(getContext(), item, percentTotal));
+        }
+        mShownCount = end;
+        if (mShownCount < mItems.size()) {
+            mShowMorePreference = new ShowMorePreference(getContext());
+            group.addPreference(mShowMorePreference);
         }
     }
 
-    private void sortAndAddPreferences(List<AppItem> items, long largest) {
-        Collections.sort(items);
-        for (int i = 0; i < items.size(); i++) {
-            int percentTotal = largest != 0 ? (int) (items.get(i).total * 100 / largest) : 0;
-            AppDataUsagePreference preference = new AppDataUsagePreference(getContext(),
-                    items.get(i), percentTotal, mUidDetailProvider);
-            getPreference().addPreference(preference);
-        }
+    private void setItems(List<AppItem> items, long largest) {
+        mHandler.removeCallbacksAndMessages(null);
+        mUidDetailLoader.cancelAll();
+        getPreference().removeAll();
+        mShowMorePreference = null;
+        mItems = items;
+        mLargest = largest;
+        mShownCount = 0;
+        showNextPage();
     }
 
     /**
-     * Accumulate data usage of a network stats entry for the item mapped by the collapse key.
-     * Creates the item if needed.
-     *
-     * @param collapseKey  the collapse key used to map the item.
-     * @param knownItems   collection of known (already existing) items.
-     * @param entry        the network stats entry to extract data usage from.
-     * @param itemCategory the item is categorized on the list view by this category. Must be
+     * Preference at the end of a partially shown list which adds the next page once it is bound or
+     * clicked.
      */
-    private static long accumulate(int collapseKey, SparseArray<AppItem> knownItems,
-            NetworkStats.Entry entry, int itemCategory, List<AppItem> items) {
-        int uid = entry.uid;
-        AppItem item = knownItems.get(collapseKey);
-        if (item == null) {
-            item = new AppItem(collapseKey);
-            item.category = itemCategory;
-            items.add(item);
-            knownItems.put(item.key, item);
+    private class ShowMorePreference extends CarUiPreference {
+
+        ShowMorePreference(Context context) {
+            super(context);
+            setKey(SHOW_MORE_KEY);
+            setTitle(R.string.data_usage_show_more_apps);
+            setOnPreferenceClickListener(preference -> {
+                showNextPage();
+                return true;
+            });
+        }
+
+        @Override
+        public void onBindViewHolder(PreferenceViewHolder holder) {
+            super.onBindViewHolder(holder);
+            // Not safe to change the preference hierarchy while the adapter is binding.
+            mHandler.post(() -> {
+                if (mShowMorePreference == this) {
+                    showNextPage();
+                }
+            });
         }
-        item.addUid(uid);
-        item.total += entry.rxBytes + entry.txBytes;
-        return item.total;
     }
 
-    private class AppDataUsagePreference extends ProgressBarPreference {
+    private class AppDataUsagePreference extends ProgressBarPreference implements
+            UidDetailLoader.Callback {
 
         private final AppItem mItem;
         private final int mPercent;
+        private final View.OnAttachStateChangeListener mAttachStateListener =
+                new View.OnAttachStateChangeListener() {
+                    @Override
+                    public void onViewAttachedToWindow(View v) {
+                        if (v.getTag(R.id.app_data_usage_bound_preference)
+                                == AppDataUsagePreference.this) {
+                            requestUidDetail();
+                        }
+                    }
+
+                    @Override
+                    public void onViewDetachedFromWindow(View v) {
+                        if (v.getTag(R.id.app_data_usage_bound_preference)
+                                == AppDataUsagePreference.this) {
+                            mUidDetailLoader.cancel(mItem.key, AppDataUsagePreference.this);
+                        } else {
+                            // The view has been rebound to another row.
+                            v.removeOnAttachStateChangeListener(this);
+                        }
+                    }
+                };
         private UidDetail mDetail;
 
-        AppDataUsagePreference(Context context, AppItem item, int percent,
-                UidDetailProvider provider) {
+        AppDataUsagePreference(Context context, AppItem item, int percent) {
             super(context);
             mItem = item;
             mPercent = percent;
@@ -232,14 +234,37 @@ public class AppDataUsagePreferenceController extends
                 CharSequence s = DataUsageUtils.bytesToIecUnits(context, item.total);
                 setSummary(s);
             }
-            mDetail = provider.getUidDetail(item.key, /* blocking= */ false);
+            mDetail = mUidDetailLoader.getCachedUidDetail(item.key);
             if (mDetail != null) {
                 setAppInfo();
-            } else {
-                ThreadUtils.postOnBackgroundThread(() -> {
-                    mDetail = provider.getUidDetail(mItem.key, /* blocking= */ true);
-                    ThreadUtils.postOnMainThread(() -> setAppInfo());
-                });
+            }
+        }
+
+        @Override
+        public void onBindViewHolder(PreferenceViewHolder holder) {
+            super.onBindViewHolder(holder);
+            View itemView = holder.itemView;
+            itemView.setTag(R.id.app_data_usage_bound_preference, this);
+            itemView.removeOnAttachStateChangeListener(mAttachStateListener);
+            itemView.addOnAttachStateChangeListener(mAttachStateListener);
+            requestUidDetail();
+        }
+
+        @Override
+        public void onDetached() {
+            super.onDetached();
+            mUidDetailLoader.cancel(mItem.key, this);
+        }
+
+        @Override
+        public void onUidDetailLoaded(int uid, @Nullable UidDetail detail) {
+            mDetail = detail;
+            setAppInfo();
+        }
+
+        private void requestUidDetail() {
+            if (mDetail == null) {
+                mUidDetailLoader.request(mItem.key, this);
             }
         }
 
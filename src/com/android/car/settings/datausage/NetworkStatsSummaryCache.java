@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.datausage;
+
+import android.net.NetworkStats;
+import android.net.NetworkTemplate;
+import android.util.LruCache;
+import android.util.Pair;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide cache of the per-uid network stats summaries of billing cycles, keyed by network
+ * template and cycle start.
+ *
+ * <p>Each entry records the time up to which the cycle has been summarized. A cached summary is
+ * shown right away on a revisit and used as is while it is fresh. Otherwise the whole cycle is
+ * queried again: the stats service counts the whole of a bucket still in progress, so summaries
+ * of consecutive ranges cannot be merged without counting that bucket twice.
+ */
+public class NetworkStatsSummaryCache {
+
+    /** Summaries queried less than this long ago are used without querying again. */
+    @VisibleForTesting
+    static final long FRESH_AGE_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private static final int MAX_ENTRIES = 4;
+
+    private static NetworkStatsSummaryCache sInstance;
+
+    private final LruCache<Pair<NetworkTemplate, Long>, Entry> mEntries =
+            new LruCache<>(MAX_ENTRIES);
+
+    /** Returns the process-wide instance of the cache. */
+    public static synchronized NetworkStatsSummaryCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new NetworkStatsSummaryCache();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    static synchronized void setInstance(NetworkStatsSummaryCache instance) {
+        sInstance = instance;
+    }
+
+    @VisibleForTesting
+    NetworkStatsSummaryCache() {
+    }
+
+    /** Returns the cached summary of the cycle, or {@code null} if there is none. */
+    @Nullable
+    public Entry get(NetworkTemplate template, long cycleStart) {
+        return mEntries.get(Pair.create(template, cycleStart));
+    }
+
+    /** Stores the summary of the cycle. */
+    public void put(NetworkTemplate template, long cycleStart, Entry entry) {
+        mEntries.put(Pair.create(template, cycleStart), entry);
+    }
+
+    /** Drops all cached summaries. */
+    public void clear() {
+        mEntries.evictAll();
+    }
+
+    /**
+     * Immutable summary of a cycle from its start until {@link #getSummarizedUntil()}.
+     */
+    public static final class Entry {
+        private final NetworkStats mStats;
+        private final long mSummarizedUntil;
+
+        Entry(NetworkStats stats, long summarizedUntil) {
+            mStats = stats;
+            mSummarizedUntil = summarizedUntil;
+        }
+
+        /** Returns the summarized stats. Callers must not modify them. */
+        public NetworkStats getStats() {
+            return mStats;
+        }
+
+        /** Returns the wall clock time up to which the stats have been summarized. */
+        public long getSummarizedUntil() {
+            return mSummarizedUntil;
+        }
+
+        /**
+         * Returns whether the summary covers the cycle ending at {@code cycleEnd} well enough to be
+         * used without querying again.
+         */
+        public boolean isFresh(long cycleEnd, long nowMs) {
+            return mSummarizedUntil >= cycleEnd
+                    || (nowMs >= mSummarizedUntil && nowMs - mSummarizedUntil < FRESH_AGE_MS);
+        }
+    }
+}
@@ -23,14 +23,17 @@ import android.net.NetworkTemplate;
 import android.os.Bundle;
 import android.os.RemoteException;
 
+import androidx.annotation.VisibleForTesting;
 import androidx.loader.content.AsyncTaskLoader;
 
 /**
  * Fetches the network stats using the {@link INetworkStatsSession}.
  *
- * <p>Class is taken from {@link com.android.settingslib.net.SummaryForAllUidLoader}. The only
- * difference is we are using {@link AsyncTaskLoader} instead of {@link
- * android.content.AsyncTaskLoader}.
+ * <p>Class is taken from {@link com.android.settingslib.net.SummaryForAllUidLoader}. The
+ * differences are that we are using {@link AsyncTaskLoader} instead of {@link
+ * android.content.AsyncTaskLoader} and that summaries are kept in a {@link
+ * NetworkStatsSummaryCache}. A cached summary is delivered as soon as the loader starts, and is
+ * only queried again once it is no longer fresh.
  */
 public class SummaryForAllUidLoader extends AsyncTaskLoader<NetworkStats> {
     private static final String KEY_TEMPLATE = "template";
@@ -39,6 +42,7 @@ public class SummaryForAllUidLoader extends AsyncTaskLoader<NetworkStats> {
 
     private final INetworkStatsSession mSession;
     private final Bundle mArgs;
+    private final NetworkStatsSummaryCache mCache;
 
     /**
      * Builds the bundle given the template, start and end.
@@ -52,14 +56,29 @@ public class SummaryForAllUidLoader extends AsyncTaskLoader<NetworkStats> {
     }
 
     public SummaryForAllUidLoader(Context context, INetworkStatsSession session, Bundle args) {
+        this(context, session, args, NetworkStatsSummaryCache.getInstance());
+    }
+
+    @VisibleForTesting
+    SummaryForAllUidLoader(Context context, INetworkStatsSession session, Bundle args,
+            NetworkStatsSummaryCache cache) {
         super(context);
         mSession = session;
         mArgs = args;
+        mCache = cache;
     }
 
     @Override
     protected void onStartLoading() {
         super.onStartLoading();
+        NetworkStatsSummaryCache.Entry entry = mCache.get(mArgs.getParcelable(KEY_TEMPLATE),
+                mArgs.getLong(KEY_START));
+        if (entry != null) {
+            deliverResult(entry.getStats());
+            if (entry.isFresh(mArgs.getLong(KEY_END), System.currentTimeMillis())) {
+                return;
+            }
+        }
         forceLoad();
     }
 
@@ -68,12 +87,22 @@ public class SummaryForAllUidLoader extends AsyncTaskLoader<NetworkStats> {
         NetworkTemplate template = mArgs.getParcelable(KEY_TEMPLATE);
         long start = mArgs.getLong(KEY_START);
         long end = mArgs.getLong(KEY_END);
+        long now = System.currentTimeMillis();
+
+        NetworkStatsSummaryCache.Entry entry = mCache.get(template, start);
+        if (entry != null && entry.isFresh(end, now)) {
+            return entry.getStats();
+        }
 
         try {
-            return mSession.getSummaryForAllUid(template, start, end, /* includeTags= */ false);
+            NetworkStats stats = mSession.getSummaryForAllUid(template, start, end,
+                    /* includeTags= */ false);
+            entry = new NetworkStatsSummaryCache.Entry(stats, Math.min(now, end));
         } catch (RemoteException e) {
             return null;
         }
+        mCache.put(template, start, entry);
+        return entry.getStats();
     }
 
     @Override
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.datausage;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.net.UidDetail;
+import com.android.settingslib.net.UidDetailProvider;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Resolves {@link UidDetail}s for the rows of the app data usage list on a single worker.
+ *
+ * <p>Requests are keyed by uid, so requesting the same uid again replaces the previous callback
+ * instead of queueing another lookup. Pending requests are resolved in batches of {@link
+ * #BATCH_SIZE} and each batch is delivered to the main thread with a single post. Requests which
+ * are cancelled before the worker reaches them, for example because their row scrolled off screen,
+ * are never resolved.
+ */
+class UidDetailLoader {
+
+    /** Callback invoked on the main thread once the detail of a uid is resolved. */
+    interface Callback {
+        /** Called with the resolved detail, which may be {@code null}. */
+        void onUidDetailLoaded(int uid, @Nullable UidDetail detail);
+    }
+
+    @VisibleForTesting
+    static final int BATCH_SIZE = 8;
+
+    private final UidDetailProvider mProvider;
+    private final Executor mExecutor;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Object mLock = new Object();
+    @GuardedBy("mLock")
+    private final SparseArray<Callback> mPending = new SparseArray<>();
+    @GuardedBy("mLock")
+    private boolean mDrainScheduled;
+    @GuardedBy("mLock")
+    private boolean mReleased;
+
+    UidDetailLoader(UidDetailProvider provider) {
+        this(provider, Executors.newSingleThreadExecutor());
+    }
+
+    @VisibleForTesting
+    UidDetailLoader(UidDetailProvider provider, Executor executor) {
+        mProvider = provider;
+        mExecutor = executor;
+    }
+
+    /**
+     * Returns the detail of the uid if it is already cached by the provider, or {@code null}
+     * otherwise. Never blocks.
+     */
+    @Nullable
+    UidDetail getCachedUidDetail(int uid) {
+        return mProvider.getUidDetail(uid, /* blocking= */ false);
+    }
+
+    /**
+     * Queues the lookup of the detail of the given uid, replacing any pending request for it.
+     */
+    void request(int uid, Callback callback) {
+        synchronized (mLock) {
+            if (mReleased) {
+                return;
+            }
+            mPending.put(uid, callback);
+            if (mDrainScheduled) {
+                return;
+            }
+            mDrainScheduled = true;
+        }
+        mExecutor.execute(this::drain);
+    }
+
+    /**
+     * Drops the pending request of the given uid if it was made with the given callback.
+     */
+    void cancel(int uid, Callback callback) {
+        synchronized (mLock) {
+            if (mPending.get(uid) == callback) {
+                mPending.remove(uid);
+            }
+        }
+    }
+
+    /** Drops all pending requests. */
+    void cancelAll() {
+        synchronized (mLock) {
+            mPending.clear();
+        }
+    }
+
+    /** Drops all pending requests and stops the worker. No further requests are accepted. */
+    void release() {
+        synchronized (mLock) {
+            mPending.clear();
+            mReleased = true;
+        }
+        if (mExecutor instanceof ExecutorService) {
+            ((ExecutorService) mExecutor).shutdown();
+        }
+    }
+
+    @VisibleForTesting
+    int getPendingCount() {
+        synchronized (mLock) {
+            return mPending.size();
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            int[] uids;
+            Callback[] callbacks;
+            synchronized (mLock) {
+                int count = Math.min(mPending.size(), BATCH_SIZE);
+                if (count == 0) {
+                    mDrainScheduled = false;
+                    return;
+                }
+                uids = new int[count];
+                callbacks = new Callback[count];
+                for (int i = 0; i < count; i++) {
+                    uids[i] = mPending.keyAt(i);
+                    callbacks[i] = mPending.valueAt(i);
+                }
+                for (int uid : uids) {
+                    mPending.remove(uid);
+                }
+            }
+
+            UidDetail[] details = new UidDetail[uids.length];
+            for (int i = 0; i < uids.length; i++) {
+                details[i] = mProvider.getUidDetail(uids[i], /* blocking= */ true);
+            }
+            mMainHandler.post(() -> {
+                synchronized (mLock) {
+                    if (mReleased) {
+                        return;
+                    }
+                }
+                for (int i = 0; i < uids.length; i++) {
+                    callbacks[i].onUidDetailLoaded(uids[i], details[i]);
+                }
+            });
+        }
+    }
+}
@@ -26,6 +26,7 @@ import androidx.annotation.XmlRes;
 
 import com.android.car.settings.R;
 import com.android.car.settings.common.SettingsFragment;
+import com.android.car.settings.search.SettingsSearchFragment;
 import com.android.car.ui.toolbar.MenuItem;
 import com.android.car.ui.toolbar.Toolbar;
 import com.android.car.ui.toolbar.ToolbarController;
@@ -93,6 +94,8 @@ public class HomepageFragment extends SettingsFragment {
         Intent intent = new Intent(Settings.ACTION_APP_SEARCH_SETTINGS)
                 .setPackage(getSettingsIntelligencePkgName(getContext()));
         if (intent.resolveActivity(getContext().getPackageManager()) == null) {
+            // Fall back to the in-app search when no search app is installed.
+            launchFragment(new SettingsSearchFragment());
             return;
         }
         startActivityForResult(intent, REQUEST_CODE);
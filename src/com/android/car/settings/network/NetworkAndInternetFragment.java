@@ -27,6 +27,7 @@ import com.android.car.settings.common.SettingsFragment;
 import com.android.car.settings.search.CarBaseSearchIndexProvider;
 import com.android.settingslib.search.SearchIndexable;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /** Fragment for all wifi/mobile data connectivity preferences. */
@@ -44,7 +45,9 @@ public class NetworkAndInternetFragment extends SettingsFragment {
                     Settings.Panel.ACTION_INTERNET_CONNECTIVITY) {
                 @Override
                 public List<String> getNonIndexableKeys(Context context) {
-                    List<String> nonIndexableKeys = super.getNonIndexableKeys(context);
+                    // The cached keys are shared, so they are copied before being extended.
+                    List<String> nonIndexableKeys =
+                            new ArrayList<>(super.getNonIndexableKeys(context));
                     if (!NetworkUtils.hasMobileNetwork(
                             context.getSystemService(ConnectivityManager.class))) {
                         nonIndexableKeys.add(
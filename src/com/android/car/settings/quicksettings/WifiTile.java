@@ -57,7 +57,7 @@ public class WifiTile implements QuickSettingGridAdapter.Tile, CarWifiManager.Li
                     CarSettingActivities.WifiSettingsActivity.class));
             return true;
         };
-        mCarWifiManager = new CarWifiManager(context);
+        mCarWifiManager = CarWifiManager.getInstance(context);
         mStateChangedListener = stateChangedListener;
         // init icon and text etc.
         updateAccessPointSsid();
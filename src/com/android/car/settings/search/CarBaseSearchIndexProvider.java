@@ -16,20 +16,20 @@
 
 package com.android.car.settings.search;
 
-import static com.android.car.settings.common.PreferenceXmlParser.METADATA_KEY;
-import static com.android.car.settings.common.PreferenceXmlParser.METADATA_SEARCHABLE;
 import static com.android.car.settings.common.PreferenceXmlParser.MetadataFlag.FLAG_NEED_KEY;
 import static com.android.car.settings.common.PreferenceXmlParser.MetadataFlag.FLAG_NEED_SEARCHABLE;
 
 import android.annotation.Nullable;
+import android.car.drivingstate.CarUxRestrictions;
 import android.content.Context;
-import android.os.Bundle;
 import android.provider.SearchIndexableResource;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.XmlRes;
 
 import com.android.car.settings.common.Logger;
+import com.android.car.settings.common.PreferenceAvailabilityEvaluator;
+import com.android.car.settings.common.PreferenceMetadata;
 import com.android.car.settings.common.PreferenceXmlParser;
 import com.android.settingslib.search.Indexable;
 import com.android.settingslib.search.SearchIndexableRaw;
@@ -83,16 +83,52 @@ public class CarBaseSearchIndexProvider implements Indexable.SearchIndexProvider
         return null;
     }
 
+    /**
+     * Returns the keys of the preferences which should not be searchable: those declared as not
+     * searchable, those whose controllers are not available and, if {@link
+     * #isPageSearchEnabled(Context)} returns {@code false}, all keys of the page. The keys are
+     * cached by {@link NonIndexableKeysCache} until one of the {@link
+     * #getInvalidationTriggers()} occurs.
+     */
     @Override
     public List<String> getNonIndexableKeys(Context context) {
+        return NonIndexableKeysCache.getInstance(context).getNonIndexableKeys(mXmlRes,
+                getInvalidationTriggers(),
+                uxRestrictions -> computeNonIndexableKeys(context, uxRestrictions));
+    }
+
+    private List<String> computeNonIndexableKeys(Context context,
+            CarUxRestrictions uxRestrictions) {
         boolean searchEnabled = isPageSearchEnabled(context);
+        List<String> keys = getStaticNonIndexableKeys(context, searchEnabled);
+        if (!searchEnabled) {
+            return keys;
+        }
+        for (String key : PreferenceAvailabilityEvaluator.getUnavailableKeys(context, mXmlRes,
+                uxRestrictions)) {
+            if (!keys.contains(key)) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Returns the keys which are not searchable according to the XML. These are read from the
+     * {@link PrebuiltScreenIndex} if the screen was indexed at build time and is not overlaid.
+     */
+    private List<String> getStaticNonIndexableKeys(Context context, boolean searchEnabled) {
+        PrebuiltScreenIndex screenIndex = PrebuiltScreenIndex.get(context, mXmlRes);
+        if (screenIndex != null) {
+            return screenIndex.getNonIndexableKeys(context, searchEnabled);
+        }
         List<String> keys = new ArrayList<>();
         try {
-            List<Bundle> metadata = PreferenceXmlParser.extractMetadata(context, mXmlRes,
-                    FLAG_NEED_KEY | FLAG_NEED_SEARCHABLE);
-            for (Bundle bundle : metadata) {
-                if (!searchEnabled || !bundle.getBoolean(METADATA_SEARCHABLE, true)) {
-                    keys.add(bundle.getString(METADATA_KEY));
+            List<PreferenceMetadata> metadata = PreferenceXmlParser.extractMetadata(context,
+                    mXmlRes, FLAG_NEED_KEY | FLAG_NEED_SEARCHABLE);
+            for (PreferenceMetadata preferenceMetadata : metadata) {
+                if (!searchEnabled || !preferenceMetadata.isSearchable()) {
+                    keys.add(preferenceMetadata.getKey());
                 }
             }
         } catch (IOException | XmlPullParserException e) {
@@ -102,6 +138,17 @@ public class CarBaseSearchIndexProvider implements Indexable.SearchIndexProvider
         return keys;
     }
 
+    /**
+     * Returns the events which may change the result of {@link #getNonIndexableKeys(Context)},
+     * including the result of {@link #isPageSearchEnabled(Context)}. Subclasses may narrow this if
+     * the page depends on fewer events. Defaults to {@link
+     * NonIndexableKeysCache#INVALIDATE_ON_ANY_CHANGE}.
+     */
+    @NonIndexableKeysCache.InvalidationTrigger
+    protected int getInvalidationTriggers() {
+        return NonIndexableKeysCache.INVALIDATE_ON_ANY_CHANGE;
+    }
+
     /**
      * Returns true if the page should be considered in search query. If return false, entire page
      * will be suppressed during search query.
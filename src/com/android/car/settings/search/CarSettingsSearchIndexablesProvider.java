@@ -52,6 +52,8 @@ import com.android.settingslib.search.SearchIndexableRaw;
 import com.android.settingslib.search.SearchIndexableResources;
 import com.android.settingslib.search.SearchIndexableResourcesAuto;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -61,11 +63,26 @@ public class CarSettingsSearchIndexablesProvider extends SearchIndexablesProvide
     private static final Logger LOG = new Logger(CarSettingsSearchIndexablesProvider.class);
 
     private SearchIndexableResources mSearchIndexableResources;
+    private List<Object[]> mXmlResourceRows;
 
     @Override
     public Cursor queryXmlResources(String[] projection) {
         MatrixCursor cursor = new MatrixCursor(INDEXABLES_XML_RES_COLUMNS);
+        for (Object[] row : getXmlResourceRows()) {
+            cursor.addRow(row);
+        }
+        return cursor;
+    }
 
+    /**
+     * Returns the rows of {@link #queryXmlResources(String[])}. They only hold resource ids and
+     * intent targets, so they are collected from the providers once per process.
+     */
+    private synchronized List<Object[]> getXmlResourceRows() {
+        if (mXmlResourceRows != null) {
+            return mXmlResourceRows;
+        }
+        List<Object[]> rows = new ArrayList<>();
         getResources()
                 .getProviderValues()
                 .stream()
@@ -81,10 +98,10 @@ public class CarSettingsSearchIndexablesProvider extends SearchIndexablesProvide
                     ref[COLUMN_INDEX_XML_RES_INTENT_ACTION] = val.intentAction;
                     ref[COLUMN_INDEX_XML_RES_INTENT_TARGET_PACKAGE] = val.intentTargetPackage;
                     ref[COLUMN_INDEX_XML_RES_INTENT_TARGET_CLASS] = val.intentTargetClass;
-                    cursor.addRow(ref);
+                    rows.add(ref);
                 }));
-
-        return cursor;
+        mXmlResourceRows = rows;
+        return rows;
     }
 
     @Override
@@ -162,7 +179,8 @@ public class CarSettingsSearchIndexablesProvider extends SearchIndexablesProvide
     }
 
     @VisibleForTesting
-    void setResources(SearchIndexableResources resources) {
+    synchronized void setResources(SearchIndexableResources resources) {
         mSearchIndexableResources = resources;
+        mXmlResourceRows = null;
     }
 }
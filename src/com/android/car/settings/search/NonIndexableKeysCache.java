@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.search;
+
+import android.bluetooth.BluetoothAdapter;
+import android.car.drivingstate.CarUxRestrictions;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.database.ContentObserver;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.UserManager;
+import android.provider.Settings;
+import android.util.SparseArray;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.XmlRes;
+
+import com.android.car.settings.common.Logger;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Process-wide cache of the non-indexable keys of each preference screen, as computed by {@link
+ * CarBaseSearchIndexProvider}.
+ *
+ * <p>Since the keys depend on the availability of the preference controllers, each screen declares
+ * the events which may change them. When one of these events occurs, only the screens declaring
+ * it are dropped and recomputed on the next query, so a re-index only evaluates the screens which
+ * may have changed.
+ */
+public class NonIndexableKeysCache {
+    private static final Logger LOG = new Logger(NonIndexableKeysCache.class);
+
+    /** Events which invalidate the cached keys of a screen. */
+    @IntDef(flag = true, value = {
+            INVALIDATE_ON_USER_CHANGE,
+            INVALIDATE_ON_PACKAGE_CHANGE,
+            INVALIDATE_ON_UX_RESTRICTIONS_CHANGE,
+            INVALIDATE_ON_FEATURE_CHANGE})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface InvalidationTrigger {
+    }
+
+    /** The foreground user is switched or user restrictions change. */
+    public static final int INVALIDATE_ON_USER_CHANGE = 1;
+    /** A package is installed, removed, enabled or disabled. */
+    public static final int INVALIDATE_ON_PACKAGE_CHANGE = 1 << 1;
+    /** The {@link CarUxRestrictions} change. */
+    public static final int INVALIDATE_ON_UX_RESTRICTIONS_CHANGE = 1 << 2;
+    /** A feature toggle, e.g. Bluetooth or developer options, is turned on or off. */
+    public static final int INVALIDATE_ON_FEATURE_CHANGE = 1 << 3;
+    /** All of the events above. */
+    public static final int INVALIDATE_ON_ANY_CHANGE = INVALIDATE_ON_USER_CHANGE
+            | INVALIDATE_ON_PACKAGE_CHANGE | INVALIDATE_ON_UX_RESTRICTIONS_CHANGE
+            | INVALIDATE_ON_FEATURE_CHANGE;
+
+    /** Computes the non-indexable keys of a screen. */
+    public interface Loader {
+        /** Returns the non-indexable keys for the given restrictions. */
+        @NonNull
+        List<String> load(CarUxRestrictions uxRestrictions);
+    }
+
+    private static NonIndexableKeysCache sInstance;
+
+    private final Context mContext;
+    private final Object mLock = new Object();
+    @GuardedBy("mLock")
+    private final SparseArray<Entry> mEntries = new SparseArray<>();
+    @GuardedBy("mLock")
+    private CarUxRestrictions mUxRestrictions = new CarUxRestrictions.Builder(
+            /* reqOpt= */ true, CarUxRestrictions.UX_RESTRICTIONS_BASELINE, /* timestamp= */ 0)
+            .build();
+    /** Incremented on each invalidation so that keys computed concurrently are not stored. */
+    @GuardedBy("mLock")
+    private int mGeneration;
+    @GuardedBy("mLock")
+    private boolean mListening;
+    @GuardedBy("mLock")
+    private int mLoadCount;
+
+    private final BroadcastReceiver mUserReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            invalidate(INVALIDATE_ON_USER_CHANGE);
+        }
+    };
+
+    private final BroadcastReceiver mPackageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (intent.getBooleanExtra(Intent.EXTRA_REPLACING, false)) {
+                // Followed by the broadcast for the updated package.
+                return;
+            }
+            invalidate(INVALIDATE_ON_PACKAGE_CHANGE);
+        }
+    };
+
+    private final BroadcastReceiver mBluetoothReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            int state = intent.getIntExtra(BluetoothAdapter.EXTRA_STATE, BluetoothAdapter.ERROR);
+            if (state == BluetoothAdapter.STATE_ON || state == BluetoothAdapter.STATE_OFF) {
+                invalidate(INVALIDATE_ON_FEATURE_CHANGE);
+            }
+        }
+    };
+
+    private final ContentObserver mDevelopmentSettingsObserver =
+            new ContentObserver(new Handler(Looper.getMainLooper())) {
+                @Override
+                public void onChange(boolean selfChange) {
+                    invalidate(INVALIDATE_ON_FEATURE_CHANGE);
+                }
+            };
+
+    /**
+     * Returns the process-wide instance of the cache.
+     */
+    public static synchronized NonIndexableKeysCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new NonIndexableKeysCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    static synchronized void setInstance(NonIndexableKeysCache instance) {
+        sInstance = instance;
+    }
+
+    @VisibleForTesting
+    NonIndexableKeysCache(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * Returns the non-indexable keys of the given screen, computing them with the loader if they
+     * are not cached. The keys are cached until one of the given triggers occurs.
+     */
+    @NonNull
+    public List<String> getNonIndexableKeys(@XmlRes int xmlResId,
+            @InvalidationTrigger int triggers, Loader loader) {
+        CarUxRestrictions uxRestrictions;
+        int generation;
+        synchronized (mLock) {
+            startListeningLocked();
+            Entry entry = mEntries.get(xmlResId);
+            if (entry != null) {
+                return entry.mKeys;
+            }
+            uxRestrictions = mUxRestrictions;
+            generation = mGeneration;
+            mLoadCount++;
+        }
+        // Loading may construct many controllers, so it must not block invalidation.
+        List<String> keys = Collections.unmodifiableList(loader.load(uxRestrictions));
+        synchronized (mLock) {
+            if (generation == mGeneration) {
+                mEntries.put(xmlResId, new Entry(triggers, keys));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Called when the {@link CarUxRestrictions} change. Screens depending on them are computed
+     * with the new restrictions on the next query.
+     */
+    public void onUxRestrictionsChanged(CarUxRestrictions uxRestrictions) {
+        synchronized (mLock) {
+            if (uxRestrictions.isSameRestrictions(mUxRestrictions)) {
+                return;
+            }
+            mUxRestrictions = uxRestrictions;
+        }
+        invalidate(INVALIDATE_ON_UX_RESTRICTIONS_CHANGE);
+    }
+
+    /**
+     * Drops the keys of the screens which declared any of the given triggers.
+     */
+    public void invalidate(@InvalidationTrigger int triggers) {
+        synchronized (mLock) {
+            mGeneration++;
+            int dropped = 0;
+            for (int i = mEntries.size() - 1; i >= 0; i--) {
+                if ((mEntries.valueAt(i).mTriggers & triggers) != 0) {
+                    mEntries.removeAt(i);
+                    dropped++;
+                }
+            }
+            LOG.d("Invalidated " + dropped + " screens for triggers " + triggers);
+        }
+    }
+
+    /**
+     * Returns the number of times keys were computed by a loader.
+     */
+    @VisibleForTesting
+    int getLoadCount() {
+        synchronized (mLock) {
+            return mLoadCount;
+        }
+    }
+
+    @GuardedBy("mLock")
+    private void startListeningLocked() {
+        if (mListening) {
+            return;
+        }
+        mListening = true;
+
+        IntentFilter userFilter = new IntentFilter(Intent.ACTION_USER_SWITCHED);
+        userFilter.addAction(UserManager.ACTION_USER_RESTRICTIONS_CHANGED);
+        mContext.registerReceiver(mUserReceiver, userFilter);
+
+        IntentFilter packageFilter = new IntentFilter(Intent.ACTION_PACKAGE_ADDED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        packageFilter.addDataScheme("package");
+        mContext.registerReceiver(mPackageReceiver, packageFilter);
+
+        mContext.registerReceiver(mBluetoothReceiver,
+                new IntentFilter(BluetoothAdapter.ACTION_STATE_CHANGED));
+        mContext.getContentResolver().registerContentObserver(
+                Settings.Global.getUriFor(Settings.Global.DEVELOPMENT_SETTINGS_ENABLED),
+                /* notifyForDescendants= */ false, mDevelopmentSettingsObserver);
+    }
+
+    private static final class Entry {
+        @InvalidationTrigger
+        final int mTriggers;
+        final List<String> mKeys;
+
+        Entry(@InvalidationTrigger int triggers, List<String> keys) {
+            mTriggers = triggers;
+            mKeys = keys;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.search;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.util.SparseArray;
+import android.util.TypedValue;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.StringRes;
+import androidx.annotation.XmlRes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Preferences of a preference screen XML as indexed at build time by {@code
+ * tools/gen_search_index.py}, in the order {@link
+ * com.android.car.settings.common.PreferenceXmlParser} returns them. Lets search queries read the
+ * keys and searchable flags of a screen without parsing its XML.
+ *
+ * <p>Keys and titles referencing string resources are stored as resource ids, so they are resolved
+ * for the current configuration. Screen XMLs replaced by a runtime resource overlay are not served
+ * from the index, since the overlay may add, remove or reorder preferences.
+ */
+public final class PrebuiltScreenIndex {
+
+    @Nullable
+    private final String mFragmentClassName;
+    @StringRes
+    private final int mScreenTitleResId;
+    private final int[] mKeyResIds;
+    @Nullable
+    private final String[] mLiteralKeys;
+    private final int[] mTitleResIds;
+    private final boolean[] mSearchable;
+
+    PrebuiltScreenIndex(@Nullable String fragmentClassName, @StringRes int screenTitleResId,
+            int[] keyResIds, @Nullable String[] literalKeys, int[] titleResIds,
+            boolean[] searchable) {
+        mFragmentClassName = fragmentClassName;
+        mScreenTitleResId = screenTitleResId;
+        mKeyResIds = keyResIds;
+        mLiteralKeys = literalKeys;
+        mTitleResIds = titleResIds;
+        mSearchable = searchable;
+    }
+
+    /**
+     * Returns the index of the given preference screen XML, or {@code null} if it was not indexed
+     * at build time or is replaced by a runtime resource overlay. The XML must then be parsed.
+     */
+    @Nullable
+    public static PrebuiltScreenIndex get(Context context, @XmlRes int xmlResId) {
+        PrebuiltScreenIndex screen = Holder.SCREENS.get(xmlResId);
+        if (screen == null || isOverlaid(context, xmlResId)) {
+            return null;
+        }
+        return screen;
+    }
+
+    /**
+     * Returns whether the given XML is not loaded from this APK, i.e. it is replaced by a runtime
+     * resource overlay, and so may differ from the XML indexed at build time.
+     */
+    public static boolean isOverlaid(Context context, @XmlRes int xmlResId) {
+        TypedValue value = new TypedValue();
+        try {
+            context.getResources().getValue(xmlResId, value, /* resolveRefs= */ true);
+        } catch (Resources.NotFoundException e) {
+            return true;
+        }
+        // Each APK added to the asset manager, including overlays, has its own cookie.
+        int apkCookie = context.getAssets().findCookieForPath(
+                context.getApplicationInfo().sourceDir);
+        return apkCookie == 0 || value.assetCookie != apkCookie;
+    }
+
+    /**
+     * Returns the indexes of all screens, keyed by preference screen XML resource id. Callers
+     * must check {@link #isOverlaid(Context, int)} before trusting an index.
+     */
+    public static SparseArray<PrebuiltScreenIndex> getAll() {
+        return Holder.SCREENS.clone();
+    }
+
+    /** Returns the number of preferences in the screen, including the screen itself. */
+    public int size() {
+        return mKeyResIds.length;
+    }
+
+    /** Returns the key of the preference at the given position, if any. */
+    @Nullable
+    public String getKey(Context context, int index) {
+        if (mKeyResIds[index] != 0) {
+            return context.getString(mKeyResIds[index]);
+        }
+        return mLiteralKeys != null ? mLiteralKeys[index] : null;
+    }
+
+    /** Returns the title of the preference at the given position, or 0 if it has none. */
+    @StringRes
+    public int getTitleResId(int index) {
+        return mTitleResIds[index];
+    }
+
+    /** Returns whether the preference at the given position is searchable. */
+    public boolean isSearchable(int index) {
+        return mSearchable[index];
+    }
+
+    /** Returns the title of the screen, or 0 if it has none. */
+    @StringRes
+    public int getScreenTitleResId() {
+        return mScreenTitleResId;
+    }
+
+    /**
+     * Returns the fully qualified class name of the fragment showing the screen, or {@code null}
+     * if there is not exactly one.
+     */
+    @Nullable
+    public String getFragmentClassName() {
+        return mFragmentClassName;
+    }
+
+    /**
+     * Returns the keys of the preferences which are not searchable, or of all preferences if the
+     * page is not searchable.
+     */
+    public List<String> getNonIndexableKeys(Context context, boolean pageSearchEnabled) {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < mKeyResIds.length; i++) {
+            if (!pageSearchEnabled || !mSearchable[i]) {
+                keys.add(getKey(context, i));
+            }
+        }
+        return keys;
+    }
+
+    /** Creates the generated index on first use. */
+    private static final class Holder {
+        static final SparseArray<PrebuiltScreenIndex> SCREENS =
+                PrebuiltSearchIndex.createScreens();
+    }
+}
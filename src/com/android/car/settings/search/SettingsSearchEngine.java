@@ -0,0 +1,631 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.search;
+
+import static com.android.car.settings.common.PreferenceXmlParser.MetadataFlag.FLAG_NEED_KEY;
+import static com.android.car.settings.common.PreferenceXmlParser.MetadataFlag.FLAG_NEED_SEARCHABLE;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.util.SparseArray;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+import androidx.annotation.XmlRes;
+
+import com.android.car.settings.common.Logger;
+import com.android.car.settings.common.PreferenceMetadata;
+import com.android.car.settings.common.PreferenceXmlParser;
+import com.android.settingslib.search.Indexable;
+import com.android.settingslib.search.SearchIndexableData;
+import com.android.settingslib.search.SearchIndexableResourcesAuto;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-app search over the titles of the preferences in the {@link PrebuiltScreenIndex}.
+ *
+ * <p>The distinct words of all titles are kept in one sorted array with the entries containing
+ * each word, so the words starting with a query token are found with a binary search. Tokens
+ * of four or more characters also match words within one edit (two for eight or more characters)
+ * of a prefix of the word, to tolerate typos. Only the words sharing enough bigrams with the token
+ * are compared with it. An entry matches if every query token matches one of its words, and is
+ * ranked by the quality of those matches.
+ *
+ * <p>The engine is immutable and may be shared between threads. Per-keystroke state is kept in a
+ * {@link Session}, which only re-checks the previous results when a query refines the previous
+ * one.
+ *
+ * <p>The engine backs {@link SettingsSearchFragment}, which is shown when no system search app
+ * handles settings search.
+ */
+public final class SettingsSearchEngine {
+    private static final Logger LOG = new Logger(SettingsSearchEngine.class);
+
+    @VisibleForTesting
+    static final int SCORE_EXACT = 6;
+    @VisibleForTesting
+    static final int SCORE_PREFIX = 4;
+    private static final int SCORE_FUZZY_ONE_EDIT = 2;
+    private static final int SCORE_FUZZY_TWO_EDITS = 1;
+    private static final int SCORE_LEADING_WORD_BONUS = 1;
+
+    private final Entry[] mEntries;
+    /** Word ids of each entry, in title order. */
+    private final int[][] mEntryWords;
+    /** Distinct words of all titles, sorted. */
+    private final String[] mWords;
+    /** Sorted ids of the entries containing each word. */
+    private final int[][] mWordEntries;
+    /** Sorted ids of the words containing each bigram, keyed by {@link #bigram(String, int)}. */
+    private final SparseArray<int[]> mBigramWords = new SparseArray<>();
+    private final int mMaxWordLength;
+
+    @VisibleForTesting
+    SettingsSearchEngine(List<Entry> entries) {
+        mEntries = entries.toArray(new Entry[0]);
+        mEntryWords = new int[mEntries.length][];
+
+        List<String[]> entryTokens = new ArrayList<>(mEntries.length);
+        Set<String> distinctWords = new HashSet<>();
+        for (Entry entry : mEntries) {
+            String[] tokens = tokenize(entry.getTitle().toString());
+            entryTokens.add(tokens);
+            Collections.addAll(distinctWords, tokens);
+        }
+        mWords = distinctWords.toArray(new String[0]);
+        Arrays.sort(mWords);
+
+        Map<String, Integer> wordIds = new HashMap<>(mWords.length * 2);
+        int maxWordLength = 0;
+        for (int i = 0; i < mWords.length; i++) {
+            wordIds.put(mWords[i], i);
+            maxWordLength = Math.max(maxWordLength, mWords[i].length());
+        }
+        mMaxWordLength = maxWordLength;
+
+        int[] wordEntryCounts = new int[mWords.length];
+        for (int i = 0; i < mEntries.length; i++) {
+            String[] tokens = entryTokens.get(i);
+            mEntryWords[i] = new int[tokens.length];
+            for (int j = 0; j < tokens.length; j++) {
+                int wordId = wordIds.get(tokens[j]);
+                mEntryWords[i][j] = wordId;
+                wordEntryCounts[wordId]++;
+            }
+        }
+        mWordEntries = new int[mWords.length][];
+        for (int i = 0; i < mWords.length; i++) {
+            mWordEntries[i] = new int[wordEntryCounts[i]];
+            wordEntryCounts[i] = 0;
+        }
+        for (int i = 0; i < mEntries.length; i++) {
+            for (int wordId : mEntryWords[i]) {
+                int[] postings = mWordEntries[wordId];
+                // Entries are visited in order, so the postings are sorted. Skip repeated words.
+                int count = wordEntryCounts[wordId];
+                if (count == 0 || postings[count - 1] != i) {
+                    postings[count] = i;
+                    wordEntryCounts[wordId]++;
+                }
+            }
+        }
+        for (int i = 0; i < mWords.length; i++) {
+            if (wordEntryCounts[i] != mWordEntries[i].length) {
+                mWordEntries[i] = Arrays.copyOf(mWordEntries[i], wordEntryCounts[i]);
+            }
+        }
+
+        Map<Integer, List<Integer>> bigramWords = new HashMap<>();
+        for (int i = 0; i < mWords.length; i++) {
+            for (int bigram : distinctBigrams(mWords[i])) {
+                List<Integer> words = bigramWords.get(bigram);
+                if (words == null) {
+                    words = new ArrayList<>();
+                    bigramWords.put(bigram, words);
+                }
+                words.add(i);
+            }
+        }
+        for (Map.Entry<Integer, List<Integer>> bigram : bigramWords.entrySet()) {
+            List<Integer> words = bigram.getValue();
+            int[] wordIds = new int[words.size()];
+            for (int i = 0; i < wordIds.length; i++) {
+                wordIds[i] = words.get(i);
+            }
+            mBigramWords.put(bigram.getKey(), wordIds);
+        }
+    }
+
+    /**
+     * Creates an engine over the searchable preferences of all screens indexed at build time.
+     * Preferences reported as non-indexable by the search index providers, e.g. because they are
+     * unavailable on this device, are left out.
+     */
+    @WorkerThread
+    public static SettingsSearchEngine create(Context context) {
+        Set<String> nonIndexableKeys = new HashSet<>();
+        for (SearchIndexableData data : new SearchIndexableResourcesAuto().getProviderValues()) {
+            Indexable.SearchIndexProvider provider = data.getSearchIndexProvider();
+            try {
+                List<String> keys = provider.getNonIndexableKeys(context);
+                if (keys != null) {
+                    nonIndexableKeys.addAll(keys);
+                }
+            } catch (Exception e) {
+                LOG.w("Could not get keys for provider " + provider.toString());
+            }
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        SparseArray<PrebuiltScreenIndex> screens = PrebuiltScreenIndex.getAll();
+        for (int i = 0; i < screens.size(); i++) {
+            PrebuiltScreenIndex screen = screens.valueAt(i);
+            Set<String> overlaidKeys = getOverlaidSearchableKeys(context, screens.keyAt(i));
+            CharSequence screenTitle = screen.getScreenTitleResId() != 0
+                    ? context.getText(screen.getScreenTitleResId()) : null;
+            for (int j = 0; j < screen.size(); j++) {
+                String key = screen.getKey(context, j);
+                if (screen.getTitleResId(j) == 0 || !screen.isSearchable(j) || key == null
+                        || nonIndexableKeys.contains(key)
+                        || (overlaidKeys != null && !overlaidKeys.contains(key))) {
+                    continue;
+                }
+                entries.add(new Entry(key, context.getText(screen.getTitleResId(j)), screenTitle,
+                        screen.getFragmentClassName()));
+            }
+        }
+        return new SettingsSearchEngine(entries);
+    }
+
+    /**
+     * Returns the keys of the searchable preferences of a screen replaced by a runtime resource
+     * overlay, or {@code null} if the screen is not overlaid. The titles of the preferences are
+     * still taken from the build-time index, so preferences only added by the overlay are not
+     * searchable.
+     */
+    @Nullable
+    private static Set<String> getOverlaidSearchableKeys(Context context, @XmlRes int xmlResId) {
+        if (!PrebuiltScreenIndex.isOverlaid(context, xmlResId)) {
+            return null;
+        }
+        Set<String> keys = new HashSet<>();
+        try {
+            for (PreferenceMetadata metadata : PreferenceXmlParser.extractMetadata(context,
+                    xmlResId, FLAG_NEED_KEY | FLAG_NEED_SEARCHABLE)) {
+                if (metadata.isSearchable()) {
+                    keys.add(metadata.getKey());
+                }
+            }
+        } catch (IOException | XmlPullParserException e) {
+            LOG.w("Error parsing overlaid XML - " + xmlResId);
+        }
+        return keys;
+    }
+
+    /** Returns the number of searchable entries. */
+    public int size() {
+        return mEntries.length;
+    }
+
+    /** Returns the number of distinct words of all titles. */
+    @VisibleForTesting
+    int getWordCount() {
+        return mWords.length;
+    }
+
+    /** Returns a new session for incremental queries, e.g. one per search field. */
+    public Session newSession() {
+        return new Session();
+    }
+
+    /**
+     * Splits text into lower case words without accents. Hyphens and apostrophes do not split
+     * words, so that e.g. "Wi-Fi" matches "wifi".
+     */
+    @VisibleForTesting
+    static String[] tokenize(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (c != '-' && c != '\'' && token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    /** Returns the number of edits a query token may be away from a word. */
+    @VisibleForTesting
+    static int getMaxEdits(String token) {
+        if (token.length() >= 8) {
+            return 2;
+        }
+        return token.length() >= 4 ? 1 : 0;
+    }
+
+    private int lowerBound(String token) {
+        int low = 0;
+        int high = mWords.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mWords[mid].compareTo(token) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int bigram(String text, int index) {
+        return (text.charAt(index) << 16) | text.charAt(index + 1);
+    }
+
+    /** Returns the distinct bigrams of the text, as keyed by {@link #bigram(String, int)}. */
+    @VisibleForTesting
+    static int[] distinctBigrams(String text) {
+        if (text.length() < 2) {
+            return new int[0];
+        }
+        int[] bigrams = new int[text.length() - 1];
+        int count = 0;
+        for (int i = 0; i < bigrams.length; i++) {
+            int bigram = bigram(text, i);
+            boolean seen = false;
+            for (int j = 0; j < count && !seen; j++) {
+                seen = bigrams[j] == bigram;
+            }
+            if (!seen) {
+                bigrams[count++] = bigram;
+            }
+        }
+        return count == bigrams.length ? bigrams : Arrays.copyOf(bigrams, count);
+    }
+
+    /**
+     * Returns the smallest edit distance between the token and any prefix of the word, or {@code
+     * maxEdits + 1} if it is larger than {@code maxEdits}.
+     */
+    @VisibleForTesting
+    static int prefixEditDistance(String token, String word, int maxEdits, int[][] scratch) {
+        int[] previous = scratch[0];
+        int[] current = scratch[1];
+        int wordLength = Math.min(word.length(), token.length() + maxEdits);
+        for (int j = 0; j <= wordLength; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= token.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            char tokenChar = token.charAt(i - 1);
+            for (int j = 1; j <= wordLength; j++) {
+                int cost = tokenChar == word.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1),
+                        previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxEdits) {
+                return maxEdits + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        int best = maxEdits + 1;
+        for (int j = 0; j <= wordLength; j++) {
+            best = Math.min(best, previous[j]);
+        }
+        return best;
+    }
+
+    /**
+     * Incremental search state. Each keystroke which refines the previous query, i.e. extends its
+     * last token or adds tokens, only re-checks the previous results instead of all entries.
+     *
+     * <p>Not thread safe.
+     */
+    public final class Session {
+        private final int[] mWordScores = new int[mWords.length];
+        /** Number of bigrams of the current token found in each word. */
+        private final int[] mSharedBigrams = new int[mWords.length];
+        private final int[] mFuzzyCandidates = new int[mWords.length];
+        private final int[][] mScratch = new int[][] {
+                new int[mMaxWordLength + 1], new int[mMaxWordLength + 1]};
+
+        private String[] mPreviousTokens = new String[0];
+        @Nullable
+        private int[] mPreviousMatches;
+        private int mEntriesChecked;
+        private int mWordsCompared;
+
+        private Session() {
+        }
+
+        /**
+         * Returns up to {@code maxResults} entries matching the query, best match first. Returns
+         * an empty list for an empty query.
+         */
+        public List<Entry> search(String query, int maxResults) {
+            String[] tokens = tokenize(query);
+            if (tokens.length == 0) {
+                mPreviousTokens = tokens;
+                mPreviousMatches = null;
+                return Collections.emptyList();
+            }
+
+            int[] candidates = isRefinement(tokens) ? mPreviousMatches : null;
+            int[] scores = new int[mEntries.length];
+            int[] matches = null;
+            for (int t = 0; t < tokens.length; t++) {
+                if (!scoreWords(tokens[t])) {
+                    matches = new int[0];
+                    break;
+                }
+                if (candidates == null) {
+                    candidates = collectEntries();
+                }
+                matches = scoreEntries(candidates, scores, t == 0);
+                candidates = matches;
+            }
+
+            mPreviousTokens = tokens;
+            mPreviousMatches = matches;
+            return rank(matches, scores, maxResults);
+        }
+
+        /** Returns the number of entries checked against query tokens so far. */
+        @VisibleForTesting
+        int getEntriesChecked() {
+            return mEntriesChecked;
+        }
+
+        /** Returns the number of words compared with query tokens for typos so far. */
+        @VisibleForTesting
+        int getWordsCompared() {
+            return mWordsCompared;
+        }
+
+        /**
+         * Scores how well the token matches each word, in {@link #mWordScores}, and returns
+         * whether any word matches.
+         */
+        private boolean scoreWords(String token) {
+            Arrays.fill(mWordScores, 0);
+            boolean matched = false;
+            // Words starting with the token are contiguous in the sorted array.
+            int start = lowerBound(token);
+            for (int i = start; i < mWords.length && mWords[i].startsWith(token); i++) {
+                mWordScores[i] = mWords[i].length() == token.length() ? SCORE_EXACT : SCORE_PREFIX;
+                matched = true;
+            }
+            int maxEdits = getMaxEdits(token);
+            if (maxEdits == 0) {
+                return matched;
+            }
+            int candidateCount = collectFuzzyCandidates(token, maxEdits);
+            for (int c = 0; c < candidateCount; c++) {
+                int i = mFuzzyCandidates[c];
+                if (mWordScores[i] != 0) {
+                    continue;
+                }
+                mWordsCompared++;
+                int edits = prefixEditDistance(token, mWords[i], maxEdits, mScratch);
+                if (edits <= maxEdits) {
+                    mWordScores[i] = edits <= 1 ? SCORE_FUZZY_ONE_EDIT : SCORE_FUZZY_TWO_EDITS;
+                    matched = true;
+                }
+            }
+            return matched;
+        }
+
+        /**
+         * Collects the words which may be within {@code maxEdits} of a prefix of the token into
+         * {@link #mFuzzyCandidates}, and returns their number. Each edit removes at most two of
+         * the distinct bigrams of the token, so such a word contains all but {@code 2 * maxEdits}
+         * of them. If that does not rule out any word, e.g. for short tokens, all words are
+         * candidates.
+         */
+        private int collectFuzzyCandidates(String token, int maxEdits) {
+            int[] bigrams = distinctBigrams(token);
+            int minShared = bigrams.length - 2 * maxEdits;
+            if (minShared <= 0) {
+                for (int i = 0; i < mWords.length; i++) {
+                    mFuzzyCandidates[i] = i;
+                }
+                return mWords.length;
+            }
+            Arrays.fill(mSharedBigrams, 0);
+            int count = 0;
+            for (int bigram : bigrams) {
+                int[] words = mBigramWords.get(bigram);
+                if (words == null) {
+                    continue;
+                }
+                for (int word : words) {
+                    if (++mSharedBigrams[word] == minShared) {
+                        mFuzzyCandidates[count++] = word;
+                    }
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Returns whether every entry matching the tokens also matched the previous tokens. This
+         * holds if the previous tokens are unchanged except for the last one, which may be
+         * extended without allowing more edits.
+         */
+        private boolean isRefinement(String[] tokens) {
+            int previousCount = mPreviousTokens.length;
+            if (mPreviousMatches == null || previousCount == 0 || tokens.length < previousCount) {
+                return false;
+            }
+            for (int i = 0; i < previousCount - 1; i++) {
+                if (!tokens[i].equals(mPreviousTokens[i])) {
+                    return false;
+                }
+            }
+            String previousLast = mPreviousTokens[previousCount - 1];
+            String current = tokens[previousCount - 1];
+            return current.startsWith(previousLast)
+                    && getMaxEdits(current) == getMaxEdits(previousLast);
+        }
+
+        /** Returns the sorted ids of the entries containing any word scored for the token. */
+        private int[] collectEntries() {
+            boolean[] seen = new boolean[mEntries.length];
+            int count = 0;
+            for (int i = 0; i < mWords.length; i++) {
+                if (mWordScores[i] == 0) {
+                    continue;
+                }
+                for (int entry : mWordEntries[i]) {
+                    if (!seen[entry]) {
+                        seen[entry] = true;
+                        count++;
+                    }
+                }
+            }
+            int[] entries = new int[count];
+            int index = 0;
+            for (int i = 0; i < seen.length; i++) {
+                if (seen[i]) {
+                    entries[index++] = i;
+                }
+            }
+            return entries;
+        }
+
+        /**
+         * Adds the best score of the current token to each candidate and returns the candidates
+         * which matched.
+         */
+        private int[] scoreEntries(int[] candidates, int[] scores, boolean leadingToken) {
+            int[] matches = new int[candidates.length];
+            int count = 0;
+            for (int entry : candidates) {
+                mEntriesChecked++;
+                int best = 0;
+                int[] words = mEntryWords[entry];
+                for (int w = 0; w < words.length; w++) {
+                    int score = mWordScores[words[w]];
+                    if (score > 0 && leadingToken && w == 0) {
+                        score += SCORE_LEADING_WORD_BONUS;
+                    }
+                    best = Math.max(best, score);
+                }
+                if (best > 0) {
+                    scores[entry] += best;
+                    matches[count++] = entry;
+                }
+            }
+            return count == matches.length ? matches : Arrays.copyOf(matches, count);
+        }
+
+        private List<Entry> rank(int[] matches, int[] scores, int maxResults) {
+            Integer[] order = new Integer[matches.length];
+            for (int i = 0; i < matches.length; i++) {
+                order[i] = matches[i];
+            }
+            Arrays.sort(order, (a, b) -> {
+                if (scores[a] != scores[b]) {
+                    return Integer.compare(scores[b], scores[a]);
+                }
+                // Prefer shorter titles, i.e. more specific matches.
+                if (mEntryWords[a].length != mEntryWords[b].length) {
+                    return Integer.compare(mEntryWords[a].length, mEntryWords[b].length);
+                }
+                return Integer.compare(a, b);
+            });
+            List<Entry> results = new ArrayList<>(Math.min(order.length, maxResults));
+            for (int i = 0; i < order.length && i < maxResults; i++) {
+                results.add(mEntries[order[i]]);
+            }
+            return results;
+        }
+    }
+
+    /** A searchable preference. */
+    public static final class Entry {
+        private final String mKey;
+        private final CharSequence mTitle;
+        @Nullable
+        private final CharSequence mScreenTitle;
+        @Nullable
+        private final String mFragmentClassName;
+
+        public Entry(String key, CharSequence title, @Nullable CharSequence screenTitle,
+                @Nullable String fragmentClassName) {
+            mKey = key;
+            mTitle = title;
+            mScreenTitle = screenTitle;
+            mFragmentClassName = fragmentClassName;
+        }
+
+        /** Returns the key of the preference. */
+        public String getKey() {
+            return mKey;
+        }
+
+        /** Returns the title of the preference. */
+        public CharSequence getTitle() {
+            return mTitle;
+        }
+
+        /** Returns the title of the screen containing the preference, if any. */
+        @Nullable
+        public CharSequence getScreenTitle() {
+            return mScreenTitle;
+        }
+
+        /** Returns the class name of the fragment showing the preference, if known. */
+        @Nullable
+        public String getFragmentClassName() {
+            return mFragmentClassName;
+        }
+
+        @Override
+        public String toString() {
+            return TextUtils.isEmpty(mScreenTitle) ? mTitle.toString()
+                    : mScreenTitle + " > " + mTitle;
+        }
+    }
+}
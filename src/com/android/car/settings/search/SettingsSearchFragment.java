@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.search;
+
+import android.content.Context;
+
+import androidx.annotation.XmlRes;
+
+import com.android.car.settings.R;
+import com.android.car.settings.common.SettingsFragment;
+import com.android.car.ui.toolbar.Toolbar;
+import com.android.car.ui.toolbar.ToolbarController;
+
+/**
+ * In-app settings search, shown by the homepage when no system search app handles settings
+ * search. The query typed in the toolbar is passed to
+ * {@link SettingsSearchResultsPreferenceController} on each keystroke.
+ */
+public class SettingsSearchFragment extends SettingsFragment {
+
+    private SettingsSearchResultsPreferenceController mResultsController;
+    private final Toolbar.OnSearchListener mSearchListener =
+            query -> mResultsController.setQuery(query);
+
+    @Override
+    @XmlRes
+    protected int getPreferenceScreenResId() {
+        return R.xml.settings_search_fragment;
+    }
+
+    @Override
+    public void onAttach(Context context) {
+        super.onAttach(context);
+        mResultsController = use(SettingsSearchResultsPreferenceController.class,
+                R.string.pk_settings_search_results);
+    }
+
+    @Override
+    public void onStart() {
+        super.onStart();
+        ToolbarController toolbar = getToolbar();
+        if (toolbar != null) {
+            toolbar.setState(Toolbar.State.SEARCH);
+            toolbar.setSearchHint(R.string.default_search_query);
+            toolbar.registerOnSearchListener(mSearchListener);
+        }
+    }
+
+    @Override
+    public void onStop() {
+        super.onStop();
+        ToolbarController toolbar = getToolbar();
+        if (toolbar != null) {
+            toolbar.unregisterOnSearchListener(mSearchListener);
+            // The toolbar is shared with the screen opened from the results.
+            toolbar.setState(Toolbar.State.SUBPAGE);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.search;
+
+import android.car.drivingstate.CarUxRestrictions;
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.preference.PreferenceGroup;
+
+import com.android.car.settings.R;
+import com.android.car.settings.common.FragmentController;
+import com.android.car.settings.common.Logger;
+import com.android.car.settings.common.PreferenceController;
+import com.android.car.ui.preference.CarUiPreference;
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shows the preferences matching the query of {@link SettingsSearchFragment}. The
+ * {@link SettingsSearchEngine} is built on a background thread when the controller is created,
+ * after which each keystroke is searched on the main thread.
+ */
+public class SettingsSearchResultsPreferenceController extends
+        PreferenceController<PreferenceGroup> {
+    private static final Logger LOG = new Logger(SettingsSearchResultsPreferenceController.class);
+
+    /** One frame at 60 fps, which a search should stay well within on any device. */
+    @VisibleForTesting
+    static final long FRAME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+
+    private final int mMaxResults;
+    @Nullable
+    private SettingsSearchEngine.Session mSession;
+    private boolean mCreated;
+    private String mQuery = "";
+
+    public SettingsSearchResultsPreferenceController(Context context, String preferenceKey,
+            FragmentController fragmentController, CarUxRestrictions uxRestrictions) {
+        super(context, preferenceKey, fragmentController, uxRestrictions);
+        mMaxResults = context.getResources().getInteger(
+                R.integer.config_settings_search_max_results);
+    }
+
+    @Override
+    protected Class<PreferenceGroup> getPreferenceType() {
+        return PreferenceGroup.class;
+    }
+
+    /** Sets the engine to search, instead of building it from the prebuilt screen index. */
+    @VisibleForTesting
+    void setSearchEngine(SettingsSearchEngine engine) {
+        mSession = engine.newSession();
+    }
+
+    /** Shows the results for the given query. */
+    public void setQuery(String query) {
+        mQuery = query;
+        refreshUi();
+    }
+
+    @Override
+    protected void onCreateInternal() {
+        mCreated = true;
+        if (mSession != null) {
+            return;
+        }
+        ThreadUtils.postOnBackgroundThread(() -> {
+            SettingsSearchEngine engine = SettingsSearchEngine.create(getContext());
+            ThreadUtils.postOnMainThread(() -> {
+                if (!mCreated) {
+                    return;
+                }
+                mSession = engine.newSession();
+                refreshUi();
+            });
+        });
+    }
+
+    @Override
+    protected void onDestroyInternal() {
+        mCreated = false;
+    }
+
+    @Override
+    protected void updateState(PreferenceGroup preferenceGroup) {
+        preferenceGroup.removeAll();
+        if (mSession == null) {
+            return;
+        }
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        List<SettingsSearchEngine.Entry> results = mSession.search(mQuery, mMaxResults);
+        long elapsedNanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+        if (elapsedNanos > FRAME_BUDGET_NANOS) {
+            LOG.w("Search took " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos)
+                    + " ms, more than a frame");
+        }
+        for (SettingsSearchEngine.Entry entry : results) {
+            CarUiPreference preference = new CarUiPreference(getContext());
+            preference.setTitle(entry.getTitle());
+            preference.setSummary(entry.getScreenTitle());
+            // Opened by the activity, as for preferences declared with a fragment in XML.
+            preference.setFragment(entry.getFragmentClassName());
+            preferenceGroup.addPreference(preference);
+        }
+    }
+}
@@ -22,12 +22,9 @@ import android.car.Car;
 import android.car.CarNotConnectedException;
 import android.car.drivingstate.CarUxRestrictions;
 import android.car.media.CarAudioManager;
-import android.content.ComponentName;
 import android.content.Context;
-import android.content.ServiceConnection;
 import android.os.Bundle;
 import android.os.Handler;
-import android.os.IBinder;
 import android.os.Looper;
 import android.util.SparseArray;
 
@@ -39,6 +36,7 @@ import androidx.preference.PreferenceGroup;
 
 import com.android.car.apps.common.util.Themes;
 import com.android.car.settings.R;
+import com.android.car.settings.common.CarConnectionBroker;
 import com.android.car.settings.common.FragmentController;
 import com.android.car.settings.common.Logger;
 import com.android.car.settings.common.PreferenceController;
@@ -99,11 +97,12 @@ public class VolumeSettingsPreferenceController extends PreferenceController<Pre
                 }
             };
 
-    private final ServiceConnection mServiceConnection = new ServiceConnection() {
+    private final CarConnectionBroker.ManagerListener<CarAudioManager> mCarAudioManagerListener =
+            new CarConnectionBroker.ManagerListener<CarAudioManager>() {
         @Override
-        public void onServiceConnected(ComponentName name, IBinder service) {
+        public void onManagerReady(CarAudioManager carAudioManager) {
             try {
-                mCarAudioManager = (CarAudioManager) mCar.getCarManager(Car.AUDIO_SERVICE);
+                mCarAudioManager = carAudioManager;
                 int volumeGroupCount = mCarAudioManager.getVolumeGroupCount();
                 cleanUpVolumePreferences();
                 // Populates volume slider items from volume groups to UI.
@@ -125,19 +124,19 @@ public class VolumeSettingsPreferenceController extends PreferenceController<Pre
 
         /** Cleanup audio related fields when car is disconnected. */
         @Override
-        public void onServiceDisconnected(ComponentName name) {
+        public void onManagerLost() {
             cleanupAudioManager();
         }
     };
 
-    private Car mCar;
+    private final CarConnectionBroker mCarConnectionBroker;
     private CarAudioManager mCarAudioManager;
 
     public VolumeSettingsPreferenceController(Context context, String preferenceKey,
             FragmentController fragmentController,
             CarUxRestrictions uxRestrictions) {
         super(context, preferenceKey, fragmentController, uxRestrictions);
-        mCar = Car.createCar(getContext(), mServiceConnection);
+        mCarConnectionBroker = CarConnectionBroker.getInstance(getContext());
         mVolumeItems = VolumeItemParser.loadAudioUsageItems(context, carVolumeItemsXml());
         mRingtoneManager = new VolumeSettingsRingtoneManager(getContext());
         mUiHandler = new Handler(Looper.getMainLooper());
@@ -148,16 +147,22 @@ public class VolumeSettingsPreferenceController extends PreferenceController<Pre
         return PreferenceGroup.class;
     }
 
-    /** Connect to car on create. */
+    /** Listen for the audio manager on create. */
     @Override
     protected void onCreateInternal() {
-        mCar.connect();
+        mCarConnectionBroker.registerManagerListener(Car.AUDIO_SERVICE, mCarAudioManagerListener);
     }
 
-    /** Disconnect from car on destroy. */
+    /**
+     * Stop listening on destroy. The shared audio manager outlives this controller, so the volume
+     * callback is unregistered as well.
+     */
     @Override
     protected void onDestroyInternal() {
-        mCar.disconnect();
+        mCarConnectionBroker.unregisterManagerListener(mCarAudioManagerListener);
+        if (mCarAudioManager != null) {
+            cleanupAudioManager();
+        }
     }
 
     @Override
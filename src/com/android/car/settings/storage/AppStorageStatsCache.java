@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.storage;
+
+import android.annotation.Nullable;
+import android.content.Context;
+import android.util.ArrayMap;
+import android.util.AtomicFile;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.car.settings.common.Logger;
+import com.android.settingslib.applications.StorageStatsSource;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide cache of per-package storage stats which is persisted to disk so that the storage
+ * screen can be populated without querying every package again.
+ *
+ * <p>Entries are keyed by user and package and are tied to the version code of the package, so
+ * updates invalidate them implicitly. Removed packages and cleared data are invalidated through
+ * {@link AppStorageStatsCacheInvalidationReceiver}. Since data and cache sizes change while an
+ * app runs, entries are only considered fresh for {@link #MAX_FRESH_AGE_MS}; older entries may
+ * still be used to show a preview while the stats are queried again.
+ */
+public class AppStorageStatsCache {
+    private static final Logger LOG = new Logger(AppStorageStatsCache.class);
+
+    @VisibleForTesting
+    static final String CACHE_FILE_NAME = "app_storage_stats_cache";
+    @VisibleForTesting
+    static final long MAX_FRESH_AGE_MS = TimeUnit.MINUTES.toMillis(15);
+
+    private static final int FILE_VERSION = 1;
+
+    private static AppStorageStatsCache sInstance;
+
+    private final AtomicFile mFile;
+    private final Object mLock = new Object();
+    @GuardedBy("mLock")
+    private final Map<String, Entry> mEntries = new ArrayMap<>();
+    @GuardedBy("mLock")
+    private boolean mLoaded;
+    @GuardedBy("mLock")
+    private boolean mDirty;
+
+    /**
+     * Returns the process-wide instance of the cache.
+     */
+    public static synchronized AppStorageStatsCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new AppStorageStatsCache(
+                    new File(context.getApplicationContext().getCacheDir(), CACHE_FILE_NAME));
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    static synchronized void setInstance(AppStorageStatsCache instance) {
+        sInstance = instance;
+    }
+
+    @VisibleForTesting
+    AppStorageStatsCache(File file) {
+        mFile = new AtomicFile(file);
+    }
+
+    /**
+     * Returns the cached entry for the package of the given user if it matches the given version
+     * code, or {@code null} otherwise.
+     */
+    @Nullable
+    public Entry get(int userId, String packageName, long versionCode) {
+        synchronized (mLock) {
+            ensureLoadedLocked();
+            Entry entry = mEntries.get(getKey(userId, packageName));
+            if (entry == null || entry.mVersionCode != versionCode) {
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * Stores the stats queried for the package of the given user.
+     */
+    public void put(int userId, String packageName, long versionCode,
+            StorageStatsSource.AppStorageStats stats, long cacheQuotaBytes, long timestampMs) {
+        Entry entry = new Entry(versionCode, stats.getCodeBytes(), stats.getDataBytes(),
+                stats.getCacheBytes(), cacheQuotaBytes, timestampMs);
+        synchronized (mLock) {
+            ensureLoadedLocked();
+            mEntries.put(getKey(userId, packageName), entry);
+            mDirty = true;
+        }
+    }
+
+    /**
+     * Drops the entries of the given package for all users.
+     */
+    public void invalidatePackage(String packageName) {
+        synchronized (mLock) {
+            ensureLoadedLocked();
+            Iterator<Map.Entry<String, Entry>> iterator = mEntries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                if (getPackageName(iterator.next().getKey()).equals(packageName)) {
+                    iterator.remove();
+                    mDirty = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the entry of the given package for the given user.
+     */
+    public void invalidatePackage(int userId, String packageName) {
+        synchronized (mLock) {
+            ensureLoadedLocked();
+            if (mEntries.remove(getKey(userId, packageName)) != null) {
+                mDirty = true;
+            }
+        }
+    }
+
+    /**
+     * Drops all entries.
+     */
+    public void clear() {
+        synchronized (mLock) {
+            mEntries.clear();
+            mLoaded = true;
+            mDirty = true;
+        }
+    }
+
+    /**
+     * Writes pending changes to disk. Must not be called on the main thread.
+     */
+    public void persist() {
+        synchronized (mLock) {
+            if (!mDirty) {
+                return;
+            }
+            FileOutputStream fos = null;
+            try {
+                fos = mFile.startWrite();
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+                out.writeInt(FILE_VERSION);
+                out.writeInt(mEntries.size());
+                for (Map.Entry<String, Entry> mapEntry : mEntries.entrySet()) {
+                    Entry entry = mapEntry.getValue();
+                    out.writeUTF(mapEntry.getKey());
+                    out.writeLong(entry.mVersionCode);
+                    out.writeLong(entry.mCodeBytes);
+                    out.writeLong(entry.mDataBytes);
+                    out.writeLong(entry.mCacheBytes);
+                    out.writeLong(entry.mCacheQuotaBytes);
+                    out.writeLong(entry.mTimestampMs);
+                }
+                out.flush();
+                mFile.finishWrite(fos);
+                mDirty = false;
+            } catch (IOException e) {
+                LOG.w("Failed to persist app storage stats", e);
+                mFile.failWrite(fos);
+            }
+        }
+    }
+
+    @GuardedBy("mLock")
+    private void ensureLoadedLocked() {
+        if (mLoaded) {
+            return;
+        }
+        mLoaded = true;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(mFile.openRead()))) {
+            if (in.readInt() != FILE_VERSION) {
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                mEntries.put(key, new Entry(in.readLong(), in.readLong(), in.readLong(),
+                        in.readLong(), in.readLong(), in.readLong()));
+            }
+        } catch (FileNotFoundException e) {
+            // Nothing cached yet.
+        } catch (IOException e) {
+            LOG.w("Dropping unreadable app storage stats cache", e);
+            mEntries.clear();
+            mFile.delete();
+        }
+    }
+
+    private static String getKey(int userId, String packageName) {
+        return userId + "/" + packageName;
+    }
+
+    private static String getPackageName(String key) {
+        return key.substring(key.indexOf('/') + 1);
+    }
+
+    /**
+     * Immutable storage stats of a package as queried at {@link #getTimestampMs()}.
+     */
+    public static final class Entry implements StorageStatsSource.AppStorageStats {
+        private final long mVersionCode;
+        private final long mCodeBytes;
+        private final long mDataBytes;
+        private final long mCacheBytes;
+        private final long mCacheQuotaBytes;
+        private final long mTimestampMs;
+
+        Entry(long versionCode, long codeBytes, long dataBytes, long cacheBytes,
+                long cacheQuotaBytes, long timestampMs) {
+            mVersionCode = versionCode;
+            mCodeBytes = codeBytes;
+            mDataBytes = dataBytes;
+            mCacheBytes = cacheBytes;
+            mCacheQuotaBytes = cacheQuotaBytes;
+            mTimestampMs = timestampMs;
+        }
+
+        @Override
+        public long getCodeBytes() {
+            return mCodeBytes;
+        }
+
+        @Override
+        public long getDataBytes() {
+            return mDataBytes;
+        }
+
+        @Override
+        public long getCacheBytes() {
+            return mCacheBytes;
+        }
+
+        @Override
+        public long getTotalBytes() {
+            return mCodeBytes + mDataBytes;
+        }
+
+        /**
+         * Returns the cache quota of the package at the time the stats were queried.
+         */
+        public long getCacheQuotaBytes() {
+            return mCacheQuotaBytes;
+        }
+
+        /**
+         * Returns the wall clock time at which the stats were queried.
+         */
+        public long getTimestampMs() {
+            return mTimestampMs;
+        }
+
+        /**
+         * Returns whether the stats are recent enough to be used without querying them again.
+         */
+        public boolean isFresh(long nowMs) {
+            return nowMs >= mTimestampMs && nowMs - mTimestampMs < MAX_FRESH_AGE_MS;
+        }
+    }
+}
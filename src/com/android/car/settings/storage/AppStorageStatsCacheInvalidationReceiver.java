@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.storage;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.AsyncTask;
+
+/**
+ * A {@link BroadcastReceiver} which drops the {@link AppStorageStatsCache} entries of packages
+ * which are removed or have their data cleared. Package updates do not need to be handled since
+ * cache entries are tied to the version code of the package.
+ */
+public class AppStorageStatsCacheInvalidationReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        Uri data = intent.getData();
+        String packageName = data != null ? data.getSchemeSpecificPart() : null;
+        if (packageName == null) {
+            return;
+        }
+        AppStorageStatsCache cache = AppStorageStatsCache.getInstance(context);
+        PendingResult pendingResult = goAsync();
+        // The cache may need to be read from disk first.
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(() -> {
+            cache.invalidatePackage(packageName);
+            cache.persist();
+            pendingResult.finish();
+        });
+    }
+}
@@ -23,6 +23,8 @@ import android.content.pm.PackageManager.NameNotFoundException;
 import android.os.UserHandle;
 import android.util.Log;
 
+import androidx.core.os.CancellationSignal;
+
 import com.android.car.settings.common.AsyncLoader;
 import com.android.internal.util.Preconditions;
 import com.android.settingslib.applications.StorageStatsSource;
@@ -51,7 +53,7 @@ public class FetchPackageStorageAsyncLoader extends AsyncLoader<AppStorageStats>
     }
 
     @Override
-    public AppStorageStats loadInBackground() {
+    protected AppStorageStats loadInBackground(CancellationSignal cancellationSignal) {
         AppStorageStats result = null;
         try {
             result = mSource.getStatsForPackage(mInfo.volumeUuid, mInfo.packageName, mUser);
@@ -30,6 +30,13 @@ import android.os.UserHandle;
 import android.util.ArraySet;
 import android.util.SparseArray;
 
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.core.os.CancellationSignal;
+import androidx.core.os.OperationCanceledException;
+
+import com.android.car.settings.R;
 import com.android.car.settings.common.AsyncLoader;
 import com.android.car.settings.common.Logger;
 import com.android.car.settings.users.UserHelper;
@@ -37,6 +44,9 @@ import com.android.settingslib.applications.StorageStatsSource;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * {@link StorageAsyncLoader} is a Loader which loads categorized app information and external stats
@@ -51,51 +61,342 @@ public class StorageAsyncLoader
     private final StorageStatsSource mStatsManager;
     private final PackageManager mPackageManager;
     private final UserHelper mUserHelper;
+    private final AppStorageStatsCache mCache;
+    private final int mMaxParallelUserLoads;
+    private int mProgressPackageCount;
 
     public StorageAsyncLoader(Context context, StorageStatsSource source) {
+        this(context, source, AppStorageStatsCache.getInstance(context),
+                context.getResources().getInteger(R.integer.config_storage_max_parallel_user_loads));
+    }
+
+    @VisibleForTesting
+    StorageAsyncLoader(Context context, StorageStatsSource source, AppStorageStatsCache cache,
+            int maxParallelUserLoads) {
+        this(context, source, cache, UserHelper.getInstance(context), maxParallelUserLoads);
+    }
+
+    @VisibleForTesting
+    StorageAsyncLoader(Context context, StorageStatsSource source, AppStorageStatsCache cache,
+            UserHelper userHelper, int maxParallelUserLoads) {
         super(context);
         mStatsManager = source;
         mPackageManager = context.getPackageManager();
-        mUserHelper = UserHelper.getInstance(context);
+        mUserHelper = userHelper;
+        mCache = cache;
+        mMaxParallelUserLoads = maxParallelUserLoads;
+        mProgressPackageCount = context.getResources().getInteger(
+                R.integer.config_storage_progress_package_count);
     }
 
+    @VisibleForTesting
+    void setProgressPackageCount(int progressPackageCount) {
+        mProgressPackageCount = progressPackageCount;
+    }
+
+    /**
+     * Loads the storage results for all users. Per-package stats are served from the {@link
+     * AppStorageStatsCache} when fresh, so only new, updated or expired packages are queried. If
+     * every package has a cached entry but some are expired, a preview computed from the cached
+     * entries is delivered first while the expired packages are queried. While packages are
+     * queried, the totals so far are delivered every {@code config_storage_progress_package_count}
+     * queries, so that the category sizes fill in progressively.
+     *
+     * <p>Packages of different users are queried in parallel, bounded by
+     * {@code config_storage_max_parallel_user_loads}. Results are always merged in the order of
+     * {@link UserHelper#getAllUsers()}, so the code size of a package shared between users is
+     * attributed to the same user as in a serial load.
+     *
+     * <p>The load stops before the next package is queried once it is canceled.
+     */
     @Override
-    public SparseArray<AppsStorageResult> loadInBackground() {
-        ArraySet<String> seenPackages = new ArraySet<>();
-        SparseArray<AppsStorageResult> result = new SparseArray<>();
+    protected SparseArray<AppsStorageResult> loadInBackground(
+            CancellationSignal cancellationSignal) {
+        long nowMs = System.currentTimeMillis();
         List<UserInfo> infos = mUserHelper.getAllUsers();
-        for (int i = 0, userCount = infos.size(); i < userCount; i++) {
-            UserInfo info = infos.get(i);
-            result.put(info.id, getStorageResultForUser(info.id, seenPackages));
-        }
-        return result;
-    }
-
-    private AppsStorageResult getStorageResultForUser(int userId, ArraySet<String> seenPackages) {
-        LOG.d("Loading apps");
-        List<ApplicationInfo> applicationInfos =
-                mPackageManager.getInstalledApplicationsAsUser(/* getAllInstalledApplications= */ 0,
-                        userId);
-        UserHandle myUser = UserHandle.of(userId);
-        long gameAppSize = 0;
-        long musicAppsSize = 0;
-        long videoAppsSize = 0;
-        long photosAppsSize = 0;
-        long otherAppsSize = 0;
-        for (int i = 0, size = applicationInfos.size(); i < size; i++) {
-            ApplicationInfo app = applicationInfos.get(i);
-            StorageStatsSource.AppStorageStats stats;
+        int userCount = infos.size();
+        int[] userIds = new int[userCount];
+        SparseArray<List<ApplicationInfo>> userApps = new SparseArray<>(userCount);
+        SparseArray<StorageStatsSource.ExternalStorageStats> userExternalStats =
+                new SparseArray<>(userCount);
+        for (int i = 0; i < userCount; i++) {
+            cancellationSignal.throwIfCanceled();
+            int userId = infos.get(i).id;
+            userIds[i] = userId;
+            LOG.d("Loading apps");
+            userApps.put(userId, mPackageManager.getInstalledApplicationsAsUser(
+                    /* getAllInstalledApplications= */ 0, userId));
+            LOG.d("Loading external stats");
             try {
-                stats = mStatsManager.getStatsForPackage(/* volumeUuid= */ null, app.packageName,
-                        myUser);
-            } catch (NameNotFoundException | IOException e) {
-                // This may happen if the package was removed during our calculation.
-                LOG.w("App unexpectedly not found", e);
-                continue;
+                userExternalStats.put(userId, mStatsManager.getExternalStorageStats(
+                        /* volumeUuid= */ null, UserHandle.of(userId)));
+            } catch (IOException e) {
+                LOG.w("External stats not loaded" + e);
             }
+        }
 
+        SparseArray<AppStorageStatsCache.Entry[]> cachedEntries = getCachedEntries(userApps);
+        if (shouldDeliverPreview(cachedEntries, nowMs)) {
+            deliverPartialResult(
+                    mergeResults(userIds, userApps, cachedEntries, userExternalStats));
+        }
+
+        ProgressTracker progress =
+                new ProgressTracker(userIds, userApps, cachedEntries, userExternalStats);
+        SparseArray<AppStorageStatsCache.Entry[]> entries = resolveEntries(userIds, userApps,
+                cachedEntries, nowMs, progress, cancellationSignal);
+        mCache.persist();
+        LOG.d("Obtaining result completed");
+        return mergeResults(userIds, userApps, entries, userExternalStats);
+    }
+
+    @Override
+    protected Object getLoadKey() {
+        // All loaders load the stats of all users, so concurrent loads can be shared.
+        return StorageAsyncLoader.class;
+    }
+
+    /**
+     * Returns the cached entry of each application per user. Entries are {@code null} for
+     * applications without a cached entry.
+     */
+    private SparseArray<AppStorageStatsCache.Entry[]> getCachedEntries(
+            SparseArray<List<ApplicationInfo>> userApps) {
+        SparseArray<AppStorageStatsCache.Entry[]> cachedEntries =
+                new SparseArray<>(userApps.size());
+        for (int i = 0, userCount = userApps.size(); i < userCount; i++) {
+            int userId = userApps.keyAt(i);
+            List<ApplicationInfo> applicationInfos = userApps.valueAt(i);
+            AppStorageStatsCache.Entry[] entries =
+                    new AppStorageStatsCache.Entry[applicationInfos.size()];
+            for (int j = 0; j < entries.length; j++) {
+                ApplicationInfo app = applicationInfos.get(j);
+                entries[j] = mCache.get(userId, app.packageName, app.longVersionCode);
+            }
+            cachedEntries.put(userId, entries);
+        }
+        return cachedEntries;
+    }
+
+    /**
+     * Returns whether a preview should be delivered, i.e. every application has a cached entry
+     * and at least one of them needs to be queried again.
+     */
+    private static boolean shouldDeliverPreview(
+            SparseArray<AppStorageStatsCache.Entry[]> cachedEntries, long nowMs) {
+        boolean hasExpiredEntries = false;
+        for (int i = 0, userCount = cachedEntries.size(); i < userCount; i++) {
+            for (AppStorageStatsCache.Entry entry : cachedEntries.valueAt(i)) {
+                if (entry == null) {
+                    return false;
+                }
+                hasExpiredEntries |= !entry.isFresh(nowMs);
+            }
+        }
+        return hasExpiredEntries;
+    }
+
+    /**
+     * Queries the stats of all applications without a fresh cached entry. Users are taken in turn
+     * by the loading thread and by up to {@code config_storage_max_parallel_user_loads} - 1 helpers
+     * posted to the executor shared by all loaders. The loading thread never waits for a helper to
+     * start, so loads neither add threads nor block on the other loads using the executor.
+     * Entries of applications which could not be queried are {@code null}.
+     */
+    private SparseArray<AppStorageStatsCache.Entry[]> resolveEntries(int[] userIds,
+            SparseArray<List<ApplicationInfo>> userApps,
+            SparseArray<AppStorageStatsCache.Entry[]> cachedEntries, long nowMs,
+            ProgressTracker progress, CancellationSignal cancellationSignal) {
+        UserEntriesLoad load = new UserEntriesLoad(userIds, userApps, cachedEntries, nowMs,
+                progress, cancellationSignal);
+        int helperCount = Math.min(userIds.length, mMaxParallelUserLoads) - 1;
+        Executor executor = getExecutor();
+        for (int i = 0; i < helperCount; i++) {
+            executor.execute(load);
+        }
+        load.run();
+        return load.getEntries();
+    }
+
+    private AppStorageStatsCache.Entry[] resolveUserEntries(int userId,
+            List<ApplicationInfo> applicationInfos, AppStorageStatsCache.Entry[] cachedEntries,
+            long nowMs, ProgressTracker progress, CancellationSignal cancellationSignal) {
+        AppStorageStatsCache.Entry[] entries = cachedEntries.clone();
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i] == null || !entries[i].isFresh(nowMs)) {
+                cancellationSignal.throwIfCanceled();
+                entries[i] = queryStats(userId, applicationInfos.get(i), nowMs);
+                progress.onPackageQueried(userId, i, entries[i]);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Aggregates the entries into per-user category sizes. Users are processed in the given order,
+     * which determines the user the code size of a shared package is attributed to.
+     */
+    private static SparseArray<AppsStorageResult> mergeResults(int[] userIds,
+            SparseArray<List<ApplicationInfo>> userApps,
+            SparseArray<AppStorageStatsCache.Entry[]> userEntries,
+            SparseArray<StorageStatsSource.ExternalStorageStats> userExternalStats) {
+        ArraySet<String> seenPackages = new ArraySet<>();
+        SparseArray<AppsStorageResult> results = new SparseArray<>(userIds.length);
+        for (int userId : userIds) {
+            List<ApplicationInfo> applicationInfos = userApps.get(userId);
+            AppStorageStatsCache.Entry[] entries = userEntries.get(userId);
+            CategorySizes sizes = new CategorySizes();
+            for (int j = 0; j < entries.length; j++) {
+                AppStorageStatsCache.Entry entry = entries[j];
+                if (entry != null) {
+                    sizes.add(applicationInfos.get(j), entry, entry.getCacheQuotaBytes(),
+                            seenPackages);
+                }
+            }
+            AppsStorageResult result = sizes.toResult();
+            result.mStorageStats = userExternalStats.get(userId);
+            results.put(userId, result);
+        }
+        return results;
+    }
+
+    @Nullable
+    private AppStorageStatsCache.Entry queryStats(int userId, ApplicationInfo app, long nowMs) {
+        StorageStatsSource.AppStorageStats stats;
+        try {
+            stats = mStatsManager.getStatsForPackage(/* volumeUuid= */ null, app.packageName,
+                    UserHandle.of(userId));
+        } catch (NameNotFoundException | IOException e) {
+            // This may happen if the package was removed during our calculation.
+            LOG.w("App unexpectedly not found", e);
+            mCache.invalidatePackage(userId, app.packageName);
+            return null;
+        }
+        long cacheQuota = mStatsManager.getCacheQuotaBytes(/* volumeUuid= */ null, app.uid);
+        mCache.put(userId, app.packageName, app.longVersionCode, stats, cacheQuota, nowMs);
+        return mCache.get(userId, app.packageName, app.longVersionCode);
+    }
+
+    /**
+     * Resolves the entries of each user on whichever thread runs it first. Users are handed out in
+     * order, and each thread keeps taking users until none are left.
+     */
+    private class UserEntriesLoad implements Runnable {
+        private final int[] mUserIds;
+        private final SparseArray<List<ApplicationInfo>> mUserApps;
+        private final SparseArray<AppStorageStatsCache.Entry[]> mCachedEntries;
+        private final long mNowMs;
+        private final ProgressTracker mProgress;
+        private final CancellationSignal mCancellationSignal;
+        private final AppStorageStatsCache.Entry[][] mEntries;
+        private final AtomicInteger mNextUser = new AtomicInteger();
+        private final CountDownLatch mRemainingUsers;
+        private volatile RuntimeException mFailure;
+
+        UserEntriesLoad(int[] userIds, SparseArray<List<ApplicationInfo>> userApps,
+                SparseArray<AppStorageStatsCache.Entry[]> cachedEntries, long nowMs,
+                ProgressTracker progress, CancellationSignal cancellationSignal) {
+            mUserIds = userIds;
+            mUserApps = userApps;
+            mCachedEntries = cachedEntries;
+            mNowMs = nowMs;
+            mProgress = progress;
+            mCancellationSignal = cancellationSignal;
+            mEntries = new AppStorageStatsCache.Entry[userIds.length][];
+            mRemainingUsers = new CountDownLatch(userIds.length);
+        }
+
+        @Override
+        public void run() {
+            int index;
+            while ((index = mNextUser.getAndIncrement()) < mUserIds.length) {
+                try {
+                    // Once a user failed the load fails, so the other users are skipped.
+                    if (mFailure == null) {
+                        int userId = mUserIds[index];
+                        mEntries[index] = resolveUserEntries(userId, mUserApps.get(userId),
+                                mCachedEntries.get(userId), mNowMs, mProgress,
+                                mCancellationSignal);
+                    }
+                } catch (RuntimeException e) {
+                    mFailure = e;
+                } finally {
+                    mRemainingUsers.countDown();
+                }
+            }
+        }
+
+        /** Waits for the users taken by helpers, and returns the entries of all users. */
+        SparseArray<AppStorageStatsCache.Entry[]> getEntries() {
+            try {
+                mRemainingUsers.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OperationCanceledException();
+            }
+            if (mFailure != null) {
+                throw mFailure;
+            }
+            SparseArray<AppStorageStatsCache.Entry[]> entries =
+                    new SparseArray<>(mUserIds.length);
+            for (int i = 0; i < mUserIds.length; i++) {
+                entries.put(mUserIds[i], mEntries[i]);
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * Keeps the entries queried so far, and delivers the totals computed from them every
+     * {@link #mProgressPackageCount} queries. Packages not queried yet are counted from their
+     * cached entry, if any.
+     */
+    private class ProgressTracker {
+        private final int[] mUserIds;
+        private final SparseArray<List<ApplicationInfo>> mUserApps;
+        private final SparseArray<StorageStatsSource.ExternalStorageStats> mUserExternalStats;
+        @GuardedBy("this")
+        private final SparseArray<AppStorageStatsCache.Entry[]> mEntries;
+        @GuardedBy("this")
+        private int mQueriedCount;
+
+        ProgressTracker(int[] userIds, SparseArray<List<ApplicationInfo>> userApps,
+                SparseArray<AppStorageStatsCache.Entry[]> cachedEntries,
+                SparseArray<StorageStatsSource.ExternalStorageStats> userExternalStats) {
+            mUserIds = userIds;
+            mUserApps = userApps;
+            mUserExternalStats = userExternalStats;
+            mEntries = new SparseArray<>(cachedEntries.size());
+            for (int i = 0, userCount = cachedEntries.size(); i < userCount; i++) {
+                mEntries.put(cachedEntries.keyAt(i), cachedEntries.valueAt(i).clone());
+            }
+        }
+
+        /** Called from the thread querying the user after each package is queried. */
+        synchronized void onPackageQueried(int userId, int index,
+                @Nullable AppStorageStatsCache.Entry entry) {
+            mEntries.get(userId)[index] = entry;
+            mQueriedCount++;
+            if (mProgressPackageCount > 0 && mQueriedCount % mProgressPackageCount == 0) {
+                deliverPartialResult(
+                        mergeResults(mUserIds, mUserApps, mEntries, mUserExternalStats));
+            }
+        }
+    }
+
+    /**
+     * Accumulates the size attributed to each application category for a single user.
+     */
+    private static class CategorySizes {
+        private long mGameAppSize;
+        private long mMusicAppsSize;
+        private long mVideoAppsSize;
+        private long mPhotosAppsSize;
+        private long mOtherAppsSize;
+
+        void add(ApplicationInfo app, StorageStatsSource.AppStorageStats stats, long cacheQuota,
+                ArraySet<String> seenPackages) {
             long dataSize = stats.getDataBytes();
-            long cacheQuota = mStatsManager.getCacheQuotaBytes(/* volumeUuid= */ null, app.uid);
             long cacheBytes = stats.getCacheBytes();
             long blamedSize = dataSize;
             // Technically, we could show overages as freeable on the storage settings screen.
@@ -115,40 +416,32 @@ public class StorageAsyncLoader
 
             switch (app.category) {
                 case CATEGORY_GAME:
-                    gameAppSize += blamedSize;
+                    mGameAppSize += blamedSize;
                     break;
                 case CATEGORY_AUDIO:
-                    musicAppsSize += blamedSize;
+                    mMusicAppsSize += blamedSize;
                     break;
                 case CATEGORY_VIDEO:
-                    videoAppsSize += blamedSize;
+                    mVideoAppsSize += blamedSize;
                     break;
                 case CATEGORY_IMAGE:
-                    photosAppsSize += blamedSize;
+                    mPhotosAppsSize += blamedSize;
                     break;
                 default:
                     // The deprecated game flag does not set the category.
                     if ((app.flags & ApplicationInfo.FLAG_IS_GAME) != 0) {
-                        gameAppSize += blamedSize;
+                        mGameAppSize += blamedSize;
                         break;
                     }
-                    otherAppsSize += blamedSize;
+                    mOtherAppsSize += blamedSize;
                     break;
             }
         }
 
-        AppsStorageResult result = new AppsStorageResult(gameAppSize, musicAppsSize, photosAppsSize,
-                videoAppsSize, otherAppsSize);
-
-        LOG.d("Loading external stats");
-        try {
-            result.mStorageStats = mStatsManager.getExternalStorageStats(null,
-                    UserHandle.of(userId));
-        } catch (IOException e) {
-            LOG.w("External stats not loaded" + e);
+        AppsStorageResult toResult() {
+            return new AppsStorageResult(mGameAppSize, mMusicAppsSize, mPhotosAppsSize,
+                    mVideoAppsSize, mOtherAppsSize);
         }
-        LOG.d("Obtaining result completed");
-        return result;
     }
 
     /**
@@ -19,6 +19,9 @@ package com.android.car.settings.storage;
 import android.app.usage.StorageStatsManager;
 import android.content.Context;
 import android.os.storage.VolumeInfo;
+import android.util.Pair;
+
+import androidx.core.os.CancellationSignal;
 
 import com.android.car.settings.common.AsyncLoader;
 import com.android.settingslib.deviceinfo.PrivateStorageInfo;
@@ -43,7 +46,7 @@ public class VolumeSizesLoader extends AsyncLoader<PrivateStorageInfo> {
     }
 
     @Override
-    public PrivateStorageInfo loadInBackground() {
+    protected PrivateStorageInfo loadInBackground(CancellationSignal cancellationSignal) {
         PrivateStorageInfo volumeSizes;
         try {
             volumeSizes = getVolumeSize();
@@ -53,6 +56,11 @@ public class VolumeSizesLoader extends AsyncLoader<PrivateStorageInfo> {
         return volumeSizes;
     }
 
+    @Override
+    protected Object getLoadKey() {
+        return Pair.create(VolumeSizesLoader.class, mVolume.getId());
+    }
+
     private PrivateStorageInfo getVolumeSize() throws IOException {
         long privateTotalBytes = mVolumeProvider.getTotalBytes(mStats, mVolume);
         long privateFreeBytes = mVolumeProvider.getFreeBytes(mStats, mVolume);
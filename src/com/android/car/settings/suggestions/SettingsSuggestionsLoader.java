@@ -19,6 +19,7 @@ package com.android.car.settings.suggestions;
 import android.content.Context;
 import android.service.settings.suggestions.Suggestion;
 
+import androidx.core.os.CancellationSignal;
 import androidx.loader.content.AsyncTaskLoader;
 
 import com.android.car.settings.common.AsyncLoader;
@@ -48,7 +49,7 @@ public class SettingsSuggestionsLoader extends AsyncLoader<List<Suggestion>> {
     }
 
     @Override
-    public List<Suggestion> loadInBackground() {
+    protected List<Suggestion> loadInBackground(CancellationSignal cancellationSignal) {
         final List<Suggestion> data = mSuggestionController.getSuggestions();
         if (data == null) {
             LOG.d("data is null");
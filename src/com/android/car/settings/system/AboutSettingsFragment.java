@@ -37,6 +37,11 @@ public class AboutSettingsFragment extends SettingsFragment {
         return R.xml.about_settings_fragment;
     }
 
+    @Override
+    protected boolean isLazyControllerStartEnabled() {
+        return true;
+    }
+
     /**
      * Data provider for Settings Search.
      */
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.system;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.AsyncTask;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.car.settings.common.Logger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates the third-party licenses html in the background, so that opening the licenses does
+ * not have to. Since the html is keyed on the content of the license xml files, this is a cheap
+ * check unless they changed, e.g. after an OTA.
+ */
+public class LicenseHtmlCacheJobService extends JobService {
+    private static final Logger LOG = new Logger(LicenseHtmlCacheJobService.class);
+
+    @VisibleForTesting
+    static final int JOB_ID = 1;
+    /** Leaves the device time to settle after boot before reading the license files. */
+    private static final long BOOT_DELAY_MS = TimeUnit.MINUTES.toMillis(2);
+
+    /**
+     * Schedules the generation of the html, replacing any pending request.
+     */
+    public static void schedule(Context context) {
+        JobScheduler jobScheduler = context.getSystemService(JobScheduler.class);
+        JobInfo jobInfo = new JobInfo.Builder(JOB_ID,
+                new ComponentName(context, LicenseHtmlCacheJobService.class))
+                .setMinimumLatency(BOOT_DELAY_MS)
+                .build();
+        if (jobScheduler.schedule(jobInfo) != JobScheduler.RESULT_SUCCESS) {
+            LOG.w("Failed to schedule license html generation");
+        }
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(() -> {
+            if (LicenseHtmlLoader.generateHtmlFromDefaultXmlFiles(this) == null) {
+                LOG.w("Failed to generate license html");
+            }
+            jobFinished(params, /* wantsReschedule= */ false);
+        });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // The generation cannot be interrupted. Retry if it did not complete.
+        return true;
+    }
+}
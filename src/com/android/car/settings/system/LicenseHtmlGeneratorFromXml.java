@@ -24,13 +24,19 @@ import com.android.car.settings.common.Logger;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -41,6 +47,11 @@ import java.util.zip.GZIPInputStream;
 /**
  * The utility class that generate a license html file from xml files.
  * All the HTML snippets and logic are copied from build/make/tools/generate-notice-files.py.
+ *
+ * <p>NOTICE files may hold several megabytes of license text, so the html is generated in two
+ * passes without keeping the license texts in memory. The first pass parses the xml files and
+ * copies each distinct license text into a spool file next to the output, recording its offset.
+ * The second pass writes the html, copying the license texts from the spool file.
  */
 class LicenseHtmlGeneratorFromXml {
     private static final Logger LOG = new Logger(LicenseHtmlGeneratorFromXml.class);
@@ -73,7 +84,14 @@ class LicenseHtmlGeneratorFromXml {
     private static final String HTML_REAR_STRING =
             "</table></body></html>";
 
+    private static final String SPOOL_FILE_PREFIX = "license";
+    private static final String SPOOL_FILE_SUFFIX = ".spool";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    static final String PAGE_FILE_PREFIX = "page_";
+    private static final String PAGE_FILE_SUFFIX = ".html";
+
     private final List<File> mXmlFiles;
+    private final int mLicensesPerPage;
 
     /*
      * A map from a file name to a content id (MD5 sum of file content) for its license.
@@ -81,15 +99,14 @@ class LicenseHtmlGeneratorFromXml {
      * "9645f39e9db895a4aa6e02cb57294595". Here "9645f39e9db895a4aa6e02cb57294595" is a MD5 sum
      * of the content of packages/services/Telephony/MODULE_LICENSE_APACHE2.
      */
-    private final Map<String, String> mFileNameToContentIdMap = new HashMap();
+    private final Map<String, String> mFileNameToContentIdMap = new HashMap<>();
 
     /*
-     * A map from a content id (MD5 sum of file content) to a license file content.
-     * For example, "9645f39e9db895a4aa6e02cb57294595" maps to the content string of
-     * packages/services/Telephony/MODULE_LICENSE_APACHE2. Here "9645f39e9db895a4aa6e02cb57294595"
-     * is a MD5 sum of the file content.
+     * A map from a content id (MD5 sum of file content) to the range of the spool file holding
+     * the license file content. For example, "9645f39e9db895a4aa6e02cb57294595" maps to the range
+     * holding the content of packages/services/Telephony/MODULE_LICENSE_APACHE2.
      */
-    private final Map<String, String> mContentIdToFileContentMap = new HashMap();
+    private final Map<String, ContentRange> mContentIdToContentRangeMap = new HashMap<>();
 
     static class ContentIdAndFileNames {
         final String mContentId;
@@ -100,64 +117,105 @@ class LicenseHtmlGeneratorFromXml {
         }
     }
 
-    private LicenseHtmlGeneratorFromXml(List<File> xmlFiles) {
+    /** Location of a license file content in the spool file, as UTF-8 bytes. */
+    private static class ContentRange {
+        final long mOffset;
+        final long mLength;
+
+        ContentRange(long offset, long length) {
+            mOffset = offset;
+            mLength = length;
+        }
+    }
+
+    private LicenseHtmlGeneratorFromXml(List<File> xmlFiles, int licensesPerPage) {
         mXmlFiles = xmlFiles;
+        mLicensesPerPage = licensesPerPage;
     }
 
     public static boolean generateHtml(List<File> xmlFiles, File outputFile) {
-        LicenseHtmlGeneratorFromXml genertor = new LicenseHtmlGeneratorFromXml(xmlFiles);
+        LicenseHtmlGeneratorFromXml genertor = new LicenseHtmlGeneratorFromXml(xmlFiles,
+                /* licensesPerPage= */ 0);
         return genertor.generateHtml(outputFile);
     }
 
-    private boolean generateHtml(File outputFile) {
-        for (File xmlFile : mXmlFiles) {
-            parse(xmlFile);
+    /**
+     * Generates the html split into pages, so that a viewer only loads the license texts which
+     * are opened. The given file receives the list of files, linking to pages of {@code
+     * licensesPerPage} license texts each. The pages are written next to it and named by {@link
+     * #getPageFileName(int)}.
+     */
+    public static boolean generatePagedHtml(List<File> xmlFiles, File indexFile,
+            int licensesPerPage) {
+        if (licensesPerPage <= 0) {
+            throw new IllegalArgumentException("licensesPerPage must be positive");
         }
+        LicenseHtmlGeneratorFromXml genertor = new LicenseHtmlGeneratorFromXml(xmlFiles,
+                licensesPerPage);
+        return genertor.generateHtml(indexFile);
+    }
 
-        if (mFileNameToContentIdMap.isEmpty() || mContentIdToFileContentMap.isEmpty()) {
-            return false;
-        }
+    /** Returns the name of the file holding the given page of license texts. */
+    static String getPageFileName(int page) {
+        return PAGE_FILE_PREFIX + page + PAGE_FILE_SUFFIX;
+    }
 
-        PrintWriter writer = null;
+    private boolean generateHtml(File outputFile) {
+        File spoolFile = null;
         try {
-            writer = new PrintWriter(outputFile);
+            spoolFile = File.createTempFile(SPOOL_FILE_PREFIX, SPOOL_FILE_SUFFIX,
+                    outputFile.getAbsoluteFile().getParentFile());
+            try (ContentSpool spool = new ContentSpool(new FileOutputStream(spoolFile))) {
+                for (File xmlFile : mXmlFiles) {
+                    parse(xmlFile, spool);
+                }
+            }
 
-            generateHtml(mFileNameToContentIdMap, mContentIdToFileContentMap, writer);
+            if (mFileNameToContentIdMap.isEmpty() || mContentIdToContentRangeMap.isEmpty()) {
+                return false;
+            }
 
-            writer.flush();
-            writer.close();
+            try (FileInputStream spoolIn = new FileInputStream(spoolFile)) {
+                if (mLicensesPerPage > 0) {
+                    generatePagedHtml(mFileNameToContentIdMap, mContentIdToContentRangeMap,
+                            spoolIn.getChannel(), outputFile, mLicensesPerPage);
+                } else {
+                    try (OutputStream out = openHtml(outputFile)) {
+                        generateHtml(mFileNameToContentIdMap, mContentIdToContentRangeMap,
+                                spoolIn.getChannel(), out);
+                    }
+                }
+            }
             return true;
-        } catch (FileNotFoundException | SecurityException e) {
+        } catch (IOException | SecurityException e) {
             LOG.e("Failed to generate " + outputFile, e);
-
-            if (writer != null) {
-                writer.close();
-            }
             return false;
+        } finally {
+            if (spoolFile != null && !spoolFile.delete()) {
+                LOG.w("Failed to delete " + spoolFile);
+            }
         }
     }
 
-    private void parse(File xmlFile) {
+    private void parse(File xmlFile, ContentSpool spool) {
         if (xmlFile == null || !xmlFile.exists() || xmlFile.length() == 0) {
             return;
         }
 
-        InputStreamReader in = null;
+        InputStream fileIn = null;
         try {
+            fileIn = new BufferedInputStream(new FileInputStream(xmlFile), BUFFER_SIZE);
             if (xmlFile.getName().endsWith(".gz")) {
-                in = new InputStreamReader(new GZIPInputStream(new FileInputStream(xmlFile)));
-            } else {
-                in = new FileReader(xmlFile);
+                fileIn = new GZIPInputStream(fileIn, BUFFER_SIZE);
             }
-
-            parse(in, mFileNameToContentIdMap, mContentIdToFileContentMap);
-
-            in.close();
+            parse(new InputStreamReader(fileIn, StandardCharsets.UTF_8), spool,
+                    mFileNameToContentIdMap, mContentIdToContentRangeMap);
         } catch (XmlPullParserException | IOException e) {
             LOG.e("Failed to parse " + xmlFile, e);
-            if (in != null) {
+        } finally {
+            if (fileIn != null) {
                 try {
-                    in.close();
+                    fileIn.close();
                 } catch (IOException ie) {
                     LOG.w("Failed to close " + xmlFile);
                 }
@@ -167,7 +225,9 @@ class LicenseHtmlGeneratorFromXml {
 
     /*
      * Parses an input stream and fills a map from a file name to a content id for its license
-     * and a map from a content id to a license file content.
+     * and a map from a content id to the range of the spool holding the license file content.
+     * Only the first content of each content id is copied to the spool. If the stream cannot be
+     * parsed, none of its entries are added to the maps.
      *
      * Following xml format is expected from the input stream.
      *
@@ -180,11 +240,12 @@ class LicenseHtmlGeneratorFromXml {
      *     ...
      *     </licenses>
      */
-    private static void parse(InputStreamReader in, Map<String, String> outFileNameToContentIdMap,
-            Map<String, String> outContentIdToFileContentMap)
+    private static void parse(Reader in, ContentSpool spool,
+            Map<String, String> outFileNameToContentIdMap,
+            Map<String, ContentRange> outContentIdToContentRangeMap)
             throws XmlPullParserException, IOException {
         Map<String, String> fileNameToContentIdMap = new HashMap<String, String>();
-        Map<String, String> contentIdToFileContentMap = new HashMap<String, String>();
+        Map<String, ContentRange> contentIdToContentRangeMap = new HashMap<>();
 
         XmlPullParser parser = Xml.newPullParser();
         parser.setInput(in);
@@ -206,11 +267,14 @@ class LicenseHtmlGeneratorFromXml {
                 } else if (TAG_FILE_CONTENT.equals(parser.getName())) {
                     String contentId = parser.getAttributeValue("", ATTR_CONTENT_ID);
                     if (!TextUtils.isEmpty(contentId)
-                            && !outContentIdToFileContentMap.containsKey(contentId)
-                            && !contentIdToFileContentMap.containsKey(contentId)) {
-                        String fileContent = readText(parser);
-                        if (!TextUtils.isEmpty(fileContent)) {
-                            contentIdToFileContentMap.put(contentId, fileContent);
+                            && !outContentIdToContentRangeMap.containsKey(contentId)
+                            && !contentIdToContentRangeMap.containsKey(contentId)) {
+                        long offset = spool.getLength();
+                        copyText(parser, spool);
+                        long length = spool.getLength() - offset;
+                        if (length > 0) {
+                            contentIdToContentRangeMap.put(contentId,
+                                    new ContentRange(offset, length));
                         }
                     }
                 }
@@ -219,12 +283,12 @@ class LicenseHtmlGeneratorFromXml {
             state = parser.next();
         }
         outFileNameToContentIdMap.putAll(fileNameToContentIdMap);
-        outContentIdToFileContentMap.putAll(contentIdToFileContentMap);
+        outContentIdToContentRangeMap.putAll(contentIdToContentRangeMap);
     }
 
     private static String readText(XmlPullParser parser)
             throws IOException, XmlPullParserException {
-        StringBuffer result = new StringBuffer();
+        StringBuilder result = new StringBuilder();
         int state = parser.next();
         while (state == XmlPullParser.TEXT) {
             result.append(parser.getText());
@@ -233,19 +297,80 @@ class LicenseHtmlGeneratorFromXml {
         return result.toString();
     }
 
+    /** Like {@link #readText(XmlPullParser)}, but copies each text chunk to the spool. */
+    private static void copyText(XmlPullParser parser, ContentSpool spool)
+            throws IOException, XmlPullParserException {
+        int state = parser.next();
+        while (state == XmlPullParser.TEXT) {
+            spool.write(parser.getText());
+            state = parser.next();
+        }
+    }
+
     private static void generateHtml(Map<String, String> fileNameToContentIdMap,
-            Map<String, String> contentIdToFileContentMap, PrintWriter writer) {
+            Map<String, ContentRange> contentIdToContentRangeMap, FileChannel spool,
+            OutputStream out) throws IOException {
+        writeLine(out, HTML_HEAD_STRING);
+        List<ContentIdAndFileNames> contentIdAndFileNamesList =
+                writeFileList(fileNameToContentIdMap, /* licensesPerPage= */ 0, out);
+        writeLine(out, HTML_MIDDLE_STRING);
+
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        // Prints all contents of the license files in order of id.
+        for (int id = 0; id < contentIdAndFileNamesList.size(); id++) {
+            writeLicense(id, contentIdAndFileNamesList.get(id), contentIdToContentRangeMap, spool,
+                    buffer, out);
+        }
+
+        writeLine(out, HTML_REAR_STRING);
+    }
+
+    private static void generatePagedHtml(Map<String, String> fileNameToContentIdMap,
+            Map<String, ContentRange> contentIdToContentRangeMap, FileChannel spool,
+            File indexFile, int licensesPerPage) throws IOException {
+        List<ContentIdAndFileNames> contentIdAndFileNamesList;
+        try (OutputStream out = openHtml(indexFile)) {
+            writeLine(out, HTML_HEAD_STRING);
+            contentIdAndFileNamesList = writeFileList(fileNameToContentIdMap, licensesPerPage,
+                    out);
+            writeLine(out, HTML_MIDDLE_STRING);
+            writeLine(out, HTML_REAR_STRING);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        File directory = indexFile.getAbsoluteFile().getParentFile();
+        for (int page = 0; page * licensesPerPage < contentIdAndFileNamesList.size(); page++) {
+            try (OutputStream out = openHtml(new File(directory, getPageFileName(page)))) {
+                // Pages keep the layout of the single file, with an empty list of files.
+                writeLine(out, HTML_HEAD_STRING);
+                writeLine(out, HTML_MIDDLE_STRING);
+                int end = Math.min((page + 1) * licensesPerPage,
+                        contentIdAndFileNamesList.size());
+                for (int id = page * licensesPerPage; id < end; id++) {
+                    writeLicense(id, contentIdAndFileNamesList.get(id),
+                            contentIdToContentRangeMap, spool, buffer, out);
+                }
+                writeLine(out, HTML_REAR_STRING);
+            }
+        }
+    }
+
+    /**
+     * Prints all the file list with a link to its license file content, and returns the license
+     * file contents in order of id. Links point to the page of the license if {@code
+     * licensesPerPage} is positive, or to the same file otherwise.
+     */
+    private static List<ContentIdAndFileNames> writeFileList(
+            Map<String, String> fileNameToContentIdMap, int licensesPerPage, OutputStream out)
+            throws IOException {
         List<String> fileNameList = new ArrayList();
         fileNameList.addAll(fileNameToContentIdMap.keySet());
         Collections.sort(fileNameList);
 
-        writer.println(HTML_HEAD_STRING);
-
         int count = 0;
         Map<String, Integer> contentIdToOrderMap = new HashMap();
         List<ContentIdAndFileNames> contentIdAndFileNamesList = new ArrayList();
 
-        // Prints all the file list with a link to its license file content.
         for (String fileName : fileNameList) {
             String contentId = fileNameToContentIdMap.get(fileName);
             // Assigns an id to a newly referred license file content.
@@ -259,30 +384,79 @@ class LicenseHtmlGeneratorFromXml {
 
             int id = contentIdToOrderMap.get(contentId);
             contentIdAndFileNamesList.get(id).mFileNameList.add(fileName);
-            writer.format("<li><a href=\"#id%d\">%s</a></li>\n", id, fileName);
+            String page = licensesPerPage > 0 ? getPageFileName(id / licensesPerPage) : "";
+            writeLine(out, "<li><a href=\"" + page + "#id" + id + "\">" + fileName + "</a></li>");
         }
+        return contentIdAndFileNamesList;
+    }
 
-        writer.println(HTML_MIDDLE_STRING);
+    private static void writeLicense(int id, ContentIdAndFileNames contentIdAndFileNames,
+            Map<String, ContentRange> contentIdToContentRangeMap, FileChannel spool,
+            ByteBuffer buffer, OutputStream out) throws IOException {
+        writeLine(out, "<tr id=\"id" + id + "\"><td class=\"same-license\">");
+        writeLine(out, "<div class=\"label\">Notices for file(s):</div>");
+        writeLine(out, "<div class=\"file-list\">");
+        for (String fileName : contentIdAndFileNames.mFileNameList) {
+            writeLine(out, fileName + " <br/>");
+        }
+        writeLine(out, "</div><!-- file-list -->");
+        writeLine(out, "<pre class=\"license-text\">");
+        ContentRange range = contentIdToContentRangeMap.get(contentIdAndFileNames.mContentId);
+        if (range != null) {
+            copyRange(spool, range, buffer, out);
+        }
+        writeLine(out, "");
+        writeLine(out, "</pre><!-- license-text -->");
+        writeLine(out, "</td></tr><!-- same-license -->");
+    }
 
-        count = 0;
-        // Prints all contents of the license files in order of id.
-        for (ContentIdAndFileNames contentIdAndFileNames : contentIdAndFileNamesList) {
-            writer.format("<tr id=\"id%d\"><td class=\"same-license\">\n", count);
-            writer.println("<div class=\"label\">Notices for file(s):</div>");
-            writer.println("<div class=\"file-list\">");
-            for (String fileName : contentIdAndFileNames.mFileNameList) {
-                writer.format("%s <br/>\n", fileName);
+    private static OutputStream openHtml(File file) throws IOException {
+        return new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+    }
+
+    private static void writeLine(OutputStream out, String line) throws IOException {
+        out.write(line.getBytes(StandardCharsets.UTF_8));
+        out.write('\n');
+    }
+
+    private static void copyRange(FileChannel spool, ContentRange range, ByteBuffer buffer,
+            OutputStream out) throws IOException {
+        long position = range.mOffset;
+        long end = range.mOffset + range.mLength;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int read = spool.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of license spool");
             }
-            writer.println("</div><!-- file-list -->");
-            writer.println("<pre class=\"license-text\">");
-            writer.println(contentIdToFileContentMap.get(
-                    contentIdAndFileNames.mContentId));
-            writer.println("</pre><!-- license-text -->");
-            writer.println("</td></tr><!-- same-license -->");
-
-            count++;
+            out.write(buffer.array(), 0, read);
+            position += read;
         }
+    }
+
+    /** Buffered output of license file contents as UTF-8, tracking the number of bytes written. */
+    private static class ContentSpool implements AutoCloseable {
+        private final OutputStream mOut;
+        private long mLength;
 
-        writer.println(HTML_REAR_STRING);
+        ContentSpool(OutputStream out) {
+            mOut = new BufferedOutputStream(out, BUFFER_SIZE);
+        }
+
+        void write(String text) throws IOException {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            mOut.write(bytes);
+            mLength += bytes.length;
+        }
+
+        long getLength() {
+            return mLength;
+        }
+
+        @Override
+        public void close() throws IOException {
+            mOut.close();
+        }
     }
 }
@@ -18,15 +18,32 @@ package com.android.car.settings.system;
 
 import android.content.Context;
 
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+import androidx.core.os.CancellationSignal;
+
+import com.android.car.settings.R;
 import com.android.car.settings.common.AsyncLoader;
 import com.android.car.settings.common.Logger;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * LicenseHtmlLoader is a loader which loads a license html file from default license xml files.
+ *
+ * <p>The generated html is cached and keyed on a hash of the content of the xml files, so it is
+ * only generated again when they change, e.g. after an OTA. {@link LicenseHtmlCacheJobService}
+ * generates it in the background after boot so that it is ready when the licenses are opened.
  */
 public class LicenseHtmlLoader extends AsyncLoader<File> {
     private static final Logger LOG = new Logger(LicenseHtmlLoader.class);
@@ -37,6 +54,17 @@ public class LicenseHtmlLoader extends AsyncLoader<File> {
             "/odm/etc/NOTICE.xml.gz",
             "/oem/etc/NOTICE.xml.gz"};
     private static final String NOTICE_HTML_FILE_NAME = "NOTICE.html";
+    @VisibleForTesting
+    static final String NOTICE_PAGES_DIR_NAME = "NOTICE";
+    private static final String NOTICE_INDEX_FILE_NAME = "index.html";
+    @VisibleForTesting
+    static final String NOTICE_CACHE_KEY_FILE_NAME = "NOTICE.key";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Serializes generation between the loader and the background job. */
+    private static final Object sLock = new Object();
 
     private final Context mContext;
 
@@ -46,58 +74,178 @@ public class LicenseHtmlLoader extends AsyncLoader<File> {
     }
 
     @Override
-    public File loadInBackground() {
-        return generateHtmlFromDefaultXmlFiles();
+    protected File loadInBackground(CancellationSignal cancellationSignal) {
+        return generateHtmlFromDefaultXmlFiles(mContext);
     }
 
-    private File generateHtmlFromDefaultXmlFiles() {
+    /**
+     * Returns the cached html generated from the default license xml files, generating it first
+     * if the xml files changed. Returns {@code null} if it cannot be generated.
+     */
+    @WorkerThread
+    @Nullable
+    static File generateHtmlFromDefaultXmlFiles(Context context) {
         final List<File> xmlFiles = getVaildXmlFiles();
         if (xmlFiles.isEmpty()) {
             LOG.e("No notice file exists.");
             return null;
         }
+        return getOrGenerateHtml(xmlFiles, context.getCacheDir(), context.getResources()
+                .getInteger(R.integer.config_license_html_licenses_per_page));
+    }
 
-        File cachedHtmlFile = getCachedHtmlFile();
-        if (!isCachedHtmlFileOutdated(xmlFiles, cachedHtmlFile)
-                || generateHtmlFile(xmlFiles, cachedHtmlFile)) {
-            return cachedHtmlFile;
+    /**
+     * Returns the html files of the license pages shown from the given html file, if it was
+     * generated with pages.
+     */
+    static List<File> getPageFiles(File htmlFile) {
+        List<File> pageFiles = new ArrayList<>();
+        File directory = htmlFile.getAbsoluteFile().getParentFile();
+        if (directory == null || !NOTICE_PAGES_DIR_NAME.equals(directory.getName())) {
+            return pageFiles;
         }
-
-        return null;
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(
+                LicenseHtmlGeneratorFromXml.PAGE_FILE_PREFIX));
+        if (files != null) {
+            for (File file : files) {
+                pageFiles.add(file);
+            }
+        }
+        return pageFiles;
     }
 
-    private List<File> getVaildXmlFiles() {
-        final List<File> xmlFiles = new ArrayList();
-        for (final String xmlPath : DEFAULT_LICENSE_XML_PATHS) {
-            File file = new File(xmlPath);
-            if (file.exists() && file.length() != 0) {
-                xmlFiles.add(file);
+    @VisibleForTesting
+    @Nullable
+    static File getOrGenerateHtml(List<File> xmlFiles, File cacheDir, int licensesPerPage) {
+        synchronized (sLock) {
+            boolean paged = licensesPerPage > 0;
+            File htmlFile = paged
+                    ? new File(new File(cacheDir, NOTICE_PAGES_DIR_NAME), NOTICE_INDEX_FILE_NAME)
+                    : new File(cacheDir, NOTICE_HTML_FILE_NAME);
+            File keyFile = new File(cacheDir, NOTICE_CACHE_KEY_FILE_NAME);
+            String cacheKey = computeCacheKey(xmlFiles, licensesPerPage);
+            if (cacheKey != null && isFileValid(htmlFile) && cacheKey.equals(readKey(keyFile))) {
+                return htmlFile;
             }
+
+            // Drop the key first, so an interrupted generation is not mistaken for a valid one.
+            keyFile.delete();
+            boolean generated = paged
+                    ? generatePagedHtml(xmlFiles, htmlFile, licensesPerPage)
+                    : generateHtml(xmlFiles, htmlFile);
+            if (!generated) {
+                return null;
+            }
+            // Drop the output of the other mode, e.g. left from before a configuration change.
+            if (paged) {
+                new File(cacheDir, NOTICE_HTML_FILE_NAME).delete();
+            } else {
+                deleteDirectory(new File(cacheDir, NOTICE_PAGES_DIR_NAME));
+            }
+            if (cacheKey != null) {
+                writeKey(keyFile, cacheKey);
+            }
+            return htmlFile;
         }
-        return xmlFiles;
     }
 
-    private File getCachedHtmlFile() {
-        return new File(mContext.getCacheDir(), NOTICE_HTML_FILE_NAME);
+    private static boolean generateHtml(List<File> xmlFiles, File htmlFile) {
+        File tempFile = new File(htmlFile.getPath() + TEMP_SUFFIX);
+        return LicenseHtmlGeneratorFromXml.generateHtml(xmlFiles, tempFile)
+                && tempFile.renameTo(htmlFile);
     }
 
-    private boolean isCachedHtmlFileOutdated(List<File> xmlFiles, File cachedHtmlFile) {
-        boolean outdated = true;
-        if (cachedHtmlFile.exists() && cachedHtmlFile.length() != 0) {
-            outdated = false;
-            for (File file : xmlFiles) {
-                if (cachedHtmlFile.lastModified() < file.lastModified()) {
-                    outdated = true;
-                    break;
+    private static boolean generatePagedHtml(List<File> xmlFiles, File indexFile,
+            int licensesPerPage) {
+        File directory = indexFile.getParentFile();
+        File tempDirectory = new File(directory.getPath() + TEMP_SUFFIX);
+        deleteDirectory(tempDirectory);
+        if (!tempDirectory.mkdirs()) {
+            LOG.e("Failed to create " + tempDirectory);
+            return false;
+        }
+        if (!LicenseHtmlGeneratorFromXml.generatePagedHtml(xmlFiles,
+                new File(tempDirectory, indexFile.getName()), licensesPerPage)) {
+            deleteDirectory(tempDirectory);
+            return false;
+        }
+        deleteDirectory(directory);
+        return tempDirectory.renameTo(directory);
+    }
+
+    /**
+     * Returns a hash of the paths and content of the xml files and the page size, or {@code null}
+     * if the files cannot be read.
+     */
+    @Nullable
+    private static String computeCacheKey(List<File> xmlFiles, int licensesPerPage) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            digest.update(Integer.toString(licensesPerPage).getBytes(StandardCharsets.UTF_8));
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (File xmlFile : xmlFiles) {
+                digest.update(xmlFile.getPath().getBytes(StandardCharsets.UTF_8));
+                try (InputStream in = new FileInputStream(xmlFile)) {
+                    int read;
+                    while ((read = in.read(buffer)) > 0) {
+                        digest.update(buffer, 0, read);
+                    }
                 }
             }
+            StringBuilder key = new StringBuilder();
+            for (byte b : digest.digest()) {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            LOG.w("Failed to hash notice files", e);
+            return null;
         }
-        return outdated;
     }
 
-    private boolean generateHtmlFile(List<File> xmlFiles, File htmlFile) {
-        return LicenseHtmlGeneratorFromXml.generateHtml(xmlFiles, htmlFile);
+    @Nullable
+    private static String readKey(File keyFile) {
+        if (!keyFile.exists()) {
+            return null;
+        }
+        try {
+            return new String(Files.readAllBytes(keyFile.toPath()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            LOG.w("Failed to read " + keyFile, e);
+            return null;
+        }
+    }
+
+    private static void writeKey(File keyFile, String key) {
+        try {
+            Files.write(keyFile.toPath(), key.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            LOG.w("Failed to write " + keyFile, e);
+        }
+    }
+
+    private static void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
     }
-}
 
+    private static List<File> getVaildXmlFiles() {
+        final List<File> xmlFiles = new ArrayList();
+        for (final String xmlPath : DEFAULT_LICENSE_XML_PATHS) {
+            File file = new File(xmlPath);
+            if (file.exists() && file.length() != 0) {
+                xmlFiles.add(file);
+            }
+        }
+        return xmlFiles;
+    }
 
+    private static boolean isFileValid(File file) {
+        return file.exists() && file.length() != 0;
+    }
+}
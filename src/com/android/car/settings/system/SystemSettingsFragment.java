@@ -24,8 +24,10 @@ import com.android.car.settings.common.CarSettingActivities.SystemSettingsActivi
 import com.android.car.settings.common.SettingsFragment;
 import com.android.car.settings.development.DevelopmentSettingsUtil;
 import com.android.car.settings.search.CarBaseSearchIndexProvider;
+import com.android.car.settings.search.NonIndexableKeysCache;
 import com.android.settingslib.search.SearchIndexable;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -47,7 +49,9 @@ public class SystemSettingsFragment extends SettingsFragment {
                     SystemSettingsActivity.class) {
                 @Override
                 public List<String> getNonIndexableKeys(Context context) {
-                    List<String> nonIndexableKeys = super.getNonIndexableKeys(context);
+                    // The cached keys are shared, so they are copied before being extended.
+                    List<String> nonIndexableKeys =
+                            new ArrayList<>(super.getNonIndexableKeys(context));
                     if (!DevelopmentSettingsUtil.isDevelopmentSettingsEnabled(context,
                             UserManager.get(context))) {
                         nonIndexableKeys.add(
@@ -55,5 +59,14 @@ public class SystemSettingsFragment extends SettingsFragment {
                     }
                     return nonIndexableKeys;
                 }
+
+                @Override
+                protected int getInvalidationTriggers() {
+                    // Depends on developer options, the user restrictions and the injected
+                    // settings, but not on the driving state.
+                    return NonIndexableKeysCache.INVALIDATE_ON_FEATURE_CHANGE
+                            | NonIndexableKeysCache.INVALIDATE_ON_USER_CHANGE
+                            | NonIndexableKeysCache.INVALIDATE_ON_PACKAGE_CHANGE;
+                }
             };
 }
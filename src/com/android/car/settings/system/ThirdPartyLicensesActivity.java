@@ -17,6 +17,7 @@
 package com.android.car.settings.system;
 
 import android.content.ActivityNotFoundException;
+import android.content.ClipData;
 import android.content.ContentResolver;
 import android.content.Intent;
 import android.net.Uri;
@@ -34,6 +35,9 @@ import com.android.car.settings.R;
 import com.android.car.settings.common.Logger;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * The activity that displays third-party licenses.
@@ -87,7 +91,7 @@ public class ThirdPartyLicensesActivity extends FragmentActivity implements
             showErrorAndFinish();
             return;
         }
-        showHtmlFromUri(Uri.fromFile(file));
+        showHtmlFromUri(Uri.fromFile(file), Collections.emptyList());
     }
 
     private void showErrorAndFinish() {
@@ -96,7 +100,11 @@ public class ThirdPartyLicensesActivity extends FragmentActivity implements
         finish();
     }
 
-    private void showHtmlFromUri(Uri uri) {
+    /**
+     * Shows the html at the given uri. {@code pageUris} are the pages it links to, which the viewer
+     * is also granted access to.
+     */
+    private void showHtmlFromUri(Uri uri, List<Uri> pageUris) {
         // Kick off external viewer due to WebView security restrictions; we
         // carefully point it at HTMLViewer, since it offers to decompress
         // before viewing.
@@ -105,6 +113,14 @@ public class ThirdPartyLicensesActivity extends FragmentActivity implements
         intent.putExtra(Intent.EXTRA_TITLE, getString(R.string.settings_license_activity_title));
         if (ContentResolver.SCHEME_CONTENT.equals(uri.getScheme())) {
             intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+            if (!pageUris.isEmpty()) {
+                // Read permission is granted to all items of the clip data.
+                ClipData clipData = ClipData.newRawUri(/* label= */ null, uri);
+                for (Uri pageUri : pageUris) {
+                    clipData.addItem(new ClipData.Item(pageUri));
+                }
+                intent.setClipData(clipData);
+            }
         }
         intent.addCategory(Intent.CATEGORY_DEFAULT);
         intent.setPackage(HTML_VIEWER_PACKAGE);
@@ -126,7 +142,11 @@ public class ThirdPartyLicensesActivity extends FragmentActivity implements
     private void showGeneratedHtmlFile(File generatedHtmlFile) {
         if (generatedHtmlFile != null) {
             LOG.i("File size: " + generatedHtmlFile.length());
-            showHtmlFromUri(getUriFromGeneratedHtmlFile(generatedHtmlFile));
+            List<Uri> pageUris = new ArrayList<>();
+            for (File pageFile : LicenseHtmlLoader.getPageFiles(generatedHtmlFile)) {
+                pageUris.add(getUriFromGeneratedHtmlFile(pageFile));
+            }
+            showHtmlFromUri(getUriFromGeneratedHtmlFile(generatedHtmlFile), pageUris);
         } else {
             LOG.e("Failed to generate.");
             showErrorAndFinish();
@@ -22,12 +22,10 @@ import android.car.VehiclePropertyIds;
 import android.car.VehicleUnit;
 import android.car.hardware.CarPropertyConfig;
 import android.car.hardware.property.CarPropertyManager;
-import android.content.ComponentName;
 import android.content.Context;
-import android.content.ServiceConnection;
-import android.os.IBinder;
 import android.util.ArraySet;
 
+import com.android.car.settings.common.CarConnectionBroker;
 import com.android.car.settings.common.Logger;
 
 import java.util.ArrayList;
@@ -38,37 +36,40 @@ public class CarUnitsManager {
     private static final Logger LOG = new Logger(CarUnitsManager.class);
     private static final int AREA_ID = 0;
 
-    private final ServiceConnection mServiceConnection = new ServiceConnection() {
+    private final CarConnectionBroker.ManagerListener<CarPropertyManager>
+            mCarPropertyManagerListener =
+            new CarConnectionBroker.ManagerListener<CarPropertyManager>() {
         @Override
-        public void onServiceConnected(ComponentName name, IBinder service) {
-            try {
-                mCarPropertyManager =
-                        (CarPropertyManager) mCar.getCarManager(Car.PROPERTY_SERVICE);
+        public void onManagerReady(CarPropertyManager carPropertyManager) {
+            mCarPropertyManager = carPropertyManager;
+            if (mCarServiceListener != null) {
                 mCarServiceListener.handleServiceConnected(mCarPropertyManager);
-            } catch (CarNotConnectedException e) {
-                LOG.e("Car is not connected!", e);
             }
         }
 
         @Override
-        public void onServiceDisconnected(ComponentName name) {
-            mCarServiceListener.handleServiceDisconnected();
+        public void onManagerLost() {
+            mCarPropertyManager = null;
+            if (mCarServiceListener != null) {
+                mCarServiceListener.handleServiceDisconnected();
+            }
         }
     };
 
     private Context mContext;
-    private Car mCar;
+    private CarConnectionBroker mCarConnectionBroker;
     private CarPropertyManager mCarPropertyManager;
     private OnCarServiceListener mCarServiceListener;
 
     public CarUnitsManager(Context context) {
         mContext = context;
-        mCar = Car.createCar(mContext, mServiceConnection);
+        mCarConnectionBroker = CarConnectionBroker.getInstance(mContext);
     }
 
     /**
      * Registers {@link OnCarServiceListener} as a Callback for when connection to {@link Car} has
-     * been established.
+     * been established. This should be called before {@link #connect()}, which may call the
+     * listener immediately if the shared connection is already established.
      */
     public void registerCarServiceListener(OnCarServiceListener listener) {
         mCarServiceListener = listener;
@@ -83,11 +84,13 @@ public class CarUnitsManager {
     }
 
     protected void connect() {
-        mCar.connect();
+        mCarConnectionBroker.registerManagerListener(Car.PROPERTY_SERVICE,
+                mCarPropertyManagerListener);
     }
 
     protected void disconnect() {
-        mCar.disconnect();
+        mCarConnectionBroker.unregisterManagerListener(mCarPropertyManagerListener);
+        mCarPropertyManager = null;
     }
 
     protected boolean isPropertyAvailable(int propertyId) {
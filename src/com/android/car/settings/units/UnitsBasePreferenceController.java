@@ -44,6 +44,7 @@ public abstract class UnitsBasePreferenceController extends PreferenceController
                 @Override
                 public void handleServiceConnected(CarPropertyManager carPropertyManager) {
                     try {
+                        mCarPropertyManager = carPropertyManager;
                         if (carPropertyManager != null) {
                             carPropertyManager.registerCallback(mCarPropertyEventCallback,
                                     getPropertyId(), CarPropertyManager.SENSOR_RATE_ONCHANGE);
@@ -67,6 +68,7 @@ public abstract class UnitsBasePreferenceController extends PreferenceController
 
                 @Override
                 public void handleServiceDisconnected() {
+                    mCarPropertyManager = null;
                     mIsCarUnitsManagerStarted = false;
                 }
             };
@@ -92,6 +94,7 @@ public abstract class UnitsBasePreferenceController extends PreferenceController
     private Unit mDefaultUnit;
     private boolean mIsCarUnitsManagerStarted = false;
     private CarUnitsManager mCarUnitsManager;
+    private CarPropertyManager mCarPropertyManager;
 
     public UnitsBasePreferenceController(Context context, String preferenceKey,
             FragmentController fragmentController, CarUxRestrictions uxRestrictions) {
@@ -103,14 +106,19 @@ public abstract class UnitsBasePreferenceController extends PreferenceController
     protected void onCreateInternal() {
         super.onCreateInternal();
         mCarUnitsManager = new CarUnitsManager(getContext());
-        mCarUnitsManager.connect();
         mCarUnitsManager.registerCarServiceListener(mOnCarServiceListener);
+        mCarUnitsManager.connect();
     }
 
     @Override
     @CallSuper
     protected void onDestroyInternal() {
         super.onDestroyInternal();
+        // The property manager is shared with other screens, so its callback must be removed.
+        if (mCarPropertyManager != null) {
+            mCarPropertyManager.unregisterCallback(mCarPropertyEventCallback);
+            mCarPropertyManager = null;
+        }
         mCarUnitsManager.disconnect();
         mCarUnitsManager.unregisterCarServiceListener();
     }
@@ -26,9 +26,11 @@ import android.provider.SearchIndexableResource;
 import androidx.annotation.LayoutRes;
 
 import com.android.car.settings.R;
+import com.android.car.settings.common.CarConnectionBroker;
 import com.android.car.settings.common.CarSettingActivities;
 import com.android.car.settings.common.SettingsFragment;
 import com.android.car.settings.search.CarBaseSearchIndexProvider;
+import com.android.car.settings.search.NonIndexableKeysCache;
 import com.android.settingslib.search.SearchIndexable;
 import com.android.settingslib.search.SearchIndexableRaw;
 
@@ -61,8 +63,7 @@ public class UnitsSettingsFragment extends SettingsFragment {
                 public List<SearchIndexableRaw> getRawDataToIndex(Context context,
                         boolean enabled) {
                     List<SearchIndexableRaw> rawData = new ArrayList<>();
-                    Car car = Car.createCar(context);
-                    mCarPropertyManager = (CarPropertyManager) car.getCarManager(
+                    mCarPropertyManager = CarConnectionBroker.getInstance(context).getManager(
                             Car.PROPERTY_SERVICE);
                     if (mCarPropertyManager != null) {
                         boolean hasUnits = false;
@@ -122,10 +123,15 @@ public class UnitsSettingsFragment extends SettingsFragment {
                                     context.getString(R.string.units_settings)));
                         }
                     }
-                    car.disconnect();
                     return rawData;
                 }
 
+                @Override
+                protected int getInvalidationTriggers() {
+                    // The supported units are part of the vehicle configuration.
+                    return NonIndexableKeysCache.INVALIDATE_ON_USER_CHANGE;
+                }
+
                 private boolean isValidVehicleProperty(int propertyId) {
                     return mCarPropertyManager.getIntProperty(propertyId, /* area= */ 0)
                             != VehicleUnit.SHOULD_NOT_USE;
@@ -49,6 +49,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.android.car.settings.R;
 import com.android.car.settings.common.BaseFragment;
+import com.android.car.settings.common.CarConnectionBroker;
 import com.android.car.settings.common.ConfirmationDialogFragment;
 import com.android.car.settings.common.ErrorDialog;
 import com.android.internal.util.UserIcons;
@@ -77,9 +78,22 @@ public class UserGridRecyclerView extends RecyclerView {
     private AddNewUserTask mAddNewUserTask;
     private boolean mEnableAddUserButton;
     private UserIconProvider mUserIconProvider;
-    private Car mCar;
+    private final CarConnectionBroker mCarConnectionBroker;
     private CarUserManager mCarUserManager;
 
+    private final CarConnectionBroker.ManagerListener<CarUserManager> mCarUserManagerListener =
+            new CarConnectionBroker.ManagerListener<CarUserManager>() {
+                @Override
+                public void onManagerReady(CarUserManager manager) {
+                    mCarUserManager = manager;
+                }
+
+                @Override
+                public void onManagerLost() {
+                    mCarUserManager = null;
+                }
+            };
+
     private final BroadcastReceiver mUserUpdateReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
@@ -93,8 +107,7 @@ public class UserGridRecyclerView extends RecyclerView {
         mUserManager = UserManager.get(mContext);
         mUserIconProvider = new UserIconProvider();
         mEnableAddUserButton = true;
-        mCar = Car.createCar(mContext);
-        mCarUserManager = (CarUserManager) mCar.getCarManager(Car.CAR_USER_SERVICE);
+        mCarConnectionBroker = CarConnectionBroker.getInstance(mContext);
 
         addItemDecoration(new ItemSpacingDecoration(context.getResources().getDimensionPixelSize(
                 R.dimen.user_switcher_vertical_spacing_between_users)));
@@ -109,6 +122,13 @@ public class UserGridRecyclerView extends RecyclerView {
         registerForUserEvents();
     }
 
+    @Override
+    public void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mCarConnectionBroker.registerManagerListener(Car.CAR_USER_SERVICE,
+                mCarUserManagerListener);
+    }
+
     /**
      * Unregisters listener checking for any change to the users
      */
@@ -116,12 +136,11 @@ public class UserGridRecyclerView extends RecyclerView {
     public void onDetachedFromWindow() {
         super.onDetachedFromWindow();
         unregisterForUserEvents();
+        mCarConnectionBroker.unregisterManagerListener(mCarUserManagerListener);
+        mCarUserManager = null;
         if (mAddNewUserTask != null) {
             mAddNewUserTask.cancel(/* mayInterruptIfRunning= */ false);
         }
-        if (mCar != null) {
-            mCar.disconnect();
-        }
     }
 
     /**
@@ -267,6 +286,11 @@ public class UserGridRecyclerView extends RecyclerView {
         private boolean mIsAddUserRestricted;
 
         private final ConfirmationDialogFragment.ConfirmListener mConfirmListener = arguments -> {
+            if (mCarUserManager == null) {
+                // The car service is not connected.
+                onUserAddedFailure();
+                return;
+            }
             mAddNewUserTask = new AddNewUserTask(mContext,
                     mCarUserManager, /* addNewUserListener= */this);
             mAddNewUserTask.execute(mNewUserName);
@@ -380,6 +404,10 @@ public class UserGridRecyclerView extends RecyclerView {
         }
 
         private void handleUserSwitch(UserInfo userInfo) {
+            if (mCarUserManager == null) {
+                // The car service is not connected.
+                return;
+            }
             mCarUserManager.switchUser(userInfo.id).thenRun(() -> {
                 // Successful switch, close Settings app.
                 closeSettingsTask();
@@ -389,7 +417,7 @@ public class UserGridRecyclerView extends RecyclerView {
         private void handleGuestSessionClicked() {
             UserInfo guest =
                     UserHelper.getInstance(mContext).createNewOrFindExistingGuest(mContext);
-            if (guest != null) {
+            if (guest != null && mCarUserManager != null) {
                 mCarUserManager.switchUser(guest.id).thenRun(() -> {
                     // Successful start, will switch to guest now. Close Settings app.
                     closeSettingsTask();
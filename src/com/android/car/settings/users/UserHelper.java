@@ -27,12 +27,15 @@ import android.car.user.UserSwitchResult;
 import android.content.Context;
 import android.content.pm.UserInfo;
 import android.content.res.Resources;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.sysprop.CarProperties;
 import android.util.Log;
 
 import com.android.car.settings.R;
+import com.android.car.settings.common.CarConnectionBroker;
 import com.android.internal.annotations.VisibleForTesting;
 import com.android.internal.infra.AndroidFuture;
 
@@ -51,7 +54,8 @@ public class UserHelper {
     private static UserHelper sInstance;
 
     private final UserManager mUserManager;
-    private final CarUserManager mCarUserManager;
+    /** Updated on the main thread as the car service connects and disconnects. */
+    private volatile CarUserManager mCarUserManager;
     private final Resources mResources;
     private final String mDefaultAdminName;
     private final String mDefaultGuestName;
@@ -66,7 +70,8 @@ public class UserHelper {
             sInstance = new UserHelper(UserManager.get(appContext), resources,
                     resources.getString(com.android.internal.R.string.owner_name),
                     resources.getString(R.string.user_guest),
-                    getCarUserManager(appContext));
+                    /* carUserManager= */ null);
+            sInstance.listenForCarUserManager(appContext);
         }
         return sInstance;
     }
@@ -81,9 +86,39 @@ public class UserHelper {
         mCarUserManager = carUserManager;
     }
 
-    private static CarUserManager getCarUserManager(@NonNull Context context) {
-        Car car = Car.createCar(context);
-        CarUserManager carUserManager = (CarUserManager) car.getCarManager(Car.CAR_USER_SERVICE);
+    /**
+     * Keeps {@link #mCarUserManager} up to date for the lifetime of the process, including across
+     * restarts of the car service.
+     */
+    private void listenForCarUserManager(@NonNull Context context) {
+        CarConnectionBroker.ManagerListener<CarUserManager> listener =
+                new CarConnectionBroker.ManagerListener<CarUserManager>() {
+                    @Override
+                    public void onManagerReady(CarUserManager manager) {
+                        mCarUserManager = manager;
+                    }
+
+                    @Override
+                    public void onManagerLost() {
+                        mCarUserManager = null;
+                    }
+                };
+        CarConnectionBroker broker = CarConnectionBroker.getInstance(context);
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            broker.registerManagerListener(Car.CAR_USER_SERVICE, listener);
+        } else {
+            new Handler(Looper.getMainLooper()).post(
+                    () -> broker.registerManagerListener(Car.CAR_USER_SERVICE, listener));
+        }
+    }
+
+    /** Returns the current {@link CarUserManager}, or {@code null} if the car service is down. */
+    @Nullable
+    private CarUserManager getCarUserManager() {
+        CarUserManager carUserManager = mCarUserManager;
+        if (carUserManager == null) {
+            Log.w(TAG, "Car service is not connected.");
+        }
         return carUserManager;
     }
 
@@ -137,7 +172,11 @@ public class UserHelper {
     }
 
     private boolean removeUser(@UserIdInt int userId) {
-        UserRemovalResult userRemovalResult = mCarUserManager.removeUser(userId);
+        CarUserManager carUserManager = getCarUserManager();
+        if (carUserManager == null) {
+            return false;
+        }
+        UserRemovalResult userRemovalResult = carUserManager.removeUser(userId);
         if (userRemovalResult == null || !userRemovalResult.isSuccess()) {
             Log.w(TAG, "Could not remove user. " + userRemovalResult);
             return false;
@@ -146,8 +185,12 @@ public class UserHelper {
     }
 
     private boolean switchUser(@UserIdInt int userId) {
+        CarUserManager carUserManager = getCarUserManager();
+        if (carUserManager == null) {
+            return false;
+        }
         AndroidFuture<UserSwitchResult> userSwitchResultFuture =
-                mCarUserManager.switchUser(userId);
+                carUserManager.switchUser(userId);
         try {
             UserSwitchResult userSwitchResult =
                     userSwitchResultFuture.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
@@ -214,8 +257,12 @@ public class UserHelper {
             Log.e(TAG, "Only admin users and system user can create other admins.");
             return null;
         }
+        CarUserManager carUserManager = getCarUserManager();
+        if (carUserManager == null) {
+            return null;
+        }
         AndroidFuture<UserCreationResult> future =
-                mCarUserManager.createUser(userName, UserInfo.FLAG_ADMIN);
+                carUserManager.createUser(userName, UserInfo.FLAG_ADMIN);
         UserInfo user = getUserInfo(future);
 
         if (user == null) return null;
@@ -233,8 +280,12 @@ public class UserHelper {
      */
     @Nullable
     public UserInfo createNewOrFindExistingGuest(Context context) {
+        CarUserManager carUserManager = getCarUserManager();
+        if (carUserManager == null) {
+            return mUserManager.findCurrentGuestUser();
+        }
         // CreateGuest will return null if a guest already exists.
-        AndroidFuture<UserCreationResult> future = mCarUserManager.createGuest(mDefaultGuestName);
+        AndroidFuture<UserCreationResult> future = carUserManager.createGuest(mDefaultGuestName);
         UserInfo newGuest = getUserInfo(future);
 
         if (newGuest != null) {
@@ -29,10 +29,12 @@ import android.provider.Settings;
 import androidx.annotation.XmlRes;
 
 import com.android.car.settings.R;
+import com.android.car.settings.common.CarConnectionBroker;
 import com.android.car.settings.common.ConfirmationDialogFragment;
 import com.android.car.settings.common.ErrorDialog;
 import com.android.car.settings.common.SettingsFragment;
 import com.android.car.settings.search.CarBaseSearchIndexProvider;
+import com.android.car.settings.search.NonIndexableKeysCache;
 import com.android.car.ui.toolbar.MenuItem;
 import com.android.car.ui.toolbar.ProgressBarController;
 import com.android.internal.annotations.VisibleForTesting;
@@ -59,10 +61,23 @@ public class UsersListFragment extends SettingsFragment implements
     static final String MAX_USERS_LIMIT_REACHED_DIALOG_TAG =
             "com.android.car.settings.users.MaxUsersLimitReachedDialog";
 
-    private Car mCar;
+    private CarConnectionBroker mCarConnectionBroker;
     private CarUserManager mCarUserManager;
     private UserManager mUserManager;
 
+    private final CarConnectionBroker.ManagerListener<CarUserManager> mCarUserManagerListener =
+            new CarConnectionBroker.ManagerListener<CarUserManager>() {
+                @Override
+                public void onManagerReady(CarUserManager manager) {
+                    mCarUserManager = manager;
+                }
+
+                @Override
+                public void onManagerLost() {
+                    mCarUserManager = null;
+                }
+            };
+
     private ProgressBarController mProgressBar;
     private MenuItem mAddUserButton;
 
@@ -72,6 +87,11 @@ public class UsersListFragment extends SettingsFragment implements
 
     @VisibleForTesting
     final ConfirmationDialogFragment.ConfirmListener mConfirmCreateNewUserListener = arguments -> {
+        if (mCarUserManager == null) {
+            // The car service is not connected.
+            onUserAddedFailure();
+            return;
+        }
         mAddNewUserTask = new AddNewUserTask(getContext(),
                 mCarUserManager, /* addNewUserListener= */ this).execute(
                 getContext().getString(R.string.user_new_user_name));
@@ -109,8 +129,9 @@ public class UsersListFragment extends SettingsFragment implements
     @Override
     public void onAttach(Context context) {
         super.onAttach(context);
-        mCar = Car.createCar(context);
-        mCarUserManager = (CarUserManager) mCar.getCarManager(Car.CAR_USER_SERVICE);
+        mCarConnectionBroker = CarConnectionBroker.getInstance(context);
+        mCarConnectionBroker.registerManagerListener(Car.CAR_USER_SERVICE,
+                mCarUserManagerListener);
         mUserManager = UserManager.get(getContext());
     }
 
@@ -164,9 +185,13 @@ public class UsersListFragment extends SettingsFragment implements
         if (mAddNewUserTask != null) {
             mAddNewUserTask.cancel(/* mayInterruptIfRunning= */ false);
         }
-        if (mCar != null) {
-            mCar.disconnect();
-        }
+    }
+
+    @Override
+    public void onDetach() {
+        super.onDetach();
+        mCarConnectionBroker.unregisterManagerListener(mCarUserManagerListener);
+        mCarUserManager = null;
     }
 
     @Override
@@ -234,5 +259,10 @@ public class UsersListFragment extends SettingsFragment implements
      */
     public static final CarBaseSearchIndexProvider SEARCH_INDEX_DATA_PROVIDER =
             new CarBaseSearchIndexProvider(R.xml.users_list_fragment,
-                    Settings.ACTION_USER_SETTINGS);
+                    Settings.ACTION_USER_SETTINGS) {
+                @Override
+                protected int getInvalidationTriggers() {
+                    return NonIndexableKeysCache.INVALIDATE_ON_USER_CHANGE;
+                }
+            };
 }
@@ -20,6 +20,7 @@ import android.car.drivingstate.CarUxRestrictions;
 import android.car.drivingstate.CarUxRestrictionsManager;
 import android.content.Context;
 import android.net.wifi.WifiManager;
+import android.util.ArrayMap;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
@@ -35,6 +36,7 @@ import com.android.settingslib.wifi.AccessPoint;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Renders a list of {@link AccessPoint} as a list of preferences.
@@ -76,16 +78,14 @@ public class AccessPointListPreferenceController extends
         if (getCarWifiManager() == null) {
             return;
         }
+        getCarWifiManager().setDriving(getUxRestrictions().isRequiresDistractionOptimization());
         mAccessPoints = CarUxRestrictionsHelper.isNoSetup(getUxRestrictions())
                 ? getCarWifiManager().getSavedAccessPoints()
                 : getCarWifiManager().getAllAccessPoints();
         LOG.d("showing accessPoints: " + mAccessPoints.size());
 
         preferenceGroup.setVisible(!mAccessPoints.isEmpty());
-        preferenceGroup.removeAll();
-        for (AccessPoint accessPoint : mAccessPoints) {
-            preferenceGroup.addPreference(createAccessPointPreference(accessPoint));
-        }
+        reconcilePreferences(preferenceGroup, mAccessPoints);
     }
 
     @Override
@@ -96,7 +96,7 @@ public class AccessPointListPreferenceController extends
 
     @Override
     public void onAccessPointsChanged() {
-        refreshUi();
+        scheduleRefreshUi();
     }
 
     @Override
@@ -131,26 +131,77 @@ public class AccessPointListPreferenceController extends
         return true;
     }
 
+    /**
+     * Updates the preferences of the group to match the given access points. Preferences are
+     * matched to access points by {@link AccessPoint#getKey()} and reused, so that scan results
+     * only patch the rows which changed instead of rebinding the whole list. Only preferences
+     * whose position changed are reordered.
+     */
+    private void reconcilePreferences(PreferenceGroup preferenceGroup,
+            List<AccessPoint> accessPoints) {
+        Map<String, AccessPointPreference> reusablePreferences = new ArrayMap<>();
+        List<Preference> stalePreferences = new ArrayList<>();
+        for (int i = 0; i < preferenceGroup.getPreferenceCount(); i++) {
+            Preference preference = preferenceGroup.getPreference(i);
+            String key = preference.getKey();
+            if (preference instanceof AccessPointPreference && key != null
+                    && !reusablePreferences.containsKey(key)) {
+                reusablePreferences.put(key, (AccessPointPreference) preference);
+            } else {
+                stalePreferences.add(preference);
+            }
+        }
+
+        for (int i = 0; i < accessPoints.size(); i++) {
+            AccessPoint accessPoint = accessPoints.get(i);
+            String key = accessPoint.getKey();
+            AccessPointPreference preference =
+                    key != null ? reusablePreferences.remove(key) : null;
+            if (preference == null) {
+                preference = createAccessPointPreference(accessPoint);
+                preference.setOrder(i);
+                preferenceGroup.addPreference(preference);
+            } else {
+                preference.setAccessPoint(accessPoint);
+                updateAccessPointPreference(preference, accessPoint);
+                preference.setOrder(i);
+            }
+        }
+
+        stalePreferences.addAll(reusablePreferences.values());
+        for (Preference preference : stalePreferences) {
+            LOG.d("Removing preference for " + preference.getKey());
+            preferenceGroup.removePreference(preference);
+        }
+    }
+
     private AccessPointPreference createAccessPointPreference(AccessPoint accessPoint) {
         LOG.d("Adding preference for " + WifiUtil.getKey(accessPoint));
         AccessPointPreference accessPointPreference = new AccessPointPreference(getContext(),
                 accessPoint);
         accessPointPreference.setKey(accessPoint.getKey());
-        accessPointPreference.setTitle(accessPoint.getConfigName());
-        accessPointPreference.setDialogTitle(accessPoint.getConfigName());
-        accessPointPreference.setSummary(accessPoint.getSummary());
         accessPointPreference.setOnPreferenceClickListener(this);
         accessPointPreference.setOnPreferenceChangeListener(this);
         accessPointPreference.showButton(false);
         accessPointPreference.setShowChevron(false);
+        updateAccessPointPreference(accessPointPreference, accessPoint);
+        return accessPointPreference;
+    }
 
-        if (accessPoint.isSaved()) {
-            accessPointPreference.setWidgetLayoutResource(R.layout.delete_preference_widget);
-            accessPointPreference.setOnButtonClickListener(
-                    preference -> WifiUtil.forget(getContext(), accessPoint));
-            accessPointPreference.showButton(true);
-        }
+    private void updateAccessPointPreference(AccessPointPreference accessPointPreference,
+            AccessPoint accessPoint) {
+        accessPointPreference.setTitle(accessPoint.getConfigName());
+        accessPointPreference.setDialogTitle(accessPoint.getConfigName());
+        accessPointPreference.setSummary(accessPoint.getSummary());
 
-        return accessPointPreference;
+        if (accessPoint.isSaved() != accessPointPreference.isButtonShown()) {
+            if (accessPoint.isSaved()) {
+                accessPointPreference.setWidgetLayoutResource(R.layout.delete_preference_widget);
+                accessPointPreference.setOnButtonClickListener(
+                        preference -> WifiUtil.forget(getContext(),
+                                ((AccessPointPreference) preference).getAccessPoint()));
+            }
+            accessPointPreference.showButton(accessPoint.isSaved());
+        }
     }
 }
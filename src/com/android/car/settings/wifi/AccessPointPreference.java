@@ -35,7 +35,9 @@ public class AccessPointPreference extends ButtonPasswordEditTextPreference {
     private static int[] sWifiSignalAttributes = {com.android.settingslib.R.attr.wifi_signal};
 
     private final StateListDrawable mWifiSld;
-    private final AccessPoint mAccessPoint;
+    private AccessPoint mAccessPoint;
+    private int mIconLevel;
+    private boolean mIconSecured;
 
     public AccessPointPreference(
             Context context,
@@ -55,6 +57,20 @@ public class AccessPointPreference extends ButtonPasswordEditTextPreference {
         return mAccessPoint;
     }
 
+    /**
+     * Sets the {@link AccessPoint} rendered by this preference, e.g. after a new scan. The icon is
+     * only updated if the signal level or security of the access point changed.
+     */
+    public void setAccessPoint(AccessPoint accessPoint) {
+        mAccessPoint = accessPoint;
+        boolean secured = !WifiUtil.isOpenNetwork(accessPoint.getSecurity());
+        if (mIconLevel != accessPoint.getLevel() || mIconSecured != secured) {
+            setIcon(getAccessPointIcon());
+            // The drawable instance is shared, so setIcon() alone does not trigger a rebind.
+            notifyChanged();
+        }
+    }
+
     @Override
     public void onBindViewHolder(PreferenceViewHolder holder) {
         super.onBindViewHolder(holder);
@@ -83,12 +99,11 @@ public class AccessPointPreference extends ButtonPasswordEditTextPreference {
             LOG.w("wifiSld is null.");
             return null;
         }
-        mWifiSld.setState(
-                WifiUtil.isOpenNetwork(mAccessPoint.getSecurity())
-                        ? STATE_NONE
-                        : STATE_SECURED);
+        mIconSecured = !WifiUtil.isOpenNetwork(mAccessPoint.getSecurity());
+        mIconLevel = mAccessPoint.getLevel();
+        mWifiSld.setState(mIconSecured ? STATE_SECURED : STATE_NONE);
         Drawable drawable = mWifiSld.getCurrent();
-        drawable.setLevel(mAccessPoint.getLevel());
+        drawable.setLevel(mIconLevel);
         return drawable;
     }
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.wifi;
+
+import android.annotation.Nullable;
+import android.net.NetworkInfo;
+
+import com.android.settingslib.wifi.AccessPoint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable view of the access points known to {@link CarWifiManager} at one point in time.
+ *
+ * <p>A snapshot is computed at most once per update of the underlying {@link
+ * com.android.settingslib.wifi.WifiTracker}. Each new snapshot has a larger {@link
+ * #getGeneration()}, so consumers can skip work if the generation did not change since they last
+ * looked.
+ */
+public final class AccessPointSnapshot {
+
+    private static final String[] NO_STRINGS = new String[0];
+    private static final int[] NO_STATES = new int[0];
+
+    private final List<AccessPoint> mReachable;
+    private final List<AccessPoint> mSaved;
+    @Nullable
+    private final AccessPoint mConnected;
+    private final boolean mWifiEnabled;
+    private final long mGeneration;
+    // Access points are updated in place by the tracker, so their visible state is captured here.
+    private final String[] mKeys;
+    private final String[] mSummaries;
+    private final int[] mStates;
+
+    private AccessPointSnapshot(List<AccessPoint> reachable, List<AccessPoint> saved,
+            @Nullable AccessPoint connected, boolean wifiEnabled, long generation, String[] keys,
+            String[] summaries, int[] states) {
+        mReachable = reachable;
+        mSaved = saved;
+        mConnected = connected;
+        mWifiEnabled = wifiEnabled;
+        mGeneration = generation;
+        mKeys = keys;
+        mSummaries = summaries;
+        mStates = states;
+    }
+
+    /**
+     * Creates a snapshot of the given access points in a single pass. Out of reach access points
+     * are ignored, and no access points are included if Wi-Fi is disabled.
+     */
+    static AccessPointSnapshot create(List<AccessPoint> accessPoints, boolean wifiEnabled,
+            long generation) {
+        if (!wifiEnabled || accessPoints.isEmpty()) {
+            return new AccessPointSnapshot(Collections.emptyList(), Collections.emptyList(),
+                    /* connected= */ null, wifiEnabled, generation, NO_STRINGS, NO_STRINGS,
+                    NO_STATES);
+        }
+        List<AccessPoint> reachable = new ArrayList<>(accessPoints.size());
+        List<AccessPoint> saved = new ArrayList<>();
+        AccessPoint connected = null;
+        for (int i = 0, size = accessPoints.size(); i < size; i++) {
+            AccessPoint accessPoint = accessPoints.get(i);
+            if (!accessPoint.isReachable()) {
+                continue;
+            }
+            reachable.add(accessPoint);
+            if (accessPoint.isSaved()) {
+                saved.add(accessPoint);
+            }
+            if (connected == null
+                    && accessPoint.getDetailedState() == NetworkInfo.DetailedState.CONNECTED) {
+                connected = accessPoint;
+            }
+        }
+        String[] keys = new String[reachable.size()];
+        String[] summaries = new String[reachable.size()];
+        int[] states = new int[reachable.size()];
+        for (int i = 0; i < keys.length; i++) {
+            AccessPoint accessPoint = reachable.get(i);
+            keys[i] = accessPoint.getKey();
+            summaries[i] = accessPoint.getSummary();
+            states[i] = getState(accessPoint);
+        }
+        return new AccessPointSnapshot(Collections.unmodifiableList(reachable),
+                Collections.unmodifiableList(saved), connected, wifiEnabled, generation, keys,
+                summaries, states);
+    }
+
+    /**
+     * Returns whether the other snapshot shows the same access points in the same order, with the
+     * same summary, signal level, security, saved and connection state.
+     */
+    public boolean hasSameContent(AccessPointSnapshot other) {
+        return mWifiEnabled == other.mWifiEnabled
+                && Arrays.equals(mStates, other.mStates)
+                && Arrays.equals(mKeys, other.mKeys)
+                && Arrays.equals(mSummaries, other.mSummaries);
+    }
+
+    /** Returns all reachable access points. The list is unmodifiable. */
+    public List<AccessPoint> getReachableAccessPoints() {
+        return mReachable;
+    }
+
+    /** Returns the reachable access points which are saved. The list is unmodifiable. */
+    public List<AccessPoint> getSavedAccessPoints() {
+        return mSaved;
+    }
+
+    /** Returns the connected access point, or {@code null} if there is none. */
+    @Nullable
+    public AccessPoint getConnectedAccessPoint() {
+        return mConnected;
+    }
+
+    /** Returns whether Wi-Fi was enabled when the snapshot was taken. */
+    public boolean isWifiEnabled() {
+        return mWifiEnabled;
+    }
+
+    /** Returns the generation of the snapshot, which increases with every new snapshot. */
+    public long getGeneration() {
+        return mGeneration;
+    }
+
+    /** Packs the visible state of an access point into one int, 8 bits per field. */
+    private static int getState(AccessPoint accessPoint) {
+        NetworkInfo.DetailedState detailedState = accessPoint.getDetailedState();
+        // Levels start at -1 for unreachable access points.
+        int state = (accessPoint.getLevel() + 1) & 0xFF;
+        state |= (accessPoint.getSecurity() & 0xFF) << 8;
+        state |= (detailedState != null ? detailedState.ordinal() + 1 : 0) << 16;
+        state |= (accessPoint.isSaved() ? 1 : 0) << 24;
+        return state;
+    }
+}
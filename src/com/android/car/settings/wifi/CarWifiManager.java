@@ -16,12 +16,15 @@
 package com.android.car.settings.wifi;
 
 import android.annotation.Nullable;
+import android.content.BroadcastReceiver;
 import android.content.Context;
-import android.net.NetworkInfo;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.net.wifi.SoftApConfiguration;
 import android.net.wifi.WifiManager;
 
 import androidx.annotation.UiThread;
+import androidx.annotation.VisibleForTesting;
 
 import com.android.settingslib.wifi.AccessPoint;
 import com.android.settingslib.wifi.WifiTracker;
@@ -31,15 +34,55 @@ import java.util.List;
 
 /**
  * Manages Wifi configuration: e.g. monitors wifi states, change wifi setting etc.
+ *
+ * <p>Screens and tiles should share the process-wide instance returned by {@link
+ * #getInstance(Context)}, so that a single {@link WifiTracker} scans and handles broadcasts for
+ * all of them. Calls to {@link #start()} and {@link #stop()} are reference counted: tracking starts
+ * with the first started user and stops with the last one.
  */
 public class CarWifiManager implements WifiTracker.WifiListener {
+    private static CarWifiManager sInstance;
+
     private final Context mContext;
     private final List<Listener> mListeners = new ArrayList<>();
     private boolean mStarted;
+    private int mStartCount;
+    private boolean mShared;
 
     private WifiTracker mWifiTracker;
     private WifiManager mWifiManager;
 
+    private final WifiScanScheduler mScanScheduler;
+    /**
+     * Whether a scan completed and its results are yet to be reported by the tracker, which
+     * updates the access points after the scan results broadcast.
+     */
+    private boolean mScanResultsPending;
+    private final BroadcastReceiver mScanResultsReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (!mStarted) {
+                return;
+            }
+            if (intent.getBooleanExtra(WifiManager.EXTRA_RESULTS_UPDATED, false)) {
+                mScanResultsPending = true;
+            } else {
+                // The scan failed, so the access points won't change.
+                mScanScheduler.onScanResults(/* changed= */ false);
+            }
+        }
+    };
+
+    /**
+     * Wi-Fi state reported by the tracker while started, so that getters do not query the
+     * {@link WifiManager} each time.
+     */
+    private int mWifiState = WifiManager.WIFI_STATE_UNKNOWN;
+
+    @Nullable
+    private AccessPointSnapshot mSnapshot;
+    private long mSnapshotGeneration;
+
     public interface Listener {
         /**
          * Something about wifi setting changed.
@@ -62,10 +105,32 @@ public class CarWifiManager implements WifiTracker.WifiListener {
         void onWifiStateChanged(int state);
     }
 
+    /**
+     * Returns the process-wide instance shared by all Wi-Fi screens and tiles. Users of the shared
+     * instance must balance each {@link #start()} with a {@link #stop()}.
+     */
+    @UiThread
+    public static CarWifiManager getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new CarWifiManager(context.getApplicationContext());
+            sInstance.mShared = true;
+        }
+        return sInstance;
+    }
+
     public CarWifiManager(Context context) {
         mContext = context;
         mWifiManager = mContext.getSystemService(WifiManager.class);
         mWifiTracker = new WifiTracker(context, this, true, true);
+        mScanScheduler = new WifiScanScheduler(mWifiManager::startScan);
+    }
+
+    @VisibleForTesting
+    CarWifiManager(Context context, WifiTracker wifiTracker) {
+        mContext = context;
+        mWifiManager = mContext.getSystemService(WifiManager.class);
+        mWifiTracker = wifiTracker;
+        mScanScheduler = new WifiScanScheduler(mWifiManager::startScan);
     }
 
     /**
@@ -83,85 +148,111 @@ public class CarWifiManager implements WifiTracker.WifiListener {
     }
 
     /**
-     * Starts {@link CarWifiManager}.
+     * Starts {@link CarWifiManager}. Tracking only starts on the first call without a matching
+     * {@link #stop()}.
      * This should be called only from main thread.
      */
     @UiThread
     public void start() {
-        if (!mStarted) {
+        if (mStartCount++ == 0) {
             mStarted = true;
+            // Updated by the tracker from the sticky state broadcast afterwards.
+            mWifiState = mWifiManager.getWifiState();
             mWifiTracker.onStart();
+            // Scans are issued by the scan scheduler rather than at the tracker's fixed cadence.
+            mWifiTracker.pauseScanning();
+            mContext.registerReceiver(mScanResultsReceiver,
+                    new IntentFilter(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION));
+            mScanScheduler.start();
         }
     }
 
     /**
-     * Stops {@link CarWifiManager}.
+     * Stops {@link CarWifiManager}. Tracking only stops once every {@link #start()} has been
+     * matched by a call to this method.
      * This should be called only from main thread.
      */
     @UiThread
     public void stop() {
-        if (mStarted) {
+        if (mStartCount > 0 && --mStartCount == 0) {
             mStarted = false;
+            mScanResultsPending = false;
+            mScanScheduler.stop();
+            mContext.unregisterReceiver(mScanResultsReceiver);
             mWifiTracker.onStop();
         }
     }
 
     /**
-     * Destroys {@link CarWifiManager}
+     * Destroys {@link CarWifiManager}. The shared instance lives as long as the process, so this
+     * has no effect on it.
      * This should only be called from main thread.
      */
     @UiThread
     public void destroy() {
-        mWifiTracker.onDestroy();
+        if (!mShared) {
+            mWifiTracker.onDestroy();
+        }
+    }
+
+    /** Returns whether the underlying {@link WifiTracker} is started. */
+    @VisibleForTesting
+    boolean isStarted() {
+        return mStarted;
     }
 
     /**
-     * Returns a list of all reachable access points.
+     * Returns the current {@link AccessPointSnapshot}. The snapshot is only recomputed after the
+     * access points or the Wi-Fi state changed, so repeated calls are cheap.
      */
-    public List<AccessPoint> getAllAccessPoints() {
-        return getAccessPoints(false);
+    @UiThread
+    public AccessPointSnapshot getAccessPointSnapshot() {
+        boolean wifiEnabled = isWifiEnabled();
+        if (mSnapshot == null || mSnapshot.isWifiEnabled() != wifiEnabled) {
+            mSnapshot = AccessPointSnapshot.create(mWifiTracker.getAccessPoints(), wifiEnabled,
+                    ++mSnapshotGeneration);
+        }
+        return mSnapshot;
     }
 
     /**
-     * Returns a list of saved access points.
+     * Sets whether the car is moving. While moving, scans are issued less often once the results
+     * are stable.
      */
-    public List<AccessPoint> getSavedAccessPoints() {
-        return getAccessPoints(true);
+    @UiThread
+    public void setDriving(boolean driving) {
+        mScanScheduler.setDriving(driving);
     }
 
-    private List<AccessPoint> getAccessPoints(boolean saved) {
-        List<AccessPoint> accessPoints = new ArrayList<AccessPoint>();
-        if (mWifiManager.isWifiEnabled()) {
-            for (AccessPoint accessPoint : mWifiTracker.getAccessPoints()) {
-                // ignore out of reach access points.
-                if (shouldIncludeAp(accessPoint, saved)) {
-                    accessPoints.add(accessPoint);
-                }
-            }
-        }
-        return accessPoints;
+    /** Returns the scheduler issuing scans, which also counts scans and skipped renders. */
+    public WifiScanScheduler getScanScheduler() {
+        return mScanScheduler;
+    }
+
+    /**
+     * Returns a list of all reachable access points.
+     */
+    public List<AccessPoint> getAllAccessPoints() {
+        return getAccessPointSnapshot().getReachableAccessPoints();
     }
 
-    private boolean shouldIncludeAp(AccessPoint accessPoint, boolean saved) {
-        return saved ? accessPoint.isReachable() && accessPoint.isSaved()
-                : accessPoint.isReachable();
+    /**
+     * Returns a list of saved access points.
+     */
+    public List<AccessPoint> getSavedAccessPoints() {
+        return getAccessPointSnapshot().getSavedAccessPoints();
     }
 
     @Nullable
     public AccessPoint getConnectedAccessPoint() {
-        for (AccessPoint accessPoint : getAllAccessPoints()) {
-            if (accessPoint.getDetailedState() == NetworkInfo.DetailedState.CONNECTED) {
-                return accessPoint;
-            }
-        }
-        return null;
+        return getAccessPointSnapshot().getConnectedAccessPoint();
     }
 
     /**
      * Returns {@code true} if Wifi is enabled
      */
     public boolean isWifiEnabled() {
-        return mWifiManager.isWifiEnabled();
+        return getWifiState() == WifiManager.WIFI_STATE_ENABLED;
     }
 
     /**
@@ -199,9 +290,12 @@ public class CarWifiManager implements WifiTracker.WifiListener {
         return mWifiManager.is5GHzBandSupported();
     }
 
-    /** Gets the wifi state from {@link WifiManager}. */
+    /**
+     * Gets the wifi state, as last reported by the tracker while started, or from {@link
+     * WifiManager} otherwise.
+     */
     public int getWifiState() {
-        return mWifiManager.getWifiState();
+        return mStarted ? mWifiState : mWifiManager.getWifiState();
     }
 
     /** Sets whether wifi is enabled. */
@@ -224,18 +318,42 @@ public class CarWifiManager implements WifiTracker.WifiListener {
 
     @Override
     public void onWifiStateChanged(int state) {
-        for (Listener listener : mListeners) {
+        mWifiState = state;
+        mSnapshot = null;
+        if (mStarted && state == WifiManager.WIFI_STATE_ENABLED) {
+            // The tracker resumes its own scanning when Wi-Fi is enabled.
+            mWifiTracker.pauseScanning();
+            mScanScheduler.boost();
+        }
+        // Listeners of the shared instance may unregister while being notified.
+        for (Listener listener : new ArrayList<>(mListeners)) {
             listener.onWifiStateChanged(state);
         }
     }
 
     @Override
     public void onConnectedChanged() {
+        mSnapshot = null;
     }
 
     @Override
     public void onAccessPointsChanged() {
-        for (Listener listener : mListeners) {
+        AccessPointSnapshot previous = mSnapshot;
+        mSnapshot = null;
+        boolean changed = previous == null
+                || !getAccessPointSnapshot().hasSameContent(previous);
+        // The access points are also updated on signal strength, connection and configuration
+        // changes, which are not scan completions.
+        if (mStarted && mScanResultsPending) {
+            mScanResultsPending = false;
+            mScanScheduler.onScanResults(changed);
+        }
+        if (!changed) {
+            // Keep the previous generation so that consumers can skip work as well.
+            mSnapshot = previous;
+            return;
+        }
+        for (Listener listener : new ArrayList<>(mListeners)) {
             listener.onAccessPointsChanged();
         }
     }
@@ -46,7 +46,7 @@ public class WifiEntryPreferenceController extends
 
     @Override
     protected void onCreateInternal() {
-        mCarWifiManager = new CarWifiManager(getContext());
+        mCarWifiManager = CarWifiManager.getInstance(getContext());
         getPreference().setOnSecondaryActionClickListener(isChecked -> {
             if (isChecked != mCarWifiManager.isWifiEnabled()) {
                 mCarWifiManager.setWifiEnabled(isChecked);
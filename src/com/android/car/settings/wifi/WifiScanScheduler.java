@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.wifi;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.UiThread;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.car.settings.common.Logger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules Wi-Fi scans for {@link CarWifiManager} instead of scanning at the fixed cadence of
+ * {@link com.android.settingslib.wifi.WifiTracker}.
+ *
+ * <p>Scans are issued every {@link #MIN_INTERVAL_MS} after {@link #boost()}, i.e. when a screen
+ * starts or Wi-Fi is turned on, which is faster than the tracker's cadence. Every completed scan
+ * which does not change the visible access points doubles the interval, up to {@link
+ * #MAX_INTERVAL_PARKED_MS}, or {@link #MAX_INTERVAL_DRIVING_MS} while the car is moving and the
+ * list cannot be interacted with. A completed scan which changes the access points resets the
+ * interval.
+ *
+ * <p>The next scan is due one interval after the last issued scan. A pending scan is only ever
+ * brought forward, so that frequent results cannot postpone scanning.
+ */
+public class WifiScanScheduler {
+    private static final Logger LOG = new Logger(WifiScanScheduler.class);
+
+    @VisibleForTesting
+    static final long MIN_INTERVAL_MS = TimeUnit.SECONDS.toMillis(5);
+    @VisibleForTesting
+    static final long MAX_INTERVAL_PARKED_MS = TimeUnit.SECONDS.toMillis(60);
+    @VisibleForTesting
+    static final long MAX_INTERVAL_DRIVING_MS = TimeUnit.SECONDS.toMillis(120);
+
+    private final Runnable mScanner;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mScanRunnable = this::scan;
+
+    private boolean mStarted;
+    private boolean mDriving;
+    private long mIntervalMs = MIN_INTERVAL_MS;
+    /** Uptime of the last issued scan. */
+    private long mLastScanUptimeMs;
+    /** Uptime at which the pending scan runs, or {@code 0} if no scan is pending. */
+    private long mNextScanUptimeMs;
+
+    private int mScansIssued;
+    private int mResultsDelivered;
+    private int mRendersSkipped;
+
+    /**
+     * @param scanner starts a single scan.
+     */
+    public WifiScanScheduler(Runnable scanner) {
+        mScanner = scanner;
+    }
+
+    /** Starts scanning right away. */
+    @UiThread
+    public void start() {
+        if (mStarted) {
+            return;
+        }
+        mStarted = true;
+        boost();
+    }
+
+    /** Stops scanning. */
+    @UiThread
+    public void stop() {
+        if (!mStarted) {
+            return;
+        }
+        mStarted = false;
+        mHandler.removeCallbacks(mScanRunnable);
+        mNextScanUptimeMs = 0;
+        LOG.d("scans issued: " + mScansIssued + ", results delivered: " + mResultsDelivered
+                + ", renders skipped: " + mRendersSkipped);
+    }
+
+    /** Scans right away and goes back to the shortest interval, e.g. after Wi-Fi is enabled. */
+    @UiThread
+    public void boost() {
+        mIntervalMs = MIN_INTERVAL_MS;
+        if (mStarted) {
+            scheduleScanAt(SystemClock.uptimeMillis());
+        }
+    }
+
+    /** Sets whether the car is moving, which allows longer intervals between scans. */
+    @UiThread
+    public void setDriving(boolean driving) {
+        if (mDriving == driving) {
+            return;
+        }
+        mDriving = driving;
+        if (mIntervalMs > getMaxIntervalMs()) {
+            mIntervalMs = getMaxIntervalMs();
+            scheduleNextScan();
+        }
+    }
+
+    /**
+     * Notifies that a scan completed. Only actual scan completions should be reported, not every
+     * update of the access points, e.g. on signal strength or connection changes.
+     *
+     * @param changed whether the results changed the visible access points. If not, the results
+     *                are not rendered.
+     */
+    @UiThread
+    public void onScanResults(boolean changed) {
+        mResultsDelivered++;
+        if (changed) {
+            mIntervalMs = MIN_INTERVAL_MS;
+        } else {
+            mRendersSkipped++;
+            mIntervalMs = Math.min(mIntervalMs * 2, getMaxIntervalMs());
+        }
+        scheduleNextScan();
+    }
+
+    /** Returns the number of scans issued by this scheduler. */
+    public int getScansIssued() {
+        return mScansIssued;
+    }
+
+    /** Returns the number of scan results delivered while started. */
+    public int getResultsDelivered() {
+        return mResultsDelivered;
+    }
+
+    /** Returns the number of scan results which were not rendered since nothing changed. */
+    public int getRendersSkipped() {
+        return mRendersSkipped;
+    }
+
+    @VisibleForTesting
+    long getIntervalMs() {
+        return mIntervalMs;
+    }
+
+    private long getMaxIntervalMs() {
+        return mDriving ? MAX_INTERVAL_DRIVING_MS : MAX_INTERVAL_PARKED_MS;
+    }
+
+    /** Schedules the next scan one interval after the last one, unless it is already due. */
+    private void scheduleNextScan() {
+        if (!mStarted) {
+            return;
+        }
+        scheduleScanAt(Math.max(mLastScanUptimeMs + mIntervalMs, SystemClock.uptimeMillis()));
+    }
+
+    private void scheduleScanAt(long uptimeMs) {
+        if (mNextScanUptimeMs != 0 && mNextScanUptimeMs <= uptimeMs) {
+            // Never push back a pending scan.
+            return;
+        }
+        mHandler.removeCallbacks(mScanRunnable);
+        mNextScanUptimeMs = uptimeMs;
+        mHandler.postAtTime(mScanRunnable, uptimeMs);
+    }
+
+    private void scan() {
+        mNextScanUptimeMs = 0;
+        if (!mStarted) {
+            return;
+        }
+        mScansIssued++;
+        mLastScanUptimeMs = SystemClock.uptimeMillis();
+        mScanner.run();
+        // Scan again even if the scan does not complete, e.g. because it failed.
+        scheduleNextScan();
+    }
+}
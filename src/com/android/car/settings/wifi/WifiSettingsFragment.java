@@ -26,6 +26,7 @@ import androidx.annotation.XmlRes;
 import com.android.car.settings.R;
 import com.android.car.settings.common.SettingsFragment;
 import com.android.car.settings.search.CarBaseSearchIndexProvider;
+import com.android.car.settings.search.NonIndexableKeysCache;
 import com.android.car.ui.toolbar.MenuItem;
 import com.android.car.ui.toolbar.ProgressBarController;
 import com.android.settingslib.search.SearchIndexable;
@@ -64,7 +65,7 @@ public class WifiSettingsFragment extends SettingsFragment
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        mCarWifiManager = new CarWifiManager(getContext());
+        mCarWifiManager = CarWifiManager.getInstance(getContext());
 
         mWifiSwitch = new MenuItem.Builder(getContext())
                 .setCheckable()
@@ -150,5 +151,12 @@ public class WifiSettingsFragment extends SettingsFragment
      * Data provider for Settings Search.
      */
     public static final CarBaseSearchIndexProvider SEARCH_INDEX_DATA_PROVIDER =
-            new CarBaseSearchIndexProvider(R.xml.wifi_list_fragment, Settings.ACTION_WIFI_SETTINGS);
+            new CarBaseSearchIndexProvider(R.xml.wifi_list_fragment,
+                    Settings.ACTION_WIFI_SETTINGS) {
+                @Override
+                protected int getInvalidationTriggers() {
+                    // Wi-Fi support is fixed, only the user restrictions may change.
+                    return NonIndexableKeysCache.INVALIDATE_ON_USER_CHANGE;
+                }
+            };
 }
@@ -55,7 +55,7 @@ public abstract class WifiTetherBasePreferenceController<V extends Preference> e
     @Override
     @CallSuper
     protected void onCreateInternal() {
-        mCarWifiManager = new CarWifiManager(getContext());
+        mCarWifiManager = CarWifiManager.getInstance(getContext());
     }
 
     @Override
@@ -99,7 +99,7 @@ public class WifiTetherFragment extends SettingsFragment {
     public void onAttach(Context context) {
         super.onAttach(context);
 
-        mCarWifiManager = new CarWifiManager(context);
+        mCarWifiManager = CarWifiManager.getInstance(context);
         mTetheringManager = getContext().getSystemService(TetheringManager.class);
     }
 
@@ -23,6 +23,7 @@ import androidx.annotation.XmlRes;
 import com.android.car.settings.R;
 import com.android.car.settings.common.SettingsFragment;
 import com.android.car.settings.search.CarBaseSearchIndexProvider;
+import com.android.car.settings.search.NonIndexableKeysCache;
 import com.android.settingslib.search.SearchIndexable;
 
 /** Screen to control wifi specific configurations. */
@@ -40,5 +41,10 @@ public class WifiPreferencesFragment extends SettingsFragment {
      */
     public static final CarBaseSearchIndexProvider SEARCH_INDEX_DATA_PROVIDER =
             new CarBaseSearchIndexProvider(R.xml.wifi_preferences_fragment,
-                    Settings.ACTION_WIFI_IP_SETTINGS);
+                    Settings.ACTION_WIFI_IP_SETTINGS) {
+                @Override
+                protected int getInvalidationTriggers() {
+                    return NonIndexableKeysCache.INVALIDATE_ON_USER_CHANGE;
+                }
+            };
 }
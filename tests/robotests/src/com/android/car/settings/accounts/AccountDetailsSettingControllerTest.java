@@ -18,7 +18,7 @@ package com.android.car.settings.accounts;
 
 import static com.google.common.truth.Truth.assertThat;
 
-import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.when;
 import static org.robolectric.RuntimeEnvironment.application;
 import static org.testng.Assert.assertThrows;
@@ -38,6 +38,7 @@ import com.android.car.settings.common.PreferenceControllerTestHelper;
 import com.android.car.settings.testutils.ShadowAccountManager;
 import com.android.car.settings.testutils.ShadowApplicationPackageManager;
 import com.android.car.settings.testutils.ShadowContentResolver;
+import com.android.car.settings.testutils.ShadowThreadUtils;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -57,7 +58,7 @@ import java.util.List;
  */
 @RunWith(RobolectricTestRunner.class)
 @Config(shadows = {ShadowAccountManager.class, ShadowContentResolver.class,
-        ShadowApplicationPackageManager.class})
+        ShadowApplicationPackageManager.class, ShadowThreadUtils.class})
 public class AccountDetailsSettingControllerTest {
 
     private static final String ACCOUNT_NAME = "account_name";
@@ -186,7 +187,7 @@ public class AccountDetailsSettingControllerTest {
     }
 
     private void setupMockSettingLoaderAndRefreshUI() {
-        when(mExtraSettingsLoader.loadPreferences(any())).thenReturn(mPreferenceBundleMap);
+        when(mExtraSettingsLoader.loadPreferences(anyList())).thenReturn(mPreferenceBundleMap);
 
         mAccountDetailsSettingController.setExtraSettingsLoader(mExtraSettingsLoader);
         mAccountDetailsSettingController.refreshUi();
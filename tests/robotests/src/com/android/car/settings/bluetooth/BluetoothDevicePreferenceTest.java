@@ -25,6 +25,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.bluetooth.BluetoothClass;
+import android.bluetooth.BluetoothDevice;
 import android.content.Context;
 import android.os.SystemProperties;
 
@@ -178,6 +179,48 @@ public class BluetoothDevicePreferenceTest {
         assertThat(mPreference.isEnabled()).isFalse();
     }
 
+    @Test
+    public void onDeviceAttributesChanged_sortKeyUnchanged_doesNotNotifyHierarchyChanged() {
+        when(mCachedDevice.getName()).thenReturn("name");
+        when(mCachedDevice.getCarConnectionSummary()).thenReturn("summary");
+        TestBluetoothDevicePreference preference = new TestBluetoothDevicePreference(mContext,
+                mCachedDevice);
+        CachedBluetoothDevice.Callback callback = attach(preference);
+
+        when(mCachedDevice.getCarConnectionSummary()).thenReturn("updatedSummary");
+        callback.onDeviceAttributesChanged();
+
+        assertThat(preference.getSummary()).isEqualTo("updatedSummary");
+        assertThat(preference.mHierarchyChangedCount).isEqualTo(0);
+    }
+
+    @Test
+    public void onDeviceAttributesChanged_bondStateChanged_notifiesHierarchyChanged() {
+        when(mCachedDevice.getName()).thenReturn("name");
+        when(mCachedDevice.getBondState()).thenReturn(BluetoothDevice.BOND_NONE);
+        TestBluetoothDevicePreference preference = new TestBluetoothDevicePreference(mContext,
+                mCachedDevice);
+        CachedBluetoothDevice.Callback callback = attach(preference);
+
+        when(mCachedDevice.getBondState()).thenReturn(BluetoothDevice.BOND_BONDED);
+        callback.onDeviceAttributesChanged();
+
+        assertThat(preference.mHierarchyChangedCount).isEqualTo(1);
+    }
+
+    @Test
+    public void onDeviceAttributesChanged_nameChanged_notifiesHierarchyChanged() {
+        when(mCachedDevice.getName()).thenReturn("name");
+        TestBluetoothDevicePreference preference = new TestBluetoothDevicePreference(mContext,
+                mCachedDevice);
+        CachedBluetoothDevice.Callback callback = attach(preference);
+
+        when(mCachedDevice.getName()).thenReturn("updatedName");
+        callback.onDeviceAttributesChanged();
+
+        assertThat(preference.mHierarchyChangedCount).isEqualTo(1);
+    }
+
     @Test
     public void equals_devicesEqual_returnsTrue() {
         BluetoothDevicePreference otherPreference = new BluetoothDevicePreference(mContext,
@@ -195,15 +238,60 @@ public class BluetoothDevicePreferenceTest {
     }
 
     @Test
-    public void compareTo_sameType_usesDeviceCompareTo() {
-        CachedBluetoothDevice otherDevice = mock(CachedBluetoothDevice.class);
-        BluetoothDevicePreference otherPreference = new BluetoothDevicePreference(mContext,
-                otherDevice);
-        when(mCachedDevice.compareTo(otherDevice)).thenReturn(1);
-        when(otherDevice.compareTo(mCachedDevice)).thenReturn(-1);
+    public void compareTo_sameType_connectedFirst() {
+        when(mCachedDevice.isConnected()).thenReturn(true);
+        when(mCachedDevice.getName()).thenReturn("b");
+        BluetoothDevicePreference otherPreference = createPreference(/* connected= */ false,
+                BluetoothDevice.BOND_BONDED, "a");
+
+        assertThat(mPreference.compareTo(otherPreference)).isLessThan(0);
+        assertThat(otherPreference.compareTo(mPreference)).isGreaterThan(0);
+    }
+
+    @Test
+    public void compareTo_sameType_bondedBeforeNotBonded() {
+        when(mCachedDevice.getBondState()).thenReturn(BluetoothDevice.BOND_BONDED);
+        when(mCachedDevice.getName()).thenReturn("b");
+        BluetoothDevicePreference otherPreference = createPreference(/* connected= */ false,
+                BluetoothDevice.BOND_NONE, "a");
+
+        assertThat(mPreference.compareTo(otherPreference)).isLessThan(0);
+        assertThat(otherPreference.compareTo(mPreference)).isGreaterThan(0);
+    }
+
+    @Test
+    public void compareTo_sameType_sameStates_sortsByName() {
+        when(mCachedDevice.getName()).thenReturn("b");
+        BluetoothDevicePreference otherPreference = createPreference(/* connected= */ false,
+                BluetoothDevice.BOND_NONE, "a");
+
+        assertThat(mPreference.compareTo(otherPreference)).isGreaterThan(0);
+        assertThat(otherPreference.compareTo(mPreference)).isLessThan(0);
+    }
+
+    @Test
+    public void compareTo_sameType_doesNotUseDeviceCompareTo() {
+        // The device order also depends on the signal strength, which changes while scanning.
+        BluetoothDevicePreference otherPreference = createPreference(/* connected= */ false,
+                BluetoothDevice.BOND_NONE, /* name= */ null);
+
+        mPreference.compareTo(otherPreference);
+
+        verify(mCachedDevice, never()).compareTo(any());
+        verify(otherPreference.getCachedDevice(), never()).compareTo(any());
+    }
+
+    @Test
+    public void compareTo_sortKeyChangedWithoutRefresh_usesCapturedSortKey() {
+        when(mCachedDevice.getName()).thenReturn("b");
+        BluetoothDevicePreference otherPreference = createPreference(/* connected= */ false,
+                BluetoothDevice.BOND_NONE, "a");
+        assertThat(mPreference.compareTo(otherPreference)).isGreaterThan(0);
+
+        // The group is re-sorted with the new key once the device callback refreshes it.
+        when(mCachedDevice.isConnected()).thenReturn(true);
 
-        assertThat(mPreference.compareTo(otherPreference)).isEqualTo(1);
-        assertThat(otherPreference.compareTo(mPreference)).isEqualTo(-1);
+        assertThat(mPreference.compareTo(otherPreference)).isGreaterThan(0);
     }
 
     @Test
@@ -215,4 +303,37 @@ public class BluetoothDevicePreferenceTest {
         assertThat(mPreference.compareTo(otherPreference)).isEqualTo(-1);
         verify(mCachedDevice, never()).compareTo(any());
     }
+
+    private BluetoothDevicePreference createPreference(boolean connected, int bondState,
+            String name) {
+        CachedBluetoothDevice device = mock(CachedBluetoothDevice.class);
+        when(device.isConnected()).thenReturn(connected);
+        when(device.getBondState()).thenReturn(bondState);
+        when(device.getName()).thenReturn(name);
+        return new BluetoothDevicePreference(mContext, device);
+    }
+
+    private CachedBluetoothDevice.Callback attach(BluetoothDevicePreference preference) {
+        ArgumentCaptor<CachedBluetoothDevice.Callback> callbackCaptor = ArgumentCaptor.forClass(
+                CachedBluetoothDevice.Callback.class);
+        preference.onAttached();
+        verify(mCachedDevice).registerCallback(callbackCaptor.capture());
+        return callbackCaptor.getValue();
+    }
+
+    /** Counts hierarchy change notifications, which re-sort the containing group. */
+    private static class TestBluetoothDevicePreference extends BluetoothDevicePreference {
+
+        private int mHierarchyChangedCount;
+
+        TestBluetoothDevicePreference(Context context, CachedBluetoothDevice cachedDevice) {
+            super(context, cachedDevice);
+        }
+
+        @Override
+        protected void notifyHierarchyChanged() {
+            super.notifyHierarchyChanged();
+            mHierarchyChangedCount++;
+        }
+    }
 }
@@ -196,6 +196,36 @@ public class BluetoothDevicesGroupPreferenceControllerTest {
         assertThat(mPreferenceGroup.isVisible()).isTrue();
     }
 
+    @Test
+    public void refreshUi_deviceStillMatches_keepsPreference() {
+        when(mCachedDeviceManager.getCachedDevicesCopy()).thenReturn(
+                Collections.singletonList(mCachedDevice1));
+        when(mFilter.matches(mDevice1)).thenReturn(true);
+        mController.refreshUi();
+        BluetoothDevicePreference devicePreference = mController.getPreferenceMap().get(
+                mCachedDevice1);
+
+        mController.refreshUi();
+
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(1);
+        assertThat(mPreferenceGroup.getPreference(0)).isSameAs(devicePreference);
+    }
+
+    @Test
+    public void refreshUi_deviceNoLongerCached_removesFromGroupAndPreferenceMap() {
+        when(mCachedDeviceManager.getCachedDevicesCopy()).thenReturn(
+                Arrays.asList(mCachedDevice1, mCachedDevice2));
+        when(mFilter.matches(any(BluetoothDevice.class))).thenReturn(true);
+        mController.refreshUi();
+
+        when(mCachedDeviceManager.getCachedDevicesCopy()).thenReturn(
+                Collections.singletonList(mCachedDevice2));
+        mController.refreshUi();
+
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(1);
+        assertThat(mController.getPreferenceMap().keySet()).containsExactly(mCachedDevice2);
+    }
+
     @Test
     public void onBluetoothStateChanged_turningOff_clearsPreferences() {
         when(mCachedDeviceManager.getCachedDevicesCopy()).thenReturn(
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.bluetooth;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.bluetooth.BluetoothDevice;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.settingslib.bluetooth.CachedBluetoothDevice;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Unit test for {@link BluetoothDiscoverySession}. */
+@RunWith(RobolectricTestRunner.class)
+public class BluetoothDiscoverySessionTest {
+
+    private static final long DURATION_MS = 60000;
+    private static final int MAX_DEVICES = 2;
+    private static final long MAX_AGE_MS = 20000;
+
+    private BluetoothDiscoverySession mSession;
+
+    @Before
+    public void setUp() {
+        mSession = new BluetoothDiscoverySession(ApplicationProvider.getApplicationContext(),
+                DURATION_MS, MAX_DEVICES, MAX_AGE_MS);
+    }
+
+    @Test
+    public void isActive_notStarted_returnsFalse() {
+        assertThat(mSession.isActive()).isFalse();
+    }
+
+    @Test
+    public void isActive_started_returnsTrue() {
+        mSession.start();
+
+        assertThat(mSession.isActive()).isTrue();
+    }
+
+    @Test
+    public void isActive_durationElapsed_returnsFalse() {
+        mSession.start();
+
+        advanceTime(DURATION_MS);
+
+        assertThat(mSession.isActive()).isFalse();
+    }
+
+    @Test
+    public void start_afterStop_startsNewSession() {
+        mSession.start();
+        mSession.onCycleFinished();
+        advanceTime(DURATION_MS);
+        mSession.stop();
+
+        mSession.start();
+
+        assertThat(mSession.isActive()).isTrue();
+        assertThat(mSession.getCycles()).isEqualTo(0);
+    }
+
+    @Test
+    public void selectDevices_moreUnbondedThanMax_keepsStrongestSignals() {
+        mSession.start();
+        CachedBluetoothDevice weak = createDevice(BluetoothDevice.BOND_NONE, /* rssi= */ -90);
+        CachedBluetoothDevice strong = createDevice(BluetoothDevice.BOND_NONE, /* rssi= */ -40);
+        CachedBluetoothDevice medium = createDevice(BluetoothDevice.BOND_NONE, /* rssi= */ -60);
+        List<CachedBluetoothDevice> devices = new ArrayList<>(Arrays.asList(weak, strong, medium));
+
+        mSession.selectDevices(devices);
+
+        assertThat(devices).containsExactly(strong, medium);
+        assertThat(mSession.getDevicesCapped()).isEqualTo(1);
+    }
+
+    @Test
+    public void selectDevices_deviceNotFound_ranksLast() {
+        mSession.start();
+        CachedBluetoothDevice unknown = createDevice(BluetoothDevice.BOND_NONE);
+        CachedBluetoothDevice found1 = createDevice(BluetoothDevice.BOND_NONE, /* rssi= */ -90);
+        CachedBluetoothDevice found2 = createDevice(BluetoothDevice.BOND_NONE, /* rssi= */ -80);
+        List<CachedBluetoothDevice> devices = new ArrayList<>(
+                Arrays.asList(unknown, found1, found2));
+
+        mSession.selectDevices(devices);
+
+        assertThat(devices).containsExactly(found1, found2);
+    }
+
+    @Test
+    public void selectDevices_bondedDevices_alwaysKept() {
+        mSession.start();
+        CachedBluetoothDevice bonded = createDevice(BluetoothDevice.BOND_BONDED);
+        CachedBluetoothDevice bonding = createDevice(BluetoothDevice.BOND_BONDING);
+        CachedBluetoothDevice unbonded1 = createDevice(BluetoothDevice.BOND_NONE, /* rssi= */ -50);
+        CachedBluetoothDevice unbonded2 = createDevice(BluetoothDevice.BOND_NONE, /* rssi= */ -60);
+        List<CachedBluetoothDevice> devices = new ArrayList<>(
+                Arrays.asList(bonded, unbonded1, bonding, unbonded2));
+
+        mSession.selectDevices(devices);
+
+        assertThat(devices).containsExactly(bonded, bonding, unbonded1, unbonded2);
+    }
+
+    @Test
+    public void selectDevices_deviceNotFoundForMaxAge_removed() {
+        mSession.start();
+        CachedBluetoothDevice stale = createDevice(BluetoothDevice.BOND_NONE, /* rssi= */ -40);
+        advanceTime(MAX_AGE_MS + 1);
+        CachedBluetoothDevice fresh = createDevice(BluetoothDevice.BOND_NONE, /* rssi= */ -90);
+        List<CachedBluetoothDevice> devices = new ArrayList<>(Arrays.asList(stale, fresh));
+
+        mSession.selectDevices(devices);
+
+        assertThat(devices).containsExactly(fresh);
+        assertThat(mSession.getDevicesAged()).isEqualTo(1);
+    }
+
+    @Test
+    public void selectDevices_sessionStopped_devicesDoNotAge() {
+        mSession.start();
+        CachedBluetoothDevice device = createDevice(BluetoothDevice.BOND_NONE, /* rssi= */ -40);
+        mSession.stop();
+        advanceTime(MAX_AGE_MS + 1);
+        List<CachedBluetoothDevice> devices = new ArrayList<>(Arrays.asList(device));
+
+        mSession.selectDevices(devices);
+
+        assertThat(devices).containsExactly(device);
+    }
+
+    @Test
+    public void onDeviceFound_countsDistinctDevices() {
+        mSession.start();
+        CachedBluetoothDevice device = createDevice(BluetoothDevice.BOND_NONE, /* rssi= */ -40);
+        mSession.onDeviceFound(device.getDevice(), (short) -50);
+
+        assertThat(mSession.getDevicesSeen()).isEqualTo(1);
+    }
+
+    private CachedBluetoothDevice createDevice(int bondState, int rssi) {
+        CachedBluetoothDevice cachedDevice = createDevice(bondState);
+        mSession.onDeviceFound(cachedDevice.getDevice(), (short) rssi);
+        return cachedDevice;
+    }
+
+    private static CachedBluetoothDevice createDevice(int bondState) {
+        CachedBluetoothDevice cachedDevice = mock(CachedBluetoothDevice.class);
+        when(cachedDevice.getBondState()).thenReturn(bondState);
+        when(cachedDevice.getDevice()).thenReturn(mock(BluetoothDevice.class));
+        return cachedDevice;
+    }
+
+    private static void advanceTime(long millis) {
+        ShadowLooper.idleMainLooper(millis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -35,6 +35,7 @@ import android.os.UserManager;
 import androidx.lifecycle.Lifecycle;
 import androidx.preference.PreferenceGroup;
 
+import com.android.car.settings.R;
 import com.android.car.settings.common.FragmentController;
 import com.android.car.settings.common.LogicalPreferenceGroup;
 import com.android.car.settings.common.PreferenceControllerTestHelper;
@@ -56,10 +57,12 @@ import org.robolectric.RuntimeEnvironment;
 import org.robolectric.Shadows;
 import org.robolectric.annotation.Config;
 import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowLooper;
 import org.robolectric.shadows.ShadowUserManager;
 import org.robolectric.util.ReflectionHelpers;
 
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 /** Unit test for {@link BluetoothScanningDevicesGroupPreferenceController}. */
 @RunWith(RobolectricTestRunner.class)
@@ -139,6 +142,19 @@ public class BluetoothScanningDevicesGroupPreferenceControllerTest {
         assertThat(BluetoothAdapter.getDefaultAdapter().isDiscovering()).isTrue();
     }
 
+    @Test
+    public void onScanningStateChanged_sessionExpired_receiveStopped_doesNotRestartScanning() {
+        mControllerHelper.markState(Lifecycle.State.STARTED);
+        ShadowLooper.idleMainLooper(mContext.getResources().getInteger(
+                R.integer.config_bluetooth_discovery_session_duration_ms), TimeUnit.MILLISECONDS);
+
+        BluetoothAdapter.getDefaultAdapter().cancelDiscovery();
+        mController.onScanningStateChanged(/* started= */ false);
+
+        assertThat(BluetoothAdapter.getDefaultAdapter().isDiscovering()).isFalse();
+        assertThat(mController.getDiscoverySession().getCycles()).isEqualTo(1);
+    }
+
     @Test
     public void onScanningStateChanged_scanningDisabled_receiveStopped_doesNothing() {
         mControllerHelper.markState(Lifecycle.State.STARTED);
@@ -258,6 +274,16 @@ public class BluetoothScanningDevicesGroupPreferenceControllerTest {
         assertThat(BluetoothAdapter.getDefaultAdapter().isDiscovering()).isFalse();
     }
 
+    @Test
+    public void onStop_stopsDiscoverySession() {
+        mControllerHelper.markState(Lifecycle.State.STARTED);
+        assertThat(mController.getDiscoverySession().isActive()).isTrue();
+
+        mControllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_STOP);
+
+        assertThat(mController.getDiscoverySession().isActive()).isFalse();
+    }
+
     @Test
     public void onStop_clearsNonBondedDevices() {
         mControllerHelper.markState(Lifecycle.State.STARTED);
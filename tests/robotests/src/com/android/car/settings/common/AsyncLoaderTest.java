@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import static org.junit.Assert.assertThrows;
+
+import android.content.Context;
+
+import androidx.core.os.CancellationSignal;
+import androidx.core.os.OperationCanceledException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Unit test for {@link AsyncLoader}. */
+@RunWith(RobolectricTestRunner.class)
+public class AsyncLoaderTest {
+
+    private static final String LOAD_KEY = "load_key";
+    private static final String RESULT = "result";
+    private static final String PARTIAL_RESULT = "partial_result";
+    private static final int MAX_WAIT_POLLS = 5000;
+
+    private Context mContext;
+    private AtomicInteger mLoadCount;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mLoadCount = new AtomicInteger();
+    }
+
+    @After
+    public void tearDown() {
+        AsyncLoader.setLoadTimeListener(null);
+    }
+
+    @Test
+    public void loadInBackground_returnsResult() {
+        TestLoader loader = new TestLoader(mContext, /* loadKey= */ null);
+
+        assertThat(loader.loadInBackground()).isEqualTo(RESULT);
+    }
+
+    @Test
+    public void cancelLoadInBackground_duringLoad_cancelsLoad() {
+        TestLoader loader = new TestLoader(mContext, /* loadKey= */ null) {
+            @Override
+            protected String loadInBackground(CancellationSignal cancellationSignal) {
+                cancelLoadInBackground();
+                cancellationSignal.throwIfCanceled();
+                return super.loadInBackground(cancellationSignal);
+            }
+        };
+
+        assertThrows(OperationCanceledException.class, loader::loadInBackground);
+        assertThat(mLoadCount.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void loadInBackground_sameKeyLoading_sharesLoad() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch loadReleased = new CountDownLatch(1);
+        TestLoader loader1 = new TestLoader(mContext, LOAD_KEY) {
+            @Override
+            protected String loadInBackground(CancellationSignal cancellationSignal) {
+                loadStarted.countDown();
+                try {
+                    loadReleased.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new OperationCanceledException();
+                }
+                return super.loadInBackground(cancellationSignal);
+            }
+        };
+        TestLoader loader2 = new TestLoader(mContext, LOAD_KEY);
+        String[] results = new String[2];
+        Thread thread1 = new Thread(() -> results[0] = loader1.loadInBackground());
+        Thread thread2 = new Thread(() -> results[1] = loader2.loadInBackground());
+
+        thread1.start();
+        assertThat(loadStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        thread2.start();
+        try {
+            // The second loader waits for the result of the first one.
+            int polls = 0;
+            while (thread2.getState() != Thread.State.WAITING) {
+                assertWithMessage("Second loader did not wait for the shared load")
+                        .that(++polls).isLessThan(MAX_WAIT_POLLS);
+                Thread.sleep(/* millis= */ 1);
+            }
+        } finally {
+            loadReleased.countDown();
+        }
+        thread1.join();
+        thread2.join();
+
+        assertThat(results).asList().containsExactly(RESULT, RESULT);
+        assertThat(mLoadCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void loadInBackground_sameKeyNotLoading_loadsAgain() {
+        new TestLoader(mContext, LOAD_KEY).loadInBackground();
+        new TestLoader(mContext, LOAD_KEY).loadInBackground();
+
+        assertThat(mLoadCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void loadInBackground_notifiesLoadTimeListener() {
+        List<Class<?>> loadedClasses = new ArrayList<>();
+        List<Boolean> canceled = new ArrayList<>();
+        AsyncLoader.setLoadTimeListener((loaderClass, durationMs, wasCanceled) -> {
+            assertThat(durationMs).isAtLeast(0L);
+            loadedClasses.add(loaderClass);
+            canceled.add(wasCanceled);
+        });
+        TestLoader loader = new TestLoader(mContext, /* loadKey= */ null);
+        TestLoader canceledLoader = new TestLoader(mContext, /* loadKey= */ null) {
+            @Override
+            protected String loadInBackground(CancellationSignal cancellationSignal) {
+                throw new OperationCanceledException();
+            }
+        };
+
+        loader.loadInBackground();
+        assertThrows(OperationCanceledException.class, canceledLoader::loadInBackground);
+
+        assertThat(loadedClasses).containsExactly(loader.getClass(), canceledLoader.getClass())
+                .inOrder();
+        assertThat(canceled).containsExactly(false, true).inOrder();
+    }
+
+    @Test
+    public void deliverPartialResult_currentLoad_delivered() throws Exception {
+        TestLoader loader = new PartialResultLoader(mContext, /* cancel= */ false);
+        List<String> delivered = startLoading(loader);
+
+        runOnWorkerThread(loader::loadInBackground);
+        ShadowLooper.idleMainLooper();
+
+        assertThat(delivered).containsExactly(PARTIAL_RESULT);
+    }
+
+    @Test
+    public void deliverPartialResult_loadCanceled_dropped() throws Exception {
+        TestLoader loader = new PartialResultLoader(mContext, /* cancel= */ true);
+        List<String> delivered = startLoading(loader);
+
+        runOnWorkerThread(() ->
+                assertThrows(OperationCanceledException.class, loader::loadInBackground));
+        ShadowLooper.idleMainLooper();
+
+        assertThat(delivered).isEmpty();
+    }
+
+    @Test
+    public void deliverPartialResult_loadSuperseded_dropped() throws Exception {
+        PartialResultLoader loader = new PartialResultLoader(mContext, /* cancel= */ false);
+        List<String> delivered = startLoading(loader);
+
+        runOnWorkerThread(loader::loadInBackground);
+        // A second load starts before the partial result of the first reaches the main thread.
+        loader.mDeliverPartialResult = false;
+        runOnWorkerThread(loader::loadInBackground);
+        ShadowLooper.idleMainLooper();
+
+        assertThat(delivered).isEmpty();
+    }
+
+    /**
+     * Starts the loader without running loads, which tests run with {@link #runOnWorkerThread},
+     * and returns the list of results it delivers.
+     */
+    private static List<String> startLoading(AsyncLoader<String> loader) {
+        List<String> delivered = new ArrayList<>();
+        loader.registerListener(/* id= */ 0, (l, data) -> delivered.add(data));
+        loader.startLoading();
+        return delivered;
+    }
+
+    /** Runs on a thread other than the main thread, so that results posted to it are queued. */
+    private static void runOnWorkerThread(Runnable runnable) throws InterruptedException {
+        Thread thread = new Thread(runnable);
+        thread.start();
+        thread.join();
+    }
+
+    private class PartialResultLoader extends TestLoader {
+        private final boolean mCancel;
+        volatile boolean mDeliverPartialResult = true;
+
+        PartialResultLoader(Context context, boolean cancel) {
+            super(context, /* loadKey= */ null);
+            mCancel = cancel;
+        }
+
+        @Override
+        protected String loadInBackground(CancellationSignal cancellationSignal) {
+            if (mDeliverPartialResult) {
+                deliverPartialResult(PARTIAL_RESULT);
+            }
+            if (mCancel) {
+                cancelLoadInBackground();
+                cancellationSignal.throwIfCanceled();
+            }
+            return super.loadInBackground(cancellationSignal);
+        }
+
+        @Override
+        protected Executor getExecutor() {
+            // Loads are run by the tests instead.
+            return runnable -> { };
+        }
+    }
+
+    private class TestLoader extends AsyncLoader<String> {
+        private final Object mLoadKey;
+
+        TestLoader(Context context, Object loadKey) {
+            super(context);
+            mLoadKey = loadKey;
+        }
+
+        @Override
+        protected String loadInBackground(CancellationSignal cancellationSignal) {
+            mLoadCount.incrementAndGet();
+            return RESULT;
+        }
+
+        @Override
+        protected Object getLoadKey() {
+            return mLoadKey;
+        }
+    }
+}
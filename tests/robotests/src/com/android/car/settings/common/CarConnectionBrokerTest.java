@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.car.Car;
+import android.car.drivingstate.CarUxRestrictions;
+import android.car.drivingstate.CarUxRestrictionsManager;
+import android.car.media.CarAudioManager;
+
+import com.android.car.settings.testutils.ShadowCar;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+/** Unit test for {@link CarConnectionBroker}. */
+@RunWith(RobolectricTestRunner.class)
+public class CarConnectionBrokerTest {
+
+    private static final CarUxRestrictions BASELINE_RESTRICTIONS =
+            new CarUxRestrictions.Builder(/* reqOpt= */ true,
+                    CarUxRestrictions.UX_RESTRICTIONS_BASELINE, /* timestamp= */ 0).build();
+    private static final CarUxRestrictions NO_SETUP_RESTRICTIONS =
+            new CarUxRestrictions.Builder(/* reqOpt= */ true,
+                    CarUxRestrictions.UX_RESTRICTIONS_NO_SETUP, /* timestamp= */ 0).build();
+
+    private CarConnectionBroker mBroker;
+    @Mock
+    private CarAudioManager mCarAudioManager;
+    @Mock
+    private CarUxRestrictionsManager mCarUxRestrictionsManager;
+    @Mock
+    private CarConnectionBroker.ManagerListener<CarAudioManager> mManagerListener;
+    @Mock
+    private CarUxRestrictionsManager.OnUxRestrictionsChangedListener mUxRestrictionsListener1;
+    @Mock
+    private CarUxRestrictionsManager.OnUxRestrictionsChangedListener mUxRestrictionsListener2;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mBroker = new CarConnectionBroker(RuntimeEnvironment.application);
+    }
+
+    @After
+    public void tearDown() {
+        ShadowCar.reset();
+    }
+
+    @Test
+    public void getManager_returnsManagerOfSharedCar() {
+        ShadowCar.setCarManager(Car.AUDIO_SERVICE, mCarAudioManager);
+
+        CarAudioManager manager = mBroker.getManager(Car.AUDIO_SERVICE);
+
+        assertThat(manager).isSameAs(mCarAudioManager);
+    }
+
+    @Test
+    public void registerManagerListener_carReady_notifiesListener() {
+        ShadowCar.setCarManager(Car.AUDIO_SERVICE, mCarAudioManager);
+
+        mBroker.registerManagerListener(Car.AUDIO_SERVICE, mManagerListener);
+
+        verify(mManagerListener).onManagerReady(mCarAudioManager);
+    }
+
+    @Test
+    public void getInstance_returnsSameInstance() {
+        assertThat(CarConnectionBroker.getInstance(RuntimeEnvironment.application))
+                .isSameAs(CarConnectionBroker.getInstance(RuntimeEnvironment.application));
+    }
+
+    @Test
+    public void registerUxRestrictionsListener_severalListeners_notifiesAll() {
+        setUpUxRestrictionsManager();
+
+        mBroker.registerUxRestrictionsListener(mUxRestrictionsListener1);
+        mBroker.registerUxRestrictionsListener(mUxRestrictionsListener2);
+
+        verify(mUxRestrictionsListener1).onUxRestrictionsChanged(BASELINE_RESTRICTIONS);
+        verify(mUxRestrictionsListener2).onUxRestrictionsChanged(BASELINE_RESTRICTIONS);
+    }
+
+    @Test
+    public void onUxRestrictionsChanged_dispatchedToAllListeners() {
+        setUpUxRestrictionsManager();
+        mBroker.registerUxRestrictionsListener(mUxRestrictionsListener1);
+        mBroker.registerUxRestrictionsListener(mUxRestrictionsListener2);
+        ArgumentCaptor<CarUxRestrictionsManager.OnUxRestrictionsChangedListener> captor =
+                ArgumentCaptor.forClass(
+                        CarUxRestrictionsManager.OnUxRestrictionsChangedListener.class);
+        verify(mCarUxRestrictionsManager).registerListener(captor.capture());
+
+        captor.getValue().onUxRestrictionsChanged(NO_SETUP_RESTRICTIONS);
+
+        verify(mUxRestrictionsListener1).onUxRestrictionsChanged(NO_SETUP_RESTRICTIONS);
+        verify(mUxRestrictionsListener2).onUxRestrictionsChanged(NO_SETUP_RESTRICTIONS);
+    }
+
+    @Test
+    public void unregisterUxRestrictionsListener_notLast_keepsManagerListener() {
+        setUpUxRestrictionsManager();
+        mBroker.registerUxRestrictionsListener(mUxRestrictionsListener1);
+        mBroker.registerUxRestrictionsListener(mUxRestrictionsListener2);
+
+        mBroker.unregisterUxRestrictionsListener(mUxRestrictionsListener1);
+
+        verify(mCarUxRestrictionsManager, never()).unregisterListener();
+    }
+
+    @Test
+    public void unregisterUxRestrictionsListener_last_unregistersManagerListener() {
+        setUpUxRestrictionsManager();
+        mBroker.registerUxRestrictionsListener(mUxRestrictionsListener1);
+        mBroker.registerUxRestrictionsListener(mUxRestrictionsListener2);
+
+        mBroker.unregisterUxRestrictionsListener(mUxRestrictionsListener1);
+        mBroker.unregisterUxRestrictionsListener(mUxRestrictionsListener2);
+
+        verify(mCarUxRestrictionsManager).unregisterListener();
+    }
+
+    private void setUpUxRestrictionsManager() {
+        when(mCarUxRestrictionsManager.getCurrentCarUxRestrictions())
+                .thenReturn(BASELINE_RESTRICTIONS);
+        ShadowCar.setCarManager(Car.CAR_UX_RESTRICTION_SERVICE, mCarUxRestrictionsManager);
+    }
+}
@@ -27,6 +27,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.pm.ActivityInfo;
 import android.content.pm.ResolveInfo;
+import android.net.Uri;
 import android.os.Bundle;
 
 import androidx.preference.Preference;
@@ -39,11 +40,13 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.MockitoAnnotations;
+import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 import org.robolectric.shadow.api.Shadow;
 
+import java.util.List;
 import java.util.Map;
 
 /** Unit test for {@link ExtraSettingsLoader}. */
@@ -56,18 +59,21 @@ public class ExtraSettingsLoaderTest {
     private static final String FAKE_CATEGORY = "fake_category";
     private static final String FAKE_TITLE = "fake_title";
     private static final String FAKE_SUMMARY = "fake_summary";
+    private static final String FAKE_PACKAGE_NAME = "package_name";
 
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
         mContext = RuntimeEnvironment.application;
         ShadowApplicationPackageManager.setResources(mContext.getResources());
+        ExtraSettingsCache.setInstance(null);
         mExtraSettingsLoader = new ExtraSettingsLoader(mContext);
     }
 
     @After
     public void tearDown() {
         ShadowApplicationPackageManager.reset();
+        ExtraSettingsCache.setInstance(null);
     }
 
     @Test
@@ -352,6 +358,85 @@ public class ExtraSettingsLoaderTest {
         }
     }
 
+    @Test
+    public void testLoadPreference_loadedTwice_shouldUseCachedSettings() {
+        Intent intent = createIntentWithSystemSetting();
+        mExtraSettingsLoader.loadPreferences(intent);
+        getShadowPackageManager().removeResolveInfosForIntent(intent, FAKE_PACKAGE_NAME);
+
+        assertThat(mExtraSettingsLoader.isResolved(intent)).isTrue();
+        assertThat(mExtraSettingsLoader.loadPreferences(intent)).hasSize(1);
+    }
+
+    @Test
+    public void testLoadPreference_packageRemoved_shouldResolveAgain() {
+        Intent intent = createIntentWithSystemSetting();
+        mExtraSettingsLoader.loadPreferences(intent);
+        getShadowPackageManager().removeResolveInfosForIntent(intent, FAKE_PACKAGE_NAME);
+
+        mContext.sendBroadcast(new Intent(Intent.ACTION_PACKAGE_REMOVED,
+                Uri.fromParts("package", FAKE_PACKAGE_NAME, /* fragment= */ null)));
+        Robolectric.flushForegroundThreadScheduler();
+
+        assertThat(mExtraSettingsLoader.isResolved(intent)).isFalse();
+        assertThat(mExtraSettingsLoader.loadPreferences(intent)).isEmpty();
+    }
+
+    @Test
+    public void testLoadPreference_localeChanged_shouldResolveAgain() {
+        Intent intent = createIntentWithSystemSetting();
+        mExtraSettingsLoader.loadPreferences(intent);
+
+        RuntimeEnvironment.setQualifiers("fr-rFR");
+
+        assertThat(mExtraSettingsLoader.isResolved(intent)).isFalse();
+    }
+
+    @Test
+    public void testLoadPreference_nightModeChanged_shouldResolveAgain() {
+        Intent intent = createIntentWithSystemSetting();
+        mExtraSettingsLoader.loadPreferences(intent);
+
+        RuntimeEnvironment.setQualifiers("+night");
+
+        assertThat(mExtraSettingsLoader.isResolved(intent)).isFalse();
+    }
+
+    @Test
+    public void testLoadPreference_resolvedSettings_shouldNotResolveAgain() {
+        Intent intent = createIntentWithSystemSetting();
+        List<ExtraSettingsLoader.ResolvedSetting> settings = mExtraSettingsLoader.resolve(intent);
+        getShadowPackageManager().removeResolveInfosForIntent(intent, FAKE_PACKAGE_NAME);
+        ExtraSettingsCache.getInstance(mContext).invalidate();
+
+        Map<Preference, Bundle> preferenceToBundleMap =
+                mExtraSettingsLoader.loadPreferences(settings);
+
+        assertThat(preferenceToBundleMap).hasSize(1);
+        assertThat(preferenceToBundleMap.keySet().iterator().next().getTitle())
+                .isEqualTo(FAKE_TITLE);
+        assertThat(mExtraSettingsLoader.isResolved(intent)).isFalse();
+    }
+
+    private Intent createIntentWithSystemSetting() {
+        Intent intent = new Intent();
+        intent.putExtra(META_DATA_PREFERENCE_CATEGORY, FAKE_CATEGORY);
+        Bundle bundle = new Bundle();
+        bundle.putString(META_DATA_PREFERENCE_TITLE, FAKE_TITLE);
+        bundle.putString(META_DATA_PREFERENCE_CATEGORY, FAKE_CATEGORY);
+
+        ActivityInfo activityInfo = new ActivityInfo();
+        activityInfo.metaData = bundle;
+        activityInfo.packageName = FAKE_PACKAGE_NAME;
+        activityInfo.name = "class_name";
+
+        ResolveInfo resolveInfoSystem = new ResolveInfo();
+        resolveInfoSystem.system = true;
+        resolveInfoSystem.activityInfo = activityInfo;
+        getShadowPackageManager().addResolveInfoForIntent(intent, resolveInfoSystem);
+        return intent;
+    }
+
     private ShadowApplicationPackageManager getShadowPackageManager() {
         return Shadow.extract(mContext.getPackageManager());
     }
@@ -18,6 +18,10 @@ package com.android.car.settings.common;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.car.drivingstate.CarUxRestrictions;
@@ -30,6 +34,7 @@ import androidx.preference.Preference;
 import androidx.preference.PreferenceGroup;
 
 import com.android.car.settings.testutils.ShadowApplicationPackageManager;
+import com.android.car.settings.testutils.ShadowThreadUtils;
 
 import org.junit.After;
 import org.junit.Before;
@@ -41,12 +46,14 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /** Unit test for {@link ExtraSettingsPreferenceController}. */
 @RunWith(RobolectricTestRunner.class)
-@Config(shadows = {ShadowApplicationPackageManager.class})
+@Config(shadows = {ShadowApplicationPackageManager.class, ShadowThreadUtils.class})
 public class ExtraSettingsPreferenceControllerTest {
 
     private static final Intent FAKE_INTENT = new Intent();
@@ -96,7 +103,7 @@ public class ExtraSettingsPreferenceControllerTest {
 
     @Test
     public void testRefreshUi_initialized_noPreferenceAdded() {
-        when(mExtraSettingsLoaderMock.loadPreferences(FAKE_INTENT)).thenReturn(
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
                 mPreferenceBundleMapEmpty);
 
         mController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
@@ -109,7 +116,7 @@ public class ExtraSettingsPreferenceControllerTest {
 
     @Test
     public void testRefreshUi_noPreferenceAdded_shouldNotBeVisible() {
-        when(mExtraSettingsLoaderMock.loadPreferences(FAKE_INTENT)).thenReturn(
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
                 mPreferenceBundleMapEmpty);
 
         mController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
@@ -121,7 +128,7 @@ public class ExtraSettingsPreferenceControllerTest {
 
     @Test
     public void testRefreshUi_initialized_preferenceAdded() {
-        when(mExtraSettingsLoaderMock.loadPreferences(FAKE_INTENT)).thenReturn(
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
                 mPreferenceBundleMap);
 
         mController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
@@ -133,7 +140,7 @@ public class ExtraSettingsPreferenceControllerTest {
 
     @Test
     public void testRefreshUi_preferenceAdded_shouldBeVisible() {
-        when(mExtraSettingsLoaderMock.loadPreferences(FAKE_INTENT)).thenReturn(
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
                 mPreferenceBundleMap);
 
         mController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
@@ -145,7 +152,7 @@ public class ExtraSettingsPreferenceControllerTest {
 
     @Test
     public void testRefreshUi_refreshedTwice_shouldOnlyAddPreferenceOnce() {
-        when(mExtraSettingsLoaderMock.loadPreferences(FAKE_INTENT)).thenReturn(
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
                 mPreferenceBundleMap);
 
         mController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
@@ -158,7 +165,7 @@ public class ExtraSettingsPreferenceControllerTest {
 
     @Test
     public void testRefreshUi_refreshedTwice_stillBeVisible() {
-        when(mExtraSettingsLoaderMock.loadPreferences(FAKE_INTENT)).thenReturn(
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
                 mPreferenceBundleMap);
 
         mController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
@@ -170,9 +177,70 @@ public class ExtraSettingsPreferenceControllerTest {
     }
 
     @Test
-    public void onUxRestrictionsChanged_unrestrictedAndDO_intentsIntoActivityNoMetadata_disabled() {
+    public void testRefreshUi_settingsResolved_shouldNotResolveAgain() {
+        when(mExtraSettingsLoaderMock.isResolved(FAKE_INTENT)).thenReturn(true);
         when(mExtraSettingsLoaderMock.loadPreferences(FAKE_INTENT)).thenReturn(
                 mPreferenceBundleMap);
+
+        mController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
+        mPreferenceControllerHelper.markState(Lifecycle.State.CREATED);
+        mController.refreshUi();
+
+        verify(mExtraSettingsLoaderMock, never()).resolve(FAKE_INTENT);
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRefreshUi_settingsNotResolved_shouldResolveOnce() {
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
+                mPreferenceBundleMap);
+
+        mController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
+        mPreferenceControllerHelper.markState(Lifecycle.State.CREATED);
+        mController.refreshUi();
+        mController.refreshUi();
+
+        verify(mExtraSettingsLoaderMock).resolve(FAKE_INTENT);
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRefreshUi_settingsNotResolved_loadsResolvedSettings() {
+        List<ExtraSettingsLoader.ResolvedSetting> settings = new ArrayList<>();
+        when(mExtraSettingsLoaderMock.resolve(FAKE_INTENT)).thenReturn(settings);
+        when(mExtraSettingsLoaderMock.loadPreferences(settings)).thenReturn(
+                mPreferenceBundleMap);
+
+        mController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
+        mPreferenceControllerHelper.markState(Lifecycle.State.CREATED);
+        mController.refreshUi();
+
+        verify(mExtraSettingsLoaderMock, never()).loadPreferences(any(Intent.class));
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRefreshUi_settingsNotResolved_nothingShownWhileResolving() {
+        List<Integer> preferenceCountsWhileResolving = new ArrayList<>();
+        when(mExtraSettingsLoaderMock.resolve(FAKE_INTENT)).thenAnswer(invocation -> {
+            preferenceCountsWhileResolving.add(mPreferenceGroup.getPreferenceCount());
+            return new ArrayList<>();
+        });
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
+                mPreferenceBundleMapEmpty);
+
+        mController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
+        mPreferenceControllerHelper.markState(Lifecycle.State.CREATED);
+        mController.refreshUi();
+
+        assertThat(preferenceCountsWhileResolving).containsExactly(0);
+        assertThat(mPreferenceGroup.isVisible()).isFalse();
+    }
+
+    @Test
+    public void onUxRestrictionsChanged_unrestrictedAndDO_intentsIntoActivityNoMetadata_disabled() {
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
+                mPreferenceBundleMap);
         mController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
         mPreferenceControllerHelper.markState(Lifecycle.State.CREATED);
         mController.refreshUi();
@@ -187,7 +255,7 @@ public class ExtraSettingsPreferenceControllerTest {
     public void onUxRestrictionsChanged_unrestrictedAndDO_intentsIntoNonDOActivity_disabled() {
         mBundle.putBoolean(
                 ExtraSettingsPreferenceController.META_DATA_DISTRACTION_OPTIMIZED, false);
-        when(mExtraSettingsLoaderMock.loadPreferences(FAKE_INTENT)).thenReturn(
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
                 mPreferenceBundleMap);
         mController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
         mPreferenceControllerHelper.markState(Lifecycle.State.CREATED);
@@ -202,7 +270,7 @@ public class ExtraSettingsPreferenceControllerTest {
     public void onUxRestrictionsChanged_unrestrictedAndDO_intentsIntoDOActivity_enabled() {
         mBundle.putBoolean(
                 ExtraSettingsPreferenceController.META_DATA_DISTRACTION_OPTIMIZED, true);
-        when(mExtraSettingsLoaderMock.loadPreferences(FAKE_INTENT)).thenReturn(
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
                 mPreferenceBundleMap);
         mController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
         mPreferenceControllerHelper.markState(Lifecycle.State.CREATED);
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.car.drivingstate.CarUxRestrictions;
+import android.content.Context;
+
+import androidx.preference.Preference;
+
+import com.android.car.settings.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Unit test for {@link PreferenceAvailabilityEvaluator}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PreferenceAvailabilityEvaluatorTest {
+
+    private static final CarUxRestrictions UX_RESTRICTIONS =
+            new CarUxRestrictions.Builder(/* reqOpt= */ true,
+                    CarUxRestrictions.UX_RESTRICTIONS_BASELINE, /* timestamp= */ 0).build();
+
+    @Test
+    public void getUnavailableKeys_returnsKeysOfUnavailableControllersOnly() {
+        assertThat(PreferenceAvailabilityEvaluator.getUnavailableKeys(
+                RuntimeEnvironment.application, R.xml.preference_availability_evaluator,
+                UX_RESTRICTIONS)).containsExactly("unavailable");
+    }
+
+    @Test
+    public void getUnavailableKeys_allAvailable_returnsEmptyList() {
+        assertThat(PreferenceAvailabilityEvaluator.getUnavailableKeys(
+                RuntimeEnvironment.application, R.xml.settings_fragment,
+                UX_RESTRICTIONS)).isEmpty();
+    }
+
+    /** Controller which is never available. */
+    public static class UnavailablePreferenceController extends PreferenceController<Preference> {
+
+        public UnavailablePreferenceController(Context context, String preferenceKey,
+                FragmentController fragmentController, CarUxRestrictions uxRestrictions) {
+            super(context, preferenceKey, fragmentController, uxRestrictions);
+        }
+
+        @Override
+        protected Class<Preference> getPreferenceType() {
+            return Preference.class;
+        }
+
+        @Override
+        protected int getAvailabilityStatus() {
+            return UNSUPPORTED_ON_DEVICE;
+        }
+    }
+}
@@ -80,4 +80,24 @@ public class PreferenceControllerListHelperTest {
                         R.xml.preference_controller_list_helper_fail_missing_key,
                         mock(FragmentController.class), UX_RESTRICTIONS));
     }
+
+    @Test
+    public void getControllers_indexedController_isIndexed() {
+        assertThat(PreferenceControllerListHelper.isIndexed(
+                DefaultRestrictionsPreferenceController.class.getName())).isTrue();
+    }
+
+    @Test
+    public void getControllers_controllerNotIndexed_fallsBackToReflection() {
+        assertThat(PreferenceControllerListHelper.isIndexed(
+                FakePreferenceController.class.getName())).isFalse();
+
+        List<PreferenceController> controllers =
+                PreferenceControllerListHelper.getPreferenceControllersFromXml(
+                        RuntimeEnvironment.application, R.xml.settings_fragment,
+                        mock(FragmentController.class), UX_RESTRICTIONS);
+
+        assertThat(controllers).hasSize(1);
+        assertThat(controllers.get(0)).isInstanceOf(FakePreferenceController.class);
+    }
 }
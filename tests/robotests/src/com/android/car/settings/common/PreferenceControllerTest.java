@@ -392,6 +392,55 @@ public class PreferenceControllerTest {
         assertThat(mController.handlePreferenceClicked(mPreference)).isFalse();
     }
 
+    @Test
+    public void onCreate_availabilityNotCacheable_evaluatesAvailabilityPerCheck() {
+        mControllerHelper.markState(Lifecycle.State.CREATED);
+
+        // Lifecycle check, refreshUi and onApplyUxRestrictions.
+        assertThat(mController.getAvailabilityStatusEvaluationCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void onCreate_availabilityCacheable_evaluatesAvailabilityOnce() {
+        mController.setAvailabilityStatusCacheable(true);
+
+        mControllerHelper.markState(Lifecycle.State.CREATED);
+
+        assertThat(mController.getAvailabilityStatusEvaluationCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void lifecycleEvents_availabilityCacheable_evaluatesAvailabilityOncePerEvent() {
+        mController.setAvailabilityStatusCacheable(true);
+
+        mControllerHelper.markState(Lifecycle.State.RESUMED);
+
+        // onCreate, onStart, onResume.
+        assertThat(mController.getAvailabilityStatusEvaluationCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void refreshUi_availabilityCacheable_reevaluatesAvailability() {
+        mController.setAvailabilityStatusCacheable(true);
+        mControllerHelper.markState(Lifecycle.State.CREATED);
+        mController.setAvailabilityStatus(CONDITIONALLY_UNAVAILABLE);
+
+        mController.refreshUi();
+
+        verify(mPreference).setVisible(false);
+        assertThat(mController.getAvailabilityStatusEvaluationCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void onUxRestrictionsChanged_availabilityCacheable_reevaluatesAvailability() {
+        mController.setAvailabilityStatusCacheable(true);
+        mControllerHelper.markState(Lifecycle.State.CREATED);
+
+        mController.onUxRestrictionsChanged(NO_SETUP_UX_RESTRICTIONS);
+
+        assertThat(mController.getAvailabilityStatusEvaluationCount()).isEqualTo(2);
+    }
+
     /** For testing passing the wrong type of preference to the controller. */
     private static class WrongTypePreferenceController extends
             PreferenceController<PreferenceGroup> {
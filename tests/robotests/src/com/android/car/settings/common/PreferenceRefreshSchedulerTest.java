@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.view.Choreographer;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.preference.Preference;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Unit test for {@link PreferenceRefreshScheduler}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PreferenceRefreshSchedulerTest {
+
+    private PreferenceRefreshScheduler mScheduler;
+    private FakePreferenceController mController;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.application;
+        PreferenceControllerTestHelper<FakePreferenceController> controllerHelper =
+                new PreferenceControllerTestHelper<>(context, FakePreferenceController.class,
+                        new Preference(context));
+        mController = controllerHelper.getController();
+        controllerHelper.markState(Lifecycle.State.CREATED);
+
+        mScheduler = new PreferenceRefreshScheduler(Choreographer.getInstance());
+        mController.setRefreshScheduler(mScheduler);
+    }
+
+    @Test
+    public void scheduleRefreshUi_doesNotRefreshImmediately() {
+        int initialCount = mController.getUpdateStateCallCount();
+
+        mController.scheduleRefreshUi();
+
+        assertThat(mController.getUpdateStateCallCount()).isEqualTo(initialCount);
+        assertThat(mScheduler.isPending(mController)).isTrue();
+    }
+
+    @Test
+    public void scheduleRefreshUi_multipleRequests_refreshesOncePerFlush() {
+        int initialCount = mController.getUpdateStateCallCount();
+
+        mController.scheduleRefreshUi();
+        mController.scheduleRefreshUi();
+        mController.scheduleRefreshUi();
+        mScheduler.flush();
+
+        assertThat(mController.getUpdateStateCallCount()).isEqualTo(initialCount + 1);
+        assertThat(mScheduler.isPending(mController)).isFalse();
+    }
+
+    @Test
+    public void refreshUi_dropsPendingRequest() {
+        int initialCount = mController.getUpdateStateCallCount();
+
+        mController.scheduleRefreshUi();
+        mController.refreshUi();
+        mScheduler.flush();
+
+        assertThat(mController.getUpdateStateCallCount()).isEqualTo(initialCount + 1);
+    }
+
+    @Test
+    public void cancelAll_dropsPendingRequests() {
+        int initialCount = mController.getUpdateStateCallCount();
+
+        mController.scheduleRefreshUi();
+        mScheduler.cancelAll();
+        mScheduler.flush();
+
+        assertThat(mController.getUpdateStateCallCount()).isEqualTo(initialCount);
+    }
+
+    @Test
+    public void scheduleRefreshUi_noScheduler_refreshesImmediately() {
+        mController.setRefreshScheduler(null);
+        int initialCount = mController.getUpdateStateCallCount();
+
+        mController.scheduleRefreshUi();
+
+        assertThat(mController.getUpdateStateCallCount()).isEqualTo(initialCount + 1);
+    }
+}
@@ -18,10 +18,14 @@ package com.android.car.settings.common;
 
 import static com.google.common.truth.Truth.assertThat;
 
-import android.os.Bundle;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.LocaleList;
 
 import com.android.car.settings.R;
 
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
@@ -30,6 +34,7 @@ import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * Unit test for {@link PreferenceXmlParser}.
@@ -37,17 +42,83 @@ import java.util.List;
 @RunWith(RobolectricTestRunner.class)
 public class PreferenceXmlParserTest {
 
+    private static final int KEY_AND_CONTROLLER_FLAGS =
+            PreferenceXmlParser.MetadataFlag.FLAG_NEED_KEY
+                    | PreferenceXmlParser.MetadataFlag.FLAG_NEED_PREF_CONTROLLER;
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        PreferenceXmlParser.clearCache();
+    }
+
+    @After
+    public void tearDown() {
+        PreferenceXmlParser.clearCache();
+    }
+
     @Test
     public void extractMetadata_keyAndControllerName() throws IOException, XmlPullParserException {
-        List<Bundle> metadata = PreferenceXmlParser.extractMetadata(
-                RuntimeEnvironment.application, R.xml.preference_parser,
-                PreferenceXmlParser.MetadataFlag.FLAG_NEED_KEY
-                        | PreferenceXmlParser.MetadataFlag.FLAG_NEED_PREF_CONTROLLER);
+        List<PreferenceMetadata> metadata = PreferenceXmlParser.extractMetadata(
+                mContext, R.xml.preference_parser, KEY_AND_CONTROLLER_FLAGS);
 
         assertThat(metadata).hasSize(4);
-        for (Bundle bundle : metadata) {
-            assertThat(bundle.getString(PreferenceXmlParser.METADATA_KEY)).isNotNull();
-            assertThat(bundle.getString(PreferenceXmlParser.METADATA_CONTROLLER)).isNotNull();
+        for (PreferenceMetadata preferenceMetadata : metadata) {
+            assertThat(preferenceMetadata.getKey()).isNotNull();
+            assertThat(preferenceMetadata.getController()).isNotNull();
         }
     }
+
+    @Test
+    public void extractMetadata_flagNotRequested_valueNotExtracted()
+            throws IOException, XmlPullParserException {
+        List<PreferenceMetadata> metadata = PreferenceXmlParser.extractMetadata(
+                mContext, R.xml.preference_parser, PreferenceXmlParser.MetadataFlag.FLAG_NEED_KEY);
+
+        for (PreferenceMetadata preferenceMetadata : metadata) {
+            assertThat(preferenceMetadata.getController()).isNull();
+        }
+    }
+
+    @Test
+    public void extractMetadata_sameResourceAndFlags_returnsCachedResult()
+            throws IOException, XmlPullParserException {
+        List<PreferenceMetadata> first = PreferenceXmlParser.extractMetadata(
+                mContext, R.xml.preference_parser, KEY_AND_CONTROLLER_FLAGS);
+        List<PreferenceMetadata> second = PreferenceXmlParser.extractMetadata(
+                mContext, R.xml.preference_parser, KEY_AND_CONTROLLER_FLAGS);
+
+        assertThat(second).isSameAs(first);
+        assertThat(PreferenceXmlParser.getCacheSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void extractMetadata_differentFlags_cachedSeparately()
+            throws IOException, XmlPullParserException {
+        PreferenceXmlParser.extractMetadata(
+                mContext, R.xml.preference_parser, KEY_AND_CONTROLLER_FLAGS);
+        PreferenceXmlParser.extractMetadata(
+                mContext, R.xml.preference_parser, PreferenceXmlParser.MetadataFlag.FLAG_NEED_KEY);
+
+        assertThat(PreferenceXmlParser.getCacheSize()).isEqualTo(2);
+    }
+
+    @Test
+    public void extractMetadata_localeChanged_invalidatesCache()
+            throws IOException, XmlPullParserException {
+        List<PreferenceMetadata> first = PreferenceXmlParser.extractMetadata(
+                mContext, R.xml.preference_parser, KEY_AND_CONTROLLER_FLAGS);
+
+        Configuration configuration = new Configuration(
+                mContext.getResources().getConfiguration());
+        configuration.setLocales(new LocaleList(Locale.GERMANY));
+        Context localizedContext = mContext.createConfigurationContext(configuration);
+        List<PreferenceMetadata> second = PreferenceXmlParser.extractMetadata(
+                localizedContext, R.xml.preference_parser, KEY_AND_CONTROLLER_FLAGS);
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second).hasSize(first.size());
+    }
 }
@@ -48,6 +48,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
 import org.robolectric.shadows.ShadowToast;
 
 /** Unit test for {@link SettingsFragment}. */
@@ -271,6 +272,46 @@ public class SettingsFragmentTest {
                 Toolbar.NavButtonMode.BACK);
     }
 
+    @Test
+    public void onCreate_lazyControllerStart_doesNotCreateControllerUntilBound() {
+        FragmentController<LazyTestSettingsFragment> fragmentController =
+                FragmentController.of(new LazyTestSettingsFragment());
+        SettingsFragment fragment = fragmentController.get();
+        fragmentController.create();
+        FakePreferenceController controller = fragment.use(FakePreferenceController.class,
+                R.string.tpk_fake_controller);
+
+        assertThat(controller.getOnCreateInternalCallCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void onPreferenceBound_lazyControllerStart_createsController() {
+        FragmentController<LazyTestSettingsFragment> fragmentController =
+                FragmentController.of(new LazyTestSettingsFragment());
+        SettingsFragment fragment = fragmentController.get();
+        fragmentController.create();
+        FakePreferenceController controller = fragment.use(FakePreferenceController.class,
+                R.string.tpk_fake_controller);
+
+        fragment.onPreferenceBound(controller.getPreference());
+        ShadowLooper.idleMainLooper();
+
+        assertThat(controller.getOnCreateInternalCallCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void onCreate_lazyControllerStart_notAvailable_createsController() {
+        FragmentController<UnavailableLazyTestSettingsFragment> fragmentController =
+                FragmentController.of(new UnavailableLazyTestSettingsFragment());
+        SettingsFragment fragment = fragmentController.get();
+        fragmentController.create();
+        FakePreferenceController controller = fragment.use(FakePreferenceController.class,
+                R.string.tpk_fake_controller);
+
+        assertThat(controller.getOnCreateInternalCallCount()).isEqualTo(1);
+        assertThat(controller.getPreference().isVisible()).isFalse();
+    }
+
     /** Concrete {@link SettingsFragment} for testing. */
     public static class TestSettingsFragment extends SettingsFragment {
         @Override
@@ -278,4 +319,25 @@ public class SettingsFragmentTest {
             return R.xml.settings_fragment;
         }
     }
+
+    /** Concrete {@link SettingsFragment} with lazy controller start for testing. */
+    public static class LazyTestSettingsFragment extends TestSettingsFragment {
+        @Override
+        protected boolean isLazyControllerStartEnabled() {
+            return true;
+        }
+    }
+
+    /**
+     * Concrete {@link SettingsFragment} with lazy controller start whose controller is not
+     * available, for testing.
+     */
+    public static class UnavailableLazyTestSettingsFragment extends LazyTestSettingsFragment {
+        @Override
+        public void onAttach(Context context) {
+            super.onAttach(context);
+            use(FakePreferenceController.class, R.string.tpk_fake_controller)
+                    .setAvailabilityStatus(PreferenceController.UNSUPPORTED_ON_DEVICE);
+        }
+    }
 }
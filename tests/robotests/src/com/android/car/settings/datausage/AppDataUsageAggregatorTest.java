@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.datausage;
+
+import static android.net.TrafficStats.UID_REMOVED;
+import static android.net.TrafficStats.UID_TETHERING;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.pm.UserInfo;
+import android.os.Process;
+import android.os.UserHandle;
+
+import com.android.settingslib.AppItem;
+import com.android.settingslib.net.UidDetailProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+/** Unit test for {@link AppDataUsageAggregator}. */
+@RunWith(RobolectricTestRunner.class)
+public class AppDataUsageAggregatorTest {
+
+    private static final int CURRENT_USER_ID = 10;
+    private static final int OTHER_USER_ID = 11;
+    private static final int REMOVED_USER_ID = 12;
+    private static final int APP_ID = Process.FIRST_APPLICATION_UID + 1;
+
+    private AppDataUsageAggregator mAggregator;
+
+    @Before
+    public void setUp() {
+        List<UserInfo> profiles = Arrays.asList(
+                new UserInfo(CURRENT_USER_ID, "current", /* flags= */ 0),
+                new UserInfo(OTHER_USER_ID, "other", /* flags= */ 0));
+        mAggregator = new AppDataUsageAggregator(profiles, CURRENT_USER_ID);
+    }
+
+    @Test
+    public void add_sameUid_accumulatesIntoOneItem() {
+        int uid = UserHandle.getUid(CURRENT_USER_ID, APP_ID);
+        mAggregator.add(uid, 10, 20);
+        mAggregator.add(uid, 30, 40);
+
+        List<AppItem> items = mAggregator.toAppItems();
+        assertThat(items).hasSize(1);
+        assertThat(items.get(0).key).isEqualTo(uid);
+        assertThat(items.get(0).category).isEqualTo(AppItem.CATEGORY_APP);
+        assertThat(items.get(0).total).isEqualTo(100);
+        assertThat(mAggregator.getLargest()).isEqualTo(100);
+    }
+
+    @Test
+    public void add_tetheringUid_keepsUid() {
+        mAggregator.add(UID_TETHERING, 10, 10);
+
+        assertThat(mAggregator.toAppItems().get(0).key).isEqualTo(UID_TETHERING);
+    }
+
+    @Test
+    public void add_systemUid_collapsesIntoSystem() {
+        mAggregator.add(Process.BLUETOOTH_UID, 10, 10);
+        mAggregator.add(Process.NFC_UID, 5, 5);
+
+        List<AppItem> items = mAggregator.toAppItems();
+        assertThat(items).hasSize(1);
+        assertThat(items.get(0).key).isEqualTo(Process.SYSTEM_UID);
+        assertThat(items.get(0).total).isEqualTo(30);
+    }
+
+    @Test
+    public void add_otherUser_addsUserAndAppItems() {
+        int uid = UserHandle.getUid(OTHER_USER_ID, APP_ID);
+        mAggregator.add(uid, 10, 10);
+
+        List<AppItem> items = mAggregator.toAppItems();
+        assertThat(items).hasSize(2);
+        assertThat(items.get(0).key).isEqualTo(UidDetailProvider.buildKeyForUser(OTHER_USER_ID));
+        assertThat(items.get(0).category).isEqualTo(AppItem.CATEGORY_USER);
+        assertThat(items.get(1).key).isEqualTo(uid);
+        assertThat(items.get(1).category).isEqualTo(AppItem.CATEGORY_APP);
+    }
+
+    @Test
+    public void add_removedUser_collapsesIntoRemoved() {
+        mAggregator.add(UserHandle.getUid(REMOVED_USER_ID, APP_ID), 10, 10);
+
+        assertThat(mAggregator.toAppItems().get(0).key).isEqualTo(UID_REMOVED);
+    }
+
+    @Test
+    public void add_manyUids_growsStorage() {
+        int count = 1000;
+        for (int i = 0; i < count; i++) {
+            mAggregator.add(UserHandle.getUid(CURRENT_USER_ID, APP_ID + i), i, 0);
+        }
+
+        List<AppItem> items = mAggregator.toAppItems();
+        assertThat(items).hasSize(count);
+        assertThat(items.get(count - 1).total).isEqualTo(count - 1);
+        assertThat(mAggregator.getLargest()).isEqualTo(count - 1);
+    }
+
+    @Test
+    public void markRestricted_unknownUid_addsItemWithoutUsage() {
+        mAggregator.markRestricted(CURRENT_USER_ID);
+
+        List<AppItem> items = mAggregator.toAppItems();
+        assertThat(items).hasSize(1);
+        assertThat(items.get(0).restricted).isTrue();
+        assertThat(items.get(0).total).isEqualTo(-1);
+    }
+
+    @Test
+    public void markRestricted_twice_addsSingleItem() {
+        mAggregator.markRestricted(CURRENT_USER_ID);
+        mAggregator.markRestricted(CURRENT_USER_ID);
+
+        assertThat(mAggregator.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void markRestricted_uidOutsideProfiles_ignored() {
+        mAggregator.markRestricted(REMOVED_USER_ID);
+
+        assertThat(mAggregator.size()).isEqualTo(0);
+    }
+}
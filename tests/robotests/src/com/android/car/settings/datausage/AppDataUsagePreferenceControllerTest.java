@@ -22,10 +22,13 @@ import static com.google.common.truth.Truth.assertThat;
 
 import android.content.Context;
 import android.net.NetworkStats;
+import android.os.Process;
+import android.os.UserHandle;
 
 import androidx.lifecycle.Lifecycle;
 import androidx.test.core.app.ApplicationProvider;
 
+import com.android.car.settings.R;
 import com.android.car.settings.common.LogicalPreferenceGroup;
 import com.android.car.settings.common.PreferenceControllerTestHelper;
 import com.android.car.settings.common.ProgressBarPreference;
@@ -129,4 +132,53 @@ public class AppDataUsagePreferenceControllerTest {
         assertThat(preference1.getProgress()).isEqualTo(100);
         assertThat(preference2.getProgress()).isEqualTo(50);
     }
+
+    @Test
+    public void onDataLoaded_moreItemsThanPageSize_showsFirstPage() {
+        int pageSize = mContext.getResources().getInteger(
+                R.integer.config_data_usage_app_page_size);
+
+        mController.onDataLoaded(createStats(pageSize + 5), new int[0]);
+
+        assertThat(mController.getShownCount()).isEqualTo(pageSize);
+        // The first page and the trailing show more preference.
+        assertThat(mLogicalPreferenceGroup.getPreferenceCount()).isEqualTo(pageSize + 1);
+        assertThat(mLogicalPreferenceGroup.findPreference(
+                AppDataUsagePreferenceController.SHOW_MORE_KEY)).isNotNull();
+    }
+
+    @Test
+    public void showNextPage_addsRemainingItems() {
+        int pageSize = mContext.getResources().getInteger(
+                R.integer.config_data_usage_app_page_size);
+        mController.onDataLoaded(createStats(pageSize + 5), new int[0]);
+
+        mController.showNextPage();
+
+        assertThat(mController.getShownCount()).isEqualTo(pageSize + 5);
+        assertThat(mLogicalPreferenceGroup.getPreferenceCount()).isEqualTo(pageSize + 5);
+        assertThat(mLogicalPreferenceGroup.findPreference(
+                AppDataUsagePreferenceController.SHOW_MORE_KEY)).isNull();
+    }
+
+    @Test
+    public void onDataLoaded_reloaded_replacesPreferences() {
+        mController.onDataLoaded(createStats(3), new int[0]);
+
+        mController.onDataLoaded(createStats(2), new int[0]);
+
+        assertThat(mLogicalPreferenceGroup.getPreferenceCount()).isEqualTo(2);
+    }
+
+    private static NetworkStats createStats(int appCount) {
+        NetworkStats networkStats = new NetworkStats(0, appCount);
+        for (int i = 0; i < appCount; i++) {
+            NetworkStats.Entry entry = new NetworkStats.Entry();
+            entry.uid = UserHandle.getUid(UserHandle.myUserId(),
+                    Process.FIRST_APPLICATION_UID + i);
+            entry.rxBytes = 100 + i;
+            networkStats = networkStats.addEntry(entry);
+        }
+        return networkStats;
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.datausage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.net.INetworkStatsSession;
+import android.net.NetworkStats;
+import android.net.NetworkTemplate;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.TimeUnit;
+
+/** Unit test for {@link SummaryForAllUidLoader}. */
+@RunWith(RobolectricTestRunner.class)
+public class SummaryForAllUidLoaderTest {
+
+    private static final long CYCLE_START = 1000;
+
+    private Context mContext;
+    private NetworkTemplate mTemplate;
+    private NetworkStatsSummaryCache mCache;
+    private long mCycleEnd;
+
+    @Mock
+    private INetworkStatsSession mSession;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = ApplicationProvider.getApplicationContext();
+        mTemplate = NetworkTemplate.buildTemplateWifiWildcard();
+        mCache = new NetworkStatsSummaryCache();
+        mCycleEnd = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+    }
+
+    @Test
+    public void loadInBackground_nothingCached_queriesWholeCycle() throws Exception {
+        NetworkStats stats = createStats(100);
+        when(mSession.getSummaryForAllUid(mTemplate, CYCLE_START, mCycleEnd, false))
+                .thenReturn(stats);
+
+        NetworkStats result = createLoader().loadInBackground();
+
+        assertThat(result.getTotalBytes()).isEqualTo(100);
+        assertThat(mCache.get(mTemplate, CYCLE_START)).isNotNull();
+    }
+
+    @Test
+    public void loadInBackground_freshSummaryCached_doesNotQuery() throws Exception {
+        long now = System.currentTimeMillis();
+        mCache.put(mTemplate, CYCLE_START,
+                new NetworkStatsSummaryCache.Entry(createStats(100), now));
+
+        NetworkStats result = createLoader().loadInBackground();
+
+        assertThat(result.getTotalBytes()).isEqualTo(100);
+        verify(mSession, never()).getSummaryForAllUid(any(), anyLong(), anyLong(), anyBoolean());
+    }
+
+    @Test
+    public void loadInBackground_staleSummaryCached_queriesWholeCycle() throws Exception {
+        long summarizedUntil = System.currentTimeMillis()
+                - NetworkStatsSummaryCache.FRESH_AGE_MS * 2;
+        mCache.put(mTemplate, CYCLE_START,
+                new NetworkStatsSummaryCache.Entry(createStats(100), summarizedUntil));
+        when(mSession.getSummaryForAllUid(mTemplate, CYCLE_START, mCycleEnd, false))
+                .thenReturn(createStats(150));
+
+        NetworkStats result = createLoader().loadInBackground();
+
+        assertThat(result.getTotalBytes()).isEqualTo(150);
+        verify(mSession, never()).getSummaryForAllUid(eq(mTemplate), eq(summarizedUntil),
+                anyLong(), anyBoolean());
+        assertThat(mCache.get(mTemplate, CYCLE_START).getSummarizedUntil())
+                .isGreaterThan(summarizedUntil);
+    }
+
+    @Test
+    public void loadInBackground_pastCycleCached_doesNotQuery() throws Exception {
+        long pastCycleEnd = CYCLE_START + 500;
+        mCache.put(mTemplate, CYCLE_START,
+                new NetworkStatsSummaryCache.Entry(createStats(100), pastCycleEnd));
+
+        NetworkStats result = new SummaryForAllUidLoader(mContext, mSession,
+                SummaryForAllUidLoader.buildArgs(mTemplate, CYCLE_START, pastCycleEnd),
+                mCache).loadInBackground();
+
+        assertThat(result.getTotalBytes()).isEqualTo(100);
+        verify(mSession, never()).getSummaryForAllUid(any(), anyLong(), anyLong(), anyBoolean());
+    }
+
+    private SummaryForAllUidLoader createLoader() {
+        return new SummaryForAllUidLoader(mContext, mSession,
+                SummaryForAllUidLoader.buildArgs(mTemplate, CYCLE_START, mCycleEnd), mCache);
+    }
+
+    private static NetworkStats createStats(long rxBytes) {
+        NetworkStats.Entry entry = new NetworkStats.Entry();
+        entry.rxBytes = rxBytes;
+        return new NetworkStats(0, 1).addEntry(entry);
+    }
+}
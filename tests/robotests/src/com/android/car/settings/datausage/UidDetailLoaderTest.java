@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.datausage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.android.settingslib.net.UidDetail;
+import com.android.settingslib.net.UidDetailProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Unit test for {@link UidDetailLoader}. */
+@RunWith(RobolectricTestRunner.class)
+public class UidDetailLoaderTest {
+
+    private final List<Runnable> mQueuedTasks = new ArrayList<>();
+
+    @Mock
+    private UidDetailProvider mProvider;
+    @Mock
+    private UidDetailLoader.Callback mCallback;
+
+    private UidDetail mUidDetail;
+    private UidDetailLoader mLoader;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mUidDetail = new UidDetail();
+        when(mProvider.getUidDetail(anyInt(), eq(true))).thenReturn(mUidDetail);
+        mLoader = new UidDetailLoader(mProvider, mQueuedTasks::add);
+    }
+
+    @Test
+    public void request_deliversDetail() {
+        mLoader.request(1, mCallback);
+        runQueuedTasks();
+        ShadowLooper.idleMainLooper();
+
+        verify(mCallback).onUidDetailLoaded(1, mUidDetail);
+    }
+
+    @Test
+    public void request_manyUids_schedulesSingleWorkerTask() {
+        for (int uid = 0; uid < UidDetailLoader.BATCH_SIZE * 3; uid++) {
+            mLoader.request(uid, mCallback);
+        }
+
+        assertThat(mQueuedTasks).hasSize(1);
+        runQueuedTasks();
+        ShadowLooper.idleMainLooper();
+
+        verify(mCallback, times(UidDetailLoader.BATCH_SIZE * 3))
+                .onUidDetailLoaded(anyInt(), eq(mUidDetail));
+    }
+
+    @Test
+    public void request_sameUidTwice_resolvesOnce() {
+        UidDetailLoader.Callback otherCallback = mock(UidDetailLoader.Callback.class);
+        mLoader.request(1, mCallback);
+        mLoader.request(1, otherCallback);
+        runQueuedTasks();
+        ShadowLooper.idleMainLooper();
+
+        verify(mProvider, times(1)).getUidDetail(1, /* blocking= */ true);
+        verify(mCallback, never()).onUidDetailLoaded(anyInt(), eq(mUidDetail));
+        verify(otherCallback).onUidDetailLoaded(1, mUidDetail);
+    }
+
+    @Test
+    public void cancel_beforeWorkerRuns_notResolved() {
+        mLoader.request(1, mCallback);
+        mLoader.cancel(1, mCallback);
+        runQueuedTasks();
+        ShadowLooper.idleMainLooper();
+
+        verify(mProvider, never()).getUidDetail(1, /* blocking= */ true);
+        verify(mCallback, never()).onUidDetailLoaded(anyInt(), eq(mUidDetail));
+    }
+
+    @Test
+    public void cancel_otherCallback_keepsRequest() {
+        mLoader.request(1, mCallback);
+        mLoader.cancel(1, mock(UidDetailLoader.Callback.class));
+
+        assertThat(mLoader.getPendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void release_dropsPendingAndFutureRequests() {
+        mLoader.request(1, mCallback);
+        mLoader.release();
+        mLoader.request(2, mCallback);
+        runQueuedTasks();
+        ShadowLooper.idleMainLooper();
+
+        assertThat(mLoader.getPendingCount()).isEqualTo(0);
+        verify(mCallback, never()).onUidDetailLoaded(anyInt(), eq(mUidDetail));
+    }
+
+    private void runQueuedTasks() {
+        while (!mQueuedTasks.isEmpty()) {
+            mQueuedTasks.remove(0).run();
+        }
+    }
+}
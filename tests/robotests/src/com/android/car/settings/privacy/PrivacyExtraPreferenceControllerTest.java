@@ -17,6 +17,7 @@ package com.android.car.settings.privacy;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.when;
 
 import android.content.Context;
@@ -31,6 +32,7 @@ import androidx.preference.PreferenceGroup;
 import com.android.car.settings.common.ExtraSettingsLoader;
 import com.android.car.settings.common.LogicalPreferenceGroup;
 import com.android.car.settings.common.PreferenceControllerTestHelper;
+import com.android.car.settings.testutils.ShadowThreadUtils;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -39,11 +41,13 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
 
 import java.util.HashMap;
 import java.util.Map;
 
 @RunWith(RobolectricTestRunner.class)
+@Config(shadows = {ShadowThreadUtils.class})
 public class PrivacyExtraPreferenceControllerTest {
 
     private static final Intent FAKE_INTENT = new Intent();
@@ -80,7 +84,7 @@ public class PrivacyExtraPreferenceControllerTest {
             preferenceBundleWithIconsMap.put(pref, new Bundle());
         }
 
-        when(mExtraSettingsLoaderMock.loadPreferences(FAKE_INTENT)).thenReturn(
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
                 preferenceBundleWithIconsMap);
 
         mController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.search;
+
+import static com.android.car.settings.search.NonIndexableKeysCache.INVALIDATE_ON_PACKAGE_CHANGE;
+import static com.android.car.settings.search.NonIndexableKeysCache.INVALIDATE_ON_USER_CHANGE;
+import static com.android.car.settings.search.NonIndexableKeysCache.INVALIDATE_ON_UX_RESTRICTIONS_CHANGE;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import com.android.car.settings.bluetooth.BluetoothSettingsFragment;
+import com.android.car.settings.system.SystemSettingsFragment;
+import com.android.car.settings.units.UnitsSettingsFragment;
+import com.android.car.settings.users.UsersListFragment;
+import com.android.car.settings.wifi.WifiSettingsFragment;
+import com.android.car.settings.wifi.preferences.WifiPreferencesFragment;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Collections;
+
+/** Unit test for the invalidation triggers of {@link CarBaseSearchIndexProvider}s. */
+@RunWith(RobolectricTestRunner.class)
+public class CarBaseSearchIndexProviderTest {
+
+    private static final CarBaseSearchIndexProvider[] NARROWED_PROVIDERS = {
+            BluetoothSettingsFragment.SEARCH_INDEX_DATA_PROVIDER,
+            WifiSettingsFragment.SEARCH_INDEX_DATA_PROVIDER,
+            WifiPreferencesFragment.SEARCH_INDEX_DATA_PROVIDER,
+            SystemSettingsFragment.SEARCH_INDEX_DATA_PROVIDER,
+            UsersListFragment.SEARCH_INDEX_DATA_PROVIDER,
+            UnitsSettingsFragment.SEARCH_INDEX_DATA_PROVIDER};
+
+    private Context mContext;
+    private NonIndexableKeysCache mCache;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mCache = new NonIndexableKeysCache(mContext);
+    }
+
+    @Test
+    public void getInvalidationTriggers_defaultsToAnyChange() {
+        CarBaseSearchIndexProvider provider =
+                new CarBaseSearchIndexProvider(/* xmlRes= */ 1, "action");
+
+        assertThat(provider.getInvalidationTriggers())
+                .isEqualTo(NonIndexableKeysCache.INVALIDATE_ON_ANY_CHANGE);
+    }
+
+    @Test
+    public void uxRestrictionsChanged_narrowedScreensStayCached() {
+        loadAll();
+
+        mCache.invalidate(INVALIDATE_ON_UX_RESTRICTIONS_CHANGE);
+        loadAll();
+
+        assertThat(mCache.getLoadCount()).isEqualTo(NARROWED_PROVIDERS.length);
+    }
+
+    @Test
+    public void packageChanged_screensWithoutInjectedSettingsStayCached() {
+        loadAll();
+
+        mCache.invalidate(INVALIDATE_ON_PACKAGE_CHANGE);
+        loadAll();
+
+        // Only the system screen hosts settings injected by other packages.
+        assertThat(mCache.getLoadCount()).isEqualTo(NARROWED_PROVIDERS.length + 1);
+    }
+
+    @Test
+    public void userChanged_narrowedScreensReloaded() {
+        loadAll();
+
+        mCache.invalidate(INVALIDATE_ON_USER_CHANGE);
+        loadAll();
+
+        assertThat(mCache.getLoadCount()).isEqualTo(2 * NARROWED_PROVIDERS.length);
+    }
+
+    private void loadAll() {
+        for (int i = 0; i < NARROWED_PROVIDERS.length; i++) {
+            mCache.getNonIndexableKeys(/* xmlResId= */ i + 1,
+                    NARROWED_PROVIDERS[i].getInvalidationTriggers(),
+                    uxRestrictions -> Collections.emptyList());
+        }
+    }
+}
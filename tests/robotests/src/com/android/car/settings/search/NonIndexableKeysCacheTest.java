@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.search;
+
+import static com.android.car.settings.search.NonIndexableKeysCache.INVALIDATE_ON_FEATURE_CHANGE;
+import static com.android.car.settings.search.NonIndexableKeysCache.INVALIDATE_ON_PACKAGE_CHANGE;
+import static com.android.car.settings.search.NonIndexableKeysCache.INVALIDATE_ON_USER_CHANGE;
+import static com.android.car.settings.search.NonIndexableKeysCache.INVALIDATE_ON_UX_RESTRICTIONS_CHANGE;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.car.drivingstate.CarUxRestrictions;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** Unit test for {@link NonIndexableKeysCache}. */
+@RunWith(RobolectricTestRunner.class)
+public class NonIndexableKeysCacheTest {
+
+    private static final int SCREEN_1 = 1;
+    private static final int SCREEN_2 = 2;
+
+    private Context mContext;
+    private NonIndexableKeysCache mCache;
+    private List<CarUxRestrictions> mLoadedRestrictions;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mCache = new NonIndexableKeysCache(mContext);
+        mLoadedRestrictions = new ArrayList<>();
+    }
+
+    @Test
+    public void getNonIndexableKeys_returnsLoadedKeys() {
+        assertThat(get(SCREEN_1, INVALIDATE_ON_USER_CHANGE)).containsExactly("key1");
+    }
+
+    @Test
+    public void getNonIndexableKeys_calledTwice_loadsOnce() {
+        get(SCREEN_1, INVALIDATE_ON_USER_CHANGE);
+        get(SCREEN_1, INVALIDATE_ON_USER_CHANGE);
+
+        assertThat(mCache.getLoadCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void invalidate_onlyReloadsScreensDeclaringTrigger() {
+        get(SCREEN_1, INVALIDATE_ON_USER_CHANGE);
+        get(SCREEN_2, INVALIDATE_ON_PACKAGE_CHANGE);
+
+        mCache.invalidate(INVALIDATE_ON_PACKAGE_CHANGE);
+        get(SCREEN_1, INVALIDATE_ON_USER_CHANGE);
+        get(SCREEN_2, INVALIDATE_ON_PACKAGE_CHANGE);
+
+        assertThat(mCache.getLoadCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void onUxRestrictionsChanged_reloadsWithNewRestrictions() {
+        get(SCREEN_1, INVALIDATE_ON_UX_RESTRICTIONS_CHANGE);
+        CarUxRestrictions restrictions = new CarUxRestrictions.Builder(/* reqOpt= */ true,
+                CarUxRestrictions.UX_RESTRICTIONS_FULLY_RESTRICTED, /* timestamp= */ 0).build();
+
+        mCache.onUxRestrictionsChanged(restrictions);
+        get(SCREEN_1, INVALIDATE_ON_UX_RESTRICTIONS_CHANGE);
+
+        assertThat(mCache.getLoadCount()).isEqualTo(2);
+        assertThat(mLoadedRestrictions.get(1)).isSameAs(restrictions);
+    }
+
+    @Test
+    public void onUxRestrictionsChanged_sameRestrictions_keepsKeys() {
+        get(SCREEN_1, INVALIDATE_ON_UX_RESTRICTIONS_CHANGE);
+
+        mCache.onUxRestrictionsChanged(mLoadedRestrictions.get(0));
+        get(SCREEN_1, INVALIDATE_ON_UX_RESTRICTIONS_CHANGE);
+
+        assertThat(mCache.getLoadCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void userSwitched_reloadsUserDependentScreens() {
+        get(SCREEN_1, INVALIDATE_ON_USER_CHANGE);
+        get(SCREEN_2, INVALIDATE_ON_FEATURE_CHANGE);
+
+        mContext.sendBroadcast(new Intent(Intent.ACTION_USER_SWITCHED));
+        ShadowLooper.idleMainLooper();
+        get(SCREEN_1, INVALIDATE_ON_USER_CHANGE);
+        get(SCREEN_2, INVALIDATE_ON_FEATURE_CHANGE);
+
+        assertThat(mCache.getLoadCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void packageAdded_reloadsPackageDependentScreens() {
+        get(SCREEN_1, INVALIDATE_ON_PACKAGE_CHANGE);
+
+        mContext.sendBroadcast(new Intent(Intent.ACTION_PACKAGE_ADDED,
+                Uri.fromParts("package", "com.example", /* fragment= */ null)));
+        ShadowLooper.idleMainLooper();
+        get(SCREEN_1, INVALIDATE_ON_PACKAGE_CHANGE);
+
+        assertThat(mCache.getLoadCount()).isEqualTo(2);
+    }
+
+    private List<String> get(int xmlResId, int triggers) {
+        return mCache.getNonIndexableKeys(xmlResId, triggers, uxRestrictions -> {
+            mLoadedRestrictions.add(uxRestrictions);
+            return new ArrayList<>(Collections.singletonList("key" + xmlResId));
+        });
+    }
+}
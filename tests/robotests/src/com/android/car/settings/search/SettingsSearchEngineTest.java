@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.search;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Unit test for {@link SettingsSearchEngine}. */
+@RunWith(RobolectricTestRunner.class)
+public class SettingsSearchEngineTest {
+
+    private static final int MAX_RESULTS = 10;
+
+    private SettingsSearchEngine mEngine;
+    private SettingsSearchEngine.Session mSession;
+
+    @Before
+    public void setUp() {
+        mEngine = new SettingsSearchEngine(Arrays.asList(
+                createEntry("bluetooth", "Bluetooth"),
+                createEntry("bluetooth_name", "Bluetooth name"),
+                createEntry("wifi", "Wi-Fi"),
+                createEntry("wifi_preferences", "Wi-Fi preferences"),
+                createEntry("brightness", "Brightness level"),
+                createEntry("language", "Languages & input"),
+                createEntry("date", "Date & time"),
+                createEntry("location", "Location")));
+        mSession = mEngine.newSession();
+    }
+
+    @Test
+    public void tokenize_normalizesCaseAccentsAndHyphens() {
+        assertThat(SettingsSearchEngine.tokenize("Wi-Fi Réseau, DATE & time"))
+                .asList().containsExactly("wifi", "reseau", "date", "time").inOrder();
+    }
+
+    @Test
+    public void search_emptyQuery_returnsNothing() {
+        assertThat(mSession.search("  ", MAX_RESULTS)).isEmpty();
+    }
+
+    @Test
+    public void search_prefix_returnsMatchingEntries() {
+        assertThat(keys(mSession.search("blu", MAX_RESULTS)))
+                .containsExactly("bluetooth", "bluetooth_name");
+    }
+
+    @Test
+    public void search_exactWord_ranksShorterTitleFirst() {
+        assertThat(keys(mSession.search("bluetooth", MAX_RESULTS)))
+                .containsExactly("bluetooth", "bluetooth_name").inOrder();
+    }
+
+    @Test
+    public void search_exactWord_ranksBeforePrefix() {
+        SettingsSearchEngine engine = new SettingsSearchEngine(Arrays.asList(
+                createEntry("dates", "Dates"),
+                createEntry("date", "Date")));
+
+        assertThat(keys(engine.newSession().search("date", MAX_RESULTS)))
+                .containsExactly("date", "dates").inOrder();
+    }
+
+    @Test
+    public void search_hyphenatedTitle_matchesJoinedQuery() {
+        assertThat(keys(mSession.search("wifi", MAX_RESULTS)))
+                .containsExactly("wifi", "wifi_preferences").inOrder();
+    }
+
+    @Test
+    public void search_multipleTokens_requiresAllTokens() {
+        assertThat(keys(mSession.search("wi pref", MAX_RESULTS)))
+                .containsExactly("wifi_preferences");
+    }
+
+    @Test
+    public void search_typo_matchesFuzzily() {
+        assertThat(keys(mSession.search("brightnes lvel", MAX_RESULTS)))
+                .containsExactly("brightness");
+    }
+
+    @Test
+    public void search_shortTokenWithTypo_doesNotMatch() {
+        assertThat(mSession.search("blx", MAX_RESULTS)).isEmpty();
+    }
+
+    @Test
+    public void search_fuzzyMatch_ranksAfterPrefixMatch() {
+        SettingsSearchEngine engine = new SettingsSearchEngine(Arrays.asList(
+                createEntry("locale", "Locale"),
+                createEntry("location", "Location")));
+
+        assertThat(keys(engine.newSession().search("locat", MAX_RESULTS)))
+                .containsExactly("location", "locale").inOrder();
+    }
+
+    @Test
+    public void search_limitsResults() {
+        assertThat(mSession.search("b", /* maxResults= */ 1)).hasSize(1);
+    }
+
+    @Test
+    public void search_refinedQuery_onlyChecksPreviousResults() {
+        mSession.search("b", MAX_RESULTS);
+        int checked = mSession.getEntriesChecked();
+
+        List<SettingsSearchEngine.Entry> results = mSession.search("bl", MAX_RESULTS);
+
+        assertThat(keys(results)).containsExactly("bluetooth", "bluetooth_name");
+        // "b" matched the two Bluetooth entries and brightness.
+        assertThat(mSession.getEntriesChecked() - checked).isEqualTo(3);
+    }
+
+    @Test
+    public void search_shortenedQuery_searchesAllEntriesAgain() {
+        mSession.search("blue", MAX_RESULTS);
+
+        List<SettingsSearchEngine.Entry> results = mSession.search("b", MAX_RESULTS);
+
+        assertThat(keys(results)).containsExactly("bluetooth", "bluetooth_name", "brightness");
+    }
+
+    @Test
+    public void search_refinementAllowingMoreEdits_searchesAllEntriesAgain() {
+        assertThat(mSession.search("lca", MAX_RESULTS)).isEmpty();
+
+        // Four characters allow one edit, so "lcat" may match entries "lca" did not.
+        assertThat(keys(mSession.search("lcat", MAX_RESULTS))).containsExactly("location");
+    }
+
+    @Test
+    public void prefixEditDistance_returnsDistanceToClosestPrefix() {
+        int[][] scratch = new int[2][16];
+
+        assertThat(SettingsSearchEngine.prefixEditDistance("blue", "bluetooth", 1, scratch))
+                .isEqualTo(0);
+        assertThat(SettingsSearchEngine.prefixEditDistance("blie", "bluetooth", 1, scratch))
+                .isEqualTo(1);
+        assertThat(SettingsSearchEngine.prefixEditDistance("bxxe", "bluetooth", 1, scratch))
+                .isEqualTo(2);
+    }
+
+    @Test
+    public void search_longTokenWithTypos_onlyComparesWordsSharingBigrams() {
+        assertThat(keys(mSession.search("bluetoth", MAX_RESULTS)))
+                .containsExactly("bluetooth", "bluetooth_name");
+        assertThat(mSession.getWordsCompared()).isEqualTo(1);
+    }
+
+    @Test
+    public void distinctBigrams_dropsRepeatedBigrams() {
+        assertThat(SettingsSearchEngine.distinctBigrams("aaab")).hasLength(2);
+        assertThat(SettingsSearchEngine.distinctBigrams("a")).hasLength(0);
+    }
+
+    private static SettingsSearchEngine.Entry createEntry(String key, String title) {
+        return new SettingsSearchEngine.Entry(key, title, /* screenTitle= */ null,
+                /* fragmentClassName= */ null);
+    }
+
+    private static List<String> keys(List<SettingsSearchEngine.Entry> entries) {
+        List<String> keys = new ArrayList<>();
+        for (SettingsSearchEngine.Entry entry : entries) {
+            keys.add(entry.getKey());
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.search;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.preference.PreferenceGroup;
+
+import com.android.car.settings.common.LogicalPreferenceGroup;
+import com.android.car.settings.common.PreferenceControllerTestHelper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+
+/** Unit test for {@link SettingsSearchResultsPreferenceController}. */
+@RunWith(RobolectricTestRunner.class)
+public class SettingsSearchResultsPreferenceControllerTest {
+
+    private static final String FRAGMENT_CLASS_NAME = "com.example.BluetoothFragment";
+
+    private PreferenceGroup mPreferenceGroup;
+    private PreferenceControllerTestHelper<SettingsSearchResultsPreferenceController>
+            mControllerHelper;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.application;
+        mPreferenceGroup = new LogicalPreferenceGroup(context);
+        mControllerHelper = new PreferenceControllerTestHelper<>(context,
+                SettingsSearchResultsPreferenceController.class);
+        mControllerHelper.getController().setSearchEngine(new SettingsSearchEngine(Arrays.asList(
+                new SettingsSearchEngine.Entry("bluetooth", "Bluetooth", "Connected devices",
+                        FRAGMENT_CLASS_NAME),
+                new SettingsSearchEngine.Entry("wifi", "Wi-Fi", "Network & internet",
+                        /* fragmentClassName= */ null))));
+        mControllerHelper.setPreference(mPreferenceGroup);
+        mControllerHelper.markState(Lifecycle.State.CREATED);
+    }
+
+    @Test
+    public void onCreate_noQuery_showsNothing() {
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void setQuery_showsMatchingPreferences() {
+        mControllerHelper.getController().setQuery("blue");
+
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(1);
+        assertThat(mPreferenceGroup.getPreference(0).getTitle()).isEqualTo("Bluetooth");
+        assertThat(mPreferenceGroup.getPreference(0).getSummary())
+                .isEqualTo("Connected devices");
+        assertThat(mPreferenceGroup.getPreference(0).getFragment())
+                .isEqualTo(FRAGMENT_CLASS_NAME);
+    }
+
+    @Test
+    public void setQuery_refined_replacesResults() {
+        mControllerHelper.getController().setQuery("w");
+        mControllerHelper.getController().setQuery("wib");
+
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(0);
+    }
+}
@@ -18,10 +18,14 @@ package com.android.car.settings.storage;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.junit.Assert.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.app.usage.StorageStats;
@@ -34,6 +38,8 @@ import android.net.TrafficStats;
 import android.os.UserHandle;
 import android.util.SparseArray;
 
+import androidx.core.os.OperationCanceledException;
+
 import com.android.car.settings.testutils.ShadowApplicationPackageManager;
 import com.android.car.settings.testutils.ShadowUserHelper;
 import com.android.car.settings.users.UserHelper;
@@ -50,8 +56,11 @@ import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 import org.robolectric.shadow.api.Shadow;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /** Unit test for {@link StorageAsyncLoader}. */
 @RunWith(RobolectricTestRunner.class)
@@ -63,6 +72,7 @@ public class StorageAsyncLoaderTest {
     private static final String PACKAGE_NAME_2 = "com.blah.test2";
     private static final String DEFAULT_PACKAGE_NAME = "com.android.car.settings";
     private static final long DEFAULT_QUOTA = 64 * TrafficStats.MB_IN_BYTES;
+    private static final int MAX_PARALLEL_USER_LOADS = 4;
 
     @Mock
     private StorageStatsSource mSource;
@@ -70,6 +80,7 @@ public class StorageAsyncLoaderTest {
     private UserHelper mUserHelper;
 
     private Context mContext;
+    private AppStorageStatsCache mCache;
     private List<ApplicationInfo> mInfo = new ArrayList<>();
     private List<UserInfo> mUsers;
 
@@ -80,7 +91,10 @@ public class StorageAsyncLoaderTest {
         MockitoAnnotations.initMocks(this);
         mContext = RuntimeEnvironment.application;
         mInfo = new ArrayList<>();
-        mLoader = new StorageAsyncLoader(mContext, mSource);
+        mCache = new AppStorageStatsCache(
+                new File(mContext.getCacheDir(), AppStorageStatsCache.CACHE_FILE_NAME));
+        mCache.clear();
+        mLoader = new StorageAsyncLoader(mContext, mSource, mCache, MAX_PARALLEL_USER_LOADS);
         UserInfo info = new UserInfo();
         mUsers = new ArrayList<>();
         mUsers.add(info);
@@ -230,6 +244,164 @@ public class StorageAsyncLoaderTest {
         assertThat(result.get(PRIMARY_USER_ID).getOtherAppsSize()).isEqualTo(DEFAULT_QUOTA + 11);
     }
 
+    @Test
+    public void testSecondLoad_freshCache_doesNotQueryPackageAgain() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+
+        mLoader.loadInBackground();
+        SparseArray<StorageAsyncLoader.AppsStorageResult> result = mLoader.loadInBackground();
+
+        verify(mSource, times(1)).getStatsForPackage(any(), eq(PACKAGE_NAME_1),
+                any(UserHandle.class));
+        assertThat(result.get(PRIMARY_USER_ID).getOtherAppsSize()).isEqualTo(11L);
+    }
+
+    @Test
+    public void testSecondLoad_cachePersisted_newLoaderDoesNotQueryPackageAgain()
+            throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        mLoader.loadInBackground();
+
+        AppStorageStatsCache reloadedCache = new AppStorageStatsCache(
+                new File(mContext.getCacheDir(), AppStorageStatsCache.CACHE_FILE_NAME));
+        StorageAsyncLoader loader = new StorageAsyncLoader(mContext, mSource, reloadedCache,
+                MAX_PARALLEL_USER_LOADS);
+        SparseArray<StorageAsyncLoader.AppsStorageResult> result = loader.loadInBackground();
+
+        verify(mSource, times(1)).getStatsForPackage(any(), eq(PACKAGE_NAME_1),
+                any(UserHandle.class));
+        assertThat(result.get(PRIMARY_USER_ID).getOtherAppsSize()).isEqualTo(11L);
+    }
+
+    @Test
+    public void testSecondLoad_packageInvalidated_queriesPackageAgain() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+
+        mLoader.loadInBackground();
+        mCache.invalidatePackage(PACKAGE_NAME_1);
+        mLoader.loadInBackground();
+
+        verify(mSource, times(2)).getStatsForPackage(any(), eq(PACKAGE_NAME_1),
+                any(UserHandle.class));
+    }
+
+    @Test
+    public void testSecondLoad_packageUpdated_queriesPackageAgain() throws Exception {
+        ApplicationInfo info =
+                addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+
+        mLoader.loadInBackground();
+        info.longVersionCode = 2;
+        mLoader.loadInBackground();
+
+        verify(mSource, times(2)).getStatsForPackage(any(), eq(PACKAGE_NAME_1),
+                any(UserHandle.class));
+    }
+
+    @Test
+    public void testParallelLoad_queriesUsersConcurrently() throws Exception {
+        UserInfo info = new UserInfo();
+        info.id = SECONDARY_USER_ID;
+        mUsers.add(info);
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        StorageStatsSource.AppStorageStats stats = mSource.getStatsForPackage(null,
+                PACKAGE_NAME_1, UserHandle.SYSTEM);
+        // Each user's query only completes once the other user's query has started, which can
+        // only happen if both are in flight at the same time.
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        doAnswer(invocation -> {
+            bothStarted.countDown();
+            assertThat(bothStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            return stats;
+        }).when(mSource).getStatsForPackage(any(), anyString(), any(UserHandle.class));
+
+        SparseArray<StorageAsyncLoader.AppsStorageResult> result = mLoader.loadInBackground();
+
+        assertThat(result.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testParallelLoad_sameAttributionAsSerialLoad() throws Exception {
+        UserInfo info = new UserInfo();
+        info.id = SECONDARY_USER_ID;
+        mUsers.add(info);
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_VIDEO);
+        addPackage(PACKAGE_NAME_2, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+
+        SparseArray<StorageAsyncLoader.AppsStorageResult> parallelResult =
+                mLoader.loadInBackground();
+        mCache.clear();
+        SparseArray<StorageAsyncLoader.AppsStorageResult> serialResult =
+                new StorageAsyncLoader(mContext, mSource, mCache, /* maxParallelUserLoads= */ 1)
+                        .loadInBackground();
+
+        for (int userId : new int[]{PRIMARY_USER_ID, SECONDARY_USER_ID}) {
+            assertThat(parallelResult.get(userId).getVideoAppsSize())
+                    .isEqualTo(serialResult.get(userId).getVideoAppsSize());
+            assertThat(parallelResult.get(userId).getOtherAppsSize())
+                    .isEqualTo(serialResult.get(userId).getOtherAppsSize());
+        }
+        // Code size is only attributed to the first user.
+        assertThat(parallelResult.get(PRIMARY_USER_ID).getVideoAppsSize()).isEqualTo(11L);
+        assertThat(parallelResult.get(SECONDARY_USER_ID).getVideoAppsSize()).isEqualTo(10L);
+    }
+
+    @Test
+    public void testLoad_codeSizeAttributedToFirstUserOfUserList() throws Exception {
+        UserInfo info = new UserInfo();
+        info.id = SECONDARY_USER_ID;
+        mUsers.add(0, info);
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_VIDEO);
+
+        SparseArray<StorageAsyncLoader.AppsStorageResult> result = mLoader.loadInBackground();
+
+        assertThat(result.get(SECONDARY_USER_ID).getVideoAppsSize()).isEqualTo(11L);
+        assertThat(result.get(PRIMARY_USER_ID).getVideoAppsSize()).isEqualTo(10L);
+    }
+
+    @Test
+    public void testProgress_deliversTotalsWhilePackagesAreQueried() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        addPackage(PACKAGE_NAME_2, 0, 100, 1000, ApplicationInfo.CATEGORY_UNDEFINED);
+        List<SparseArray<StorageAsyncLoader.AppsStorageResult>> partialResults =
+                new ArrayList<>();
+        StorageAsyncLoader loader = new StorageAsyncLoader(mContext, mSource, mCache,
+                MAX_PARALLEL_USER_LOADS) {
+            @Override
+            protected void deliverPartialResult(
+                    SparseArray<StorageAsyncLoader.AppsStorageResult> partialResult) {
+                partialResults.add(partialResult);
+            }
+        };
+        loader.setProgressPackageCount(1);
+
+        SparseArray<StorageAsyncLoader.AppsStorageResult> result = loader.loadInBackground();
+
+        assertThat(partialResults).hasSize(2);
+        assertThat(partialResults.get(0).get(PRIMARY_USER_ID).getOtherAppsSize())
+                .isEqualTo(1100L);
+        assertThat(partialResults.get(1).get(PRIMARY_USER_ID).getOtherAppsSize())
+                .isEqualTo(result.get(PRIMARY_USER_ID).getOtherAppsSize());
+    }
+
+    @Test
+    public void testCanceledLoad_stopsQueryingPackages() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        addPackage(PACKAGE_NAME_2, 0, 100, 1000, ApplicationInfo.CATEGORY_UNDEFINED);
+        StorageStatsSource.AppStorageStats stats = mSource.getStatsForPackage(null,
+                PACKAGE_NAME_1, UserHandle.SYSTEM);
+        doAnswer(invocation -> {
+            mLoader.cancelLoadInBackground();
+            return stats;
+        }).when(mSource).getStatsForPackage(any(), anyString(), any(UserHandle.class));
+
+        assertThrows(OperationCanceledException.class, mLoader::loadInBackground);
+
+        // One call above, and the one query made before the load was canceled.
+        verify(mSource, times(2)).getStatsForPackage(any(), anyString(),
+                any(UserHandle.class));
+    }
+
     private ApplicationInfo addPackage(String packageName, long cacheSize, long codeSize,
             long dataSize, int category) throws Exception {
         StorageStats stats = new StorageStats();
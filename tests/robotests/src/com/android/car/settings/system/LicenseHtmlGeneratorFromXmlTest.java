@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.system;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.GZIPOutputStream;
+
+/** Unit test for {@link LicenseHtmlGeneratorFromXml}. */
+@RunWith(RobolectricTestRunner.class)
+public class LicenseHtmlGeneratorFromXmlTest {
+
+    private static final String VALID_XML_STRING =
+            "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+                    + "<licenses>\n"
+                    + "<file-name contentId=\"0\">/file0</file-name>\n"
+                    + "<file-name contentId=\"0\">/file1</file-name>\n"
+                    + "<file-content contentId=\"0\"><![CDATA[license content #0]]>"
+                    + "</file-content>\n"
+                    + "</licenses>";
+
+    private static final String OTHER_XML_STRING =
+            "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+                    + "<licenses>\n"
+                    + "<file-name contentId=\"0\">/file2</file-name>\n"
+                    + "<file-name contentId=\"1\">/file3</file-name>\n"
+                    + "<file-content contentId=\"0\"><![CDATA[duplicate content]]></file-content>\n"
+                    + "<file-content contentId=\"1\"><![CDATA[license é #1]]></file-content>\n"
+                    + "</licenses>";
+
+    private static final String INVALID_XML_STRING =
+            "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+                    + "<licenses2>\n"
+                    + "<file-name contentId=\"0\">/file0</file-name>\n"
+                    + "<file-content contentId=\"0\"><![CDATA[license content #0]]>"
+                    + "</file-content>\n"
+                    + "</licenses2>";
+
+    private static final String HTML_HEAD_STRING =
+            "<html><head>\n"
+                    + "<style type=\"text/css\">\n"
+                    + "body { padding: 0; font-family: sans-serif; }\n"
+                    + ".same-license { background-color: #eeeeee;\n"
+                    + "                border-top: 20px solid white;\n"
+                    + "                padding: 10px; }\n"
+                    + ".label { font-weight: bold; }\n"
+                    + ".file-list { margin-left: 1em; color: blue; }\n"
+                    + "</style>\n"
+                    + "</head>"
+                    + "<body topmargin=\"0\" leftmargin=\"0\" rightmargin=\"0\" bottommargin=\"0\">"
+                    + "\n"
+                    + "<div class=\"toc\">\n"
+                    + "<ul>\n";
+
+    private static final String HTML_MIDDLE_STRING =
+            "</ul>\n"
+                    + "</div><!-- table of contents -->\n"
+                    + "<table cellpadding=\"0\" cellspacing=\"0\" border=\"0\">\n";
+
+    private static final String HTML_REAR_STRING = "</table></body></html>\n";
+
+    private static final String EXPECTED_HTML_STRING = HTML_HEAD_STRING
+            + "<li><a href=\"#id0\">/file0</a></li>\n"
+            + "<li><a href=\"#id0\">/file1</a></li>\n"
+            + HTML_MIDDLE_STRING
+            + "<tr id=\"id0\"><td class=\"same-license\">\n"
+            + "<div class=\"label\">Notices for file(s):</div>\n"
+            + "<div class=\"file-list\">\n"
+            + "/file0 <br/>\n"
+            + "/file1 <br/>\n"
+            + "</div><!-- file-list -->\n"
+            + "<pre class=\"license-text\">\n"
+            + "license content #0\n"
+            + "</pre><!-- license-text -->\n"
+            + "</td></tr><!-- same-license -->\n"
+            + HTML_REAR_STRING;
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void generateHtml_validXml_writesHtml() throws IOException {
+        File xmlFile = writeXml("notice.xml", VALID_XML_STRING);
+        File htmlFile = new File(mTemporaryFolder.getRoot(), "notice.html");
+
+        assertThat(LicenseHtmlGeneratorFromXml.generateHtml(Collections.singletonList(xmlFile),
+                htmlFile)).isTrue();
+        assertThat(readHtml(htmlFile)).isEqualTo(EXPECTED_HTML_STRING);
+    }
+
+    @Test
+    public void generateHtml_gzippedXml_writesHtml() throws IOException {
+        File xmlFile = mTemporaryFolder.newFile("notice.xml.gz");
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(xmlFile))) {
+            out.write(VALID_XML_STRING.getBytes(StandardCharsets.UTF_8));
+        }
+        File htmlFile = new File(mTemporaryFolder.getRoot(), "notice.html");
+
+        assertThat(LicenseHtmlGeneratorFromXml.generateHtml(Collections.singletonList(xmlFile),
+                htmlFile)).isTrue();
+        assertThat(readHtml(htmlFile)).isEqualTo(EXPECTED_HTML_STRING);
+    }
+
+    @Test
+    public void generateHtml_severalXmls_keepsFirstContentOfEachId() throws IOException {
+        File xmlFile = writeXml("notice.xml", VALID_XML_STRING);
+        File otherXmlFile = writeXml("other.xml", OTHER_XML_STRING);
+        File htmlFile = new File(mTemporaryFolder.getRoot(), "notice.html");
+
+        assertThat(LicenseHtmlGeneratorFromXml.generateHtml(Arrays.asList(xmlFile, otherXmlFile),
+                htmlFile)).isTrue();
+
+        String html = readHtml(htmlFile);
+        assertThat(html).contains("<li><a href=\"#id0\">/file2</a></li>\n"
+                + "<li><a href=\"#id1\">/file3</a></li>\n");
+        assertThat(html).contains("license content #0\n");
+        assertThat(html).contains("license é #1\n");
+        assertThat(html).doesNotContain("duplicate content");
+    }
+
+    @Test
+    public void generateHtml_invalidXml_ignoresFile() throws IOException {
+        File invalidXmlFile = writeXml("invalid.xml", INVALID_XML_STRING);
+        File xmlFile = writeXml("notice.xml", VALID_XML_STRING);
+        File htmlFile = new File(mTemporaryFolder.getRoot(), "notice.html");
+
+        assertThat(LicenseHtmlGeneratorFromXml.generateHtml(
+                Arrays.asList(invalidXmlFile, xmlFile), htmlFile)).isTrue();
+        assertThat(readHtml(htmlFile)).isEqualTo(EXPECTED_HTML_STRING);
+    }
+
+    @Test
+    public void generateHtml_noValidXml_returnsFalse() throws IOException {
+        File invalidXmlFile = writeXml("invalid.xml", INVALID_XML_STRING);
+        File htmlFile = new File(mTemporaryFolder.getRoot(), "notice.html");
+
+        assertThat(LicenseHtmlGeneratorFromXml.generateHtml(
+                Collections.singletonList(invalidXmlFile), htmlFile)).isFalse();
+    }
+
+    @Test
+    public void generateHtml_deletesSpoolFile() throws IOException {
+        File xmlFile = writeXml("notice.xml", VALID_XML_STRING);
+        File htmlFile = new File(mTemporaryFolder.getRoot(), "notice.html");
+
+        LicenseHtmlGeneratorFromXml.generateHtml(Collections.singletonList(xmlFile), htmlFile);
+
+        assertThat(mTemporaryFolder.getRoot().list()).asList()
+                .containsExactly("notice.xml", "notice.html");
+    }
+
+    @Test
+    public void generatePagedHtml_writesIndexLinkingToPages() throws IOException {
+        File xmlFile = writeXml("notice.xml", VALID_XML_STRING);
+        File otherXmlFile = writeXml("other.xml", OTHER_XML_STRING);
+        File pagesDir = mTemporaryFolder.newFolder("pages");
+        File indexFile = new File(pagesDir, "index.html");
+
+        assertThat(LicenseHtmlGeneratorFromXml.generatePagedHtml(
+                Arrays.asList(xmlFile, otherXmlFile), indexFile, /* licensesPerPage= */ 1))
+                .isTrue();
+
+        String index = readHtml(indexFile);
+        assertThat(index).contains("<li><a href=\"page_0.html#id0\">/file0</a></li>\n");
+        assertThat(index).contains("<li><a href=\"page_1.html#id1\">/file3</a></li>\n");
+        assertThat(index).doesNotContain("license content #0");
+        assertThat(readHtml(new File(pagesDir, "page_0.html")))
+                .contains("<tr id=\"id0\"><td class=\"same-license\">\n");
+        assertThat(readHtml(new File(pagesDir, "page_1.html"))).contains("license é #1\n");
+        assertThat(pagesDir.list()).asList()
+                .containsExactly("index.html", "page_0.html", "page_1.html");
+    }
+
+    private File writeXml(String name, String content) throws IOException {
+        File file = mTemporaryFolder.newFile(name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String readHtml(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.system;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+/** Unit test for {@link LicenseHtmlLoader}. */
+@RunWith(RobolectricTestRunner.class)
+public class LicenseHtmlLoaderTest {
+
+    private static final String XML_STRING =
+            "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+                    + "<licenses>\n"
+                    + "<file-name contentId=\"0\">/file0</file-name>\n"
+                    + "<file-content contentId=\"0\"><![CDATA[%s]]></file-content>\n"
+                    + "</licenses>";
+    private static final String CACHED_MARKER = "cached";
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private File mCacheDir;
+    private File mXmlFile;
+    private List<File> mXmlFiles;
+
+    @Before
+    public void setUp() throws IOException {
+        mCacheDir = mTemporaryFolder.newFolder("cache");
+        mXmlFile = mTemporaryFolder.newFile("notice.xml");
+        mXmlFiles = Collections.singletonList(mXmlFile);
+        writeXml("license");
+    }
+
+    @Test
+    public void getOrGenerateHtml_singleFile_generatesHtml() throws IOException {
+        File htmlFile = LicenseHtmlLoader.getOrGenerateHtml(mXmlFiles, mCacheDir,
+                /* licensesPerPage= */ 0);
+
+        assertThat(read(htmlFile)).contains("license\n");
+        assertThat(LicenseHtmlLoader.getPageFiles(htmlFile)).isEmpty();
+    }
+
+    @Test
+    public void getOrGenerateHtml_paged_generatesIndexAndPages() throws IOException {
+        File htmlFile = LicenseHtmlLoader.getOrGenerateHtml(mXmlFiles, mCacheDir,
+                /* licensesPerPage= */ 10);
+
+        assertThat(htmlFile.getParentFile().getName())
+                .isEqualTo(LicenseHtmlLoader.NOTICE_PAGES_DIR_NAME);
+        List<File> pageFiles = LicenseHtmlLoader.getPageFiles(htmlFile);
+        assertThat(pageFiles).hasSize(1);
+        assertThat(read(pageFiles.get(0))).contains("license\n");
+    }
+
+    @Test
+    public void getOrGenerateHtml_xmlUnchanged_returnsCachedHtml() throws IOException {
+        File htmlFile = LicenseHtmlLoader.getOrGenerateHtml(mXmlFiles, mCacheDir,
+                /* licensesPerPage= */ 0);
+        Files.write(htmlFile.toPath(), CACHED_MARKER.getBytes(StandardCharsets.UTF_8));
+        // Modification times alone do not invalidate the cache.
+        mXmlFile.setLastModified(htmlFile.lastModified() + 1000);
+
+        File cachedFile = LicenseHtmlLoader.getOrGenerateHtml(mXmlFiles, mCacheDir,
+                /* licensesPerPage= */ 0);
+
+        assertThat(read(cachedFile)).isEqualTo(CACHED_MARKER);
+    }
+
+    @Test
+    public void getOrGenerateHtml_xmlContentChanged_generatesHtml() throws IOException {
+        File htmlFile = LicenseHtmlLoader.getOrGenerateHtml(mXmlFiles, mCacheDir,
+                /* licensesPerPage= */ 0);
+        Files.write(htmlFile.toPath(), CACHED_MARKER.getBytes(StandardCharsets.UTF_8));
+        writeXml("updated license");
+
+        File generatedFile = LicenseHtmlLoader.getOrGenerateHtml(mXmlFiles, mCacheDir,
+                /* licensesPerPage= */ 0);
+
+        assertThat(read(generatedFile)).contains("updated license\n");
+    }
+
+    @Test
+    public void getOrGenerateHtml_pageSizeChanged_generatesHtml() throws IOException {
+        LicenseHtmlLoader.getOrGenerateHtml(mXmlFiles, mCacheDir, /* licensesPerPage= */ 0);
+
+        File htmlFile = LicenseHtmlLoader.getOrGenerateHtml(mXmlFiles, mCacheDir,
+                /* licensesPerPage= */ 10);
+
+        assertThat(LicenseHtmlLoader.getPageFiles(htmlFile)).hasSize(1);
+        assertThat(mCacheDir.list()).asList().containsExactly(
+                LicenseHtmlLoader.NOTICE_PAGES_DIR_NAME,
+                LicenseHtmlLoader.NOTICE_CACHE_KEY_FILE_NAME);
+    }
+
+    private void writeXml(String license) throws IOException {
+        Files.write(mXmlFile.toPath(),
+                String.format(XML_STRING, license).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
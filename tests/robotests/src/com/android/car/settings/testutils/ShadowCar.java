@@ -24,6 +24,9 @@ import android.car.Car;
 import android.car.CarNotConnectedException;
 import android.content.Context;
 import android.content.ServiceConnection;
+import android.os.Handler;
+
+import com.android.car.settings.common.CarConnectionBroker;
 
 import org.mockito.stubbing.Answer;
 import org.robolectric.annotation.Implementation;
@@ -86,6 +89,18 @@ public class ShadowCar {
         return sMockCar;
     }
 
+    /**
+     * Returns a mocked version of a {@link Car} object, which is reported ready to the listener
+     * immediately.
+     */
+    @Implementation
+    protected static Car createCar(Context context, Handler handler, long waitTimeoutMs,
+            Car.CarServiceLifecycleListener statusChangeListener) {
+        Car car = createCar(context);
+        statusChangeListener.onLifecycleChanged(car, /* ready= */ true);
+        return car;
+    }
+
     /**
      * Sets the manager returned by {@link Car#getCarManager(String)}.
      *
@@ -112,5 +127,7 @@ public class ShadowCar {
         sServiceName = null;
         sCarManager = null;
         sIsConnected = false;
+        // Drop the shared connection so the next test connects to the new mock.
+        CarConnectionBroker.setInstance(null);
     }
 }
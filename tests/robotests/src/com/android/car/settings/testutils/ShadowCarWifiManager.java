@@ -44,6 +44,7 @@ public class ShadowCarWifiManager {
             new SoftApConfiguration.Builder().build();
     private static boolean sIs5GhzBandSupported = true;
     private static int sWifiState = WifiManager.WIFI_STATE_UNKNOWN;
+    private static boolean sIsDriving;
 
     public static void setInstance(CarWifiManager wifiManager) {
         sInstance = wifiManager;
@@ -56,12 +57,18 @@ public class ShadowCarWifiManager {
         sCurrentState = STATE_UNKNOWN;
         sIs5GhzBandSupported = true;
         sWifiState = WifiManager.WIFI_STATE_UNKNOWN;
+        sIsDriving = false;
     }
 
     @Implementation
     public void __constructor__(Context context) {
     }
 
+    @Implementation
+    public static CarWifiManager getInstance(Context context) {
+        return new CarWifiManager(context);
+    }
+
     @Implementation
     public void start() {
         sCurrentState = STATE_STARTED;
@@ -77,6 +84,15 @@ public class ShadowCarWifiManager {
         sCurrentState = STATE_DESTROYED;
     }
 
+    @Implementation
+    public void setDriving(boolean driving) {
+        sIsDriving = driving;
+    }
+
+    public static boolean isDriving() {
+        return sIsDriving;
+    }
+
     @Implementation
     public void setSoftApConfig(SoftApConfiguration config) {
         sSoftApConfiguration = config;
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.testutils;
+
+import com.android.settingslib.utils.ThreadUtils;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/** Shadow of {@link ThreadUtils} which runs all tasks immediately on the calling thread. */
+@Implements(ThreadUtils.class)
+public class ShadowThreadUtils {
+
+    @Implementation
+    protected static Future postOnBackgroundThread(Runnable runnable) {
+        FutureTask<Void> task = new FutureTask<>(runnable, /* result= */ null);
+        task.run();
+        return task;
+    }
+
+    @Implementation
+    protected static void postOnMainThread(Runnable runnable) {
+        runnable.run();
+    }
+}
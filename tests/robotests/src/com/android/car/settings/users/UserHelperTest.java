@@ -420,6 +420,20 @@ public class UserHelperTest {
         assertThat(mUserHelper.getMaxSupportedRealUsers()).isEqualTo(5);
     }
 
+    @Test
+    public void testRemoveUser_carServiceNotConnected_returnsFalse() {
+        mUserHelper = new UserHelper(mMockUserManager, mMockResources,
+                DEFAULT_ADMIN_NAME, DEFAULT_GUEST_NAME, /* carUserManager= */ null);
+        int fgUserId = ActivityManager.getCurrentUser();
+        int nonAdminUserId = fgUserId + 1;
+        UserInfo fgUser = createAdminUser(fgUserId);
+        UserInfo nonAdminUser = createNonAdminUser(nonAdminUserId);
+        mockGetUsers(fgUser, nonAdminUser);
+        when(mMockUserManager.isAdminUser()).thenReturn(true);
+
+        assertThat(mUserHelper.removeUser(mContext, nonAdminUser)).isFalse();
+    }
+
     @Test
     public void testCreateNewOrFindExistingGuest_ifGuestExists_returnsExistingGuest() {
         // Create two users and a guest user.
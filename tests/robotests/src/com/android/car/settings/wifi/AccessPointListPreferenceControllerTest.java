@@ -35,6 +35,7 @@ import android.net.wifi.WifiManager;
 import android.util.Pair;
 
 import androidx.lifecycle.Lifecycle;
+import androidx.preference.Preference;
 import androidx.preference.PreferenceGroup;
 
 import com.android.car.settings.common.FragmentController;
@@ -158,6 +159,88 @@ public class AccessPointListPreferenceControllerTest {
         assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(savedAccessPointList.size());
     }
 
+    @Test
+    public void refreshUi_sameAccessPoints_reusesPreferences() {
+        when(mMockAccessPoint1.getKey()).thenReturn("key1");
+        when(mMockAccessPoint2.getKey()).thenReturn("key2");
+        when(mMockCarWifiManager.getAllAccessPoints()).thenReturn(
+                Arrays.asList(mMockAccessPoint1, mMockAccessPoint2));
+        mController.refreshUi();
+        Preference preference1 = mPreferenceGroup.findPreference("key1");
+        Preference preference2 = mPreferenceGroup.findPreference("key2");
+
+        mController.refreshUi();
+
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(2);
+        assertThat(mPreferenceGroup.findPreference("key1")).isSameAs(preference1);
+        assertThat(mPreferenceGroup.findPreference("key2")).isSameAs(preference2);
+    }
+
+    @Test
+    public void refreshUi_summaryChanged_patchesPreference() {
+        when(mMockAccessPoint1.getKey()).thenReturn("key1");
+        when(mMockAccessPoint1.getSummary()).thenReturn("summary");
+        when(mMockCarWifiManager.getAllAccessPoints()).thenReturn(
+                Arrays.asList(mMockAccessPoint1));
+        mController.refreshUi();
+        Preference preference = mPreferenceGroup.findPreference("key1");
+
+        when(mMockAccessPoint1.getSummary()).thenReturn("new summary");
+        mController.refreshUi();
+
+        assertThat(mPreferenceGroup.findPreference("key1")).isSameAs(preference);
+        assertThat(preference.getSummary().toString()).isEqualTo("new summary");
+    }
+
+    @Test
+    public void refreshUi_accessPointSaved_showsForgetButton() {
+        when(mMockAccessPoint1.getKey()).thenReturn("key1");
+        when(mMockAccessPoint1.isSaved()).thenReturn(false);
+        when(mMockCarWifiManager.getAllAccessPoints()).thenReturn(
+                Arrays.asList(mMockAccessPoint1));
+        mController.refreshUi();
+
+        when(mMockAccessPoint1.isSaved()).thenReturn(true);
+        mController.refreshUi();
+
+        ButtonPasswordEditTextPreference preference = mPreferenceGroup.findPreference("key1");
+        assertThat(preference.isButtonShown()).isTrue();
+    }
+
+    @Test
+    public void refreshUi_accessPointGone_removesOnlyItsPreference() {
+        when(mMockAccessPoint1.getKey()).thenReturn("key1");
+        when(mMockAccessPoint2.getKey()).thenReturn("key2");
+        when(mMockCarWifiManager.getAllAccessPoints()).thenReturn(
+                Arrays.asList(mMockAccessPoint1, mMockAccessPoint2));
+        mController.refreshUi();
+        Preference preference2 = mPreferenceGroup.findPreference("key2");
+
+        when(mMockCarWifiManager.getAllAccessPoints()).thenReturn(
+                Arrays.asList(mMockAccessPoint2));
+        mController.refreshUi();
+
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(1);
+        assertThat(mPreferenceGroup.findPreference("key1")).isNull();
+        assertThat(mPreferenceGroup.findPreference("key2")).isSameAs(preference2);
+    }
+
+    @Test
+    public void refreshUi_accessPointsReordered_updatesOrder() {
+        when(mMockAccessPoint1.getKey()).thenReturn("key1");
+        when(mMockAccessPoint2.getKey()).thenReturn("key2");
+        when(mMockCarWifiManager.getAllAccessPoints()).thenReturn(
+                Arrays.asList(mMockAccessPoint1, mMockAccessPoint2));
+        mController.refreshUi();
+
+        when(mMockCarWifiManager.getAllAccessPoints()).thenReturn(
+                Arrays.asList(mMockAccessPoint2, mMockAccessPoint1));
+        mController.refreshUi();
+
+        assertThat(mPreferenceGroup.findPreference("key2").getOrder())
+                .isLessThan(mPreferenceGroup.findPreference("key1").getOrder());
+    }
+
     @Test
     public void performClick_noSecurityNotConnectedAccessPoint_connect() {
         when(mMockAccessPoint1.getSecurity()).thenReturn(AccessPoint.SECURITY_NONE);
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.wifi;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.when;
+
+import android.net.NetworkInfo;
+
+import com.android.settingslib.wifi.AccessPoint;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+/** Unit test for {@link AccessPointSnapshot}. */
+@RunWith(RobolectricTestRunner.class)
+public class AccessPointSnapshotTest {
+
+    @Mock
+    private AccessPoint mReachableSaved;
+    @Mock
+    private AccessPoint mReachableConnected;
+    @Mock
+    private AccessPoint mUnreachableSaved;
+
+    private List<AccessPoint> mAccessPoints;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(mReachableSaved.isReachable()).thenReturn(true);
+        when(mReachableSaved.isSaved()).thenReturn(true);
+        when(mReachableConnected.isReachable()).thenReturn(true);
+        when(mReachableConnected.getDetailedState())
+                .thenReturn(NetworkInfo.DetailedState.CONNECTED);
+        when(mUnreachableSaved.isSaved()).thenReturn(true);
+        mAccessPoints = Arrays.asList(mReachableSaved, mReachableConnected, mUnreachableSaved);
+    }
+
+    @Test
+    public void create_wifiEnabled_filtersReachable() {
+        AccessPointSnapshot snapshot = AccessPointSnapshot.create(mAccessPoints,
+                /* wifiEnabled= */ true, /* generation= */ 1);
+
+        assertThat(snapshot.getReachableAccessPoints())
+                .containsExactly(mReachableSaved, mReachableConnected).inOrder();
+    }
+
+    @Test
+    public void create_wifiEnabled_filtersSaved() {
+        AccessPointSnapshot snapshot = AccessPointSnapshot.create(mAccessPoints,
+                /* wifiEnabled= */ true, /* generation= */ 1);
+
+        assertThat(snapshot.getSavedAccessPoints()).containsExactly(mReachableSaved);
+    }
+
+    @Test
+    public void create_wifiEnabled_findsConnected() {
+        AccessPointSnapshot snapshot = AccessPointSnapshot.create(mAccessPoints,
+                /* wifiEnabled= */ true, /* generation= */ 1);
+
+        assertThat(snapshot.getConnectedAccessPoint()).isEqualTo(mReachableConnected);
+    }
+
+    @Test
+    public void create_wifiDisabled_isEmpty() {
+        AccessPointSnapshot snapshot = AccessPointSnapshot.create(mAccessPoints,
+                /* wifiEnabled= */ false, /* generation= */ 1);
+
+        assertThat(snapshot.getReachableAccessPoints()).isEmpty();
+        assertThat(snapshot.getSavedAccessPoints()).isEmpty();
+        assertThat(snapshot.getConnectedAccessPoint()).isNull();
+    }
+
+    @Test
+    public void create_keepsGeneration() {
+        AccessPointSnapshot snapshot = AccessPointSnapshot.create(mAccessPoints,
+                /* wifiEnabled= */ true, /* generation= */ 7);
+
+        assertThat(snapshot.getGeneration()).isEqualTo(7);
+    }
+
+    @Test
+    public void hasSameContent_nothingChanged_true() {
+        AccessPointSnapshot first = AccessPointSnapshot.create(mAccessPoints,
+                /* wifiEnabled= */ true, /* generation= */ 1);
+        AccessPointSnapshot second = AccessPointSnapshot.create(mAccessPoints,
+                /* wifiEnabled= */ true, /* generation= */ 2);
+
+        assertThat(second.hasSameContent(first)).isTrue();
+    }
+
+    @Test
+    public void hasSameContent_levelChanged_false() {
+        AccessPointSnapshot first = AccessPointSnapshot.create(mAccessPoints,
+                /* wifiEnabled= */ true, /* generation= */ 1);
+        when(mReachableSaved.getLevel()).thenReturn(3);
+        AccessPointSnapshot second = AccessPointSnapshot.create(mAccessPoints,
+                /* wifiEnabled= */ true, /* generation= */ 2);
+
+        assertThat(second.hasSameContent(first)).isFalse();
+    }
+
+    @Test
+    public void hasSameContent_accessPointAdded_false() {
+        AccessPointSnapshot first = AccessPointSnapshot.create(mAccessPoints,
+                /* wifiEnabled= */ true, /* generation= */ 1);
+        when(mUnreachableSaved.isReachable()).thenReturn(true);
+        AccessPointSnapshot second = AccessPointSnapshot.create(mAccessPoints,
+                /* wifiEnabled= */ true, /* generation= */ 2);
+
+        assertThat(second.hasSameContent(first)).isFalse();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void getReachableAccessPoints_isUnmodifiable() {
+        AccessPointSnapshot snapshot = AccessPointSnapshot.create(mAccessPoints,
+                /* wifiEnabled= */ true, /* generation= */ 1);
+
+        snapshot.getReachableAccessPoints().clear();
+    }
+}
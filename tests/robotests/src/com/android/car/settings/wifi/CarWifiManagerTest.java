@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.wifi;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.wifi.WifiManager;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.settingslib.wifi.WifiTracker;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+/** Unit test for {@link CarWifiManager}. */
+@RunWith(RobolectricTestRunner.class)
+public class CarWifiManagerTest {
+
+    private Context mContext;
+    private CarWifiManager mCarWifiManager;
+    @Mock
+    private WifiTracker mWifiTracker;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = ApplicationProvider.getApplicationContext();
+        mCarWifiManager = new CarWifiManager(mContext, mWifiTracker);
+    }
+
+    @Test
+    public void start_severalUsers_startsTrackerOnce() {
+        mCarWifiManager.start();
+        mCarWifiManager.start();
+
+        verify(mWifiTracker, times(1)).onStart();
+        assertThat(mCarWifiManager.isStarted()).isTrue();
+    }
+
+    @Test
+    public void stop_notLastUser_keepsTrackerStarted() {
+        mCarWifiManager.start();
+        mCarWifiManager.start();
+
+        mCarWifiManager.stop();
+
+        verify(mWifiTracker, never()).onStop();
+        assertThat(mCarWifiManager.isStarted()).isTrue();
+    }
+
+    @Test
+    public void stop_lastUser_stopsTracker() {
+        mCarWifiManager.start();
+        mCarWifiManager.start();
+
+        mCarWifiManager.stop();
+        mCarWifiManager.stop();
+
+        verify(mWifiTracker, times(1)).onStop();
+        assertThat(mCarWifiManager.isStarted()).isFalse();
+    }
+
+    @Test
+    public void stop_notStarted_doesNothing() {
+        mCarWifiManager.stop();
+        mCarWifiManager.start();
+
+        verify(mWifiTracker, never()).onStop();
+        assertThat(mCarWifiManager.isStarted()).isTrue();
+    }
+
+    @Test
+    public void destroy_notShared_destroysTracker() {
+        mCarWifiManager.destroy();
+
+        verify(mWifiTracker).onDestroy();
+    }
+
+    @Test
+    public void onWifiStateChanged_listenerRemovesItself_notifiesAllListeners() {
+        int[] notified = new int[1];
+        mCarWifiManager.addListener(new TestListener() {
+            @Override
+            public void onWifiStateChanged(int state) {
+                notified[0]++;
+                mCarWifiManager.removeListener(this);
+            }
+        });
+        mCarWifiManager.addListener(new TestListener() {
+            @Override
+            public void onWifiStateChanged(int state) {
+                notified[0]++;
+            }
+        });
+
+        mCarWifiManager.onWifiStateChanged(WifiManager.WIFI_STATE_DISABLED);
+
+        assertThat(notified[0]).isEqualTo(2);
+    }
+
+    @Test
+    public void onAccessPointsChanged_afterScanCompleted_reportsScanResults() {
+        mCarWifiManager.start();
+        mContext.sendBroadcast(new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION)
+                .putExtra(WifiManager.EXTRA_RESULTS_UPDATED, true));
+        ShadowLooper.idleMainLooper();
+
+        mCarWifiManager.onAccessPointsChanged();
+
+        assertThat(mCarWifiManager.getScanScheduler().getResultsDelivered()).isEqualTo(1);
+    }
+
+    @Test
+    public void onAccessPointsChanged_withoutScan_doesNotReportScanResults() {
+        mCarWifiManager.start();
+        ShadowLooper.idleMainLooper();
+
+        mCarWifiManager.onAccessPointsChanged();
+
+        assertThat(mCarWifiManager.getScanScheduler().getResultsDelivered()).isEqualTo(0);
+    }
+
+    @Test
+    public void scanFailed_reportsUnchangedScanResults() {
+        mCarWifiManager.start();
+
+        mContext.sendBroadcast(new Intent(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION)
+                .putExtra(WifiManager.EXTRA_RESULTS_UPDATED, false));
+        ShadowLooper.idleMainLooper();
+
+        assertThat(mCarWifiManager.getScanScheduler().getResultsDelivered()).isEqualTo(1);
+        assertThat(mCarWifiManager.getScanScheduler().getRendersSkipped()).isEqualTo(1);
+    }
+
+    @Test
+    public void isWifiEnabled_started_usesReportedState() {
+        mContext.getSystemService(WifiManager.class).setWifiEnabled(true);
+        mCarWifiManager.start();
+
+        mCarWifiManager.onWifiStateChanged(WifiManager.WIFI_STATE_DISABLED);
+
+        assertThat(mCarWifiManager.isWifiEnabled()).isFalse();
+        assertThat(mCarWifiManager.getWifiState()).isEqualTo(WifiManager.WIFI_STATE_DISABLED);
+    }
+
+    @Test
+    public void isWifiEnabled_notStarted_queriesWifiManager() {
+        mContext.getSystemService(WifiManager.class).setWifiEnabled(true);
+
+        mCarWifiManager.onWifiStateChanged(WifiManager.WIFI_STATE_DISABLED);
+
+        assertThat(mCarWifiManager.isWifiEnabled()).isTrue();
+    }
+
+    private abstract static class TestListener implements CarWifiManager.Listener {
+        @Override
+        public void onAccessPointsChanged() {
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.wifi;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.TimeUnit;
+
+/** Unit test for {@link WifiScanScheduler}. */
+@RunWith(RobolectricTestRunner.class)
+public class WifiScanSchedulerTest {
+
+    private int mScanCount;
+    private WifiScanScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mScanCount = 0;
+        mScheduler = new WifiScanScheduler(() -> mScanCount++);
+    }
+
+    @Test
+    public void start_scansRightAway() {
+        mScheduler.start();
+        ShadowLooper.idleMainLooper();
+
+        assertThat(mScanCount).isEqualTo(1);
+        assertThat(mScheduler.getScansIssued()).isEqualTo(1);
+    }
+
+    @Test
+    public void start_scansAgainAfterMinInterval() {
+        mScheduler.start();
+        ShadowLooper.idleMainLooper();
+
+        ShadowLooper.idleMainLooper(WifiScanScheduler.MIN_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        assertThat(mScanCount).isEqualTo(2);
+    }
+
+    @Test
+    public void stop_noMoreScans() {
+        mScheduler.start();
+        ShadowLooper.idleMainLooper();
+
+        mScheduler.stop();
+        ShadowLooper.idleMainLooper(WifiScanScheduler.MIN_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        assertThat(mScanCount).isEqualTo(1);
+    }
+
+    @Test
+    public void onScanResults_unchanged_backsOff() {
+        mScheduler.start();
+
+        mScheduler.onScanResults(/* changed= */ false);
+
+        assertThat(mScheduler.getIntervalMs()).isEqualTo(WifiScanScheduler.MIN_INTERVAL_MS * 2);
+        assertThat(mScheduler.getRendersSkipped()).isEqualTo(1);
+        assertThat(mScheduler.getResultsDelivered()).isEqualTo(1);
+    }
+
+    @Test
+    public void onScanResults_unchanged_capsAtParkedMaximum() {
+        mScheduler.start();
+
+        for (int i = 0; i < 10; i++) {
+            mScheduler.onScanResults(/* changed= */ false);
+        }
+
+        assertThat(mScheduler.getIntervalMs()).isEqualTo(WifiScanScheduler.MAX_INTERVAL_PARKED_MS);
+    }
+
+    @Test
+    public void onScanResults_unchangedWhileDriving_capsAtDrivingMaximum() {
+        mScheduler.start();
+        mScheduler.setDriving(true);
+
+        for (int i = 0; i < 10; i++) {
+            mScheduler.onScanResults(/* changed= */ false);
+        }
+
+        assertThat(mScheduler.getIntervalMs())
+                .isEqualTo(WifiScanScheduler.MAX_INTERVAL_DRIVING_MS);
+    }
+
+    @Test
+    public void setDriving_false_clampsInterval() {
+        mScheduler.start();
+        mScheduler.setDriving(true);
+        for (int i = 0; i < 10; i++) {
+            mScheduler.onScanResults(/* changed= */ false);
+        }
+
+        mScheduler.setDriving(false);
+
+        assertThat(mScheduler.getIntervalMs()).isEqualTo(WifiScanScheduler.MAX_INTERVAL_PARKED_MS);
+    }
+
+    @Test
+    public void onScanResults_changed_resetsInterval() {
+        mScheduler.start();
+        mScheduler.onScanResults(/* changed= */ false);
+        mScheduler.onScanResults(/* changed= */ false);
+
+        mScheduler.onScanResults(/* changed= */ true);
+
+        assertThat(mScheduler.getIntervalMs()).isEqualTo(WifiScanScheduler.MIN_INTERVAL_MS);
+        assertThat(mScheduler.getRendersSkipped()).isEqualTo(2);
+    }
+
+    @Test
+    public void onScanResults_unchanged_delaysScanAfterPendingOne() {
+        mScheduler.start();
+        ShadowLooper.idleMainLooper();
+        mScheduler.onScanResults(/* changed= */ false);
+
+        ShadowLooper.idleMainLooper(WifiScanScheduler.MIN_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        assertThat(mScanCount).isEqualTo(2);
+
+        ShadowLooper.idleMainLooper(WifiScanScheduler.MIN_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        assertThat(mScanCount).isEqualTo(2);
+
+        ShadowLooper.idleMainLooper(WifiScanScheduler.MIN_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        assertThat(mScanCount).isEqualTo(3);
+    }
+
+    @Test
+    public void onScanResults_beforeNextScan_doesNotPostponeIt() {
+        mScheduler.start();
+        ShadowLooper.idleMainLooper();
+
+        ShadowLooper.idleMainLooper(WifiScanScheduler.MIN_INTERVAL_MS / 2, TimeUnit.MILLISECONDS);
+        mScheduler.onScanResults(/* changed= */ true);
+        ShadowLooper.idleMainLooper(WifiScanScheduler.MIN_INTERVAL_MS / 2, TimeUnit.MILLISECONDS);
+
+        assertThat(mScanCount).isEqualTo(2);
+    }
+
+    @Test
+    public void onScanResults_changedAfterBackOff_bringsNextScanForward() {
+        mScheduler.start();
+        ShadowLooper.idleMainLooper();
+        mScheduler.onScanResults(/* changed= */ false);
+        ShadowLooper.idleMainLooper(WifiScanScheduler.MIN_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        mScheduler.onScanResults(/* changed= */ false);
+
+        mScheduler.onScanResults(/* changed= */ true);
+        ShadowLooper.idleMainLooper(WifiScanScheduler.MIN_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        assertThat(mScanCount).isEqualTo(3);
+    }
+
+    @Test
+    public void boost_scansRightAwayAndResetsInterval() {
+        mScheduler.start();
+        ShadowLooper.idleMainLooper();
+        mScheduler.onScanResults(/* changed= */ false);
+
+        mScheduler.boost();
+        ShadowLooper.idleMainLooper();
+
+        assertThat(mScanCount).isEqualTo(2);
+        assertThat(mScheduler.getIntervalMs()).isEqualTo(WifiScanScheduler.MIN_INTERVAL_MS);
+    }
+}
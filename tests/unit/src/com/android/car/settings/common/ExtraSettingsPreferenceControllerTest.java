@@ -24,15 +24,22 @@ import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_TITL
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.car.drivingstate.CarUxRestrictions;
+import android.content.ContentResolver;
 import android.content.Context;
+import android.content.ContextWrapper;
 import android.content.Intent;
+import android.database.ContentObserver;
 import android.graphics.drawable.Drawable;
+import android.net.Uri;
 import android.os.Bundle;
 
 import androidx.lifecycle.LifecycleOwner;
@@ -58,7 +65,9 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RunWith(AndroidJUnit4.class)
@@ -122,7 +131,7 @@ public class ExtraSettingsPreferenceControllerTest {
     public void onUxRestrictionsChanged_restricted_preferenceRestricted() {
         mMetaData.putBoolean(META_DATA_DISTRACTION_OPTIMIZED, false);
         mPreferenceBundleMap.put(mPreference, mMetaData);
-        when(mExtraSettingsLoaderMock.loadPreferences(FAKE_INTENT)).thenReturn(
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
                 mPreferenceBundleMap);
         mPreferenceController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
 
@@ -138,7 +147,7 @@ public class ExtraSettingsPreferenceControllerTest {
     public void onUxRestrictionsChanged_unrestricted_preferenceUnrestricted() {
         mMetaData.putBoolean(META_DATA_DISTRACTION_OPTIMIZED, false);
         mPreferenceBundleMap.put(mPreference, mMetaData);
-        when(mExtraSettingsLoaderMock.loadPreferences(FAKE_INTENT)).thenReturn(
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
                 mPreferenceBundleMap);
         mPreferenceController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
 
@@ -154,7 +163,7 @@ public class ExtraSettingsPreferenceControllerTest {
     public void onUxRestrictionsChanged_restricted_viewOnly_preferenceUnrestricted() {
         mMetaData.putBoolean(META_DATA_DISTRACTION_OPTIMIZED, false);
         mPreferenceBundleMap.put(mPreference, mMetaData);
-        when(mExtraSettingsLoaderMock.loadPreferences(FAKE_INTENT)).thenReturn(
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
                 mPreferenceBundleMap);
         mPreferenceController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
 
@@ -171,7 +180,7 @@ public class ExtraSettingsPreferenceControllerTest {
     public void onUxRestrictionsChanged_distractionOptimized_preferenceUnrestricted() {
         mMetaData.putBoolean(META_DATA_DISTRACTION_OPTIMIZED, true);
         mPreferenceBundleMap.put(mPreference, mMetaData);
-        when(mExtraSettingsLoaderMock.loadPreferences(FAKE_INTENT)).thenReturn(
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
                 mPreferenceBundleMap);
         mPreferenceController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
 
@@ -187,7 +196,7 @@ public class ExtraSettingsPreferenceControllerTest {
     public void onCreate_hasDynamicTitleData_placeholderAdded() {
         mMetaData.putString(META_DATA_PREFERENCE_TITLE_URI, TEST_PROVIDER);
         mPreferenceBundleMap.put(mPreference, mMetaData);
-        when(mExtraSettingsLoaderMock.loadPreferences(FAKE_INTENT)).thenReturn(
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
                 mPreferenceBundleMap);
         mPreferenceController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
 
@@ -201,7 +210,7 @@ public class ExtraSettingsPreferenceControllerTest {
     public void onCreate_hasDynamicSummaryData_placeholderAdded() {
         mMetaData.putString(META_DATA_PREFERENCE_SUMMARY_URI, TEST_PROVIDER);
         mPreferenceBundleMap.put(mPreference, mMetaData);
-        when(mExtraSettingsLoaderMock.loadPreferences(FAKE_INTENT)).thenReturn(
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
                 mPreferenceBundleMap);
         mPreferenceController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
 
@@ -215,7 +224,7 @@ public class ExtraSettingsPreferenceControllerTest {
     public void onCreate_hasDynamicIconData_placeholderAdded() {
         mMetaData.putString(META_DATA_PREFERENCE_ICON_URI, TEST_PROVIDER);
         mPreferenceBundleMap.put(mPreference, mMetaData);
-        when(mExtraSettingsLoaderMock.loadPreferences(FAKE_INTENT)).thenReturn(
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
                 mPreferenceBundleMap);
         mPreferenceController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
 
@@ -230,7 +239,7 @@ public class ExtraSettingsPreferenceControllerTest {
                 TEST_PROVIDER + "/getText/textKey");
 
         mPreferenceBundleMap.put(mPreference, mMetaData);
-        when(mExtraSettingsLoaderMock.loadPreferences(FAKE_INTENT)).thenReturn(
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
                 mPreferenceBundleMap);
         mPreferenceController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
 
@@ -244,7 +253,7 @@ public class ExtraSettingsPreferenceControllerTest {
         mMetaData.putString(META_DATA_PREFERENCE_SUMMARY_URI,
                 TEST_PROVIDER + "/getText/textKey");
         mPreferenceBundleMap.put(mPreference, mMetaData);
-        when(mExtraSettingsLoaderMock.loadPreferences(FAKE_INTENT)).thenReturn(
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
                 mPreferenceBundleMap);
         mPreferenceController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
 
@@ -259,7 +268,7 @@ public class ExtraSettingsPreferenceControllerTest {
                 TEST_PROVIDER + "/getIcon/iconKey");
 
         mPreferenceBundleMap.put(mPreference, mMetaData);
-        when(mExtraSettingsLoaderMock.loadPreferences(FAKE_INTENT)).thenReturn(
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
                 mPreferenceBundleMap);
         mPreferenceController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
 
@@ -274,7 +283,7 @@ public class ExtraSettingsPreferenceControllerTest {
     public void onStart_hasDynamicTitleData_observerAdded() {
         mMetaData.putString(META_DATA_PREFERENCE_TITLE_URI, TEST_PROVIDER);
         mPreferenceBundleMap.put(mPreference, mMetaData);
-        when(mExtraSettingsLoaderMock.loadPreferences(FAKE_INTENT)).thenReturn(
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
                 mPreferenceBundleMap);
         mPreferenceController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
 
@@ -288,7 +297,7 @@ public class ExtraSettingsPreferenceControllerTest {
     public void onStart_hasDynamicSummaryData_observerAdded() {
         mMetaData.putString(META_DATA_PREFERENCE_SUMMARY_URI, TEST_PROVIDER);
         mPreferenceBundleMap.put(mPreference, mMetaData);
-        when(mExtraSettingsLoaderMock.loadPreferences(FAKE_INTENT)).thenReturn(
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
                 mPreferenceBundleMap);
         mPreferenceController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
 
@@ -302,7 +311,7 @@ public class ExtraSettingsPreferenceControllerTest {
     public void onStart_hasDynamicIconData_observerAdded() {
         mMetaData.putString(META_DATA_PREFERENCE_ICON_URI, TEST_PROVIDER);
         mPreferenceBundleMap.put(mPreference, mMetaData);
-        when(mExtraSettingsLoaderMock.loadPreferences(FAKE_INTENT)).thenReturn(
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
                 mPreferenceBundleMap);
         mPreferenceController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
 
@@ -312,10 +321,103 @@ public class ExtraSettingsPreferenceControllerTest {
         assertThat(mPreferenceController.mObservers.size()).isEqualTo(1);
     }
 
+    @Test
+    public void onCreate_hasDynamicTitleAndSummaryData_bothSet() {
+        mMetaData.putString(META_DATA_PREFERENCE_TITLE_URI,
+                TEST_PROVIDER + "/getText/textKey");
+        mMetaData.putString(META_DATA_PREFERENCE_SUMMARY_URI,
+                TEST_PROVIDER + "/getText/textKey");
+        mPreferenceBundleMap.put(mPreference, mMetaData);
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
+                mPreferenceBundleMap);
+        mPreferenceController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
+
+        mPreferenceController.onCreate(mLifecycleOwner);
+
+        assertThat(mPreference.getTitle()).isEqualTo(TestContentProvider.TEST_TEXT_CONTENT);
+        assertThat(mPreference.getSummary()).isEqualTo(TestContentProvider.TEST_TEXT_CONTENT);
+    }
+
+    @Test
+    public void onChange_hasDynamicTitleData_titleRefreshed() {
+        mMetaData.putString(META_DATA_PREFERENCE_TITLE_URI,
+                TEST_PROVIDER + "/getText/textKey");
+        mPreferenceBundleMap.put(mPreference, mMetaData);
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
+                mPreferenceBundleMap);
+        mPreferenceController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
+        mPreferenceController.onCreate(mLifecycleOwner);
+        mPreference.setTitle("stale_title");
+
+        mPreferenceController.mObservers.get(0).onChange(/* selfChange= */ false);
+        mPreferenceController.refreshPendingDynamicData();
+
+        assertThat(mPreference.getTitle()).isEqualTo(TestContentProvider.TEST_TEXT_CONTENT);
+    }
+
+    @Test
+    public void onStart_beforeSettingsLoaded_observerRegisteredWhenLoaded() {
+        ContentResolver contentResolver = spy(mContext.getContentResolver());
+        mPreferenceController = createControllerWithContentResolver(contentResolver);
+        mMetaData.putString(META_DATA_PREFERENCE_TITLE_URI, TEST_PROVIDER);
+        mPreferenceBundleMap.put(mPreference, mMetaData);
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
+                mPreferenceBundleMap);
+        mPreferenceController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
+        mPreferenceController.setDeferBackgroundTasks(true);
+
+        mPreferenceController.onCreate(mLifecycleOwner);
+        mPreferenceController.onStart(mLifecycleOwner);
+        mPreferenceController.runDeferredBackgroundTasks();
+
+        assertThat(mPreferenceController.mObservers.size()).isEqualTo(1);
+        verify(contentResolver).registerContentObserver(any(Uri.class), anyBoolean(),
+                any(ContentObserver.class));
+    }
+
+    @Test
+    public void onStop_beforeSettingsLoaded_resultDropped() {
+        ContentResolver contentResolver = spy(mContext.getContentResolver());
+        mPreferenceController = createControllerWithContentResolver(contentResolver);
+        mMetaData.putString(META_DATA_PREFERENCE_TITLE_URI, TEST_PROVIDER);
+        mPreferenceBundleMap.put(mPreference, mMetaData);
+        when(mExtraSettingsLoaderMock.loadPreferences(anyList())).thenReturn(
+                mPreferenceBundleMap);
+        mPreferenceController.setExtraSettingsLoader(mExtraSettingsLoaderMock);
+        mPreferenceController.setDeferBackgroundTasks(true);
+
+        mPreferenceController.onCreate(mLifecycleOwner);
+        mPreferenceController.onStart(mLifecycleOwner);
+        mPreferenceController.onStop(mLifecycleOwner);
+        mPreferenceController.runDeferredBackgroundTasks();
+
+        assertThat(mScreen.getPreferenceCount()).isEqualTo(0);
+        assertThat(mPreferenceController.mObservers).isEmpty();
+        verify(contentResolver, never()).registerContentObserver(any(Uri.class), anyBoolean(),
+                any(ContentObserver.class));
+    }
+
+    private FakeExtraSettingsPreferenceController createControllerWithContentResolver(
+            ContentResolver contentResolver) {
+        Context context = new ContextWrapper(mContext) {
+            @Override
+            public ContentResolver getContentResolver() {
+                return contentResolver;
+            }
+        };
+        FakeExtraSettingsPreferenceController controller =
+                new FakeExtraSettingsPreferenceController(context, /* preferenceKey= */ "key",
+                        mFragmentController, BASELINE_UX_RESTRICTIONS);
+        controller.setPreference(mScreen);
+        return controller;
+    }
+
     private static class FakeExtraSettingsPreferenceController extends
             ExtraSettingsPreferenceController {
 
         private int mAvailabilityStatus;
+        private boolean mDeferBackgroundTasks;
+        private final List<Runnable> mDeferredBackgroundTasks = new ArrayList<>();
 
         FakeExtraSettingsPreferenceController(Context context, String preferenceKey,
                 FragmentController fragmentController, CarUxRestrictions uxRestrictions) {
@@ -325,6 +427,10 @@ public class ExtraSettingsPreferenceControllerTest {
 
         @Override
         void executeBackgroundTask(Runnable r) {
+            if (mDeferBackgroundTasks) {
+                mDeferredBackgroundTasks.add(r);
+                return;
+            }
             // run task immediately on main thread
             r.run();
         }
@@ -343,5 +449,16 @@ public class ExtraSettingsPreferenceControllerTest {
         public void setAvailabilityStatus(int availabilityStatus) {
             mAvailabilityStatus = availabilityStatus;
         }
+
+        /** Holds background tasks until {@link #runDeferredBackgroundTasks()} is called. */
+        void setDeferBackgroundTasks(boolean defer) {
+            mDeferBackgroundTasks = defer;
+        }
+
+        void runDeferredBackgroundTasks() {
+            List<Runnable> tasks = new ArrayList<>(mDeferredBackgroundTasks);
+            mDeferredBackgroundTasks.clear();
+            tasks.forEach(Runnable::run);
+        }
     }
 }
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.datausage;
+
+import static android.net.TrafficStats.UID_REMOVED;
+import static android.net.TrafficStats.UID_TETHERING;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import android.content.pm.UserInfo;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.UserHandle;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.android.settingslib.AppItem;
+import com.android.settingslib.net.UidDetailProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link AppDataUsageAggregator} over a network stats summary of the size found on
+ * devices with many installed applications and a secondary user, reporting the time spent
+ * accumulating the entries and materializing the items. The aggregator must produce the same
+ * items as, and be faster than, the per-entry {@link AppItem} accumulation it replaced, which is
+ * kept here as {@link BaselineAggregator}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AppDataUsageAggregatorBenchmarkTest {
+    private static final String TAG = "AppDataUsageBenchmark";
+
+    private static final int ENTRY_COUNT = 10000;
+    private static final int APP_COUNT = 500;
+    private static final int CURRENT_USER_ID = 10;
+    private static final int SECONDARY_USER_ID = 11;
+    private static final int REMOVED_USER_ID = 12;
+    private static final int ITERATIONS = 20;
+
+    private final List<UserInfo> mProfiles = new ArrayList<>();
+    private final int[] mUids = new int[ENTRY_COUNT];
+    private final long[] mRxBytes = new long[ENTRY_COUNT];
+    private final long[] mTxBytes = new long[ENTRY_COUNT];
+
+    @Before
+    public void setUp() {
+        mProfiles.add(new UserInfo(CURRENT_USER_ID, "current", /* flags= */ 0));
+        mProfiles.add(new UserInfo(SECONDARY_USER_ID, "secondary", /* flags= */ 0));
+        int[] userIds = {CURRENT_USER_ID, SECONDARY_USER_ID, REMOVED_USER_ID};
+        // A summary holds several entries per uid, one per set, tag and metered state.
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            int userId = userIds[i % userIds.length];
+            int appId = Process.FIRST_APPLICATION_UID + (i / userIds.length) % APP_COUNT;
+            mUids[i] = i % 100 == 0 ? Process.SYSTEM_UID : UserHandle.getUid(userId, appId);
+            mRxBytes[i] = i * 31L;
+            mTxBytes[i] = i * 7L;
+        }
+    }
+
+    @Test
+    public void aggregate_largeSummary_fasterThanBaseline() {
+        // Warm up.
+        List<AppItem> items = aggregate();
+        List<AppItem> baselineItems = aggregateBaseline();
+
+        long[] nanos = new long[ITERATIONS];
+        long[] baselineNanos = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            items = aggregate();
+            nanos[i] = SystemClock.elapsedRealtimeNanos() - start;
+            start = SystemClock.elapsedRealtimeNanos();
+            baselineItems = aggregateBaseline();
+            baselineNanos[i] = SystemClock.elapsedRealtimeNanos() - start;
+        }
+        long medianNanos = median(nanos);
+        long baselineMedianNanos = median(baselineNanos);
+
+        Log.i(TAG, "entries=" + ENTRY_COUNT + " items=" + items.size()
+                + " medianUs=" + TimeUnit.NANOSECONDS.toMicros(medianNanos)
+                + " baselineMedianUs=" + TimeUnit.NANOSECONDS.toMicros(baselineMedianNanos));
+        // One item per app of each present user, one for the secondary user, one for the system
+        // uid and one for the removed user.
+        assertThat(items).hasSize(2 * APP_COUNT + 3);
+        assertSameItems(items, baselineItems);
+        long total = 0;
+        for (AppItem item : items) {
+            if (item.category == AppItem.CATEGORY_APP) {
+                total += item.total;
+            }
+        }
+        long expectedTotal = 0;
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            expectedTotal += mRxBytes[i] + mTxBytes[i];
+        }
+        assertThat(total).isEqualTo(expectedTotal);
+        assertWithMessage("Median aggregation time compared to the baseline")
+                .that(medianNanos).isLessThan(baselineMedianNanos);
+    }
+
+    private static void assertSameItems(List<AppItem> items, List<AppItem> baselineItems) {
+        assertThat(items).hasSize(baselineItems.size());
+        for (int i = 0; i < items.size(); i++) {
+            AppItem item = items.get(i);
+            AppItem baselineItem = baselineItems.get(i);
+            assertThat(item.key).isEqualTo(baselineItem.key);
+            assertThat(item.category).isEqualTo(baselineItem.category);
+            assertThat(item.total).isEqualTo(baselineItem.total);
+        }
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private List<AppItem> aggregate() {
+        AppDataUsageAggregator aggregator =
+                new AppDataUsageAggregator(mProfiles, CURRENT_USER_ID);
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            aggregator.add(mUids[i], mRxBytes[i], mTxBytes[i]);
+        }
+        return aggregator.toAppItems();
+    }
+
+    private List<AppItem> aggregateBaseline() {
+        BaselineAggregator aggregator = new BaselineAggregator(mProfiles, CURRENT_USER_ID);
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            aggregator.add(mUids[i], mRxBytes[i], mTxBytes[i]);
+        }
+        return aggregator.mItems;
+    }
+
+    /**
+     * The aggregation previously done by {@link AppDataUsagePreferenceController}, which creates
+     * an {@link AppItem} per collapse key as entries arrive and looks users up in the profile list
+     * for every entry.
+     */
+    private static class BaselineAggregator {
+        private final List<UserInfo> mProfiles;
+        private final int mCurrentUserId;
+        private final SparseArray<AppItem> mKnownItems = new SparseArray<>();
+        private final List<AppItem> mItems = new ArrayList<>();
+
+        BaselineAggregator(List<UserInfo> profiles, int currentUserId) {
+            mProfiles = profiles;
+            mCurrentUserId = currentUserId;
+        }
+
+        void add(int uid, long rxBytes, long txBytes) {
+            int userId = UserHandle.getUserId(uid);
+            if (!UserHandle.isApp(uid) && (uid == UID_REMOVED || uid == UID_TETHERING)) {
+                accumulate(uid, AppItem.CATEGORY_APP, uid, rxBytes, txBytes);
+            } else if (!UserHandle.isApp(uid)) {
+                accumulate(Process.SYSTEM_UID, AppItem.CATEGORY_APP, uid, rxBytes, txBytes);
+            } else if (profileContainsUserId(userId) && userId == mCurrentUserId) {
+                accumulate(uid, AppItem.CATEGORY_APP, uid, rxBytes, txBytes);
+            } else if (profileContainsUserId(userId) && userId != mCurrentUserId) {
+                accumulate(UidDetailProvider.buildKeyForUser(userId), AppItem.CATEGORY_USER, uid,
+                        rxBytes, txBytes);
+                accumulate(uid, AppItem.CATEGORY_APP, uid, rxBytes, txBytes);
+            } else if (!mProfiles.stream().filter(info -> info.id == userId).findFirst()
+                    .isPresent()) {
+                accumulate(UID_REMOVED, AppItem.CATEGORY_APP, uid, rxBytes, txBytes);
+            } else {
+                accumulate(UidDetailProvider.buildKeyForUser(userId), AppItem.CATEGORY_USER, uid,
+                        rxBytes, txBytes);
+            }
+        }
+
+        private boolean profileContainsUserId(int userId) {
+            return mProfiles.stream().anyMatch(info -> info.id == userId);
+        }
+
+        private void accumulate(int collapseKey, int category, int uid, long rxBytes,
+                long txBytes) {
+            AppItem item = mKnownItems.get(collapseKey);
+            if (item == null) {
+                item = new AppItem(collapseKey);
+                item.category = category;
+                mItems.add(item);
+                mKnownItems.put(item.key, item);
+            }
+            item.addUid(uid);
+            item.total += rxBytes + txBytes;
+        }
+    }
+}
@@ -166,6 +166,22 @@ public class CarSettingsSearchIndexablesProviderTest {
         assertThat(mProvider.queryXmlResources(null).getCount()).isEqualTo(0);
     }
 
+    @Test
+    public void queryXmlResources_calledTwice_returnsSameRows() {
+        SearchIndexableResource res = makeResource(/* seed= */ 7);
+        TestSearchIndexProvider provider = new TestSearchIndexProvider();
+        provider.setResources(Collections.singletonList(res));
+        mSearchIndexableResources.addIndex(
+                new SearchIndexableData(TestSearchIndexProvider.class, provider));
+        mProvider.queryXmlResources(null);
+
+        Cursor c = mProvider.queryXmlResources(null);
+
+        assertThat(c.getCount()).isEqualTo(1);
+        c.moveToFirst();
+        assertEqual(c, res);
+    }
+
     @Test
     public void queryRawData_fillsColumns() {
         SearchIndexableRaw rawData = makeRawData(/* seed= */ 99);
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.search;
+
+import static com.android.car.settings.common.PreferenceXmlParser.MetadataFlag.FLAG_NEED_KEY;
+import static com.android.car.settings.common.PreferenceXmlParser.MetadataFlag.FLAG_NEED_SEARCHABLE;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.util.SparseArray;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.android.car.settings.R;
+import com.android.car.settings.common.PreferenceMetadata;
+import com.android.car.settings.common.PreferenceXmlParser;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+public class PrebuiltScreenIndexTest {
+    private final Context mContext = ApplicationProvider.getApplicationContext();
+
+    @Test
+    public void get_indexedScreen_returnsIndex() {
+        assertThat(PrebuiltScreenIndex.get(mContext, R.xml.display_settings_fragment)).isNotNull();
+    }
+
+    @Test
+    public void get_notIndexed_returnsNull() {
+        assertThat(PrebuiltScreenIndex.get(mContext, /* xmlResId= */ 0)).isNull();
+    }
+
+    @Test
+    public void isOverlaid_xmlOfThisApk_returnsFalse() {
+        assertThat(PrebuiltScreenIndex.isOverlaid(mContext, R.xml.display_settings_fragment))
+                .isFalse();
+    }
+
+    @Test
+    public void isOverlaid_resourceOfAnotherApk_returnsTrue() {
+        // Framework resources are loaded from framework-res.apk, as overlays from their own APK.
+        assertThat(PrebuiltScreenIndex.isOverlaid(mContext, android.R.drawable.ic_delete))
+                .isTrue();
+    }
+
+    @Test
+    public void allScreens_matchParsedXml() throws Exception {
+        SparseArray<PrebuiltScreenIndex> screens = PrebuiltScreenIndex.getAll();
+        assertThat(screens.size()).isGreaterThan(0);
+
+        for (int i = 0; i < screens.size(); i++) {
+            PrebuiltScreenIndex screen = screens.valueAt(i);
+            List<PreferenceMetadata> metadata = PreferenceXmlParser.extractMetadata(mContext,
+                    screens.keyAt(i), FLAG_NEED_KEY | FLAG_NEED_SEARCHABLE);
+
+            assertThat(screen.size()).isEqualTo(metadata.size());
+            for (int j = 0; j < metadata.size(); j++) {
+                assertThat(screen.getKey(mContext, j)).isEqualTo(metadata.get(j).getKey());
+                assertThat(screen.isSearchable(j)).isEqualTo(metadata.get(j).isSearchable());
+            }
+        }
+    }
+
+    @Test
+    public void getNonIndexableKeys_pageSearchDisabled_returnsAllKeys() {
+        PrebuiltScreenIndex screen = PrebuiltScreenIndex.get(mContext, R.xml.display_settings_fragment);
+
+        List<String> keys = screen.getNonIndexableKeys(mContext, /* pageSearchEnabled= */ false);
+
+        assertThat(keys).hasSize(screen.size());
+    }
+}
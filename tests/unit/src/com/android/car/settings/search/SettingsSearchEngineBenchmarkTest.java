@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.search;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link SettingsSearchEngine} over the preferences of all screens indexed at build time,
+ * typing each query one keystroke at a time as a search field would.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SettingsSearchEngineBenchmarkTest {
+    private static final String TAG = "SettingsSearchBenchmark";
+
+    private static final String[] QUERIES = {
+            "bluetooth", "wi-fi preferences", "brightnes", "languge", "date time", "notifcations",
+            "storage", "location access", "security", "units temperature"};
+    private static final int ITERATIONS = 20;
+    private static final int MAX_RESULTS = 20;
+    /**
+     * Maximum fraction of the words compared for typos, relative to comparing each token allowing
+     * typos with every indexed word.
+     */
+    private static final double MAX_WORDS_COMPARED_RATIO = 0.5;
+
+    private final Context mContext = ApplicationProvider.getApplicationContext();
+    private SettingsSearchEngine mEngine;
+
+    @Before
+    public void setUp() {
+        long start = SystemClock.elapsedRealtimeNanos();
+        mEngine = SettingsSearchEngine.create(mContext);
+        Log.i(TAG, "Indexed " + mEngine.size() + " entries in "
+                + TimeUnit.NANOSECONDS.toMicros(SystemClock.elapsedRealtimeNanos() - start)
+                + "us");
+    }
+
+    /**
+     * Checks that a keystroke searched on the main thread, as by
+     * {@link SettingsSearchResultsPreferenceController}, fits in a frame. The median is compared
+     * so that a keystroke slowed down by other load on the device does not fail the test.
+     */
+    @Test
+    public void search_typedKeystrokeByKeystroke_staysWithinFrame() {
+        assertThat(mEngine.size()).isGreaterThan(0);
+
+        // Warm up.
+        typeAllQueries();
+
+        int keystrokesPerIteration = 0;
+        for (String query : QUERIES) {
+            keystrokesPerIteration += query.length();
+        }
+        long[] keystrokeNanos = new long[keystrokesPerIteration * ITERATIONS];
+        int keystrokes = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            SettingsSearchEngine.Session session = mEngine.newSession();
+            for (String query : QUERIES) {
+                for (int end = 1; end <= query.length(); end++) {
+                    long start = SystemClock.elapsedRealtimeNanos();
+                    session.search(query.substring(0, end), MAX_RESULTS);
+                    keystrokeNanos[keystrokes++] = SystemClock.elapsedRealtimeNanos() - start;
+                }
+            }
+        }
+
+        Arrays.sort(keystrokeNanos);
+        long medianNanos = keystrokeNanos[keystrokes / 2];
+        Log.i(TAG, "keystrokes=" + keystrokes
+                + " medianUs=" + TimeUnit.NANOSECONDS.toMicros(medianNanos)
+                + " worstUs=" + TimeUnit.NANOSECONDS.toMicros(keystrokeNanos[keystrokes - 1]));
+        assertThat(medianNanos).isLessThan(
+                SettingsSearchResultsPreferenceController.FRAME_BUDGET_NANOS);
+    }
+
+    /**
+     * Checks that the bigram filter leaves only a small fraction of the indexed words to compare
+     * with each query token for typos, which dominates the cost of a keystroke.
+     */
+    @Test
+    public void search_typedKeystrokeByKeystroke_comparesFewWordsForTypos() {
+        SettingsSearchEngine.Session session = mEngine.newSession();
+        long bruteForceComparisons = 0;
+        for (String query : QUERIES) {
+            for (int end = 1; end <= query.length(); end++) {
+                String typed = query.substring(0, end);
+                session.search(typed, MAX_RESULTS);
+                for (String token : SettingsSearchEngine.tokenize(typed)) {
+                    if (SettingsSearchEngine.getMaxEdits(token) > 0) {
+                        bruteForceComparisons += mEngine.getWordCount();
+                    }
+                }
+            }
+        }
+
+        Log.i(TAG, "words=" + mEngine.getWordCount() + " wordsCompared="
+                + session.getWordsCompared() + " bruteForce=" + bruteForceComparisons);
+        assertThat(bruteForceComparisons).isGreaterThan(0L);
+        assertWithMessage("Words compared for typos")
+                .that((double) session.getWordsCompared())
+                .isLessThan(bruteForceComparisons * MAX_WORDS_COMPARED_RATIO);
+    }
+
+    @Test
+    public void search_typoInQuery_findsIntendedEntry() {
+        SettingsSearchEngine.Session session = mEngine.newSession();
+
+        assertThat(session.search("bluetoth", MAX_RESULTS)).isNotEmpty();
+    }
+
+    private void typeAllQueries() {
+        SettingsSearchEngine.Session session = mEngine.newSession();
+        for (String query : QUERIES) {
+            for (int end = 1; end <= query.length(); end++) {
+                session.search(query.substring(0, end), MAX_RESULTS);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.storage;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import static org.junit.Assume.assumeTrue;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.UserInfo;
+import android.os.SystemClock;
+import android.os.UserHandle;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.android.car.settings.R;
+import com.android.car.settings.users.UserHelper;
+import com.android.settingslib.applications.StorageStatsSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures {@link StorageAsyncLoader} loading every package of a growing number of users, serially
+ * and with the configured per-user parallelism. Package queries sleep for the typical latency of
+ * a storage stats call, as the loader is bound by those calls rather than by its own work. With
+ * more than one user, loading users in parallel must take clearly less time than loading them
+ * serially.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StorageAsyncLoaderBenchmarkTest {
+    private static final String TAG = "StorageLoaderBenchmark";
+
+    private static final int[] USER_COUNTS = {1, 2, 4, 8};
+    private static final int PACKAGES_PER_USER = 100;
+    private static final long QUERY_LATENCY_MS = 2;
+    private static final long PACKAGE_SIZE_BYTES = 1000;
+    /**
+     * Maximum parallel to serial load time ratio with two or more users loaded in parallel. The
+     * ideal ratio is 1 / parallelism, i.e. at most 0.5, leaving room for thread scheduling.
+     */
+    private static final double MAX_PARALLEL_TIME_RATIO = 0.75;
+    private static final String CACHE_FILE_NAME = "benchmark_app_storage_stats_cache";
+
+    private final Context mContext = spy(ApplicationProvider.getApplicationContext());
+    private final List<UserInfo> mUsers = new ArrayList<>();
+    private final List<ApplicationInfo> mApps = new ArrayList<>();
+    private AppStorageStatsCache mCache;
+
+    @Mock
+    private PackageManager mPackageManager;
+    @Mock
+    private StorageStatsSource mSource;
+    @Mock
+    private UserHelper mUserHelper;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(mContext.getPackageManager()).thenReturn(mPackageManager);
+        when(mUserHelper.getAllUsers()).thenReturn(mUsers);
+        for (int i = 0; i < PACKAGES_PER_USER; i++) {
+            ApplicationInfo app = new ApplicationInfo();
+            app.packageName = "com.example.package" + i;
+            app.uid = 10000 + i;
+            mApps.add(app);
+        }
+        // Packages are installed for all users, so their code size is only counted once.
+        when(mPackageManager.getInstalledApplicationsAsUser(anyInt(), anyInt())).thenReturn(mApps);
+
+        StorageStatsSource.AppStorageStats stats = mock(StorageStatsSource.AppStorageStats.class);
+        when(stats.getCodeBytes()).thenReturn(PACKAGE_SIZE_BYTES);
+        when(stats.getDataBytes()).thenReturn(PACKAGE_SIZE_BYTES);
+        when(stats.getTotalBytes()).thenReturn(2 * PACKAGE_SIZE_BYTES);
+        when(mSource.getStatsForPackage(any(), anyString(), any(UserHandle.class)))
+                .thenAnswer(invocation -> {
+                    SystemClock.sleep(QUERY_LATENCY_MS);
+                    return stats;
+                });
+
+        mCache = new AppStorageStatsCache(new File(mContext.getCacheDir(), CACHE_FILE_NAME));
+    }
+
+    @After
+    public void tearDown() {
+        mCache.clear();
+    }
+
+    @Test
+    public void loadInBackground_growingUserCount_parallelFasterThanSerial() {
+        int maxParallelUserLoads = mContext.getResources().getInteger(
+                R.integer.config_storage_max_parallel_user_loads);
+        assumeTrue("Users are loaded serially", maxParallelUserLoads > 1);
+        for (int userCount : USER_COUNTS) {
+            setUserCount(userCount);
+
+            long serialStart = SystemClock.elapsedRealtime();
+            SparseArray<StorageAsyncLoader.AppsStorageResult> serialResult =
+                    load(/* maxParallelUserLoads= */ 1);
+            long serialMs = SystemClock.elapsedRealtime() - serialStart;
+            long parallelStart = SystemClock.elapsedRealtime();
+            SparseArray<StorageAsyncLoader.AppsStorageResult> parallelResult =
+                    load(maxParallelUserLoads);
+            long parallelMs = SystemClock.elapsedRealtime() - parallelStart;
+
+            Log.i(TAG, "users=" + userCount + " packagesPerUser=" + PACKAGES_PER_USER
+                    + " serialMs=" + serialMs + " parallelMs=" + parallelMs
+                    + " maxParallelUserLoads=" + maxParallelUserLoads);
+            assertThat(parallelResult.size()).isEqualTo(userCount);
+            for (UserInfo user : mUsers) {
+                assertThat(parallelResult.get(user.id).getOtherAppsSize())
+                        .isEqualTo(serialResult.get(user.id).getOtherAppsSize());
+            }
+            if (userCount > 1) {
+                assertWithMessage("Parallel load time with " + userCount + " users")
+                        .that((double) parallelMs).isLessThan(serialMs * MAX_PARALLEL_TIME_RATIO);
+            }
+        }
+    }
+
+    private SparseArray<StorageAsyncLoader.AppsStorageResult> load(int maxParallelUserLoads) {
+        // Every package is queried, as on the first load after boot.
+        mCache.clear();
+        StorageAsyncLoader loader = new StorageAsyncLoader(mContext, mSource, mCache,
+                mUserHelper, maxParallelUserLoads);
+        loader.setProgressPackageCount(0);
+        return loader.loadInBackground();
+    }
+
+    private void setUserCount(int userCount) {
+        mUsers.clear();
+        for (int i = 0; i < userCount; i++) {
+            mUsers.add(new UserInfo(/* id= */ i == 0 ? 0 : 10 + i, "user" + i, /* flags= */ 0));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.system;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Measures {@link LicenseHtmlGeneratorFromXml} on a generated NOTICE file of the size found on
+ * full system images, reporting the wall time and the peak heap growth during generation. As
+ * license texts are streamed to the html, the peak heap growth must stay well below their size.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LicenseHtmlGeneratorFromXmlBenchmarkTest {
+    private static final String TAG = "LicenseHtmlBenchmark";
+
+    private static final int FILE_COUNT = 20000;
+    private static final int LICENSE_COUNT = 400;
+    private static final int LICENSE_LINE_COUNT = 1200;
+    private static final long HEAP_SAMPLE_INTERVAL_MS = 2;
+    /**
+     * Maximum peak heap growth relative to the size of the license texts. Keeping the texts in
+     * memory takes at least one byte per character, while the file names and garbage not yet
+     * collected take a few megabytes regardless of the license size.
+     */
+    private static final double MAX_PEAK_HEAP_GROWTH_RATIO = 0.5;
+
+    private final Context mContext = ApplicationProvider.getApplicationContext();
+    private File mXmlFile;
+    private File mHtmlFile;
+    private long mLicenseBytes;
+
+    @Before
+    public void setUp() throws IOException {
+        mXmlFile = new File(mContext.getCacheDir(), "benchmark_notice.xml.gz");
+        mHtmlFile = new File(mContext.getCacheDir(), "benchmark_notice.html");
+        writeNoticeXml(mXmlFile);
+    }
+
+    @After
+    public void tearDown() {
+        mXmlFile.delete();
+        mHtmlFile.delete();
+    }
+
+    @Test
+    public void generateHtml_largeNotice_peakHeapBelowLicenseSize() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        long baselineHeap = runtime.totalMemory() - runtime.freeMemory();
+        AtomicLong peakHeap = new AtomicLong(baselineHeap);
+        Thread sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                peakHeap.accumulateAndGet(runtime.totalMemory() - runtime.freeMemory(), Math::max);
+                SystemClock.sleep(HEAP_SAMPLE_INTERVAL_MS);
+            }
+        });
+        sampler.start();
+
+        long start = SystemClock.elapsedRealtime();
+        boolean generated = LicenseHtmlGeneratorFromXml.generateHtml(
+                Collections.singletonList(mXmlFile), mHtmlFile);
+        long elapsedMs = SystemClock.elapsedRealtime() - start;
+
+        sampler.interrupt();
+        sampler.join();
+        Log.i(TAG, "xmlBytes=" + mXmlFile.length() + " licenseBytes=" + mLicenseBytes
+                + " htmlBytes=" + mHtmlFile.length() + " wallMs=" + elapsedMs
+                + " peakHeapGrowthBytes=" + (peakHeap.get() - baselineHeap));
+        assertThat(generated).isTrue();
+        assertThat(mHtmlFile.length()).isGreaterThan(mLicenseBytes);
+        assertWithMessage("Peak heap growth compared to the license size")
+                .that((double) (peakHeap.get() - baselineHeap))
+                .isLessThan(mLicenseBytes * MAX_PEAK_HEAP_GROWTH_RATIO);
+    }
+
+    private void writeNoticeXml(File file) throws IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(new FileOutputStream(file)), StandardCharsets.UTF_8))) {
+            out.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<licenses>\n");
+            for (int i = 0; i < FILE_COUNT; i++) {
+                out.write("<file-name contentId=\"" + (i % LICENSE_COUNT) + "\">/system/lib/file"
+                        + i + ".so</file-name>\n");
+            }
+            for (int i = 0; i < LICENSE_COUNT; i++) {
+                out.write("<file-content contentId=\"" + i + "\"><![CDATA[");
+                for (int line = 0; line < LICENSE_LINE_COUNT; line++) {
+                    String text = "License " + i + " line " + line
+                            + ": Permission is hereby granted, free of charge, to any person.\n";
+                    out.write(text);
+                    mLicenseBytes += text.length();
+                }
+                out.write("]]></file-content>\n");
+            }
+            out.write("</licenses>\n");
+        }
+    }
+}
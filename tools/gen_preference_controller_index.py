@@ -0,0 +1,126 @@
+#!/usr/bin/env python
+#
+# Copyright (C) 2020 The Android Open Source Project
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#      http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+
+"""Generates PreferenceControllerIndex.java from the preference XML resources.
+
+Every settings:controller attribute found in the given XML files is mapped to a constructor
+reference so that PreferenceControllerListHelper can instantiate controllers without reflection.
+Controllers whose source file is not among the given inputs are skipped and left to the
+reflective fallback.
+"""
+
+import argparse
+import os
+import sys
+import xml.etree.ElementTree as ET
+
+CONTROLLER_ATTR = '{http://schemas.android.com/apk/res-auto}controller'
+SRC_ROOT_MARKER = 'src' + os.sep
+
+HEADER = """/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+// Generated by tools/gen_preference_controller_index.py. Do not edit.
+
+package com.android.car.settings.common;
+
+import android.util.ArrayMap;
+
+import java.util.Map;
+
+/**
+ * Build-time index of the {@link PreferenceController} classes declared in the preference XML
+ * resources.
+ */
+final class PreferenceControllerIndex {
+    private PreferenceControllerIndex() {
+    }
+
+    /** Returns a map from fully qualified controller class name to its factory. */
+    static Map<String, PreferenceControllerFactory> createFactories() {
+        Map<String, PreferenceControllerFactory> factories = new ArrayMap<>(%d);
+"""
+
+FOOTER = """        return factories;
+    }
+}
+"""
+
+
+def java_class_name(path):
+    """Returns the fully qualified class name for a java source path, or None."""
+    normalized = os.path.normpath(path)
+    index = normalized.rfind(SRC_ROOT_MARKER)
+    if index < 0 or not normalized.endswith('.java'):
+        return None
+    relative = normalized[index + len(SRC_ROOT_MARKER):-len('.java')]
+    return relative.replace(os.sep, '.')
+
+
+def find_controllers(xml_path):
+    controllers = set()
+    try:
+        tree = ET.parse(xml_path)
+    except ET.ParseError as e:
+        sys.stderr.write('Skipping unparseable XML %s: %s\n' % (xml_path, e))
+        return controllers
+    for element in tree.iter():
+        controller = element.get(CONTROLLER_ATTR)
+        if controller:
+            controllers.add(controller)
+    return controllers
+
+
+def main():
+    parser = argparse.ArgumentParser()
+    parser.add_argument('--out', required=True)
+    parser.add_argument('inputs', nargs='+')
+    args = parser.parse_args()
+
+    available_classes = set()
+    controllers = set()
+    for path in args.inputs:
+        if path.endswith('.xml'):
+            controllers |= find_controllers(path)
+        else:
+            class_name = java_class_name(path)
+            if class_name:
+                available_classes.add(class_name)
+
+    indexed = sorted(c for c in controllers if c in available_classes)
+    with open(args.out, 'w') as out:
+        out.write(HEADER % len(indexed))
+        for controller in indexed:
+            out.write('        factories.put("%s",\n                %s::new);\n'
+                      % (controller, controller))
+        out.write(FOOTER)
+
+
+if __name__ == '__main__':
+    main()
@@ -0,0 +1,214 @@
+#!/usr/bin/env python
+#
+# Copyright (C) 2020 The Android Open Source Project
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#      http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+
+"""Generates PrebuiltSearchIndex.java from the preference XML resources.
+
+For every preference screen XML, the key, title and searchable flag of each preference are
+recorded in the same order PreferenceXmlParser would return them, together with the screen title
+and the fragment showing the screen. Keys and titles referencing string resources are emitted as
+resource ids so that they are resolved for the current locale at runtime. Screens using attribute
+values which cannot be evaluated at build time (e.g. a searchable flag referencing a resource) are
+skipped and left to PreferenceXmlParser.
+"""
+
+import argparse
+import os
+import re
+import sys
+import xml.etree.ElementTree as ET
+
+ANDROID_NS = '{http://schemas.android.com/apk/res/android}'
+APP_NS = '{http://schemas.android.com/apk/res-auto}'
+KEY_ATTR = ANDROID_NS + 'key'
+TITLE_ATTR = ANDROID_NS + 'title'
+SEARCHABLE_ATTR = APP_NS + 'searchable'
+STRING_REF_PREFIX = '@string/'
+SRC_ROOT_MARKER = 'src' + os.sep
+
+# Mirrors the element filter of PreferenceXmlParser.
+SUPPORTED_PREF_TYPES = ('Preference', 'PreferenceCategory', 'PreferenceScreen')
+PREF_TAG_SUFFIXES = ('Preference', 'PreferenceGroup')
+
+SCREEN_RES_ID_PATTERN = re.compile(
+    r'int\s+getPreferenceScreenResId\(\)\s*\{\s*return\s+R\.xml\.(\w+)\s*;')
+
+HEADER = """/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+// Generated by tools/gen_search_index.py. Do not edit.
+
+package com.android.car.settings.search;
+
+import android.util.SparseArray;
+
+import com.android.car.settings.R;
+
+/**
+ * Build-time index of the preferences declared in the preference screen XML resources.
+ */
+final class PrebuiltSearchIndex {
+    private PrebuiltSearchIndex() {
+    }
+
+    /** Returns a map from preference screen XML resource id to its index. */
+    static SparseArray<PrebuiltScreenIndex> createScreens() {
+        SparseArray<PrebuiltScreenIndex> screens = new SparseArray<>(%d);
+"""
+
+FOOTER = """        return screens;
+    }
+}
+"""
+
+
+class UnsupportedValueError(Exception):
+    pass
+
+
+def java_class_name(path):
+    """Returns the fully qualified class name for a java source path, or None."""
+    normalized = os.path.normpath(path)
+    index = normalized.rfind(SRC_ROOT_MARKER)
+    if index < 0 or not normalized.endswith('.java'):
+        return None
+    relative = normalized[index + len(SRC_ROOT_MARKER):-len('.java')]
+    return relative.replace(os.sep, '.')
+
+
+def is_preference_tag(tag):
+    return tag in SUPPORTED_PREF_TYPES or tag.endswith(PREF_TAG_SUFFIXES)
+
+
+def java_string(value):
+    return '"%s"' % value.replace('\\', '\\\\').replace('"', '\\"')
+
+
+def string_res(value):
+    """Returns the R.string reference for a string resource reference, or None."""
+    if value is not None and value.startswith(STRING_REF_PREFIX):
+        return 'R.string.' + value[len(STRING_REF_PREFIX):].replace('.', '_')
+    return None
+
+
+def parse_key(value):
+    """Returns a (resource id, literal) pair of java expressions for a key attribute."""
+    if value is None:
+        return '0', 'null'
+    res = string_res(value)
+    if res:
+        return res, 'null'
+    if value.startswith('@') or value.startswith('?'):
+        raise UnsupportedValueError('key ' + value)
+    return '0', java_string(value)
+
+
+def parse_searchable(value):
+    if value is None or value == 'true':
+        return 'true'
+    if value == 'false':
+        return 'false'
+    raise UnsupportedValueError('searchable ' + value)
+
+
+def parse_screen(xml_path):
+    """Returns the preferences of a screen as (key res, literal key, title res, searchable)."""
+    try:
+        root = ET.parse(xml_path).getroot()
+    except ET.ParseError as e:
+        sys.stderr.write('Skipping unparseable XML %s: %s\n' % (xml_path, e))
+        return None, None
+    if root.tag != 'PreferenceScreen':
+        return None, None
+    preferences = []
+    for element in root.iter():
+        if not is_preference_tag(element.tag):
+            continue
+        key_res, literal_key = parse_key(element.get(KEY_ATTR))
+        preferences.append((key_res, literal_key,
+                            string_res(element.get(TITLE_ATTR)) or '0',
+                            parse_searchable(element.get(SEARCHABLE_ATTR))))
+    return string_res(root.get(TITLE_ATTR)) or '0', preferences
+
+
+def find_fragments(java_paths):
+    """Returns a map from XML resource name to the single fragment class showing it."""
+    fragments = {}
+    for path in java_paths:
+        class_name = java_class_name(path)
+        if not class_name:
+            continue
+        with open(path, encoding='utf-8', errors='replace') as f:
+            match = SCREEN_RES_ID_PATTERN.search(f.read())
+        if match:
+            fragments.setdefault(match.group(1), []).append(class_name)
+    # Screens shown by several fragments have no single target.
+    return dict((xml, classes[0]) for xml, classes in fragments.items() if len(classes) == 1)
+
+
+def write_screen(out, name, fragment, screen_title, preferences):
+    out.write('        screens.put(R.xml.%s, new PrebuiltScreenIndex(\n' % name)
+    out.write('                %s, %s,\n' % (java_string(fragment) if fragment else 'null',
+                                           screen_title))
+    literal_keys = [p[1] for p in preferences]
+    out.write('                new int[] {%s},\n' % ', '.join(p[0] for p in preferences))
+    if any(key != 'null' for key in literal_keys):
+        out.write('                new String[] {%s},\n' % ', '.join(literal_keys))
+    else:
+        out.write('                /* literalKeys= */ null,\n')
+    out.write('                new int[] {%s},\n' % ', '.join(p[2] for p in preferences))
+    out.write('                new boolean[] {%s}));\n' % ', '.join(p[3] for p in preferences))
+
+
+def main():
+    parser = argparse.ArgumentParser()
+    parser.add_argument('--out', required=True)
+    parser.add_argument('inputs', nargs='+')
+    args = parser.parse_args()
+
+    fragments = find_fragments(p for p in args.inputs if p.endswith('.java'))
+    screens = []
+    for path in sorted(p for p in args.inputs if p.endswith('.xml')):
+        name = os.path.splitext(os.path.basename(path))[0]
+        try:
+            screen_title, preferences = parse_screen(path)
+        except UnsupportedValueError as e:
+            sys.stderr.write('Not indexing %s, unsupported %s\n' % (path, e))
+            continue
+        if preferences:
+            screens.append((name, fragments.get(name), screen_title, preferences))
+
+    with open(args.out, 'w') as out:
+        out.write(HEADER % len(screens))
+        for screen in screens:
+            write_screen(out, *screen)
+        out.write(FOOTER)
+
+
+if __name__ == '__main__':
+    main()